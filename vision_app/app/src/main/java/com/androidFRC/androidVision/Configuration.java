@@ -16,16 +16,44 @@ public final class Configuration
     public static final int VIDEO_HEIGHT = 480;
     public static final int VIDEO_WIDTH = 640;
 
+    //Threshold the Camera's YUV Frames Directly Instead of Reading Back the Preview (Skips the Readback and Color Conversion)
+    //The Preview Then Shows the Raw Image - Processing Modes Only Change What is Drawn on the GL Path
+    public static final boolean YUV_THRESHOLD = false;
+
+    //Run Readback, Processing, Encoding and Publishing as Separate Stages on Their Own Threads (See VisionPipeline)
+    //Instead of All on the GL Thread; Each Link Between Stages Holds This Many Frames Before Dropping the Oldest
+    //The Preview Then Shows the Raw Image - the Stream Still Shows the Processing Mode, but the Display Modes and HSV
+    //Tuning Have No Visible Effect on the Phone, so it is Off Until the Annotated Frame Makes it Back to the Preview
+    public static final boolean STAGED_PIPELINE = false;
+    public static final int PIPELINE_LINK_CAPACITY = 2;
+
     //Constants For The Robot Connection Information
     public static final int ROBOT_PORT = 8254;
     public static final String ROBOT_PROXY_HOST = "localhost";
     public static final int CONNECTOR_SLEEP_MS = 100;
     public static final int THRESHOLD_HEARTBEAT = 800;
     public static final int SEND_HEARTBEAT_PERIOD = 100;
+    //Robot's UDP Port for Target Updates (See BinaryWireFormat.writeDatagram), 0 to Keep Them on the TCP Connection
+    //adb Forwards Only Carry TCP, so This Needs ROBOT_PROXY_HOST Set to the Robot's Own Address
+    public static final int ROBOT_DATAGRAM_PORT = 0;
 
     //Constant for the Video Connection Information
     public static final int VIDEO_PORT = 5800;
     public static final boolean DEFAULT_SHOULD_VIDEO_STREAM = true;
+    //Bitrate the Stream is Held Near by Lowering JPEG Quality (See stream/BitrateController), 0 to Never Lower It
+    //FRC Field Radios Cap Each Robot Well Above This, But the Camera Shares That With Everything Else
+    public static final int STREAM_TARGET_KBPS = 4000;
+    //Smallest Scale the Stream May Be Shrunk To Once Quality is at its Floor (1 to Never Shrink It)
+    public static final double STREAM_MIN_ADAPTIVE_SCALE = 0.5;
+    //Socket Send Buffer per Viewer - Small, so a Slow Link Skips Frames Instead of Queuing Seconds of Old Ones
+    public static final int STREAM_SEND_BUFFER_KB = 128;
+    //A Viewer is Dropped When One Frame Takes Longer Than This to Write, or When This Many Frames in a Row Were
+    //Skipped While it Was Still Writing One (0 Turns Either Off)
+    public static final int STREAM_WRITE_TIMEOUT_MS = 2000;
+    public static final int STREAM_MAX_CONSECUTIVE_DROPS = 30;
+
+    //Port for the Latency Histograms (See PipelineStats) - Right Next to the Video Stream
+    public static final int STATS_PORT = VIDEO_PORT + 1;
 
     //WakeLock Acquiring Timeout Constant (if 0, it will Assume No Timeout [1Sec * 1000ms/sec])
     public static final int WAKE_LOCK_ACQUIRE_TIMEOUT =  1000;
@@ -42,6 +70,7 @@ public final class Configuration
         BetterCamera2Renderer.Settings settings = new BetterCamera2Renderer.Settings();
         settings.height = VIDEO_HEIGHT;
         settings.width = VIDEO_WIDTH;
+        settings.yuv_threshold = YUV_THRESHOLD;
         settings.camera_settings = new HashMap<>();
         settings.camera_settings.put(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_OFF);
         settings.camera_settings.put(CaptureRequest.CONTROL_VIDEO_STABILIZATION_MODE, CaptureRequest.CONTROL_VIDEO_STABILIZATION_MODE_OFF);
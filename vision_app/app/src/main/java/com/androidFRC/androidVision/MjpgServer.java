@@ -1,26 +1,38 @@
 package com.androidFRC.androidVision;
 
-import android.os.AsyncTask;
 import android.util.Log;
 
+import com.androidFRC.androidVision.stream.BitrateController;
+import com.androidFRC.androidVision.stream.EncodeDemand;
+import com.androidFRC.androidVision.stream.LatestTargets;
+import com.androidFRC.androidVision.stream.MjpgStreamServer;
+import com.androidFRC.androidVision.stream.StreamFrame;
+import com.androidFRC.androidVision.stream.StreamFramePool;
+import com.androidFRC.androidVision.stream.StreamProfile;
+
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
 
 /**
  * Singleton Class That Sends Frames over and IP Server
+ * The Networking Itself Lives in MjpgStreamServer (Non-Blocking, One Selector Thread)
  */
 public class MjpgServer
 {
-    private static final String K_BOUNDARY = "boundary";
     private static MjpgServer sInst = null;
     //TODO: Find Better Default Image Byte Array
     private static byte[] mDefault;
 
     private static final String TAG = "MJPG";
 
+    //Room for One Encoded Frame, and How Many Frames May Be Out With Clients at Once
+    //Frames Only Ever Hold a JPEG or a 1-Bit PNG, so 12 Bits a Pixel is Far More Than Either Needs (Even a JPEG at
+    //Quality 100 Stays Well Under That) - Not the 32 of Raw RGBA. A Frame That Still Does Not Fit Fails to Encode
+    //(The C++ Code Returns -1) and is Simply Dropped, Not Sent Cut Off
+    private static final int FRAME_CAPACITY = Configuration.VIDEO_WIDTH * Configuration.VIDEO_HEIGHT * 3 / 2;
+    //Each Stream Profile Has its Own Frame per Camera Frame, so This Grows With MjpgStreamServer.MAX_PROFILES
+    //(Which is Also How Many the Snapshot Cache Holds On To)
+    private static final int MAX_POOLED_FRAMES = 16;
+
     /**
      * Singleton getInstance of the Class
      * @return The Only MjpgServer
@@ -34,94 +46,17 @@ public class MjpgServer
         return sInst;
     }
 
-    //List of "Connections" to Manage How to Send Images
-    private ArrayList<Connection> mConnections = new ArrayList<>();
-    private Object mLock = new Object();
-
-    /**
-     * Enclosed Class Connection - Deals With the Actual Sending of Image Data
-     */
-    private class Connection
-    {
-        private Socket mSocket;
-
-        /**
-         * Constructor for Connection - Simple Set
-         * @param s - Socket to Use
-         */
-        public Connection(Socket s)
-        {
-            mSocket = s;
-        }
-
-        /**
-         * Boolean of Whether or Not the Connection is Not Closed and Connected
-         * @return Whether or Not the Connection is Not Closed and Connected
-         */
-        public boolean isAlive()
-        {
-            return !mSocket.isClosed() && mSocket.isConnected();
-        }
-
-        /**
-         * Begins the HTTP Stream Connection
-         */
-        public void start()
-        {
-            try
-            {
-                Log.i(TAG, "Starting a connection!");
-                OutputStream stream = mSocket.getOutputStream();
-                stream.write(("HTTP/1.0 200 OK\r\n" +
-                        "Server: androidvision\r\n" +
-                        "Cache-Control: no-cache\r\n" +
-                        "Pragma: no-cache\r\n" +
-                        "Connection: close\r\n" +
-                        "Content-Type: multipart/x-mixed-replace;boundary=--" + K_BOUNDARY + "\r\n").getBytes());
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
-            }
-        }
-
-        /**
-         * Sends and Flushes A Stream Of Bytes That Represent the Next Image Update
-         * @param buffer - Byte Array to be Streamed
-         */
-        public void writeImageUpdate(byte[] buffer)
-        {
-            if (!isAlive() || buffer == null)
-            {
-                return;
-            }
-            Log.d(TAG, "Uploading " + buffer.length + " bytes");
-
-            OutputStream stream;
-            try
-            {
-                stream = mSocket.getOutputStream();
-                stream.write(("\r\n--" + K_BOUNDARY + "\r\n").getBytes());
-                //Content-type: image/jpeg
-                stream.write(("Content-type: image/jpeg\r\n" +
-                        "Content-Length: " + buffer.length + "\r\n" +
-                        "\r\n").getBytes());
-                stream.write(buffer);
-                stream.flush();
-            }
-            catch (IOException e)
-            {
-                //e.printStackTrace();
-                //TODO: There is a broken pipe exception being thrown here I cannot figure out.
-            }
-        }
-    }
-
     //State Variables for MjpegServer
-    private ServerSocket mServerSocket;
-    private boolean mRunning;
-    private Thread mRunThread;
-    private Long mLastUpdate = 0L;
+    private final MjpgStreamServer mEngine;
+    private final StreamFramePool mFramePool = new StreamFramePool(FRAME_CAPACITY, MAX_POOLED_FRAMES);
+    private final EncodeDemand mDemand = new EncodeDemand();
+    private final BitrateController mBitrate = new BitrateController(Configuration.STREAM_TARGET_KBPS * 1000L,
+            Configuration.STREAM_MIN_ADAPTIVE_SCALE);
+
+    //Scratch for selectProfiles - Encoding Thread Only
+    private final StreamProfile[] mProfiles = new StreamProfile[MjpgStreamServer.MAX_PROFILES];
+    private final double[] mProfileFps = new double[MjpgStreamServer.MAX_PROFILES];
+    private long mLastUpdate = 0L;
 
     /**
      * Private Constructor for the Singleton MjpegServer
@@ -129,12 +64,15 @@ public class MjpgServer
      */
     private MjpgServer()
     {
+        mEngine = new MjpgStreamServer(Configuration.VIDEO_PORT, Configuration.STREAM_SEND_BUFFER_KB * 1024,
+                Configuration.STREAM_WRITE_TIMEOUT_MS, Configuration.STREAM_MAX_CONSECUTIVE_DROPS);
+        PipelineStats.getInstance().addReport("stream", mDemand);
+        PipelineStats.getInstance().addReport("bitrate", mBitrate);
+        PipelineStats.getInstance().addReport("clients", mEngine.getClientReport());
         try
         {
-            mServerSocket = new ServerSocket(Configuration.VIDEO_PORT);
-            mRunning = true;
-            mRunThread = new Thread(runner);
-            mRunThread.start();
+            mEngine.start();
+            Log.i(TAG, "Streaming on port " + mEngine.getLocalPort());
         }
         catch (IOException e)
         {
@@ -143,121 +81,111 @@ public class MjpgServer
     }
 
     /**
-     * Creates a New Asynchronous Task that Streams an Image Update
-     * @param bytes - Byte Array of the Image Update
+     * Picks the Profiles the Frame Just Processed Should Be Encoded In - One per Distinct Scale and Quality Viewers Asked
+     * For (e.g. http://phone:5800/?scale=0.5&quality=40&fps=15), Each Only as Often as its Most Demanding Viewer Wants,
+     * and None if Nobody is Watching; Counted at /stream.txt
+     * Also Feeds What Was Written Since the Last Call to the Bitrate Controller (See /bitrate.txt)
+     * Call Once per Processed Frame, Always From the Same Thread
+     * @param out - Filled With the Profiles to Encode (At Least MjpgStreamServer.MAX_PROFILES Long)
+     * @return Number of Profiles to Encode (0 to Skip Encoding)
      */
-    public void update(byte[] bytes)
+    public int selectProfiles(StreamProfile[] out)
     {
-        new SendUpdateTask().execute(bytes);
+        long now = System.nanoTime();
+        mBitrate.update(mEngine.getTotalBytesSent(), mEngine.getTotalWriteStalls(), now);
+        int count = mEngine.getProfiles(mProfiles, mProfileFps);
+        return mDemand.select(mEngine.getViewerCount(), mProfiles, mProfileFps, count, now, out);
     }
 
     /**
-     * Sends Out A Clearing (Default) Image Update to Make Sure the User(s)
-     * Know That the Stream Has Paused
+     * JPEG Quality to Encode a Profile At - What its Viewers Asked For, Lowered While the Stream is Over its Bitrate
+     * The Frame Keeps the Requested Profile (StreamFrame.setProfile), as That is How it Finds its Viewers
+     * @param profile - Profile From selectProfiles
+     * @return Quality, 1 to 100
      */
-    public void pause()
+    public int getEncodeQuality(StreamProfile profile)
     {
-        for(Connection c : mConnections)
-        {
-            c.writeImageUpdate(mDefault);
-        }
+        return mBitrate.getQuality(profile);
     }
 
     /**
-     * Asynchronous Task that Handles Image Update Streaming
+     * Scale to Encode a Profile At - What its Viewers Asked For, Lowered While Quality Alone Cannot Hold the Bitrate
+     * @param profile - Profile From selectProfiles
+     * @return Scale, StreamProfile.MIN_SCALE to 1
      */
-    private class SendUpdateTask extends AsyncTask<byte[], Void, Void>
+    public double getEncodeScale(StreamProfile profile)
     {
-        /**
-         * Does Nothing While It is Being Sent
-         * @param progress - Current Progress on Task
-         */
-        protected void onProgressUpdate(Integer... progress)
-        {
+        return mBitrate.getScale(profile);
+    }
 
-        }
+    /**
+     * Takes an Empty Frame From the Pool for the Encoder to Fill
+     * Must Be Passed to update(StreamFrame) or Released
+     * @return A Pooled Frame, or null if Every Frame is Still Being Sent
+     */
+    public StreamFrame acquireFrame()
+    {
+        return mFramePool.acquire();
+    }
 
-        /**
-         * Does Nothing After it is Sent
-         * @param result - Result Variable
-         */
-        protected void onPostExecute(Long result)
+    /**
+     * Hands a Filled Frame to Every Connected Client Without Blocking or Copying
+     * Clients That Are Still Sending an Older Image Will Skip to This One
+     * Consumes the Caller's Reference - The Frame Returns to the Pool Once the Last Client Has Written It
+     * @param frame - Filled Frame From acquireFrame()
+     */
+    public void update(StreamFrame frame)
+    {
+        if (frame == null)
         {
-
+            return;
         }
+        mLastUpdate = System.currentTimeMillis();
+        mEngine.publish(frame);
+        frame.release();
+    }
 
-        /**
-         * The Actual Method that Sends Asynchronously
-         * Goes Off the Update Method, and Only Allows For One Parameter
-         * @param params - Byte Array (Only One)
-         * @return Nothing
-         */
-        @Override
-        protected Void doInBackground(byte[]... params)
+    /**
+     * Hands an Image Update to Every Connected Client Without Blocking the Caller
+     * Clients That Are Still Sending an Older Image Will Skip to This One
+     * @param bytes - Byte Array of the Image Update (Must Not Be Modified Afterwards)
+     */
+    public void update(byte[] bytes)
+    {
+        if (bytes == null)
         {
-            update(params[0], true);
-            return null;
+            return;
         }
+        update(new StreamFrame(bytes, bytes.length));
     }
 
     /**
-     * Sends the Image Update, Maintains Timing off the Action
-     * @param bytes - Image to Be Sent
-     * @param updateTimer - Boolean For Whether or Not to Keep Update Time
+     * Sends Out A Clearing (Default) Image Update to Make Sure the User(s)
+     * Know That the Stream Has Paused
      */
-    private void update(byte[] bytes, boolean updateTimer)
+    public void pause()
     {
-        if (updateTimer)
-        {
-            mLastUpdate = System.currentTimeMillis();
-        }
-        synchronized (mLock)
+        if (mDefault != null)
         {
-            ArrayList<Integer> badIndices = new ArrayList<>(mConnections.size());
-            for (int i = 0; i < mConnections.size(); i++)
-            {
-                Connection c = mConnections.get(i);
-                if (c == null || !c.isAlive())
-                {
-                    badIndices.add(i);
-                }
-                else
-                {
-                    c.writeImageUpdate(bytes);
-                }
-            }
-            for (int i : badIndices)
-            {
-                mConnections.remove(i);
-            }
+            update(mDefault);
         }
     }
 
-    //Runnable that Manages Connections
-    private Runnable runner = new Runnable()
+    /**
+     * Number of Viewers Currently Connected to the Stream (Or Waiting on a Snapshot)
+     * @return Viewer Count
+     */
+    public int getClientCount()
     {
-        @Override
-        public void run()
-        {
-            while (mRunning)
-            {
-                try
-                {
-                    Log.i(TAG, "Waiting for connections");
-                    Socket s = mServerSocket.accept();
-                    Log.i("MjpgServer", "Got a socket: " + s);
-                    Connection c = new Connection(s);
-                    synchronized (mLock)
-                    {
-                        mConnections.add(c);
-                    }
-                    c.start();
-                }
-                catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
-    };
-}
\ No newline at end of file
+        return mEngine.getViewerCount();
+    }
+
+    /**
+     * Where the Targets Sent to the Robot Are Also Kept for /targets.json
+     * @return The Latest Targets
+     */
+    public LatestTargets getLatestTargets()
+    {
+        return mEngine.getLatestTargets();
+    }
+}
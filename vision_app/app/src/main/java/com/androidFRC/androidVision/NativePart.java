@@ -1,5 +1,9 @@
 package com.androidFRC.androidVision;
 
+import com.androidFRC.androidVision.vision.CandidateList;
+
+import java.nio.ByteBuffer;
+
 /**
  * Class That Interfaces With The C++ Code
  */
@@ -26,13 +30,11 @@ public class NativePart
         public int getNumber() {return number;}
     }
 
-    //Calls Native Code for Processing Frame
+    //Calls Native Code for Processing Frame - Reads it Back, Thresholds it and Finds the Candidates (Nothing is Drawn)
     public static native void processFrame(
             int tex1,
-            int tex2,
             int w,
             int h,
-            int mode,
             int h_min,
             int h_max,
             int s_min,
@@ -41,52 +43,141 @@ public class NativePart
             int v_max,
             TargetsInfo destInfo);
 
-    //Calls Native Code for Processing Frame and Receiving the Image in a Byte Array
-    public static native void processFrameAndSetImage(
-            int tex1,
+    //Calls Native Code for Drawing the Frame processFrame Last Read Back Onto 'tex2' (Per the Display Mode), With the
+    //Targets the Java TargetPipeline Picked - GL Thread, After the Targets Are Sent
+    public static native void drawFrame(
             int tex2,
             int w,
             int h,
             int mode,
+            CandidateList targets,
+            CandidateList rejected,
+            TargetsInfo destInfo);
+
+    //Calls Native Code for Encoding the Frame drawFrame (or readbackForStream) Last Drew to JPEG
+    //GL Thread, After the Targets Are Sent - Called Once per Stream Profile, Scaled by 'scale' (Up to 1)
+    //Returns the Number of Encoded Bytes Written (-1 if the Array Was Too Small or Nothing Was Drawn Yet)
+    public static native int encodeDisplayedFrame(
+            double scale,
+            int quality,
+            byte[] out_dis,
+            TargetsInfo destInfo);
+
+    //Calls Native Code for Encoding the Threshold Mask processFrame Last Made to a 1-Bit PNG (For Mask Stream Profiles)
+    //GL Thread - Returns the Number of Encoded Bytes Written (-1 if the Array Was Too Small or There is No Mask)
+    public static native int encodeDisplayedMask(
+            double scale,
+            byte[] out_dis,
+            TargetsInfo destInfo);
+
+    //Calls Native Code for Thresholding and Finding Contours Straight From the Camera's YUV_420_888 Planes
+    //The Buffers Must Be Direct (As Image.Plane Hands Them Out) - Nothing is Drawn or Read Back From GL
+    public static native void processYuvFrame(
+            ByteBuffer y,
+            ByteBuffer u,
+            ByteBuffer v,
+            int w,
+            int h,
+            int y_row_stride,
+            int uv_row_stride,
+            int uv_pixel_stride,
+            int h_min,
+            int h_max,
+            int s_min,
+            int s_max,
+            int v_min,
+            int v_max,
+            TargetsInfo destInfo);
+
+    //Calls Native Code for Only Reading Back the Preview for the Stream (When Targets Come From processYuvFrame)
+    //encodeDisplayedFrame Then Encodes It
+    public static native void readbackForStream(
+            int w,
+            int h,
+            TargetsInfo destInfo);
+
+    //Staged Pipeline (See VisionPipeline) - Each Call Runs on its Own Thread, and the Buffers Must Be Direct
+    //GL Thread: Only Reads the Frame Back Into 'rgba' (w * h * 4 Bytes)
+    public static native void readbackFrame(
+            int w,
+            int h,
+            ByteBuffer rgba,
+            TargetsInfo destInfo);
+
+    //Process Thread: Thresholds 'rgba' Into 'mask' (w * h Bytes) and Finds the Candidates
+    public static native void processRgbaFrame(
+            ByteBuffer rgba,
+            ByteBuffer mask,
+            int w,
+            int h,
             int h_min,
             int h_max,
             int s_min,
             int s_max,
             int v_min,
             int v_max,
+            TargetsInfo destInfo);
+
+    //Encode Thread: Draws the Given Targets on 'rgba' (Per the Display Mode) - Valid to Encode Until 'rgba' is Handed On
+    public static native void annotateFrame(
+            ByteBuffer rgba,
+            ByteBuffer mask,
+            int w,
+            int h,
+            int mode,
+            CandidateList targets,
+            CandidateList rejected,
+            TargetsInfo destInfo);
+
+    //Encode Thread: Encodes the Frame annotateFrame Last Drew to JPEG - Called Once per Stream Profile
+    //Returns the Number of Encoded Bytes Written (-1 if the Array Was Too Small or Nothing Was Drawn)
+    public static native int encodeAnnotatedFrame(
+            double scale,
+            int quality,
+            byte[] out_dis,
+            TargetsInfo destInfo);
+
+    //Encode Thread: Encodes the Frame's Threshold Mask to a 1-Bit PNG, Whatever the Display Mode - Once per Mask Profile
+    //Returns the Number of Encoded Bytes Written (-1 if the Array Was Too Small)
+    public static native int encodeFrameMask(
+            ByteBuffer mask,
+            int w,
+            int h,
+            double scale,
             byte[] out_dis,
             TargetsInfo destInfo);
 
     /**
-     * These Classes are Used by the C++ Code, For Communicating Back Found Targets to Java
-     * Classes referenced from native code, DO NOT CHANGE ANY NAMING!!!!
+     * This Class is Used by the C++ Code, For Communicating Back Found Targets to Java
+     * Holds Every Convex Contour of the Frame - Picking the Actual Targets is Left to the Java TargetPipeline
+     * Java Allocates the List Once and the C++ Code Fills It In Place Every Frame, So Reading Results Creates No New Java Objects
+     * Fields referenced from native code, DO NOT CHANGE ANY NAMING!!!!
      */
     public static class TargetsInfo
     {
+        //Every Contour Candidate, Before Any Filtering
+        public final CandidateList candidates;
+
+        //Nanoseconds the C++ Code Spent in Each Stage of the Last Frame (-1 if Not Run) - See PipelineStats for the Order
+        public static final int NATIVE_STAGE_COUNT = 8;
+        public final long[] stageNanos = new long[NATIVE_STAGE_COUNT];
+
         /**
-         * Enclosed 'Target' Class (Basically A Struct)
+         * Constructor For TargetInfo, Sets Up Room For the Default Number of Candidates
          */
-        public static class Target
+        public TargetsInfo()
         {
-            public double centroidX;
-            public double centroidY;
-            public double width;
-            public double height;
+            this(CandidateList.DEFAULT_CAPACITY);
         }
 
-        public int numTargets;
-        public final Target[] targets;
-
         /**
-         * Constructor For TargetInfo, Sets Up A Target Array of 3
+         * Constructor For TargetInfo, Sets Up Room For 'capacity' Candidates
+         * Frames With More Candidates Grow the List Instead of Being Cut Off
+         * @param capacity - Number of Candidates That Fit Before Growing
          */
-        public TargetsInfo()
+        public TargetsInfo(int capacity)
         {
-            targets = new Target[3];
-            for (int i = 0; i < targets.length; i++)
-            {
-                targets[i] = new Target();
-            }
+            candidates = new CandidateList(capacity);
         }
     }
 }
@@ -0,0 +1,126 @@
+package com.androidFRC.androidVision;
+
+import android.util.Log;
+
+import com.androidFRC.androidVision.stats.FrameTrace;
+import com.androidFRC.androidVision.stats.LatencyStats;
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.io.IOException;
+
+/**
+ * Singleton Holding a Latency Histogram for Every Stage of Every Frame, Served Over HTTP on Configuration.STATS_PORT
+ * (Plain Text at /, JSON at /stats.json) so p50/p99 Can Be Watched From the Driver Station During a Match
+ * Also Holds the FrameTrace That Follows Each Frame ID From Capture to the Wire (At /trace.txt and /trace.json),
+ * and Serves Any Other Report Added Here (Like the Staged Pipeline's Queue Depths at /pipeline.txt)
+ */
+public class PipelineStats
+{
+    private static PipelineStats sInst = null;
+
+    private static final String TAG = "PipelineStats";
+
+    //Stages Timed by the C++ Code - Same Order as NativeStage in image_processor.cpp
+    public static final int STAGE_READBACK = 0;
+    public static final int STAGE_COLOR = 1;  //Threshold Lookup Table Rebuild - Only Runs When the HSV Ranges Change
+    public static final int STAGE_THRESHOLD = 2;
+    public static final int STAGE_CONTOURS = 3;
+    public static final int STAGE_DRAW = 4;
+    public static final int STAGE_UPLOAD = 5;
+    public static final int STAGE_CONVERT = 6;
+    public static final int STAGE_ENCODE = 7;
+    //Stages Timed in Java
+    public static final int STAGE_WAIT = 8;
+    public static final int STAGE_NATIVE = 9;
+    public static final int STAGE_FILTER = 10;
+    public static final int STAGE_PUBLISH = 11;
+    public static final int STAGE_FRAME = 12;
+    public static final int STAGE_SEND_QUEUE = 13;
+    public static final int STAGE_END_TO_END = 14;
+
+    private static final String[] STAGE_NAMES = {
+            "readback", "color", "threshold", "contours", "draw", "upload", "convert", "encode",
+            //Capture Start to onCameraTexture, the Whole C++ Call, Java Filters, Handing the Frame to the Stream
+            "wait", "native", "filter", "publish",
+            //All of onCameraTexture, Queued for the Robot Until Written, Capture Start to Written to the Robot
+            "frame", "sendQueue", "endToEnd"};
+
+    /**
+     * Singleton getInstance of the Class
+     * @return The Only PipelineStats
+     */
+    public static synchronized PipelineStats getInstance()
+    {
+        if (sInst == null)
+        {
+            sInst = new PipelineStats();
+        }
+        return sInst;
+    }
+
+    //About Ten Seconds of Frames at 30 FPS
+    private static final int TRACED_FRAMES = 256;
+
+    private final LatencyStats mStats = new LatencyStats(STAGE_NAMES);
+    private final FrameTrace mTrace = new FrameTrace(TRACED_FRAMES);
+    private final StatsHttpServer mServer;
+
+    /**
+     * Private Constructor for the Singleton - Starts the HTTP Endpoint
+     */
+    private PipelineStats()
+    {
+        mServer = new StatsHttpServer(Configuration.STATS_PORT, mStats, mTrace);
+        try
+        {
+            mServer.start();
+            Log.i(TAG, "Serving latency stats on port " + mServer.getLocalPort());
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds One Measurement (Lock-Free, Safe From Any Thread)
+     * @param stage - One of the STAGE_ Constants
+     * @param nanos - How Long it Took (Negative Means 'Did Not Run' and is Ignored)
+     */
+    public void record(int stage, long nanos)
+    {
+        mStats.record(stage, nanos);
+    }
+
+    /**
+     * Records Every Stage the C++ Code Timed for the Last Frame
+     * @param stageNanos - NativePart.TargetsInfo.stageNanos
+     */
+    public void recordNative(long[] stageNanos)
+    {
+        for (int i = 0; i < stageNanos.length; i++)
+        {
+            mStats.record(STAGE_READBACK + i, stageNanos[i]);
+        }
+    }
+
+    /**
+     * Serves Another Report Next to the Histograms (e.g. /pipeline.txt)
+     * @param name - Path Name, Without the Slash or Extension
+     * @param report - What to Serve
+     */
+    public void addReport(String name, StatsHttpServer.Report report)
+    {
+        mServer.addReport(name, report);
+    }
+
+    public LatencyStats getStats()
+    {
+        return mStats;
+    }
+
+    public FrameTrace getTrace()
+    {
+        return mTrace;
+    }
+}
@@ -6,6 +6,8 @@ import android.content.res.Resources;
 import android.preference.PreferenceManager;
 import android.util.Pair;
 
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+
 /**
  * Manages Shared Preferences, Used for Maintaining Changes for the HSV Ranges for OpenCV
  */
@@ -27,6 +29,11 @@ public class Preferences
     private Pair<Integer, Integer> m_s_ranges;
     private Pair<Integer, Integer> m_v_ranges;
 
+    /**
+     * The Numbers Behind the Target Filter Pipeline (See vision/TargetPipeline)
+     */
+    private TargetFilterSettings m_filter_settings;
+
     /**
      * Constructor for Preferences - Instantiates Preferences
      * @param context - Android Context
@@ -60,6 +67,28 @@ public class Preferences
         return m_prefs.getInt(key, defaultValue);
     }
 
+    /**
+     * Method to Set Preferences Values Give a "Key" and a New Value
+     * @param keyId - The String Resource Holding the Preference Key
+     * @param value - The New Floating Point Value of the Preference
+     */
+    private void setDouble(int keyId, double value)
+    {
+        SharedPreferences.Editor editor = m_prefs.edit();
+        editor.putFloat(m_context.getString(keyId), (float) value);
+        editor.apply();
+    }
+
+    /**
+     * Method to Get Preferences Values Give a "Key" and a Value to Fall Back On (If Key Cannot be Found)
+     * @param keyId - The String Resource Holding the Preference Key
+     * @param defaultValue - The Default Return Value
+     */
+    private double getDouble(int keyId, double defaultValue)
+    {
+        return m_prefs.getFloat(m_context.getString(keyId), (float) defaultValue);
+    }
+
     /**
      * Sets the 'H' Range Integers of Shared Preference
      * Determines (Along with the other HSV Methods) The Range of Colors OpenCV Should Use
@@ -141,6 +170,47 @@ public class Preferences
         return m_v_ranges;
     }
 
+    /**
+     * Gets the Target Filter Settings (Size, Shape, Fullness and Pairing Limits)
+     * @return The Settings - Do Not Modify, Use setTargetFilterSettings Instead
+     */
+    public TargetFilterSettings getTargetFilterSettings()
+    {
+        if (m_filter_settings == null)
+        {
+            TargetFilterSettings settings = new TargetFilterSettings();
+            settings.minWidth = getDouble(R.string.filter_min_width_key, TargetFilterSettings.DEFAULT_MIN_WIDTH);
+            settings.maxWidth = getDouble(R.string.filter_max_width_key, TargetFilterSettings.DEFAULT_MAX_WIDTH);
+            settings.minHeight = getDouble(R.string.filter_min_height_key, TargetFilterSettings.DEFAULT_MIN_HEIGHT);
+            settings.maxHeight = getDouble(R.string.filter_max_height_key, TargetFilterSettings.DEFAULT_MAX_HEIGHT);
+            settings.minWideness = getDouble(R.string.filter_min_wideness_key, TargetFilterSettings.DEFAULT_MIN_WIDENESS);
+            settings.maxWideness = getDouble(R.string.filter_max_wideness_key, TargetFilterSettings.DEFAULT_MAX_WIDENESS);
+            settings.minFullness = getDouble(R.string.filter_min_fullness_key, TargetFilterSettings.DEFAULT_MIN_FULLNESS);
+            settings.maxFullness = getDouble(R.string.filter_max_fullness_key, TargetFilterSettings.DEFAULT_MAX_FULLNESS);
+            settings.maxPairOffset = getDouble(R.string.filter_max_pair_offset_key, TargetFilterSettings.DEFAULT_MAX_PAIR_OFFSET);
+            m_filter_settings = settings;
+        }
+        return m_filter_settings;
+    }
+
+    /**
+     * Stores New Target Filter Settings
+     * @param settings - New Settings (Copied)
+     */
+    public void setTargetFilterSettings(TargetFilterSettings settings)
+    {
+        setDouble(R.string.filter_min_width_key, settings.minWidth);
+        setDouble(R.string.filter_max_width_key, settings.maxWidth);
+        setDouble(R.string.filter_min_height_key, settings.minHeight);
+        setDouble(R.string.filter_max_height_key, settings.maxHeight);
+        setDouble(R.string.filter_min_wideness_key, settings.minWideness);
+        setDouble(R.string.filter_max_wideness_key, settings.maxWideness);
+        setDouble(R.string.filter_min_fullness_key, settings.minFullness);
+        setDouble(R.string.filter_max_fullness_key, settings.maxFullness);
+        setDouble(R.string.filter_max_pair_offset_key, settings.maxPairOffset);
+        m_filter_settings = null;
+    }
+
     /**
      * Returns All the Preferences to Their Default Values, as Set in XML
      */
@@ -153,5 +223,6 @@ public class Preferences
         m_s_ranges = null;
         setThresholdVRange(res.getInteger(R.integer.default_v_min), res.getInteger(R.integer.default_v_max));
         m_v_ranges = null;
+        setTargetFilterSettings(new TargetFilterSettings());
     }
 }
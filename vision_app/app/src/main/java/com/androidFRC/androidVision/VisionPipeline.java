@@ -0,0 +1,358 @@
+package com.androidFRC.androidVision;
+
+import android.util.Log;
+
+import com.androidFRC.androidVision.pipeline.FrameLink;
+import com.androidFRC.androidVision.pipeline.FramePipeline;
+import com.androidFRC.androidVision.pipeline.FrameStage;
+import com.androidFRC.androidVision.stats.FrameTrace;
+import com.androidFRC.androidVision.stream.MjpgStreamServer;
+import com.androidFRC.androidVision.stream.StreamFrame;
+import com.androidFRC.androidVision.stream.StreamProfile;
+import com.androidFRC.androidVision.vision.CandidateList;
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+import com.androidFRC.androidVision.vision.TargetPipeline;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The Work Done for Each Camera Frame, Split Into Stages That Each Run on Their Own Thread (See pipeline/FramePipeline)
+ *   capture (GL Thread) - Only Reads the Frame Back
+ *   process             - Threshold and Contours (C++), Then the Java TargetPipeline, Then Sends the Targets to the Robot
+ *   encode              - Draws the Targets and JPEG Encodes the Frame for the Stream
+ *   publish             - Hands the JPEG to the Stream
+ * The Robot's Update Never Waits on the JPEG - it is Sent Before the Frame Even Reaches the Encode Stage
+ * Every Stage Takes the Newest Frame Waiting for It, so the Camera Rate is Capped by the Slowest Stage, Not the Sum of Them
+ * Queue Depths and Drops Are Served With the Latency Stats at /pipeline.txt
+ */
+public class VisionPipeline
+{
+    private static final String TAG = "VisionPipeline";
+
+    /**
+     * Where the Targets of Each Frame Go
+     */
+    public interface TargetSink
+    {
+        /**
+         * Called on the Process Thread, Before the Frame is Encoded
+         * @param targets - Targets the TargetPipeline Picked (Only Valid Until This Returns)
+         * @param captureNanos - Capture Start Time of the Frame
+         * @param frameId - ID Given to the Frame When its Capture Started (-1 if Unknown)
+         */
+        void sendTargets(CandidateList targets, long captureNanos, long frameId);
+    }
+
+    /**
+     * Everything Known About One Frame - Handed From Stage to Stage by Swapping Contents (moveTo), so Images Are Never Copied
+     */
+    static class VisionFrame
+    {
+        ByteBuffer rgba;
+        ByteBuffer mask;
+        int width;
+        int height;
+        int mode;
+        final int[] ranges = new int[6];
+        TargetFilterSettings filterSettings;
+        boolean stream;
+        long frameId;
+        long captureNanos;
+
+        NativePart.TargetsInfo info = new NativePart.TargetsInfo();
+        CandidateList targets = new CandidateList();
+        CandidateList rejected = new CandidateList();
+        //One JPEG per Stream Profile Being Watched
+        StreamFrame[] encoded = new StreamFrame[MjpgStreamServer.MAX_PROFILES];
+        int encodedCount;
+
+        VisionFrame(int width, int height)
+        {
+            rgba = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+            mask = ByteBuffer.allocateDirect(width * height).order(ByteOrder.nativeOrder());
+        }
+
+        /**
+         * Swaps Contents With Another Frame - 'dst' Gets This Frame, This Gets Whatever 'dst' Held (To Be Reused)
+         * @param dst - Frame Going Downstream
+         */
+        void moveTo(VisionFrame dst)
+        {
+            ByteBuffer buffer = dst.rgba;
+            dst.rgba = rgba;
+            rgba = buffer;
+            buffer = dst.mask;
+            dst.mask = mask;
+            mask = buffer;
+            NativePart.TargetsInfo info = dst.info;
+            dst.info = this.info;
+            this.info = info;
+            CandidateList list = dst.targets;
+            dst.targets = targets;
+            targets = list;
+            list = dst.rejected;
+            dst.rejected = rejected;
+            rejected = list;
+            StreamFrame[] frames = dst.encoded;
+            dst.encoded = encoded;
+            encoded = frames;
+            int count = dst.encodedCount;
+            dst.encodedCount = encodedCount;
+            encodedCount = count;
+
+            dst.width = width;
+            dst.height = height;
+            dst.mode = mode;
+            System.arraycopy(ranges, 0, dst.ranges, 0, ranges.length);
+            dst.filterSettings = filterSettings;
+            dst.stream = stream;
+            dst.frameId = frameId;
+            dst.captureNanos = captureNanos;
+        }
+
+        /**
+         * Lets Go of JPEGs That Never Reached the Stream
+         */
+        void releaseEncoded()
+        {
+            for (int i = 0; i < encodedCount; i++)
+            {
+                encoded[i].release();
+                encoded[i] = null;
+            }
+            encodedCount = 0;
+        }
+    }
+
+    private final PipelineStats mStats = PipelineStats.getInstance();
+    private final TargetSink mSink;
+    private final int mCapacity;
+    private final FramePipeline mPipeline = new FramePipeline();
+    private final FrameLink<VisionFrame> mCaptured;
+    private final FrameLink<VisionFrame> mProcessed;
+    private final FrameLink<VisionFrame> mEncoded;
+
+    //Only Touched by the Process Thread - Rebuilt Whenever the Filter Preferences Change
+    private TargetFilterSettings mFilterSettings;
+    private TargetPipeline mTargetPipeline = new TargetFilterSettings().buildPipeline();
+
+    //GL Thread's Own Timings (The Readback)
+    private final NativePart.TargetsInfo mCaptureInfo = new NativePart.TargetsInfo();
+
+    /**
+     * Creates the Stages (Not Yet Running) and Preallocates Every Frame
+     * @param width - Largest Frame Width
+     * @param height - Largest Frame Height
+     * @param capacity - Frames Each Link Holds Before Dropping the Oldest
+     * @param sink - Gets the Targets of Every Frame
+     */
+    public VisionPipeline(final int width, final int height, int capacity, TargetSink sink)
+    {
+        mSink = sink;
+        mCapacity = width * height;
+        FrameLink.Factory<VisionFrame> factory = new FrameLink.Factory<VisionFrame>()
+        {
+            @Override
+            public VisionFrame create()
+            {
+                return new VisionFrame(width, height);
+            }
+        };
+        //A JPEG Skipped on its Way to the Stream Goes Back to the Stream's Pool Right Away
+        FrameLink.DropListener<VisionFrame> releaseEncoded = new FrameLink.DropListener<VisionFrame>()
+        {
+            @Override
+            public void onDropped(VisionFrame frame)
+            {
+                frame.releaseEncoded();
+            }
+        };
+        mCaptured = mPipeline.addLink(new FrameLink<>("captured", capacity, factory));
+        mProcessed = mPipeline.addLink(new FrameLink<>("processed", capacity, factory));
+        mEncoded = mPipeline.addLink(new FrameLink<>("encoded", capacity, factory, releaseEncoded));
+        mPipeline.addStage(new ProcessStage());
+        mPipeline.addStage(new EncodeStage());
+        mPipeline.addStage(new PublishStage());
+        mStats.addReport("pipeline", mPipeline);
+    }
+
+    public void start()
+    {
+        mPipeline.start();
+    }
+
+    public void stop()
+    {
+        mPipeline.stop();
+    }
+
+    /**
+     * Reads the Current Frame Back and Hands it to the Process Stage (GL Thread Only)
+     * @param width - Frame Width
+     * @param height - Frame Height
+     * @param captureNanos - Capture Start Time
+     * @param frameId - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     * @param mode - Display Mode for the Stream (NativePart.DISP_MODE)
+     * @param ranges - hMin, hMax, sMin, sMax, vMin, vMax
+     * @param filterSettings - Target Filters to Use (null Keeps the Last Ones)
+     * @param stream - Whether to Encode the Frame for the Stream
+     */
+    public void capture(int width, int height, long captureNanos, long frameId, int mode, int[] ranges,
+                        TargetFilterSettings filterSettings, boolean stream)
+    {
+        if (width * height > mCapacity)
+        {
+            Log.e(TAG, "Frame " + width + "x" + height + " is larger than the pipeline's frames");
+            return;
+        }
+        VisionFrame frame = mCaptured.acquire();
+        NativePart.readbackFrame(width, height, frame.rgba, mCaptureInfo);
+        mStats.recordNative(mCaptureInfo.stageNanos);
+        frame.width = width;
+        frame.height = height;
+        frame.mode = mode;
+        System.arraycopy(ranges, 0, frame.ranges, 0, frame.ranges.length);
+        frame.filterSettings = filterSettings;
+        frame.stream = stream;
+        frame.frameId = frameId;
+        frame.captureNanos = captureNanos;
+        mCaptured.publish(frame);
+    }
+
+    /**
+     * Threshold, Contours, Target Filtering and Sending the Targets
+     */
+    private class ProcessStage extends FrameStage<VisionFrame, VisionFrame>
+    {
+        ProcessStage()
+        {
+            super("process", mCaptured, mProcessed);
+        }
+
+        @Override
+        protected boolean process(VisionFrame in, VisionFrame out)
+        {
+            PipelineStats stats = mStats;
+            FrameTrace trace = stats.getTrace();
+            int[] r = in.ranges;
+            long nativeStart = System.nanoTime();
+            NativePart.processRgbaFrame(in.rgba, in.mask, in.width, in.height,
+                    r[0], r[1], r[2], r[3], r[4], r[5], in.info);
+            long nativeEnd = System.nanoTime();
+            stats.record(PipelineStats.STAGE_NATIVE, nativeEnd - nativeStart);
+            stats.recordNative(in.info.stageNanos);
+            trace.mark(in.frameId, FrameTrace.HOP_PROCESSED, nativeEnd);
+
+            //Filters Run in Java (See vision/TargetPipeline) so They Can Be Tuned Without Rebuilding the C++ Code
+            if (in.filterSettings != null && in.filterSettings != mFilterSettings)
+            {
+                mTargetPipeline = in.filterSettings.buildPipeline();
+                mFilterSettings = in.filterSettings;
+            }
+            in.targets.set(mTargetPipeline.process(in.info.candidates));
+            in.rejected.set(mTargetPipeline.getRejected());
+            long filterEnd = System.nanoTime();
+            stats.record(PipelineStats.STAGE_FILTER, filterEnd - nativeEnd);
+            trace.mark(in.frameId, FrameTrace.HOP_FILTERED, filterEnd);
+
+            //Straight to the Robot - Drawing and Encoding Happen Later, on the Encode Thread
+            mSink.sendTargets(in.targets, in.captureNanos, in.frameId);
+
+            in.moveTo(out);
+            return true;
+        }
+    }
+
+    /**
+     * Drawing and JPEG Encoding for the Stream - Drawn Once, Then Encoded Once per Stream Profile Being Watched
+     * (Passes Frames Straight Through When Nobody Wants Them); Mask Profiles Encode the Frame's Threshold Mask Instead
+     */
+    private class EncodeStage extends FrameStage<VisionFrame, VisionFrame>
+    {
+        private final StreamProfile[] mProfiles = new StreamProfile[MjpgStreamServer.MAX_PROFILES];
+
+        EncodeStage()
+        {
+            super("encode", mProcessed, mEncoded);
+        }
+
+        @Override
+        protected boolean process(VisionFrame in, VisionFrame out)
+        {
+            //Only Frames of the Last Link Ever Hold a JPEG - Publishing or Dropping One Lets it Go, so 'in' Has None
+            //Nothing is Drawn or Encoded Unless a Viewer Wants This Frame
+            MjpgServer server = MjpgServer.getInstance();
+            int profiles = in.stream ? server.selectProfiles(mProfiles) : 0;
+            boolean annotated = false;
+            for (int p = 0; p < profiles; p++)
+            {
+                StreamProfile profile = mProfiles[p];
+                //Mask Viewers Alone Never Pay for the Drawing
+                if (!profile.isMask() && !annotated)
+                {
+                    NativePart.annotateFrame(in.rgba, in.mask, in.width, in.height, in.mode, in.targets, in.rejected,
+                            in.info);
+                    mStats.recordNative(in.info.stageNanos);
+                    annotated = true;
+                }
+                StreamFrame frame = server.acquireFrame();
+                if (frame == null)
+                {
+                    break;
+                }
+                int encodedLength = profile.isMask()
+                        ? NativePart.encodeFrameMask(in.mask, in.width, in.height, server.getEncodeScale(profile),
+                                frame.getData(), in.info)
+                        : NativePart.encodeAnnotatedFrame(server.getEncodeScale(profile),
+                                server.getEncodeQuality(profile), frame.getData(), in.info);
+                mStats.recordNative(in.info.stageNanos);
+                if (encodedLength > 0)
+                {
+                    frame.setProfile(profile);
+                    frame.setFrameId(in.frameId);
+                    frame.setLength(encodedLength);
+                    in.encoded[in.encodedCount++] = frame;
+                }
+                else
+                {
+                    frame.release();
+                }
+            }
+            in.moveTo(out);
+            return true;
+        }
+    }
+
+    /**
+     * Hands the JPEG to the Stream
+     */
+    private class PublishStage extends FrameStage<VisionFrame, Void>
+    {
+        PublishStage()
+        {
+            super("publish", mEncoded, null);
+        }
+
+        @Override
+        protected boolean process(VisionFrame in, Void out)
+        {
+            if (in.encodedCount == 0)
+            {
+                return true;
+            }
+            long publishStart = System.nanoTime();
+            for (int i = 0; i < in.encodedCount; i++)
+            {
+                //update() Takes Over the Reference
+                MjpgServer.getInstance().update(in.encoded[i]);
+                in.encoded[i] = null;
+            }
+            in.encodedCount = 0;
+            long publishEnd = System.nanoTime();
+            mStats.record(PipelineStats.STAGE_PUBLISH, publishEnd - publishStart);
+            mStats.getTrace().mark(in.frameId, FrameTrace.HOP_STREAMED, publishEnd);
+            return true;
+        }
+    }
+}
@@ -392,6 +392,7 @@ public class VisionTrackerActivity extends Activity implements RobotConnectionSt
         }
         mView = findViewById(R.id.my_gl_surface_view);
         mView.setCameraTextureListener(mView);
+        mView.setYuvImageListener(mView);
         mView.setPreferences(m_prefs);
         TextView tv = findViewById(R.id.fps_text_view);
         mProcMode = findViewById(R.id.proc_mode_text_view);
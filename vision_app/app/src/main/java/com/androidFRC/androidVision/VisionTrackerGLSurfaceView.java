@@ -1,14 +1,23 @@
 package com.androidFRC.androidVision;
 
-import com.androidFRC.androidVision.comm.CameraTargetInfo;
 import com.androidFRC.androidVision.comm.RobotConnection;
 import com.androidFRC.androidVision.comm.VisionUpdate;
 import com.androidFRC.androidVision.comm.messages.TargetUpdateMessage;
+import com.androidFRC.androidVision.stats.FrameTrace;
+import com.androidFRC.androidVision.stream.LatestTargets;
+import com.androidFRC.androidVision.stream.MjpgStreamServer;
+import com.androidFRC.androidVision.stream.StreamFrame;
+import com.androidFRC.androidVision.stream.StreamProfile;
+import com.androidFRC.androidVision.vision.CandidateList;
+import com.androidFRC.androidVision.vision.HomogeneousVectors;
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+import com.androidFRC.androidVision.vision.TargetPipeline;
 
 import org.opencv.android.BetterCameraGLSurfaceView;
 
 import android.app.Activity;
 import android.content.Context;
+import android.media.Image;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.AttributeSet;
@@ -18,13 +27,12 @@ import android.view.SurfaceHolder;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.nio.ByteBuffer;
-import java.util.Arrays;
-
 /**
  * The Surface that Shows the Camera Output (Through Computer Vision)
  */
-public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implements BetterCameraGLSurfaceView.CameraTextureListener
+public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView
+        implements BetterCameraGLSurfaceView.CameraTextureListener, BetterCameraGLSurfaceView.YuvImageListener,
+        VisionPipeline.TargetSink
 {
     //String Variables
     static final String LOGTAG = "VTGLSurfaceView";
@@ -37,6 +45,8 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
     //Assorted State Variables
     protected NativePart.DISP_MODE procMode = NativePart.DISP_MODE.TARGETS_PLUS;
     TextView mFpsText = null;
+    private volatile int mLastFps;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     private RobotConnection mRobotConnection;
     private Preferences m_prefs;
 
@@ -48,20 +58,52 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
     static final double kCenterCol = ((double) kWidth) / 2.0 - .5;
     static final double kCenterRow = ((double) kHeight) / 2.0 - .5;
 
-    //Two Buffers of Bytes for The C++ Image to Be Transferred Back Safely
-    private boolean byteArraySwitch;
+    //Whether the C++ Image Should Be Encoded Into a Pooled Stream Frame (See MjpgServer)
     private boolean shouldArrayBeStreamed = Configuration.DEFAULT_SHOULD_VIDEO_STREAM;
-    private final ByteBuffer bufferA = ByteBuffer.allocate(kWidth * kHeight * 4 + 4);
-    private final ByteBuffer bufferB = ByteBuffer.allocate(kWidth * kHeight * 4 + 4);
 
-    /**
-     * Static Creates a New Pair
-     * @return A New Pair of Two Integers (0, 255)
-     */
-    private static Pair<Integer, Integer> blankPair()
+    //Per-Frame Logging Builds Strings Every Frame, So it is Off Unless Debugging the Pipeline
+    private static final boolean kLogEachFrame = false;
+
+    //Filled In Place by the C++ Code Every Frame (See NativePart.TargetsInfo)
+    private final NativePart.TargetsInfo mTargetsInfo = new NativePart.TargetsInfo();
+
+    //Targets Come From the Camera's YUV Frames Instead of the GL Readback (See Configuration.YUV_THRESHOLD)
+    //The YUV Frames Arrive on Their Own Thread, so They Get Their Own TargetsInfo; the GL Thread Then Only Feeds the Stream
+    private final boolean mYuvThreshold = Configuration.YUV_THRESHOLD;
+    private final NativePart.TargetsInfo mYuvTargetsInfo = new NativePart.TargetsInfo();
+
+    //Readback, Processing, Encoding and Publishing on Separate Threads (See Configuration.STAGED_PIPELINE), null When Off
+    private final VisionPipeline mVisionPipeline = Configuration.STAGED_PIPELINE && !Configuration.YUV_THRESHOLD
+            ? new VisionPipeline(kWidth, kHeight, Configuration.PIPELINE_LINK_CAPACITY, this) : null;
+
+    //HSV Ranges, Read From the Preferences Every Frame - One Array per Thread That Reads Them
+    private final int[] mRanges = new int[6];
+    private final int[] mYuvRanges = new int[6];
+
+    //Stream Profiles to Encode the Current Frame In (GL Thread Only)
+    private final StreamProfile[] mStreamProfiles = new StreamProfile[MjpgStreamServer.MAX_PROFILES];
+
+    //Picks the Targets Out of the Candidates - Rebuilt Whenever the Filter Preferences Change
+    private TargetFilterSettings mPipelineSettings;
+    private TargetPipeline mPipeline = new TargetFilterSettings().buildPipeline();
+
+    //Latency Histograms for Every Stage of the Frame (Also Starts Their HTTP Endpoint)
+    private final PipelineStats mStats = PipelineStats.getInstance();
+
+    //Range Used When No Preferences Are Set - A Pair of Two Integers (0, 255)
+    private static final Pair<Integer, Integer> BLANK_RANGE = new Pair<>(0, 255);
+
+    //Posts the Latest FPS to the Screen (Created Once, Not Every Time the FPS Changes)
+    private final Runnable mFpsUpdater = new Runnable()
     {
-        return new Pair<Integer, Integer>(0, 255);
-    }
+        public void run()
+        {
+            if (mFpsText != null)
+            {
+                mFpsText.setText("FPS: " + mLastFps);
+            }
+        }
+    };
 
     /**
      * Constructor for the VisionTrackerGLSurface off of BetterCameraGLSurface
@@ -72,7 +114,6 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
     public VisionTrackerGLSurfaceView(Context context, AttributeSet attrs)
     {
         super(context, attrs, Configuration.getCameraSettings());
-        byteArraySwitch = true;
     }
 
     /**
@@ -157,6 +198,10 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
 
         frameCounter = 0;
         lastNanoTime = System.nanoTime();
+        if (mVisionPipeline != null)
+        {
+            mVisionPipeline.start();
+        }
     }
 
     /**
@@ -165,6 +210,10 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
     @Override
     public void onCameraViewStopped()
     {
+        if (mVisionPipeline != null)
+        {
+            mVisionPipeline.stop();
+        }
         ((Activity) getContext()).runOnUiThread(new Runnable()
         {
             public void run()
@@ -181,28 +230,199 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
      * @param width - The width of the frame
      * @param height - The height of the frame
      * @param image_timestamp - The Time of the Creation of the Image
-     * @return Result of the Texture (true)
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown), Carried to the Robot and the Stream
+     * @return Whether texOut Should Be Shown (false When the Targets Come From YUV or the Staged Pipeline, as Nothing is Drawn)
      */
     @Override
-    public boolean onCameraTexture(int texIn, int texOut, int width, int height, long image_timestamp)
+    public boolean onCameraTexture(int texIn, int texOut, int width, int height, long image_timestamp, long frame_id)
+    {
+        if (mYuvThreshold)
+        {
+            streamTexture(width, height, frame_id);
+            return false;
+        }
+        if (mVisionPipeline != null)
+        {
+            captureTexture(width, height, image_timestamp, frame_id);
+            return false;
+        }
+
+        //Every Stage Below is Recorded in a Latency Histogram (See PipelineStats, Served Over HTTP)
+        //and Every Hop of This Frame ID in the FrameTrace, for the Sensor-to-Wire Distribution
+        PipelineStats stats = mStats;
+        FrameTrace trace = stats.getTrace();
+        long frameStart = System.nanoTime();
+        stats.record(PipelineStats.STAGE_WAIT, frameStart - image_timestamp);
+        trace.begin(frame_id, image_timestamp);
+        trace.mark(frame_id, FrameTrace.HOP_TEXTURE, frameStart);
+        if (kLogEachFrame)
+        {
+            Log.d(LOGTAG, "onCameraTexture - Timestamp " + image_timestamp + ", current time " + System.nanoTime() / 1E9);
+        }
+        countFrame();
+        NativePart.TargetsInfo targetsInfo = mTargetsInfo;
+        int[] r = mRanges;
+        readThresholdRanges(r);
+
+        //Runs the Native C++ Code (See jni.c -> image_processor.cpp)
+        long nativeStart = System.nanoTime();
+        NativePart.processFrame(texIn, width, height, r[0], r[1], r[2], r[3], r[4], r[5], targetsInfo);
+        long nativeEnd = System.nanoTime();
+        stats.record(PipelineStats.STAGE_NATIVE, nativeEnd - nativeStart);
+        trace.mark(frame_id, FrameTrace.HOP_PROCESSED, nativeEnd);
+        stats.recordNative(targetsInfo.stageNanos);
+
+        //The Robot Gets the Targets Before Anything is Drawn or Encoded, so a Slow JPEG Never Delays its Update
+        CandidateList targets = filterTargets(targetsInfo.candidates, frame_id);
+        sendTargets(targets, image_timestamp, frame_id);
+
+        //The Screen Shows Exactly What the Robot Was Sent - the Same TargetPipeline Picked Both
+        NativePart.drawFrame(texOut, width, height, procMode.getNumber(), targets, mPipeline.getRejected(), targetsInfo);
+        stats.recordNative(targetsInfo.stageNanos);
+
+        //Only Encoded When Someone is Watching (The Staged Pipeline Moves This Off the GL Thread Entirely - See VisionPipeline)
+        int profiles = shouldArrayBeStreamed ? MjpgServer.getInstance().selectProfiles(mStreamProfiles) : 0;
+        encodeDisplayed(profiles, frame_id);
+
+        stats.record(PipelineStats.STAGE_FRAME, System.nanoTime() - frameStart);
+
+        return true;
+    }
+
+    /**
+     * Finds the Targets Straight From the Camera's YUV Planes (Runs on the Camera's YUV Thread, Not the GL Thread)
+     * Skips the GL Readback and the RGBA to HSV Conversion - The Preview and Stream Stay on the GL Thread
+     * @param image - YUV_420_888 Frame (Closed by the Camera Once This Returns)
+     * @param image_timestamp - The Time of the Creation of the Image
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    @Override
+    public void onYuvImage(Image image, long image_timestamp, long frame_id)
+    {
+        PipelineStats stats = mStats;
+        FrameTrace trace = stats.getTrace();
+        long frameStart = System.nanoTime();
+        stats.record(PipelineStats.STAGE_WAIT, frameStart - image_timestamp);
+        trace.begin(frame_id, image_timestamp);
+        countFrame();
+
+        NativePart.TargetsInfo targetsInfo = mYuvTargetsInfo;
+        int[] r = mYuvRanges;
+        readThresholdRanges(r);
+
+        //YUV_420_888 Always Has Three Planes; U and V Share Strides (Interleaved on Most Phones, Pixel Stride 2)
+        Image.Plane[] planes = image.getPlanes();
+        long nativeStart = System.nanoTime();
+        NativePart.processYuvFrame(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                image.getWidth(), image.getHeight(), planes[0].getRowStride(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                r[0], r[1], r[2], r[3], r[4], r[5], targetsInfo);
+        long nativeEnd = System.nanoTime();
+        stats.record(PipelineStats.STAGE_NATIVE, nativeEnd - nativeStart);
+        trace.mark(frame_id, FrameTrace.HOP_PROCESSED, nativeEnd);
+        stats.recordNative(targetsInfo.stageNanos);
+
+        sendTargets(filterTargets(targetsInfo.candidates, frame_id), image_timestamp, frame_id);
+
+        stats.record(PipelineStats.STAGE_FRAME, System.nanoTime() - frameStart);
+    }
+
+    /**
+     * Only Reads Back and Encodes the Preview for the Video Stream (When the Targets Come From onYuvImage)
+     * @param width - The width of the frame
+     * @param height - The height of the frame
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    private void streamTexture(int width, int height, long frame_id)
+    {
+        int profiles = shouldArrayBeStreamed ? MjpgServer.getInstance().selectProfiles(mStreamProfiles) : 0;
+        if (profiles == 0)
+        {
+            return;
+        }
+        PipelineStats stats = mStats;
+        //The YUV Thread Usually Starts This Frame's Trace First - Marks Before That Are Simply Dropped
+        stats.getTrace().mark(frame_id, FrameTrace.HOP_TEXTURE, System.nanoTime());
+        long nativeStart = System.nanoTime();
+        NativePart.readbackForStream(width, height, mTargetsInfo);
+        stats.record(PipelineStats.STAGE_NATIVE, System.nanoTime() - nativeStart);
+        stats.recordNative(mTargetsInfo.stageNanos);
+        encodeDisplayed(profiles, frame_id);
+    }
+
+    /**
+     * Encodes the Frame Just Drawn (Or Read Back) Once per Stream Profile, Straight Into Pooled Frames That Every Viewer
+     * of That Profile Shares (No Copies), and Hands Them to the Stream
+     * @param profiles - How Many of mStreamProfiles to Encode
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    private void encodeDisplayed(int profiles, long frame_id)
+    {
+        MjpgServer server = MjpgServer.getInstance();
+        for (int p = 0; p < profiles; p++)
+        {
+            StreamProfile profile = mStreamProfiles[p];
+            //Mask Profiles Get the Threshold Mask Instead - There is None on the GL Thread in YUV Mode
+            if (profile.isMask() && mYuvThreshold)
+            {
+                continue;
+            }
+            StreamFrame frame = server.acquireFrame();
+            if (frame == null)
+            {
+                return;
+            }
+            //Convert and Encode Are Recorded as Their Own Native Stages
+            int encodedLength = profile.isMask()
+                    ? NativePart.encodeDisplayedMask(server.getEncodeScale(profile), frame.getData(), mTargetsInfo)
+                    : NativePart.encodeDisplayedFrame(server.getEncodeScale(profile),
+                            server.getEncodeQuality(profile), frame.getData(), mTargetsInfo);
+            long publishStart = System.nanoTime();
+            mStats.recordNative(mTargetsInfo.stageNanos);
+            frame.setProfile(profile);
+            publishFrame(frame, encodedLength, frame_id, publishStart);
+        }
+    }
+
+    /**
+     * Hands an Encoded Frame to the Stream (Or Back to the Pool if Encoding Failed)
+     * @param frame - Pooled Frame the C++ Code Encoded Into
+     * @param encodedLength - Bytes Encoded (-1 if the Frame Was Too Small)
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     * @param publishStart - When Encoding Finished (System.nanoTime)
+     */
+    private void publishFrame(StreamFrame frame, int encodedLength, long frame_id, long publishStart)
+    {
+        if (encodedLength > 0)
+        {
+            frame.setFrameId(frame_id);
+            frame.setLength(encodedLength);
+            MjpgServer.getInstance().update(frame);
+        }
+        else
+        {
+            frame.release();
+        }
+        long publishEnd = System.nanoTime();
+        mStats.record(PipelineStats.STAGE_PUBLISH, publishEnd - publishStart);
+        if (encodedLength > 0)
+        {
+            mStats.getTrace().mark(frame_id, FrameTrace.HOP_STREAMED, publishEnd);
+        }
+    }
+
+    /**
+     * Updates the FPS Counter, Posting it to the Screen Every 30 Frames
+     */
+    private void countFrame()
     {
-        Log.d(LOGTAG, "onCameraTexture - Timestamp " + image_timestamp + ", current time " + System.nanoTime() / 1E9);
-        //FPS Counter Incrementer
         frameCounter++;
         if (frameCounter >= 30)
         {
-            final int fps = (int) (frameCounter * 1e9 / (System.nanoTime() - lastNanoTime));
-            Log.i(LOGTAG, "drawFrame() FPS: " + fps);
+            mLastFps = (int) (frameCounter * 1e9 / (System.nanoTime() - lastNanoTime));
             if (mFpsText != null)
             {
-                Runnable fpsUpdater = new Runnable()
-                {
-                    public void run()
-                    {
-                        mFpsText.setText("FPS: " + fps);
-                    }
-                };
-                new Handler(Looper.getMainLooper()).post(fpsUpdater);
+                mMainHandler.post(mFpsUpdater);
             }
             else
             {
@@ -212,70 +432,128 @@ public class VisionTrackerGLSurfaceView extends BetterCameraGLSurfaceView implem
             frameCounter = 0;
             lastNanoTime = System.nanoTime();
         }
-        NativePart.TargetsInfo targetsInfo = new NativePart.TargetsInfo();
-        Pair<Integer, Integer> hRange = m_prefs != null ? m_prefs.getThresholdHRange() : blankPair();
-        Pair<Integer, Integer> sRange = m_prefs != null ? m_prefs.getThresholdSRange() : blankPair();
-        Pair<Integer, Integer> vRange = m_prefs != null ? m_prefs.getThresholdVRange() : blankPair();
+    }
 
-        //Runs the Native C++ Code (See jni.c -> image_processor.cpp)
-        //Switches Between Two Arrays to Be Filled by the Process Frame and Set Image C++ Method
-        //TODO: Add Option to Not Send Image
-        if(shouldArrayBeStreamed)
+    /**
+     * Reads the HSV Threshold Ranges From the Preferences (Each Pair Put in Order)
+     * @param into - Receives hMin, hMax, sMin, sMax, vMin, vMax
+     */
+    private void readThresholdRanges(int[] into)
+    {
+        Pair<Integer, Integer> hRange = m_prefs != null ? m_prefs.getThresholdHRange() : BLANK_RANGE;
+        Pair<Integer, Integer> sRange = m_prefs != null ? m_prefs.getThresholdSRange() : BLANK_RANGE;
+        Pair<Integer, Integer> vRange = m_prefs != null ? m_prefs.getThresholdVRange() : BLANK_RANGE;
+        into[0] = Math.min(hRange.first, hRange.second);
+        into[1] = Math.max(hRange.first, hRange.second);
+        into[2] = Math.min(sRange.first, sRange.second);
+        into[3] = Math.max(sRange.first, sRange.second);
+        into[4] = Math.min(vRange.first, vRange.second);
+        into[5] = Math.max(vRange.first, vRange.second);
+    }
+
+    /**
+     * Reads the Frame Back and Hands it to the Staged Pipeline - Everything Else Happens on its Threads (See VisionPipeline)
+     * @param width - The width of the frame
+     * @param height - The height of the frame
+     * @param image_timestamp - The Time of the Creation of the Image
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    private void captureTexture(int width, int height, long image_timestamp, long frame_id)
+    {
+        PipelineStats stats = mStats;
+        FrameTrace trace = stats.getTrace();
+        long frameStart = System.nanoTime();
+        stats.record(PipelineStats.STAGE_WAIT, frameStart - image_timestamp);
+        trace.begin(frame_id, image_timestamp);
+        trace.mark(frame_id, FrameTrace.HOP_TEXTURE, frameStart);
+        countFrame();
+
+        readThresholdRanges(mRanges);
+        TargetFilterSettings filterSettings = m_prefs != null ? m_prefs.getTargetFilterSettings() : null;
+        mVisionPipeline.capture(width, height, image_timestamp, frame_id, procMode.getNumber(), mRanges,
+                filterSettings, shouldArrayBeStreamed);
+
+        stats.record(PipelineStats.STAGE_FRAME, System.nanoTime() - frameStart);
+    }
+
+    /**
+     * Picks the Targets Out of a Frame's Candidates
+     * @param candidates - Every Contour the C++ Code Found
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     * @return The Targets (Owned by the TargetPipeline - Only Valid Until the Next Frame)
+     */
+    private CandidateList filterTargets(CandidateList candidates, long frame_id)
+    {
+        PipelineStats stats = mStats;
+
+        //Filters Run in Java (See vision/TargetPipeline) so They Can Be Tuned Without Rebuilding the C++ Code
+        TargetFilterSettings filterSettings = m_prefs != null ? m_prefs.getTargetFilterSettings() : null;
+        if (filterSettings != null && filterSettings != mPipelineSettings)
         {
-            NativePart.processFrameAndSetImage(texIn, texOut, width, height, procMode.getNumber(), Math.min(hRange.first, hRange.second), Math.max(hRange.first, hRange.second),
-                    Math.min(sRange.first, sRange.second), Math.max(sRange.first, sRange.second), Math.min(vRange.first, vRange.second), Math.max(vRange.first, vRange.second), byteArraySwitch ? bufferA.array() : bufferB.array(), targetsInfo);
-
-            long timeCheck = System.currentTimeMillis();
-            byte[] byteArray = byteArraySwitch ? bufferA.array() : bufferB.array();
-            //https://stackoverflow.com/questions/2383265/convert-4-bytes-to-int
-            int lengthOfByteArray = ((0x000000ff & byteArray[width * height * 4]) << 24) |
-                    ((0x000000ff & byteArray[width * height * 4 + 1]) << 16) |
-                    ((0x000000ff & byteArray[width * height * 4 + 2]) << 8) |
-                    ((0x000000ff & byteArray[width * height * 4 + 3]));
-            MjpgServer.getInstance().update(Arrays.copyOfRange(byteArray, 0, lengthOfByteArray));
-            byteArraySwitch = !byteArraySwitch;
-            Log.d(LOGTAG, "MJPG Uploading Costs " + (System.currentTimeMillis() - timeCheck) + "ms");
+            mPipeline = filterSettings.buildPipeline();
+            mPipelineSettings = filterSettings;
         }
-        else
+        long filterStart = System.nanoTime();
+        CandidateList targets = mPipeline.process(candidates);
+        long filterEnd = System.nanoTime();
+        stats.record(PipelineStats.STAGE_FILTER, filterEnd - filterStart);
+        stats.getTrace().mark(frame_id, FrameTrace.HOP_FILTERED, filterEnd);
+
+        if (kLogEachFrame)
         {
-            NativePart.processFrame(texIn, texOut, width, height, procMode.getNumber(), hRange.first, hRange.second,
-                    sRange.first, sRange.second, vRange.first,vRange.second, targetsInfo);
+            Log.i(LOGTAG, "Num targets = " + targets.count + ", accepted = " + mPipeline.getAccepted().count
+                    + ", rejected = " + mPipeline.getRejected().count);
         }
+        return targets;
+    }
 
-        VisionUpdate visionUpdate = new VisionUpdate(image_timestamp);
-        Log.i(LOGTAG, "Num targets = " + targetsInfo.numTargets);
+    /**
+     * Turns the Targets Into Vectors and Sends Them to the Robot (Also the Staged Pipeline's TargetSink, on its Process Thread)
+     * @param targets - Targets Picked by a TargetPipeline
+     * @param image_timestamp - The Time of the Creation of the Image
+     * @param frame_id - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    @Override
+    public void sendTargets(CandidateList targets, long image_timestamp, long frame_id)
+    {
+        //The Message (and its VisionUpdate and CameraTargetInfos) Come From a Pool and Are Recycled After Sending
+        TargetUpdateMessage update = mRobotConnection != null ? TargetUpdateMessage.obtain(image_timestamp, frame_id) : null;
+        VisionUpdate visionUpdate = update != null ? update.getUpdate() : null;
+        //The Same Vectors Are Served at /targets.json, Robot or Not
+        LatestTargets latest = MjpgServer.getInstance().getLatestTargets();
+        latest.begin(image_timestamp, frame_id);
 
-        for (int i = 0; i < targetsInfo.numTargets; ++i)
+        double focalLengthPixels = getFocalLengthPixels();
+        for (int i = 0; i < targets.count; ++i)
         {
-            NativePart.TargetsInfo.Target target = targetsInfo.targets[i];
-
             /**
-             * "Convert to a homogeneous 3d vector with x = 1
-             * This is a seemingly strange operation, but it actually allows for some pretty neat vision operations
-             * Basically, it is treated like a vector (only y and z, since x is distance (scale) in their model)
-             * So, distance can be calculated easily taking into account Robot Pitch and Yaw
-             * @see "https://stackoverflow.com/questions/29199480/what-is-the-use-of-homogeneous-vectors-in-computer-vision"
-             * @see "https://prateekvjoshi.com/2014/06/13/the-concept-of-homogeneous-coordinates/"
-             *
+             * Convert to a Homogeneous 3d Vector With x = 1 (See HomogeneousVectors)
              * Uncomment the two lnes after y and z if youu want to deal with pixels, not vectors
-             * double y = target.centroidX;
-             * double z = target.centroidY;
+             * double y = targets.centroidX[i];
+             * double z = targets.centroidY[i];
              */
-            double y = -(target.centroidX - kCenterCol) / getFocalLengthPixels();
-            double z = (target.centroidY - kCenterRow) / getFocalLengthPixels();
+            double y = HomogeneousVectors.y(targets.centroidX[i], kCenterCol, focalLengthPixels);
+            double z = HomogeneousVectors.z(targets.centroidY[i], kCenterRow, focalLengthPixels);
 
-            Log.i(LOGTAG, "Target at: " + y + ", " + z);
-            visionUpdate.addCameraTargetInfo(new CameraTargetInfo(y, z));
+            if (kLogEachFrame)
+            {
+                Log.i(LOGTAG, "Target at: " + y + ", " + z);
+            }
+            if (visionUpdate != null)
+            {
+                visionUpdate.addCameraTarget(y, z);
+            }
+            latest.add(y, z);
         }
+        latest.publish();
 
-        if (mRobotConnection != null)
+        if (update != null)
         {
-            TargetUpdateMessage update = new TargetUpdateMessage(visionUpdate, System.nanoTime());
+            //Marked Before Sending - Once Queued the Message Belongs to the Write Thread
+            long queuedAt = System.nanoTime();
+            update.setTimestamp(queuedAt);
+            mStats.getTrace().mark(frame_id, FrameTrace.HOP_QUEUED, queuedAt);
             mRobotConnection.send(update);
         }
-
-        //TODO: This seems to slow the memory bumps, any major effect on speed?
-        System.gc();
-        return true;
     }
 }
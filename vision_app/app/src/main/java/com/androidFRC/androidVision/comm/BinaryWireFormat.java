@@ -0,0 +1,424 @@
+package com.androidFRC.androidVision.comm;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compact Length-Prefixed Binary Framing for Target Updates (The Decoder is Plain Java, for Use on the Robot Side)
+ * Only Used Once the Robot Has Advertised Support in its Heartbeat - Otherwise Everything Stays JSON Lines
+ *
+ * Frame Layout (Big-Endian):
+ *   MARKER (1 byte, never a valid first byte of a JSON line)
+ *   length varint (bytes that follow, not counting itself)
+ *   type (1 byte)
+ *   payload
+ *
+ * TYPE_TARGETS Payload:
+ *   captured-ago milliseconds varint
+ *   target count varint
+ *   count * (float32 y, float32 z)
+ *
+ * TYPE_FRAME_ID Payload (Sent Right Before the TYPE_TARGETS Frame it Applies To):
+ *   frame ID varint
+ * Older Receivers Skip it Like Any Unknown Type, so Adding it Did Not Need a New Wire Name
+ *
+ * TYPE_ROBOT_TIME Payload (Also Right Before the TYPE_TARGETS Frame, Once the Phone Knows the Robot's Clock):
+ *   captured-at microseconds varint, on the robot's clock (see ClockSync)
+ *
+ * Datagrams (Target Updates Sent Over UDP, See writeDatagram) Hold Whole Frames - Never Part of One:
+ *   TYPE_SEQUENCE frame, then the TYPE_FRAME_ID, TYPE_ROBOT_TIME and TYPE_TARGETS frames as Above
+ * TYPE_SEQUENCE Payload:
+ *   sequence number varint (counts up for as long as the sender runs - never restarted by a reconnect)
+ *   captured-at microseconds varint (sender's monotonic clock - only comparable between datagrams from one sender)
+ * Datagrams Can Be Lost, Duplicated or Reordered, so the Receiver Keeps Only Those Newer Than the Newest it Has
+ * (See DatagramDecoder)
+ */
+public final class BinaryWireFormat
+{
+    //Name Both Sides Put in the Heartbeat "wire" Field to Agree on This Format
+    public static final String WIRE_NAME = "binary1";
+
+    public static final byte MARKER = (byte) 0xB7;
+    public static final byte TYPE_TARGETS = 1;
+    public static final byte TYPE_FRAME_ID = 2;
+    public static final byte TYPE_SEQUENCE = 3;
+    public static final byte TYPE_ROBOT_TIME = 4;
+
+    //Largest Frame the Decoder Will Accept Before Declaring the Stream Corrupt
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    /**
+     * Writes One Target Update Frame
+     * @param out - Destination, Must Have Room (See maxTargetsFrameSize)
+     * @param capturedAgoMs - Milliseconds Between Capture and Send
+     * @param targets - Targets to Encode (null Entries are Skipped)
+     */
+    public static void writeTargets(ByteBuffer out, long capturedAgoMs, List<CameraTargetInfo> targets)
+    {
+        writeTargets(out, -1, capturedAgoMs, targets);
+    }
+
+    /**
+     * Writes One Target Update Frame, Preceded by a Frame ID Frame When the ID is Known
+     * @param out - Destination, Must Have Room (See maxTargetsFrameSize)
+     * @param frameId - ID Given to the Frame at Capture Start, or -1 to Leave it Out
+     * @param capturedAgoMs - Milliseconds Between Capture and Send
+     * @param targets - Targets to Encode (null Entries are Skipped)
+     */
+    public static void writeTargets(ByteBuffer out, long frameId, long capturedAgoMs, List<CameraTargetInfo> targets)
+    {
+        writeTargets(out, frameId, -1, capturedAgoMs, targets);
+    }
+
+    /**
+     * Writes One Target Update Frame, Preceded by Frame ID and Robot Time Frames When They Are Known
+     * @param out - Destination, Must Have Room (See maxTargetsFrameSize)
+     * @param frameId - ID Given to the Frame at Capture Start, or -1 to Leave it Out
+     * @param robotCapturedAtMicros - Capture Time on the Robot's Clock, or -1 to Leave it Out
+     * @param capturedAgoMs - Milliseconds Between Capture and Send
+     * @param targets - Targets to Encode (null Entries are Skipped)
+     */
+    public static void writeTargets(ByteBuffer out, long frameId, long robotCapturedAtMicros, long capturedAgoMs,
+                                    List<CameraTargetInfo> targets)
+    {
+        if (frameId >= 0)
+        {
+            out.put(MARKER);
+            writeVarint(out, 1 + varintSize(frameId));
+            out.put(TYPE_FRAME_ID);
+            writeVarint(out, frameId);
+        }
+        if (robotCapturedAtMicros >= 0)
+        {
+            out.put(MARKER);
+            writeVarint(out, 1 + varintSize(robotCapturedAtMicros));
+            out.put(TYPE_ROBOT_TIME);
+            writeVarint(out, robotCapturedAtMicros);
+        }
+
+        int count = 0;
+        for (int i = 0; i < targets.size(); i++)
+        {
+            if (targets.get(i) != null)
+            {
+                count++;
+            }
+        }
+
+        long age = Math.max(0, capturedAgoMs);
+        int length = 1 + varintSize(age) + varintSize(count) + count * 8;
+        out.put(MARKER);
+        writeVarint(out, length);
+        out.put(TYPE_TARGETS);
+        writeVarint(out, age);
+        writeVarint(out, count);
+        for (int i = 0; i < targets.size(); i++)
+        {
+            CameraTargetInfo t = targets.get(i);
+            if (t != null)
+            {
+                out.putFloat((float) t.getY());
+                out.putFloat((float) t.getZ());
+            }
+        }
+    }
+
+    /**
+     * Writes One Target Update as a Whole Datagram - a Sequence Frame, Then the Same Frames as writeTargets
+     * @param out - Destination, Must Have Room (See maxDatagramSize)
+     * @param sequence - Number of This Datagram, One More Than the Last
+     * @param capturedAtMicros - Capture Time on the Sender's Monotonic Clock
+     * @param frameId - ID Given to the Frame at Capture Start, or -1 to Leave it Out
+     * @param robotCapturedAtMicros - Capture Time on the Robot's Clock, or -1 to Leave it Out
+     * @param capturedAgoMs - Milliseconds Between Capture and Send
+     * @param targets - Targets to Encode (null Entries are Skipped)
+     */
+    public static void writeDatagram(ByteBuffer out, long sequence, long capturedAtMicros, long frameId,
+                                     long robotCapturedAtMicros, long capturedAgoMs, List<CameraTargetInfo> targets)
+    {
+        long capturedAt = Math.max(0, capturedAtMicros);
+        out.put(MARKER);
+        writeVarint(out, 1 + varintSize(sequence) + varintSize(capturedAt));
+        out.put(TYPE_SEQUENCE);
+        writeVarint(out, sequence);
+        writeVarint(out, capturedAt);
+        writeTargets(out, frameId, robotCapturedAtMicros, capturedAgoMs, targets);
+    }
+
+    /**
+     * Worst-Case Size of a Datagram From writeDatagram
+     * @param targetCount - Number of Targets
+     * @return Bytes Needed
+     */
+    public static int maxDatagramSize(int targetCount)
+    {
+        return 1 + 1 + 1 + 10 + 10 + maxTargetsFrameSize(targetCount);
+    }
+
+    /**
+     * Worst-Case Encoded Size of a Target Frame (Including the Frame ID and Robot Time Frames Before It)
+     * @param targetCount - Number of Targets
+     * @return Bytes Needed
+     */
+    public static int maxTargetsFrameSize(int targetCount)
+    {
+        return 1 + 1 + 1 + 10 + 1 + 1 + 1 + 10 + 1 + 5 + 1 + 10 + 5 + targetCount * 8;
+    }
+
+    /**
+     * Writes an Unsigned LEB128 Varint
+     * @param out - Destination
+     * @param value - Non-Negative Value
+     */
+    static void writeVarint(ByteBuffer out, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Number of Bytes writeVarint Would Use
+     * @param value - Non-Negative Value
+     * @return Encoded Size
+     */
+    static int varintSize(long value)
+    {
+        int size = 1;
+        while ((value & ~0x7FL) != 0)
+        {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Reads an Unsigned LEB128 Varint
+     * @param in - Source
+     * @return Decoded Value
+     * @throws BufferUnderflowException - If the Varint is Cut Off
+     */
+    static long readVarint(ByteBuffer in)
+    {
+        long value = 0;
+        int shift = 0;
+        while (true)
+        {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63)
+            {
+                throw new IllegalArgumentException("Varint too long");
+            }
+        }
+    }
+
+    /**
+     * Decoded Target Frame - Reused Between Calls to Avoid Allocating Per Frame
+     */
+    public static class Targets
+    {
+        //Frame ID From the TYPE_FRAME_ID Frame Just Before, or -1 if the Sender Did Not Include One
+        public long frameId = -1;
+        //From the TYPE_SEQUENCE Frame Starting a Datagram, or -1 Over TCP
+        public long sequence = -1;
+        public long capturedAtMicros = -1;
+        //From the TYPE_ROBOT_TIME Frame Just Before, or -1 Until the Sender Knows the Robot's Clock
+        public long robotCapturedAtMicros = -1;
+        public long capturedAgoMs;
+        public int count;
+        public float[] y = new float[4];
+        public float[] z = new float[4];
+
+        private void ensureCapacity(int n)
+        {
+            if (y.length < n)
+            {
+                y = new float[n];
+                z = new float[n];
+            }
+        }
+    }
+
+    /**
+     * Reference Decoder - Pulls Whole Frames Out of a Byte Stream That May Arrive in Pieces
+     */
+    public static class Decoder
+    {
+        private long mPendingFrameId = -1;
+        private long mPendingSequence = -1;
+        private long mPendingCapturedAt = -1;
+        private long mPendingRobotTime = -1;
+
+        /**
+         * Tries to Decode One Frame From the Front of the Buffer
+         * On Success the Buffer is Advanced Past the Frame; If the Frame is Incomplete the Buffer is Left Untouched
+         * @param in - Bytes Received So Far (Read Mode)
+         * @param into - Where to Put a Decoded Target Frame
+         * @return The Frame Type, or 0 if More Bytes Are Needed
+         * @throws IllegalArgumentException - If the Bytes Are Not a Valid Frame
+         */
+        public byte decode(ByteBuffer in, Targets into)
+        {
+            int start = in.position();
+            try
+            {
+                if (in.get() != MARKER)
+                {
+                    throw new IllegalArgumentException("Missing frame marker");
+                }
+                long length = readVarint(in);
+                if (length < 1 || length > MAX_FRAME_LENGTH)
+                {
+                    throw new IllegalArgumentException("Bad frame length " + length);
+                }
+                if (in.remaining() < length)
+                {
+                    in.position(start);
+                    return 0;
+                }
+                int end = in.position() + (int) length;
+                byte type = in.get();
+                if (type == TYPE_FRAME_ID)
+                {
+                    mPendingFrameId = readVarint(in);
+                }
+                else if (type == TYPE_ROBOT_TIME)
+                {
+                    mPendingRobotTime = readVarint(in);
+                }
+                else if (type == TYPE_SEQUENCE)
+                {
+                    mPendingSequence = readVarint(in);
+                    mPendingCapturedAt = readVarint(in);
+                }
+                else if (type == TYPE_TARGETS)
+                {
+                    into.frameId = mPendingFrameId;
+                    into.sequence = mPendingSequence;
+                    into.capturedAtMicros = mPendingCapturedAt;
+                    into.robotCapturedAtMicros = mPendingRobotTime;
+                    clearPending();
+                    into.capturedAgoMs = readVarint(in);
+                    long count = readVarint(in);
+                    if (count * 8 != end - in.position())
+                    {
+                        throw new IllegalArgumentException("Target count " + count + " does not match frame length");
+                    }
+                    into.count = (int) count;
+                    into.ensureCapacity(into.count);
+                    for (int i = 0; i < into.count; i++)
+                    {
+                        into.y[i] = in.getFloat();
+                        into.z[i] = in.getFloat();
+                    }
+                }
+                //Unknown Types Are Skipped Whole So Newer Senders Don't Break Older Receivers
+                in.position(end);
+                return type;
+            }
+            catch (BufferUnderflowException e)
+            {
+                in.position(start);
+                return 0;
+            }
+        }
+
+        private void clearPending()
+        {
+            mPendingFrameId = -1;
+            mPendingSequence = -1;
+            mPendingCapturedAt = -1;
+            mPendingRobotTime = -1;
+        }
+    }
+
+    /**
+     * Reference Datagram Receiver - Decodes One Datagram at a Time, Keeping Only Updates Newer Than Any Before
+     * A Lost Datagram Costs Nothing But Itself; a Late or Duplicated One is Counted and Thrown Away
+     */
+    public static class DatagramDecoder
+    {
+        //A Sequence Number This Far Behind the Newest Means the Sender Itself Restarted From 0, Not That it is Late
+        public static final long RESTART_GAP = 1024;
+
+        private final Decoder mDecoder = new Decoder();
+        private long mNewest = -1;
+        private long mAccepted;
+        private long mLate;
+        private long mMalformed;
+
+        /**
+         * Decodes One Whole Datagram
+         * @param datagram - The Datagram's Bytes (Read Mode) - Consumed
+         * @param into - Where to Put the Target Update (Overwritten Even if the Datagram Turns Out to be Late)
+         * @return True if it Held a Target Update Newer Than Any Accepted Before
+         */
+        public boolean decode(ByteBuffer datagram, Targets into)
+        {
+            into.sequence = -1;
+            boolean targets = false;
+            mDecoder.clearPending();
+            try
+            {
+                while (datagram.hasRemaining())
+                {
+                    byte type = mDecoder.decode(datagram, into);
+                    if (type == 0)
+                    {
+                        throw new IllegalArgumentException("Datagram ends inside a frame");
+                    }
+                    targets |= type == TYPE_TARGETS;
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                targets = false;
+            }
+            if (!targets || into.sequence < 0)
+            {
+                mMalformed++;
+                return false;
+            }
+            if (into.sequence <= mNewest && into.sequence > mNewest - RESTART_GAP)
+            {
+                mLate++;
+                return false;
+            }
+            mNewest = into.sequence;
+            mAccepted++;
+            return true;
+        }
+
+        public long getAccepted()
+        {
+            return mAccepted;
+        }
+
+        /**
+         * Datagrams That Arrived After a Newer One (Reordered) or Twice (Duplicated)
+         * @return Late Count
+         */
+        public long getLate()
+        {
+            return mLate;
+        }
+
+        public long getMalformed()
+        {
+            return mMalformed;
+        }
+    }
+
+    private BinaryWireFormat() {}
+}
@@ -28,6 +28,17 @@ public class CameraTargetInfo
         m_z = z;
     }
 
+    /**
+     * Overwrites the Vector, So Instances Can Be Reused Frame to Frame
+     * @param y - 'Y' of the Vector
+     * @param z - 'Z' of the Vector
+     */
+    void set(double y, double z)
+    {
+        m_y = y;
+        m_z = z;
+    }
+
     /**
      * Reformats Double To Minimize Loss
      * @param value - Double to Format
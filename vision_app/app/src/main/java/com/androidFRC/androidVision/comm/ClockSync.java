@@ -0,0 +1,148 @@
+package com.androidFRC.androidVision.comm;
+
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.Locale;
+
+/**
+ * Estimates the Robot's Clock From the Phone's, NTP Style, Over the Heartbeat Exchange (Plain Java)
+ * Every Heartbeat the Phone Sends Carries When it Left (t1, Phone Clock); the Robot's Heartbeats Echo the Last One
+ * Back Along With When it Arrived (t2) and When the Reply Left (t3), Both on the Robot's Clock; the Phone Notes When
+ * the Reply Arrives (t4):
+ *   round trip = (t4 - t1) - (t3 - t2)
+ *   offset     = ((t2 - t1) + (t3 - t4)) / 2     (Robot Clock Minus Phone Clock)
+ * A Sample's Offset Can Only Be Wrong by Half the Difference Between the Two Directions' Delays - Never More Than Half
+ * its Round Trip - so of the Last WINDOW Samples the One With the Shortest Round Trip is Trusted (NTP's Clock Filter)
+ * Delay That is Always Lopsided the Same Way Cannot Be Seen From Either End, and Stays in the Offset
+ * All Times in Microseconds; the Phone's Clock is System.nanoTime / 1000
+ * Samples Come From the Loop Thread, Conversions From Any Thread
+ */
+public class ClockSync implements StatsHttpServer.Report
+{
+    //Samples the Filter Picks From - At the Heartbeat Rate That is a Little Over a Second and a Half
+    public static final int WINDOW = 16;
+
+    private final long[] mOffsets = new long[WINDOW];
+    private final long[] mRoundTrips = new long[WINDOW];
+    private int mCount;
+    private int mNext;
+
+    //The Current Estimate (From the Shortest Round Trip in the Window)
+    private long mOffset;
+    private long mRoundTrip;
+
+    //Counters
+    private long mSamples;
+    private long mRejected;
+
+    /**
+     * Adds One Heartbeat Exchange
+     * @param t1 - When the Phone's Heartbeat Left (Phone Clock)
+     * @param t2 - When it Reached the Robot (Robot Clock)
+     * @param t3 - When the Robot's Reply Left (Robot Clock)
+     * @param t4 - When the Reply Reached the Phone (Phone Clock)
+     * @return False if the Times Cannot All Be True (Such as a Negative Round Trip) and Were Ignored
+     */
+    public synchronized boolean addSample(long t1, long t2, long t3, long t4)
+    {
+        long roundTrip = (t4 - t1) - (t3 - t2);
+        if (t4 < t1 || t3 < t2 || roundTrip < 0)
+        {
+            mRejected++;
+            return false;
+        }
+        mSamples++;
+        mOffsets[mNext] = ((t2 - t1) + (t3 - t4)) / 2;
+        mRoundTrips[mNext] = roundTrip;
+        mNext = (mNext + 1) % WINDOW;
+        if (mCount < WINDOW)
+        {
+            mCount++;
+        }
+
+        int best = 0;
+        for (int i = 1; i < mCount; i++)
+        {
+            if (mRoundTrips[i] < mRoundTrips[best])
+            {
+                best = i;
+            }
+        }
+        mOffset = mOffsets[best];
+        mRoundTrip = mRoundTrips[best];
+        return true;
+    }
+
+    /**
+     * Forgets Every Sample - the Robot at the Other End of a New Connection May Not Be Running the Same Clock
+     */
+    public synchronized void clear()
+    {
+        mCount = 0;
+        mNext = 0;
+        mOffset = 0;
+        mRoundTrip = 0;
+    }
+
+    /**
+     * Whether There Has Been a Sample Since the Last clear()
+     * @return If toRobotMicros Means Anything
+     */
+    public synchronized boolean isSynced()
+    {
+        return mCount > 0;
+    }
+
+    /**
+     * Robot Clock Minus Phone Clock
+     * @return Offset in Microseconds
+     */
+    public synchronized long getOffsetMicros()
+    {
+        return mOffset;
+    }
+
+    /**
+     * Round Trip of the Sample the Offset Came From - The Offset is Within Half of This
+     * @return Round Trip in Microseconds
+     */
+    public synchronized long getRoundTripMicros()
+    {
+        return mRoundTrip;
+    }
+
+    /**
+     * Converts a Time on the Phone's Clock to the Robot's
+     * @param phoneMicros - System.nanoTime / 1000
+     * @return The Same Moment on the Robot's Clock (Meaningless Until isSynced)
+     */
+    public synchronized long toRobotMicros(long phoneMicros)
+    {
+        return phoneMicros + mOffset;
+    }
+
+    @Override
+    public synchronized String toText()
+    {
+        if (mCount == 0)
+        {
+            return String.format(Locale.US, "not synced (%d samples, %d rejected)%n", mSamples, mRejected);
+        }
+        return String.format(Locale.US, "robot clock = phone clock %+.3f ms, within +/-%.3f ms (%d samples, %d rejected)%n",
+                mOffset / 1e3, mRoundTrip / 2e3, mSamples, mRejected);
+    }
+
+    @Override
+    public synchronized String toJson()
+    {
+        return String.format(Locale.US, "{\"synced\":%b,\"offsetUs\":%d,\"roundTripUs\":%d,\"samples\":%d,\"rejected\":%d}",
+                mCount > 0, mOffset, mRoundTrip, mSamples, mRejected);
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        mSamples = 0;
+        mRejected = 0;
+    }
+}
@@ -0,0 +1,235 @@
+package com.androidFRC.androidVision.comm;
+
+import com.androidFRC.androidVision.comm.messages.VisionMessage;
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * What RobotLink Sends Next - Replaces a Plain Queue, Which Filled With Stale Target Updates Whenever the Link Stalled,
+ * Dropped the New Ones, and Left Heartbeats Stuck Behind Them Until the Robot Gave Up on the Phone
+ * Two Lanes, the Priority Lane Always Emptied First (See VisionMessage.isPriority):
+ *   priority - Heartbeats and Anything Else the Robot is Waiting On
+ *   normal   - Target Updates
+ * In Each Lane a Latest-Only Message (See VisionMessage.isLatestOnly) Takes its Type's One Slot, Replacing (And
+ * Recycling) Whatever Was Waiting There, so a Stalled Link Catches Up With the Newest Targets, Not the Oldest
+ * Other Messages Wait in Order, Up to LANE_CAPACITY per Lane, and Are Dropped Beyond That
+ * Offered From Any Thread, Polled by the Loop Thread; Counted at /outbound.txt
+ */
+public class OutboundScheduler implements StatsHttpServer.Report
+{
+    //Most Messages Each Lane Holds in Order - Latest-Only Messages Take Their Slot Instead and Never Count Toward This
+    public static final int LANE_CAPACITY = 16;
+
+    private final Lane mPriority = new Lane("priority");
+    private final Lane mNormal = new Lane("normal");
+
+    /**
+     * Queues a Message in its Lane
+     * @param message - Message to Send (Recycled Here if it is Dropped, or Later by Whoever Polls it)
+     * @return False if it Was Dropped Because its Lane Was Full
+     */
+    public synchronized boolean offer(VisionMessage message)
+    {
+        return (message.isPriority() ? mPriority : mNormal).offer(message);
+    }
+
+    /**
+     * Takes the Next Message to Send - From the Priority Lane While it Has Any
+     * @return The Message, or null if Nothing is Waiting
+     */
+    public synchronized VisionMessage poll()
+    {
+        VisionMessage message = mPriority.poll();
+        return message != null ? message : mNormal.poll();
+    }
+
+    /**
+     * Recycles Everything Waiting (Counted as Dropped) - Nothing is Worth Sending Late to a New Connection
+     */
+    public synchronized void clear()
+    {
+        mPriority.clear();
+        mNormal.clear();
+    }
+
+    /**
+     * Messages Waiting in Both Lanes
+     * @return Message Count
+     */
+    public synchronized int size()
+    {
+        return mPriority.size() + mNormal.size();
+    }
+
+    /**
+     * Messages Replaced by a Newer One of Their Type Before They Were Sent, in Both Lanes
+     * @return Replaced Count
+     */
+    public long getReplaced()
+    {
+        return mPriority.mReplaced + mNormal.mReplaced;
+    }
+
+    /**
+     * Messages Dropped Because Their Lane Was Full, or Cleared Away Unsent
+     * @return Dropped Count
+     */
+    public long getDropped()
+    {
+        return mPriority.mDropped + mNormal.mDropped;
+    }
+
+    @Override
+    public synchronized String toText()
+    {
+        return mPriority.toText() + mNormal.toText();
+    }
+
+    @Override
+    public synchronized String toJson()
+    {
+        return "{" + mPriority.toJson() + "," + mNormal.toJson() + "}";
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        mPriority.reset();
+        mNormal.reset();
+    }
+
+    /**
+     * One Lane - An In-Order Queue and a Slot per Latest-Only Type (Guarded by the Scheduler)
+     */
+    private static class Lane
+    {
+        private final String mName;
+        private final ArrayDeque<VisionMessage> mQueue = new ArrayDeque<>(LANE_CAPACITY);
+        private String[] mSlotTypes = new String[2];
+        private VisionMessage[] mSlots = new VisionMessage[2];
+        private int mSlotCount;
+
+        //Counters - Written Under the Scheduler's Lock, Read Loosely
+        private volatile long mOffered;
+        private volatile long mSent;
+        private volatile long mReplaced;
+        private volatile long mDropped;
+
+        Lane(String name)
+        {
+            mName = name;
+        }
+
+        boolean offer(VisionMessage message)
+        {
+            mOffered++;
+            if (!message.isLatestOnly())
+            {
+                if (mQueue.size() >= LANE_CAPACITY)
+                {
+                    mDropped++;
+                    message.recycle();
+                    return false;
+                }
+                mQueue.addLast(message);
+                return true;
+            }
+            int slot = slot(message.getType());
+            VisionMessage replaced = mSlots[slot];
+            mSlots[slot] = message;
+            if (replaced != null)
+            {
+                mReplaced++;
+                //The Same Instance Again (A Singleton Like the Heartbeat) Just Stays Put
+                if (replaced != message)
+                {
+                    replaced.recycle();
+                }
+            }
+            return true;
+        }
+
+        VisionMessage poll()
+        {
+            VisionMessage message = mQueue.pollFirst();
+            for (int i = 0; message == null && i < mSlotCount; i++)
+            {
+                message = mSlots[i];
+                mSlots[i] = null;
+            }
+            if (message != null)
+            {
+                mSent++;
+            }
+            return message;
+        }
+
+        void clear()
+        {
+            VisionMessage message;
+            while ((message = poll()) != null)
+            {
+                mSent--;
+                mDropped++;
+                message.recycle();
+            }
+        }
+
+        int size()
+        {
+            int size = mQueue.size();
+            for (int i = 0; i < mSlotCount; i++)
+            {
+                size += mSlots[i] != null ? 1 : 0;
+            }
+            return size;
+        }
+
+        /**
+         * Slot for a Latest-Only Type, Added the First Time the Type is Seen
+         */
+        private int slot(String type)
+        {
+            for (int i = 0; i < mSlotCount; i++)
+            {
+                if (mSlotTypes[i].equals(type))
+                {
+                    return i;
+                }
+            }
+            if (mSlotCount == mSlots.length)
+            {
+                String[] types = new String[mSlotCount * 2];
+                VisionMessage[] slots = new VisionMessage[mSlotCount * 2];
+                System.arraycopy(mSlotTypes, 0, types, 0, mSlotCount);
+                System.arraycopy(mSlots, 0, slots, 0, mSlotCount);
+                mSlotTypes = types;
+                mSlots = slots;
+            }
+            mSlotTypes[mSlotCount] = type;
+            return mSlotCount++;
+        }
+
+        String toText()
+        {
+            return String.format(Locale.US, "%-8s waiting %d, offered %d, sent %d, replaced by newer %d, dropped %d%n",
+                    mName, size(), mOffered, mSent, mReplaced, mDropped);
+        }
+
+        String toJson()
+        {
+            return String.format(Locale.US, "\"%s\":{\"waiting\":%d,\"offered\":%d,\"sent\":%d,\"replaced\":%d,\"dropped\":%d}",
+                    mName, size(), mOffered, mSent, mReplaced, mDropped);
+        }
+
+        void reset()
+        {
+            mOffered = 0;
+            mSent = 0;
+            mReplaced = 0;
+            mDropped = 0;
+        }
+    }
+}
@@ -5,209 +5,23 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.androidFRC.androidVision.Configuration;
+import com.androidFRC.androidVision.PipelineStats;
 import com.androidFRC.androidVision.RobotEventBroadcastReceiver;
-import com.androidFRC.androidVision.comm.messages.HeartbeatMessage;
-import com.androidFRC.androidVision.comm.messages.OffWireMessage;
+import com.androidFRC.androidVision.comm.messages.TargetUpdateMessage;
 import com.androidFRC.androidVision.comm.messages.VisionMessage;
+import com.androidFRC.androidVision.stats.FrameTrace;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.Socket;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
-public class RobotConnection
+/**
+ * The App's Connection to the Robot - Turns What the Robot Says Into Broadcasts
+ * The Socket, Heartbeats and Reconnects All Live in RobotLink (One Non-Blocking Event Loop Thread)
+ */
+public class RobotConnection implements RobotLink.Listener
 {
     //Connection State Variables
-    private int m_port;
-    private String m_host;
     private Context m_context;
-    private boolean m_running = true;
-    private boolean m_connected = false;
-    volatile private Socket m_socket;
-    private Thread m_connect_thread, m_read_thread, m_write_thread;
-
-    //Timing State Variables
-    private long m_last_heartbeat_sent_at = System.currentTimeMillis();
-    private long m_last_heartbeat_rcvd_at = 0;
-
-    //'Queue' of the VisionMessages to be Sent Out
-    private ArrayBlockingQueue<VisionMessage> mToSend = new ArrayBlockingQueue<>(30);
-
-    /**
-     * Runnable That Constantly Loops, Sending Messages In the Queue When Available
-     */
-    protected class WriteThread implements Runnable
-    {
-        @Override
-        public void run()
-        {
-            while (m_running)
-            {
-                VisionMessage nextToSend = null;
-                try
-                {
-                    nextToSend = mToSend.poll(250, TimeUnit.MILLISECONDS);
-                }
-                catch (InterruptedException e)
-                {
-                    Log.e("WriteThead", "Couldn't poll queue");
-                }
-                if (nextToSend == null)
-                {
-                    continue;
-                }
-                sendToWire(nextToSend);
-            }
-        }
-    }
-
-    /**
-     * Runnable that Constantly Loops, Reading and Interpreting Messages As Available
-     */
-    protected class ReadThread implements Runnable
-    {
-        /**
-         * Reacts For Each Message Type
-         * @param message - New Vision Message to React
-         */
-        public void handleMessage(VisionMessage message)
-        {
-            //TODO: Should these be else ifs / switches?  A Message Cannot Have More Than One Type...
-            if ("heartbeat".equals(message.getType()))
-            {
-                m_last_heartbeat_rcvd_at = System.currentTimeMillis();
-            }
-            if ("shot".equals(message.getType()))
-            {
-                broadcastShotTaken();
-            }
-            if ("camera_mode".equals(message.getType()))
-            {
-                if ("vision".equals(message.getMessage()))
-                {
-                    broadcastWantVisionMode();
-                }
-                else if ("intake".equals(message.getMessage()))
-                {
-                    broadcastWantIntakeMode();
-                }
-            }
-
-            Log.w("Connection" , message.getType() + " " + message.getMessage());
-        }
-
-        /**
-         * Runs Looping of the Reader
-         */
-        @Override
-        public void run()
-        {
-            while (m_running)
-            {
-                if (m_socket != null || m_connected)
-                {
-                    BufferedReader reader;
-                    try
-                    {
-                        InputStream is = m_socket.getInputStream();
-                        reader = new BufferedReader(new InputStreamReader(is));
-                    }
-                    catch (IOException e)
-                    {
-                        Log.e("ReadThread", "Could not get input stream");
-                        continue;
-                    }
-                    catch (NullPointerException npe)
-                    {
-                        Log.e("ReadThread", "socket was null");
-                        continue;
-                    }
-
-                    String jsonMessage = null;
-                    try
-                    {
-                        jsonMessage = reader.readLine();
-                    }
-                    catch (IOException e)
-                    {
-                        //TODO: Catch Block Event?
-                    }
-                    if (jsonMessage != null)
-                    {
-                        OffWireMessage parsedMessage = new OffWireMessage(jsonMessage);
-                        if (parsedMessage.isValid())
-                        {
-                            handleMessage(parsedMessage);
-                        }
-                    }
-                }
-                else
-                {
-                    try
-                    {
-                        Thread.sleep(100, 0);
-                    }
-                    catch (InterruptedException e)
-                    {
-                        //TODO: Catch Block Event?
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Runnable that Loops, Constantly Checking the 'Heartbeat' Messages
-     * Starts Connections When Heartbeats Can Be Found, And Stops Them When They Haven't
-     */
-    protected class ConnectionMonitor implements Runnable
-    {
-        @Override
-        public void run()
-        {
-            while (m_running)
-            {
-                try
-                {
-                    if (m_socket == null || !m_socket.isConnected() && !m_connected)
-                    {
-                        tryConnect();
-                        Thread.sleep(250, 0);
-                    }
-
-                    long now = System.currentTimeMillis();
-
-                    if (now - m_last_heartbeat_sent_at > Configuration.SEND_HEARTBEAT_PERIOD)
-                    {
-                        send(HeartbeatMessage.getInstance());
-                        m_last_heartbeat_sent_at = now;
-                    }
-
-                    if (Math.abs(m_last_heartbeat_rcvd_at - m_last_heartbeat_sent_at) > Configuration.THRESHOLD_HEARTBEAT && m_connected)
-                    {
-                        m_connected = false;
-                        broadcastRobotDisconnected();
-                        broadcastWantVisionMode();
-                    }
-                    if (Math.abs(m_last_heartbeat_rcvd_at - m_last_heartbeat_sent_at) < Configuration.THRESHOLD_HEARTBEAT && !m_connected)
-                    {
-                        m_connected = true;
-                        broadcastRobotConnected();
-                    }
-
-                    Thread.sleep(Configuration.CONNECTOR_SLEEP_MS, 0);
-                }
-                catch (InterruptedException e)
-                {
-                    //TODO: Catch Block Event?
-                }
-            }
-        }
-    }
+    private final RobotLink m_link;
 
     /**
      * Simple RobotConnection Constructor
@@ -218,8 +32,14 @@ public class RobotConnection
     public RobotConnection(Context context, String host, int port)
     {
         m_context = context;
-        m_host = host;
-        m_port = port;
+        m_link = new RobotLink(host, port, Configuration.ROBOT_DATAGRAM_PORT, Configuration.SEND_HEARTBEAT_PERIOD,
+                Configuration.THRESHOLD_HEARTBEAT, Configuration.CONNECTOR_SLEEP_MS, this);
+        PipelineStats.getInstance().addReport("outbound", m_link.getOutbound());
+        PipelineStats.getInstance().addReport("clock", m_link.getClock());
+        if (Configuration.ROBOT_DATAGRAM_PORT > 0)
+        {
+            PipelineStats.getInstance().addReport("datagrams", m_link.getDatagrams());
+        }
     }
 
     /**
@@ -232,91 +52,25 @@ public class RobotConnection
     }
 
     /**
-     * Attempts to Start the Connection Socket
-     */
-    synchronized private void tryConnect()
-    {
-        if (m_socket == null)
-        {
-            try
-            {
-                m_socket = new Socket(m_host, m_port);
-                m_socket.setSoTimeout(100);
-            }
-            catch (IOException e)
-            {
-                Log.w("RobotConnector", "Could not connect");
-                m_socket = null;
-            }
-        }
-    }
-
-    /**
-     * Attempts to Stop Connection and Runnable Threads
+     * Stops the Event Loop and Closes the Connection
      */
     synchronized public void stop()
     {
-        m_running = false;
-        if (m_connect_thread != null && m_connect_thread.isAlive())
-        {
-            try
-            {
-                m_connect_thread.join();
-            }
-            catch (InterruptedException e)
-            {
-                e.printStackTrace();
-            }
-        }
-
-        if (m_write_thread != null && m_write_thread.isAlive())
-        {
-            try
-            {
-                m_write_thread.join();
-            }
-            catch (InterruptedException e)
-            {
-                e.printStackTrace();
-            }
-        }
-
-        if (m_read_thread != null && m_read_thread.isAlive())
-        {
-            try
-            {
-                m_read_thread.join();
-            }
-            catch (InterruptedException e)
-            {
-                e.printStackTrace();
-            }
-        }
+        m_link.stop();
     }
 
     /**
-     * Starts the Runnable Threads
+     * Starts the Event Loop, Which Connects (And Keeps Reconnecting) on its Own
      */
     synchronized public void start()
     {
-        m_running = true;
-
-        if (m_write_thread == null || !m_write_thread.isAlive())
+        try
         {
-            m_write_thread = new Thread(new WriteThread());
-            m_write_thread.start();
+            m_link.start();
         }
-
-        if (m_read_thread == null || !m_read_thread.isAlive())
-        {
-            m_read_thread = new Thread(new ReadThread());
-            m_read_thread.start();
-        }
-
-        if (m_connect_thread == null || !m_connect_thread.isAlive())
+        catch (IOException e)
         {
-            m_connect_thread = new Thread(new ConnectionMonitor());
-            m_connect_thread.start();
+            Log.e("RobotConnection", "Could not start the connection loop");
         }
     }
 
@@ -331,46 +85,75 @@ public class RobotConnection
 
     /**
      * Is the RobotConnection Properly Communicating
-     * @return If the RobotConnection Properly Communicating
+     * @return If the Robot's Heartbeats Are Arriving
      */
-    public synchronized boolean isConnected()
+    public boolean isConnected()
+    {
+        return m_link.isConnected();
+    }
+
+    /**
+     * Adds the Message to the Queue of Messages to be Sent - Written as Soon as the Socket Will Take It
+     * The Message is Recycled Once Written, Once a Newer One Replaces it, or Right Away if the Queue is Full
+     * @param message - VisionMessage to be Sent
+     * @return If the Addition Was Successful
+     */
+    public boolean send(VisionMessage message)
+    {
+        return m_link.send(message);
+    }
+
+    @Override
+    public void onRobotConnected()
+    {
+        broadcastRobotConnected();
+    }
+
+    @Override
+    public void onRobotDisconnected()
     {
-        return m_socket != null && m_socket.isConnected() && m_connected;
+        broadcastRobotDisconnected();
+        broadcastWantVisionMode();
     }
 
     /**
-     * Directly Sends the VisionMessage over the Output Stream
-     * @param message - Vision Message to be Sent
-     * @return Whether or Not the Send Was Successful
+     * Reacts For Each Message Type (Heartbeats Are Already Handled by RobotLink)
+     * @param message - New Vision Message to React
      */
-    private synchronized boolean sendToWire(VisionMessage message)
+    @Override
+    public void onMessage(VisionMessage message)
     {
-        String toSend = message.toJson() + "\n";
-        if (m_socket != null && m_socket.isConnected())
+        if ("shot".equals(message.getType()))
         {
-            try
+            broadcastShotTaken();
+        }
+        else if ("camera_mode".equals(message.getType()))
+        {
+            if ("vision".equals(message.getMessage()))
             {
-                OutputStream os = m_socket.getOutputStream();
-                os.write(toSend.getBytes());
-                return true;
+                broadcastWantVisionMode();
             }
-            catch (IOException e)
+            else if ("intake".equals(message.getMessage()))
             {
-                Log.w("RobotConnection", "Could not send data to socket, try to reconnect");
-                m_socket = null;
+                broadcastWantIntakeMode();
             }
         }
-        return false;
+
+        Log.w("Connection" , message.getType() + " " + message.getMessage());
     }
 
-    /**
-     * Adds the Message to the Queue of Messages to be Sent
-     * @param message - VisionMessage to be Sent
-     * @return If the Addition Was Successful
-     */
-    public synchronized boolean send(VisionMessage message)
+    @Override
+    public void onSent(VisionMessage message, long nowNanos)
     {
-        return mToSend.offer(message);
+        if (message instanceof TargetUpdateMessage)
+        {
+            //Last Hop of the Frame - How Long it Sat in the Queue, and How Long Since the Camera Saw It
+            TargetUpdateMessage update = (TargetUpdateMessage) message;
+            PipelineStats stats = PipelineStats.getInstance();
+            stats.record(PipelineStats.STAGE_SEND_QUEUE, nowNanos - update.getTimestamp());
+            stats.record(PipelineStats.STAGE_END_TO_END, nowNanos - update.getUpdate().getCapturedAt());
+            stats.getTrace().mark(update.getUpdate().getFrameId(), FrameTrace.HOP_WIRE, nowNanos);
+        }
     }
 
     /**
@@ -0,0 +1,732 @@
+package com.androidFRC.androidVision.comm;
+
+import com.androidFRC.androidVision.comm.messages.HeartbeatMessage;
+import com.androidFRC.androidVision.comm.messages.OffWireMessage;
+import com.androidFRC.androidVision.comm.messages.VisionMessage;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Event Loop Behind RobotConnection (Plain Java, No Android Dependencies)
+ * One Thread on One Selector Connects (Without Blocking), Reads, Writes and Keeps Every Deadline on a TimerWheel:
+ *   Heartbeat Sent Every heartbeatPeriodMs While the Socket is Up (The First Right After it Connects)
+ *   Robot Counted as Lost heartbeatThresholdMs After its Last Heartbeat - Each One Received Pushes That Back
+ *   Reconnect reconnectDelayMs After the Socket Fails or Closes, and After a Connect Taking Over CONNECT_TIMEOUT_MS
+ * Reads Go Straight Into a RobotMessageDecoder's Buffer, so a Heartbeat Costs No Allocation at All
+ * send() Wakes the Loop Straight Away, so a Message Leaves as Soon as the Socket Will Take It - Nothing Waits on a Poll
+ * What Goes Next is Up to an OutboundScheduler: Heartbeats First, and Only the Newest Target Update Ever Waits
+ * With a Datagram Port, Target Updates Go Over UDP Instead (While the TCP Socket is Up), so One Lost Segment Never
+ * Holds Back the Updates After it - TCP Still Carries Heartbeats and Everything Else
+ * The Heartbeat Exchange Also Keeps a ClockSync Estimate of the Robot's Clock, Used to Stamp Outgoing Messages
+ * Listener Callbacks Run on the Loop Thread
+ */
+public class RobotLink
+{
+    /**
+     * What the Loop Tells its Owner
+     */
+    public interface Listener
+    {
+        /**
+         * Heartbeats Started Arriving (Not Just the Socket Opening)
+         */
+        void onRobotConnected();
+
+        /**
+         * Heartbeats Stopped Arriving, or the Socket Closed
+         */
+        void onRobotDisconnected();
+
+        /**
+         * A Valid Message Arrived (Heartbeats Are Handled Here and Not Passed On)
+         * @param message - The Message
+         */
+        void onMessage(VisionMessage message);
+
+        /**
+         * A Message's Last Byte Was Handed to the Socket - Called Just Before it is Recycled
+         * @param message - The Message
+         * @param nowNanos - System.nanoTime When it Was Written
+         */
+        void onSent(VisionMessage message, long nowNanos);
+    }
+
+    static final long CONNECT_TIMEOUT_MS = 1000;
+    //Timer Resolution, and Ticks per Turn of the Wheel (Over a Second, so Heartbeat Deadlines Fit in One Turn)
+    private static final long TICK_MS = 5;
+    private static final int WHEEL_SLOTS = 256;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String mHost;
+    private final int mPort;
+    private final long mHeartbeatPeriodMs;
+    private final long mHeartbeatThresholdMs;
+    private final long mReconnectDelayMs;
+    private final int mDatagramPort;
+    private final Listener mListener;
+
+    private final OutboundScheduler mToSend = new OutboundScheduler();
+    //Messages Waiting to Go Out as Datagrams (Only Used With a Datagram Port)
+    private final OutboundScheduler mDatagrams = new OutboundScheduler();
+    private final AtomicBoolean mWakeupPending = new AtomicBoolean();
+    private volatile Selector mSelector;
+    private Thread mThread;
+    private volatile boolean mRunning;
+    private volatile boolean mConnected;
+
+    //Loop Thread Only
+    private TimerWheel mWheel;
+    private SocketChannel mChannel;
+    private SelectionKey mKey;
+    private boolean mSocketUp;
+    //Whether the Robot Has Agreed (Through its Heartbeat) to Binary Target Updates - Reset on Every New Socket
+    private boolean mBinaryWire;
+    private ByteBuffer mOutbound = ByteBuffer.allocate(256);
+    private VisionMessage mWriting;
+    private final RobotMessageDecoder mDecoder = new RobotMessageDecoder();
+    private final ClockSync mClock = new ClockSync();
+    private DatagramChannel mDatagramChannel;
+    private ByteBuffer mDatagramOut = ByteBuffer.allocate(256);
+    //Never Reset Between Connections - the Robot Still Remembers the Newest Number From the Last One
+    private long mDatagramSequence;
+
+    //Counters (Only Read Loosely, for Reporting)
+    private volatile long mMessagesSent;
+    private volatile long mBytesSent;
+    private volatile long mConnects;
+    private volatile long mDatagramsSent;
+    private volatile long mDatagramErrors;
+
+    /**
+     * Creates the (Not Yet Running) Loop
+     * @param host - Robot (Or adb Forward) Host
+     * @param port - Robot Port
+     * @param heartbeatPeriodMs - Time Between Heartbeats Sent
+     * @param heartbeatThresholdMs - Time Without a Heartbeat Before the Robot is Counted as Lost
+     * @param reconnectDelayMs - Wait Before Connecting Again
+     * @param listener - Told About Messages and Connection Changes (On the Loop Thread)
+     */
+    public RobotLink(String host, int port, long heartbeatPeriodMs, long heartbeatThresholdMs, long reconnectDelayMs,
+                     Listener listener)
+    {
+        this(host, port, 0, heartbeatPeriodMs, heartbeatThresholdMs, reconnectDelayMs, listener);
+    }
+
+    /**
+     * Creates the (Not Yet Running) Loop, Sending Target Updates as Datagrams
+     * @param host - Robot Host (Reachable Over UDP - adb Forwards Only Carry TCP)
+     * @param port - Robot Port
+     * @param datagramPort - Robot's UDP Port for Target Updates, or 0 to Send Everything Over TCP
+     * @param heartbeatPeriodMs - Time Between Heartbeats Sent
+     * @param heartbeatThresholdMs - Time Without a Heartbeat Before the Robot is Counted as Lost
+     * @param reconnectDelayMs - Wait Before Connecting Again
+     * @param listener - Told About Messages and Connection Changes (On the Loop Thread)
+     */
+    public RobotLink(String host, int port, int datagramPort, long heartbeatPeriodMs, long heartbeatThresholdMs,
+                     long reconnectDelayMs, Listener listener)
+    {
+        mHost = host;
+        mPort = port;
+        mDatagramPort = datagramPort;
+        mHeartbeatPeriodMs = heartbeatPeriodMs;
+        mHeartbeatThresholdMs = heartbeatThresholdMs;
+        mReconnectDelayMs = reconnectDelayMs;
+        mListener = listener;
+    }
+
+    /**
+     * Starts the Loop Thread, Which Connects Right Away
+     * @throws IOException - If No Selector Could be Opened
+     */
+    public synchronized void start() throws IOException
+    {
+        if (mRunning)
+        {
+            return;
+        }
+        mSelector = Selector.open();
+        mWheel = new TimerWheel(TICK_MS, WHEEL_SLOTS, nowMs());
+        mWheel.schedule(mReconnectTimer, nowMs(), 0);
+        mRunning = true;
+        mThread = new Thread(mLoop, "RobotLink");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the Loop Thread and Closes the Socket, Dropping Anything Not Yet Sent
+     */
+    public synchronized void stop()
+    {
+        if (!mRunning)
+        {
+            return;
+        }
+        mRunning = false;
+        mSelector.wakeup();
+        try
+        {
+            mThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Whether the Robot's Heartbeats Are Arriving
+     * @return If the Robot is Connected
+     */
+    public boolean isConnected()
+    {
+        return mConnected;
+    }
+
+    /**
+     * Queues a Message and Wakes the Loop to Write it (Called From Any Thread)
+     * The Message is Recycled Once Written, Once a Newer One Replaces it, or Right Away if its Lane is Full
+     * @param message - Message to Send
+     * @return If it Was Queued
+     */
+    public boolean send(VisionMessage message)
+    {
+        OutboundScheduler queue = mDatagramPort > 0 && message instanceof VisionMessage.DatagramForm ? mDatagrams : mToSend;
+        if (!queue.offer(message))
+        {
+            return false;
+        }
+        Selector selector = mSelector;
+        if (selector != null && mWakeupPending.compareAndSet(false, true))
+        {
+            selector.wakeup();
+        }
+        return true;
+    }
+
+    public long getMessagesSent()
+    {
+        return mMessagesSent;
+    }
+
+    public long getBytesSent()
+    {
+        return mBytesSent;
+    }
+
+    /**
+     * What is Waiting to be Sent, and What Was Replaced or Dropped Before it Could Be
+     * @return The Scheduler, Which is Also a Report
+     */
+    public OutboundScheduler getOutbound()
+    {
+        return mToSend;
+    }
+
+    /**
+     * What is Waiting to Go Out as Datagrams, and What Was Replaced Before it Could
+     * @return The Scheduler (Empty Unless There is a Datagram Port)
+     */
+    public OutboundScheduler getDatagrams()
+    {
+        return mDatagrams;
+    }
+
+    public long getDatagramsSent()
+    {
+        return mDatagramsSent;
+    }
+
+    /**
+     * Datagrams the Socket Refused (Buffer Full, Robot Port Unreachable) - Each is Simply Lost, Like Any Datagram
+     * @return Error Count
+     */
+    public long getDatagramErrors()
+    {
+        return mDatagramErrors;
+    }
+
+    /**
+     * The Robot's Clock as Estimated Over Heartbeats - Unsynced Until a Robot Echoing Heartbeat Times Answers
+     * @return The Estimate, Which is Also a Report
+     */
+    public ClockSync getClock()
+    {
+        return mClock;
+    }
+
+    /**
+     * What Has Been Read From the Robot (Heartbeats, Other Messages, Malformed Lines)
+     * @return The Decoder, for its Counters
+     */
+    public RobotMessageDecoder getDecoder()
+    {
+        return mDecoder;
+    }
+
+    /**
+     * Sockets Opened Since the Loop Started
+     * @return Connection Count
+     */
+    public long getConnects()
+    {
+        return mConnects;
+    }
+
+    private static long nowMs()
+    {
+        return System.nanoTime() / 1000000L;
+    }
+
+    //The Event Loop Itself
+    private final Runnable mLoop = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            while (mRunning)
+            {
+                try
+                {
+                    mSelector.select(mWheel.millisUntilNext(nowMs()));
+                }
+                catch (IOException e)
+                {
+                    break;
+                }
+                mWakeupPending.set(false);
+
+                Iterator<SelectionKey> it = mSelector.selectedKeys().iterator();
+                while (it.hasNext())
+                {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid() || key != mKey)
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        if (key.isConnectable())
+                        {
+                            finishConnect();
+                        }
+                        if (key.isValid() && key.isReadable())
+                        {
+                            read();
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            flush();
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        socketFailed();
+                    }
+                }
+
+                mWheel.advance(nowMs());
+                try
+                {
+                    flush();
+                }
+                catch (IOException e)
+                {
+                    socketFailed();
+                }
+                flushDatagrams();
+            }
+
+            mConnected = false;
+            closeSocket();
+            //The Timers Outlive This Wheel - Left Scheduled, the Next start() Would Link Them Into its New One Unseen
+            mWheel.cancel(mReconnectTimer);
+            dropQueued();
+            try
+            {
+                mSelector.close();
+            }
+            catch (IOException e)
+            {
+                //Shutting Down Anyway
+            }
+        }
+    };
+
+    //Opens the Next Socket
+    private final TimerWheel.Timer mReconnectTimer = new TimerWheel.Timer()
+    {
+        @Override
+        void run(long nowMs)
+        {
+            connect(nowMs);
+        }
+    };
+
+    //Gives Up on a Connect That Has Not Finished
+    private final TimerWheel.Timer mConnectTimeoutTimer = new TimerWheel.Timer()
+    {
+        @Override
+        void run(long nowMs)
+        {
+            socketFailed();
+        }
+    };
+
+    //Queues the Next Heartbeat
+    private final TimerWheel.Timer mHeartbeatTimer = new TimerWheel.Timer()
+    {
+        @Override
+        void run(long nowMs)
+        {
+            //Already on the Loop Thread, so No Wakeup - the Flush After the Timers Writes It
+            mToSend.offer(HeartbeatMessage.getInstance());
+            mWheel.schedule(this, nowMs, mHeartbeatPeriodMs);
+        }
+    };
+
+    //Fires Once the Robot's Heartbeats Have Stopped for the Threshold
+    private final TimerWheel.Timer mHeartbeatLostTimer = new TimerWheel.Timer()
+    {
+        @Override
+        void run(long nowMs)
+        {
+            setConnected(false);
+        }
+    };
+
+    /**
+     * Starts a Non-Blocking Connect - Finished When the Selector Says the Socket is Connectable
+     * @param nowMs - Current Time
+     */
+    private void connect(long nowMs)
+    {
+        try
+        {
+            mBinaryWire = false;
+            mChannel = SocketChannel.open();
+            mChannel.configureBlocking(false);
+            //Messages Are Small and Latency Matters - Never Hold One Back Waiting for an ACK
+            mChannel.socket().setTcpNoDelay(true);
+            if (mChannel.connect(new InetSocketAddress(mHost, mPort)))
+            {
+                mKey = mChannel.register(mSelector, SelectionKey.OP_READ);
+                socketUp(nowMs);
+            }
+            else
+            {
+                mKey = mChannel.register(mSelector, SelectionKey.OP_CONNECT);
+                mWheel.schedule(mConnectTimeoutTimer, nowMs, CONNECT_TIMEOUT_MS);
+            }
+        }
+        catch (IOException | UnresolvedAddressException e)
+        {
+            socketFailed();
+        }
+    }
+
+    /**
+     * Completes a Connect the Selector Reported as Ready
+     * @throws IOException - If the Connect Failed
+     */
+    private void finishConnect() throws IOException
+    {
+        if (!mChannel.finishConnect())
+        {
+            return;
+        }
+        mWheel.cancel(mConnectTimeoutTimer);
+        mKey.interestOps(SelectionKey.OP_READ);
+        socketUp(nowMs());
+    }
+
+    /**
+     * The Socket is Connected - Starts Heartbeats (The First One Right Away, so the Wire Format is Agreed Quickly)
+     * @param nowMs - Current Time
+     */
+    private void socketUp(long nowMs)
+    {
+        mSocketUp = true;
+        mConnects++;
+        mDecoder.reset();
+        mClock.clear();
+        mWheel.schedule(mHeartbeatTimer, nowMs, 0);
+        if (mDatagramPort > 0)
+        {
+            openDatagrams();
+        }
+    }
+
+    /**
+     * Opens the Datagram Socket for This Connection, Numbering On From the Last One
+     * Failing Here Only Loses Datagrams (Counted as Errors) - TCP Alone Decides Whether the Robot is There
+     */
+    private void openDatagrams()
+    {
+        try
+        {
+            mDatagramChannel = DatagramChannel.open();
+            mDatagramChannel.configureBlocking(false);
+            mDatagramChannel.connect(new InetSocketAddress(mHost, mDatagramPort));
+        }
+        catch (IOException | UnresolvedAddressException e)
+        {
+            closeDatagrams();
+        }
+    }
+
+    private void closeDatagrams()
+    {
+        if (mDatagramChannel != null)
+        {
+            try
+            {
+                mDatagramChannel.close();
+            }
+            catch (IOException e)
+            {
+                //Already Closed
+            }
+            mDatagramChannel = null;
+        }
+    }
+
+    /**
+     * Closes the Socket and Tries Again After the Reconnect Delay
+     */
+    private void socketFailed()
+    {
+        closeSocket();
+        setConnected(false);
+        mWheel.schedule(mReconnectTimer, nowMs(), mReconnectDelayMs);
+    }
+
+    private void closeSocket()
+    {
+        mWheel.cancel(mConnectTimeoutTimer);
+        mWheel.cancel(mHeartbeatTimer);
+        mWheel.cancel(mHeartbeatLostTimer);
+        mSocketUp = false;
+        if (mKey != null)
+        {
+            mKey.cancel();
+            mKey = null;
+        }
+        if (mChannel != null)
+        {
+            try
+            {
+                mChannel.close();
+            }
+            catch (IOException e)
+            {
+                //Already Closed
+            }
+            mChannel = null;
+        }
+        if (mWriting != null)
+        {
+            mWriting.recycle();
+            mWriting = null;
+        }
+        closeDatagrams();
+    }
+
+    private void setConnected(boolean connected)
+    {
+        if (connected == mConnected)
+        {
+            return;
+        }
+        mConnected = connected;
+        if (connected)
+        {
+            mListener.onRobotConnected();
+        }
+        else
+        {
+            mListener.onRobotDisconnected();
+        }
+    }
+
+    /**
+     * Writes Queued Messages Until the Queue is Empty or the Socket is Full (Then Waits for OP_WRITE)
+     * With No Socket Up, Queued Messages Are Dropped Rather Than Sent Late to the Next One
+     * @throws IOException - If the Socket Has Failed
+     */
+    private void flush() throws IOException
+    {
+        if (!mSocketUp)
+        {
+            dropQueued();
+            return;
+        }
+        while (true)
+        {
+            if (mWriting == null)
+            {
+                VisionMessage next = mToSend.poll();
+                if (next == null)
+                {
+                    break;
+                }
+                encode(next);
+                mWriting = next;
+            }
+            mBytesSent += mChannel.write(mOutbound);
+            if (mOutbound.hasRemaining())
+            {
+                mKey.interestOps(mKey.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            VisionMessage sent = mWriting;
+            mWriting = null;
+            mMessagesSent++;
+            mListener.onSent(sent, System.nanoTime());
+            sent.recycle();
+        }
+        mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Puts a Message in the Outbound Buffer, Ready to Write
+     * Uses the Compact Binary Framing When Both Sides Agreed to it and the Message Has a Binary Form (See
+     * VisionMessage.BinaryForm), Otherwise the Usual Line-Delimited JSON
+     * @param message - Message to Write Next
+     */
+    private void encode(VisionMessage message)
+    {
+        message.prepareToSend(System.nanoTime(), mClock);
+        if (mBinaryWire && message instanceof VisionMessage.BinaryForm)
+        {
+            VisionMessage.BinaryForm binary = (VisionMessage.BinaryForm) message;
+            ensureOutbound(binary.getMaxBinarySize());
+            binary.writeBinary(mOutbound);
+        }
+        else
+        {
+            byte[] line = (message.toJson() + "\n").getBytes(UTF_8);
+            ensureOutbound(line.length);
+            mOutbound.put(line);
+        }
+        mOutbound.flip();
+    }
+
+    private void ensureOutbound(int size)
+    {
+        if (mOutbound.capacity() < size)
+        {
+            mOutbound = ByteBuffer.allocate(Math.max(size, mOutbound.capacity() * 2));
+        }
+        mOutbound.clear();
+    }
+
+    /**
+     * Sends Every Waiting Datagram - Never Waits for the Socket: One it Will Not Take is Lost, Like Any Other Datagram
+     * Only Called With the TCP Socket Up (Otherwise flush() Has Already Dropped Them)
+     */
+    private void flushDatagrams()
+    {
+        VisionMessage message;
+        while ((message = mDatagrams.poll()) != null)
+        {
+            long now = System.nanoTime();
+            if (mDatagramChannel == null)
+            {
+                mDatagramErrors++;
+                message.recycle();
+                continue;
+            }
+            //Only DatagramForm Messages Are Ever Queued Here (See send)
+            VisionMessage.DatagramForm datagram = (VisionMessage.DatagramForm) message;
+            int size = datagram.getMaxDatagramSize();
+            if (mDatagramOut.capacity() < size)
+            {
+                mDatagramOut = ByteBuffer.allocate(Math.max(size, mDatagramOut.capacity() * 2));
+            }
+            mDatagramOut.clear();
+            message.prepareToSend(now, mClock);
+            datagram.writeDatagram(mDatagramOut, mDatagramSequence++, now);
+            mDatagramOut.flip();
+            try
+            {
+                if (mDatagramChannel.write(mDatagramOut) > 0)
+                {
+                    mDatagramsSent++;
+                    mListener.onSent(message, now);
+                }
+                else
+                {
+                    mDatagramErrors++;
+                }
+            }
+            catch (IOException e)
+            {
+                //Usually the Robot's Port Was Unreachable - Reported Here by the Datagram Before This One
+                mDatagramErrors++;
+            }
+            message.recycle();
+        }
+    }
+
+    private void dropQueued()
+    {
+        mToSend.clear();
+        mDatagrams.clear();
+    }
+
+    /**
+     * Reads Everything Available, Handling Each Whole Message - a Partial One Stays in the Decoder for the Next Read
+     * @throws IOException - If the Robot Closed the Socket
+     */
+    private void read() throws IOException
+    {
+        int read;
+        do
+        {
+            read = mChannel.read(mDecoder.getBuffer());
+            if (read > 0)
+            {
+                mDecoder.decode(mInboundHandler);
+            }
+        }
+        while (read > 0 && mSocketUp);
+        if (read < 0)
+        {
+            throw new IOException("Robot closed the connection");
+        }
+    }
+
+    //What the Decoder Found - On the Loop Thread, Straight From read()
+    private final RobotMessageDecoder.Handler mInboundHandler = new RobotMessageDecoder.Handler()
+    {
+        @Override
+        public void onHeartbeat(boolean binaryWire, long echoMicros, long receivedMicros, long sentMicros)
+        {
+            if (echoMicros >= 0 && receivedMicros >= 0 && sentMicros >= 0)
+            {
+                mClock.addSample(echoMicros, receivedMicros, sentMicros, System.nanoTime() / 1000L);
+            }
+            mBinaryWire = binaryWire;
+            mWheel.schedule(mHeartbeatLostTimer, nowMs(), mHeartbeatThresholdMs);
+            setConnected(true);
+        }
+
+        @Override
+        public void onMessage(String type, String message)
+        {
+            mListener.onMessage(new OffWireMessage(type, message));
+        }
+    };
+}
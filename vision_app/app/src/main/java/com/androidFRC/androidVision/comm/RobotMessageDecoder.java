@@ -0,0 +1,685 @@
+package com.androidFRC.androidVision.comm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Pulls Messages Out of the Bytes the Robot Sends, However TCP Splits or Joins Them - One Buffer, Reused for the Life
+ * of the Loop (Plain Java, No Android Dependencies)
+ * Two Framings Can Share the Stream, Told Apart by Their First Byte:
+ *   JSON Lines - {"type":"...","message":"..."} Ended by \n (\r\n Also Accepted, Blank Lines Ignored)
+ *   BinaryWireFormat Frames - MARKER, Length Varint, Body; Skipped Whole (The Robot Sends None Yet)
+ * Lines Are Read Straight From the Buffer by a Small Streaming Parser - the Type is Matched Without Making a String,
+ * and a Heartbeat's Message is Checked for the Wire Format and Clock Times in Place, so Heartbeats Allocate Nothing;
+ * Only Other Message Types (Rare) Become Strings
+ * Not Thread Safe - Owned by the Thread Reading the Socket
+ */
+public class RobotMessageDecoder
+{
+    /**
+     * Where Decoded Messages Go
+     */
+    public interface Handler
+    {
+        /**
+         * A Heartbeat Arrived
+         * The Times Are There When the Robot Takes Part in Clock Sync (See ClockSync), Otherwise Each is -1
+         * @param binaryWire - Whether it Agreed to the Binary Wire Format (See BinaryWireFormat.WIRE_NAME)
+         * @param echoMicros - "echo": The "sent" Time From the Last Heartbeat the Robot Got, on the Phone's Clock
+         * @param receivedMicros - "received": When That Heartbeat Got to the Robot, on the Robot's Clock
+         * @param sentMicros - "sent": When This Heartbeat Left the Robot, on the Robot's Clock
+         */
+        void onHeartbeat(boolean binaryWire, long echoMicros, long receivedMicros, long sentMicros);
+
+        /**
+         * Any Other Message Arrived
+         * @param type - Message Type
+         * @param message - Message Content
+         */
+        void onMessage(String type, String message);
+    }
+
+    //Longest Line Held - Anything Longer is Skipped Up to its Line Break
+    public static final int MAX_LINE_LENGTH = 4096;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] KEY_TYPE = ascii("type");
+    private static final byte[] KEY_MESSAGE = ascii("message");
+    private static final byte[] KEY_WIRE = ascii("wire");
+    private static final byte[] KEY_ECHO = ascii("echo");
+    private static final byte[] KEY_RECEIVED = ascii("received");
+    private static final byte[] KEY_SENT = ascii("sent");
+    private static final byte[] TYPE_HEARTBEAT = ascii("heartbeat");
+    private static final byte[] WIRE_NAME = ascii(BinaryWireFormat.WIRE_NAME);
+
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(MAX_LINE_LENGTH);
+    //Where Unescaped Strings Are Built - Grows to the Longest Seen
+    private byte[] mScratch = new byte[256];
+
+    //Resynchronizing State Carried Between Reads
+    private boolean mSkippingLine;
+    private long mSkipBytes;
+
+    //Result of the Last findValue (Start and End Inside the Quotes for a String)
+    private int mValueStart;
+    private int mValueEnd;
+    private boolean mValueIsString;
+    private boolean mValueEscaped;
+
+    //Result of the Last parseHeartbeat
+    private boolean mBinaryWire;
+    private long mEcho;
+    private long mReceived;
+    private long mSent;
+
+    //Counters (Only Read Loosely, for Reporting)
+    private volatile long mHeartbeats;
+    private volatile long mMessages;
+    private volatile long mMalformed;
+    private volatile long mOversized;
+    private volatile long mBinaryFrames;
+
+    /**
+     * Where to Read the Next Bytes Into (Write Mode) - Then Call decode
+     * @return The Decoder's Own Buffer
+     */
+    public ByteBuffer getBuffer()
+    {
+        return mBuffer;
+    }
+
+    /**
+     * Drops Anything Held From the Last Connection
+     */
+    public void reset()
+    {
+        mBuffer.clear();
+        mSkippingLine = false;
+        mSkipBytes = 0;
+    }
+
+    /**
+     * Copies Bytes Into the Buffer and Decodes Them - For Sources Other Than a Channel
+     * @param src - Bytes Received (Position to Limit), All Consumed
+     * @param handler - Told About Each Message
+     * @return Number of Messages Decoded
+     */
+    public int feed(ByteBuffer src, Handler handler)
+    {
+        int decoded = 0;
+        while (src.hasRemaining())
+        {
+            int n = Math.min(src.remaining(), mBuffer.remaining());
+            int limit = src.limit();
+            src.limit(src.position() + n);
+            mBuffer.put(src);
+            src.limit(limit);
+            decoded += decode(handler);
+        }
+        return decoded;
+    }
+
+    /**
+     * Handles Every Whole Frame in the Buffer - Whatever is Left of a Partial One Stays for the Next Read
+     * @param handler - Told About Each Message
+     * @return Number of Messages Decoded
+     */
+    public int decode(Handler handler)
+    {
+        byte[] b = mBuffer.array();
+        int end = mBuffer.position();
+        int p = 0;
+        int decoded = 0;
+        while (p < end)
+        {
+            if (mSkipBytes > 0)
+            {
+                int n = (int) Math.min(mSkipBytes, end - p);
+                p += n;
+                mSkipBytes -= n;
+                continue;
+            }
+            if (mSkippingLine)
+            {
+                int lineEnd = indexOf(b, (byte) '\n', p, end);
+                if (lineEnd < 0)
+                {
+                    p = end;
+                    break;
+                }
+                mSkippingLine = false;
+                p = lineEnd + 1;
+                continue;
+            }
+            if (b[p] == BinaryWireFormat.MARKER)
+            {
+                int next = skipBinaryFrame(b, p, end);
+                if (next < 0)
+                {
+                    break;
+                }
+                p = next;
+                continue;
+            }
+            int lineEnd = indexOf(b, (byte) '\n', p, end);
+            if (lineEnd < 0)
+            {
+                if (p == 0 && end == b.length)
+                {
+                    mOversized++;
+                    mSkippingLine = true;
+                    p = end;
+                }
+                break;
+            }
+            if (decodeLine(b, p, lineEnd, handler))
+            {
+                decoded++;
+            }
+            p = lineEnd + 1;
+        }
+        mBuffer.limit(end);
+        mBuffer.position(p);
+        mBuffer.compact();
+        return decoded;
+    }
+
+    /**
+     * Steps Over a Binary Frame (Its Body May Still Be on the Way - That is Skipped as it Arrives)
+     * @return Where the Next Frame Starts, or -1 if the Length is Not Here Yet
+     */
+    private int skipBinaryFrame(byte[] b, int start, int end)
+    {
+        long length = 0;
+        int shift = 0;
+        int p = start + 1;
+        while (true)
+        {
+            if (p == end)
+            {
+                return -1;
+            }
+            byte v = b[p++];
+            length |= (long) (v & 0x7F) << shift;
+            if ((v & 0x80) == 0)
+            {
+                break;
+            }
+            shift += 7;
+            if (shift > 28)
+            {
+                length = -1;
+                break;
+            }
+        }
+        if (length < 1 || length > BinaryWireFormat.MAX_FRAME_LENGTH)
+        {
+            //Not a Frame After All - Drop Everything Up to the Next Line Break
+            mMalformed++;
+            mSkippingLine = true;
+            return start + 1;
+        }
+        mBinaryFrames++;
+        mSkipBytes = length;
+        return p;
+    }
+
+    /**
+     * Parses One JSON Line and Hands it On
+     * @return If it Was a Valid Message
+     */
+    private boolean decodeLine(byte[] b, int start, int end, Handler handler)
+    {
+        if (end > start && b[end - 1] == '\r')
+        {
+            end--;
+        }
+        start = skipWhitespace(b, start, end);
+        if (start == end)
+        {
+            return false;
+        }
+        if (!findValue(b, start, end, KEY_TYPE) || !mValueIsString)
+        {
+            mMalformed++;
+            return false;
+        }
+        int typeStart = mValueStart;
+        int typeEnd = mValueEnd;
+        boolean typeEscaped = mValueEscaped;
+        if (!findValue(b, start, end, KEY_MESSAGE))
+        {
+            mMalformed++;
+            return false;
+        }
+
+        if (!typeEscaped && equals(b, typeStart, typeEnd, TYPE_HEARTBEAT))
+        {
+            mHeartbeats++;
+            mBinaryWire = false;
+            mEcho = -1;
+            mReceived = -1;
+            mSent = -1;
+            if (mValueIsString)
+            {
+                parseHeartbeat(b, mValueStart, mValueEnd, mValueEscaped);
+            }
+            handler.onHeartbeat(mBinaryWire, mEcho, mReceived, mSent);
+            return true;
+        }
+
+        //Anything Else is Rare Enough to Make Strings For (A Message That is Not a String is Passed as its JSON Text)
+        String message = mValueIsString ? string(b, mValueStart, mValueEnd, mValueEscaped)
+                : new String(b, mValueStart, mValueEnd - mValueStart, UTF_8);
+        String type = string(b, typeStart, typeEnd, typeEscaped);
+        mMessages++;
+        handler.onMessage(type, message);
+        return true;
+    }
+
+    /**
+     * Reads a Heartbeat's Message (Itself a JSON Object, Escaped Inside a String) Into mBinaryWire - Whether "wire"
+     * is Set to WIRE_NAME - and the Clock Sync Times mEcho, mReceived and mSent
+     */
+    private void parseHeartbeat(byte[] b, int start, int end, boolean escaped)
+    {
+        byte[] object = b;
+        if (escaped)
+        {
+            end = unescape(b, start, end);
+            start = 0;
+            object = mScratch;
+        }
+        start = skipWhitespace(object, start, end);
+        mBinaryWire = findValue(object, start, end, KEY_WIRE) && mValueIsString && !mValueEscaped
+                && equals(object, mValueStart, mValueEnd, WIRE_NAME);
+        mEcho = findValue(object, start, end, KEY_ECHO) ? number(object) : -1;
+        mReceived = findValue(object, start, end, KEY_RECEIVED) ? number(object) : -1;
+        mSent = findValue(object, start, end, KEY_SENT) ? number(object) : -1;
+    }
+
+    /**
+     * The Value Last Found by findValue as a Non-Negative Whole Number
+     * @return The Number, or -1 if it is Anything Else (Or Too Big)
+     */
+    private long number(byte[] b)
+    {
+        int end = mValueEnd;
+        while (end > mValueStart && (b[end - 1] == ' ' || b[end - 1] == '\t'))
+        {
+            end--;
+        }
+        if (mValueIsString || mValueStart == end || end - mValueStart > 18)
+        {
+            return -1;
+        }
+        long value = 0;
+        for (int p = mValueStart; p < end; p++)
+        {
+            byte c = b[p];
+            if (c < '0' || c > '9')
+            {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Looks Up a Key in a Flat JSON Object, Leaving Where its Value Is in mValueStart, mValueEnd, mValueIsString and
+     * mValueEscaped - Only Checks the Object's Shape as Far as the Key
+     * @param b - Bytes Holding the Object
+     * @param start - Index of the Opening Brace
+     * @param end - End of the Object's Bytes
+     * @param key - Key Wanted (Compared as Raw Bytes)
+     * @return If the Key Was Found
+     */
+    private boolean findValue(byte[] b, int start, int end, byte[] key)
+    {
+        if (start >= end || b[start] != '{')
+        {
+            return false;
+        }
+        int p = start + 1;
+        while (true)
+        {
+            p = skipWhitespace(b, p, end);
+            if (p >= end || b[p] != '"')
+            {
+                return false;
+            }
+            int keyEnd = stringEnd(b, p + 1, end);
+            if (keyEnd < 0)
+            {
+                return false;
+            }
+            boolean match = !mValueEscaped && equals(b, p + 1, keyEnd, key);
+            p = skipWhitespace(b, keyEnd + 1, end);
+            if (p >= end || b[p] != ':')
+            {
+                return false;
+            }
+            p = skipWhitespace(b, p + 1, end);
+            if (p >= end)
+            {
+                return false;
+            }
+            int valueEnd;
+            if (b[p] == '"')
+            {
+                valueEnd = stringEnd(b, p + 1, end);
+                if (valueEnd < 0)
+                {
+                    return false;
+                }
+                if (match)
+                {
+                    mValueStart = p + 1;
+                    mValueEnd = valueEnd;
+                    mValueIsString = true;
+                    return true;
+                }
+                valueEnd++;
+            }
+            else
+            {
+                valueEnd = otherValueEnd(b, p, end);
+                if (valueEnd < 0)
+                {
+                    return false;
+                }
+                if (match)
+                {
+                    mValueStart = p;
+                    mValueEnd = valueEnd;
+                    mValueIsString = false;
+                    mValueEscaped = false;
+                    return true;
+                }
+            }
+            p = skipWhitespace(b, valueEnd, end);
+            if (p >= end || b[p] != ',')
+            {
+                return false;
+            }
+            p++;
+        }
+    }
+
+    /**
+     * Finds the Closing Quote of a String, Noting in mValueEscaped Whether it Holds Any Escapes
+     * @return Index of the Closing Quote, or -1 if There is None
+     */
+    private int stringEnd(byte[] b, int p, int end)
+    {
+        mValueEscaped = false;
+        while (p < end)
+        {
+            byte c = b[p];
+            if (c == '"')
+            {
+                return p;
+            }
+            if (c == '\\')
+            {
+                mValueEscaped = true;
+                p++;
+            }
+            p++;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the End of a Value That is Not a String (Number, Literal, Object or Array)
+     * @return Index Just Past the Value, or -1 if it Does Not End
+     */
+    private int otherValueEnd(byte[] b, int p, int end)
+    {
+        int depth = 0;
+        while (p < end)
+        {
+            byte c = b[p];
+            if (c == '"')
+            {
+                p = stringEnd(b, p + 1, end);
+                if (p < 0)
+                {
+                    return -1;
+                }
+            }
+            else if (c == '{' || c == '[')
+            {
+                depth++;
+            }
+            else if (c == '}' || c == ']')
+            {
+                if (depth == 0)
+                {
+                    return p;
+                }
+                if (--depth == 0)
+                {
+                    return p + 1;
+                }
+            }
+            else if (c == ',' && depth == 0)
+            {
+                return p;
+            }
+            p++;
+        }
+        return depth == 0 ? end : -1;
+    }
+
+    /**
+     * Makes a String From a JSON String's Bytes
+     */
+    private String string(byte[] b, int start, int end, boolean escaped)
+    {
+        if (!escaped)
+        {
+            return new String(b, start, end - start, UTF_8);
+        }
+        int length = unescape(b, start, end);
+        return new String(mScratch, 0, length, UTF_8);
+    }
+
+    /**
+     * Writes a JSON String's Contents to mScratch With the Escapes Undone (As UTF-8)
+     * @return Number of Bytes Written
+     */
+    private int unescape(byte[] b, int start, int end)
+    {
+        if (mScratch.length < (end - start) * 2)
+        {
+            mScratch = new byte[(end - start) * 2];
+        }
+        byte[] out = mScratch;
+        int n = 0;
+        int p = start;
+        while (p < end)
+        {
+            byte c = b[p++];
+            if (c != '\\' || p == end)
+            {
+                out[n++] = c;
+                continue;
+            }
+            c = b[p++];
+            switch (c)
+            {
+                case 'n':
+                    out[n++] = '\n';
+                    break;
+                case 'r':
+                    out[n++] = '\r';
+                    break;
+                case 't':
+                    out[n++] = '\t';
+                    break;
+                case 'b':
+                    out[n++] = '\b';
+                    break;
+                case 'f':
+                    out[n++] = '\f';
+                    break;
+                case 'u':
+                    int code = hex4(b, p, end);
+                    if (code < 0)
+                    {
+                        out[n++] = '?';
+                        break;
+                    }
+                    p += 4;
+                    //A Surrogate Pair is Two Escapes Making One Character
+                    if (code >= 0xD800 && code < 0xDC00 && p + 6 <= end && b[p] == '\\' && b[p + 1] == 'u')
+                    {
+                        int low = hex4(b, p + 2, end);
+                        if (low >= 0xDC00 && low < 0xE000)
+                        {
+                            code = 0x10000 + ((code - 0xD800) << 10) + (low - 0xDC00);
+                            p += 6;
+                        }
+                    }
+                    n = putUtf8(out, n, code);
+                    break;
+                default:
+                    //\" \\ \/ and Anything Unknown Stand for Themselves
+                    out[n++] = c;
+                    break;
+            }
+        }
+        return n;
+    }
+
+    private static int hex4(byte[] b, int p, int end)
+    {
+        if (p + 4 > end)
+        {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++)
+        {
+            int digit = Character.digit(b[p + i], 16);
+            if (digit < 0)
+            {
+                return -1;
+            }
+            code = code << 4 | digit;
+        }
+        return code;
+    }
+
+    private static int putUtf8(byte[] out, int n, int code)
+    {
+        if (code < 0x80)
+        {
+            out[n++] = (byte) code;
+        }
+        else if (code < 0x800)
+        {
+            out[n++] = (byte) (0xC0 | code >> 6);
+            out[n++] = (byte) (0x80 | code & 0x3F);
+        }
+        else if (code < 0x10000)
+        {
+            out[n++] = (byte) (0xE0 | code >> 12);
+            out[n++] = (byte) (0x80 | code >> 6 & 0x3F);
+            out[n++] = (byte) (0x80 | code & 0x3F);
+        }
+        else
+        {
+            out[n++] = (byte) (0xF0 | code >> 18);
+            out[n++] = (byte) (0x80 | code >> 12 & 0x3F);
+            out[n++] = (byte) (0x80 | code >> 6 & 0x3F);
+            out[n++] = (byte) (0x80 | code & 0x3F);
+        }
+        return n;
+    }
+
+    private static int skipWhitespace(byte[] b, int p, int end)
+    {
+        while (p < end && (b[p] == ' ' || b[p] == '\t' || b[p] == '\r' || b[p] == '\n'))
+        {
+            p++;
+        }
+        return p;
+    }
+
+    private static int indexOf(byte[] b, byte value, int p, int end)
+    {
+        for (; p < end; p++)
+        {
+            if (b[p] == value)
+            {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] b, int start, int end, byte[] expected)
+    {
+        if (end - start != expected.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (b[start + i] != expected[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s)
+    {
+        return s.getBytes(Charset.forName("US-ASCII"));
+    }
+
+    public long getHeartbeats()
+    {
+        return mHeartbeats;
+    }
+
+    /**
+     * Messages Other Than Heartbeats Decoded
+     * @return Message Count
+     */
+    public long getMessages()
+    {
+        return mMessages;
+    }
+
+    /**
+     * Lines That Were Not a JSON Object With a type and message, and Bytes That Looked Like a Binary Frame But Were Not
+     * @return Malformed Count
+     */
+    public long getMalformed()
+    {
+        return mMalformed;
+    }
+
+    /**
+     * Lines Longer Than MAX_LINE_LENGTH, Skipped
+     * @return Oversized Count
+     */
+    public long getOversized()
+    {
+        return mOversized;
+    }
+
+    /**
+     * Binary Frames Skipped
+     * @return Frame Count
+     */
+    public long getBinaryFrames()
+    {
+        return mBinaryFrames;
+    }
+}
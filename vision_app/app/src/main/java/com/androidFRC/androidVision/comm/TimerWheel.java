@@ -0,0 +1,165 @@
+package com.androidFRC.androidVision.comm;
+
+/**
+ * Hashed Timer Wheel for an Event Loop's Deadlines (Heartbeats, Reconnects, Connect Timeouts)
+ * Each Timer Sits in the Slot of the Tick its Deadline Falls In, Linked Through the Timer Itself, so Scheduling,
+ * Rescheduling and Cancelling Are Constant Time and Allocate Nothing - a Deadline Pushed Back on Every Heartbeat Costs
+ * Next to Nothing
+ * A Timer Further Out Than One Turn of the Wheel Just Stays in its Slot Until its Turn Comes Around
+ * Not Thread Safe - Owned by the Loop That Calls advance
+ */
+class TimerWheel
+{
+    /**
+     * Something to Run at a Deadline - Schedule it Again From run() to Repeat
+     */
+    abstract static class Timer
+    {
+        private long mDeadlineMs;
+        private int mSlot = -1;
+        private Timer mPrev;
+        private Timer mNext;
+
+        /**
+         * Called on the Loop Thread Once the Deadline Has Passed
+         * @param nowMs - Time the Wheel Was Advanced To
+         */
+        abstract void run(long nowMs);
+
+        /**
+         * Whether the Timer is Waiting to Run
+         * @return If Scheduled
+         */
+        boolean isScheduled()
+        {
+            return mSlot >= 0;
+        }
+    }
+
+    private final long mTickMs;
+    private final Timer[] mSlots;
+    private long mTick;
+    private int mScheduled;
+
+    /**
+     * Creates an Empty Wheel
+     * @param tickMs - Resolution - Timers Run Up to One Tick Late
+     * @param slots - Ticks per Turn (Timers Due Within One Turn Are Never Looked at Early)
+     * @param nowMs - Current Time, Where the Wheel Starts
+     */
+    TimerWheel(long tickMs, int slots, long nowMs)
+    {
+        mTickMs = tickMs;
+        mSlots = new Timer[slots];
+        mTick = nowMs / tickMs;
+    }
+
+    /**
+     * Schedules (Or Reschedules) a Timer
+     * @param timer - Timer to Run
+     * @param nowMs - Current Time
+     * @param delayMs - How Long From Now
+     */
+    void schedule(Timer timer, long nowMs, long delayMs)
+    {
+        cancel(timer);
+        long deadline = nowMs + Math.max(0, delayMs);
+        //Never Behind the Tick Being Processed, or it Would Wait a Whole Turn
+        long tick = Math.max((deadline + mTickMs - 1) / mTickMs, mTick + 1);
+        int slot = (int) (tick % mSlots.length);
+        timer.mDeadlineMs = deadline;
+        timer.mSlot = slot;
+        timer.mPrev = null;
+        timer.mNext = mSlots[slot];
+        if (timer.mNext != null)
+        {
+            timer.mNext.mPrev = timer;
+        }
+        mSlots[slot] = timer;
+        mScheduled++;
+    }
+
+    /**
+     * Stops a Timer From Running (Nothing Happens if it is Not Scheduled)
+     * @param timer - Timer to Cancel
+     */
+    void cancel(Timer timer)
+    {
+        if (timer.mSlot < 0)
+        {
+            return;
+        }
+        if (timer.mPrev != null)
+        {
+            timer.mPrev.mNext = timer.mNext;
+        }
+        else
+        {
+            mSlots[timer.mSlot] = timer.mNext;
+        }
+        if (timer.mNext != null)
+        {
+            timer.mNext.mPrev = timer.mPrev;
+        }
+        timer.mPrev = null;
+        timer.mNext = null;
+        timer.mSlot = -1;
+        mScheduled--;
+    }
+
+    /**
+     * Runs Every Timer Whose Deadline Has Passed
+     * @param nowMs - Current Time
+     * @return Number of Timers Run
+     */
+    int advance(long nowMs)
+    {
+        long target = nowMs / mTickMs;
+        //After a Long Gap, Every Slot Only Needs Looking at Once
+        long from = Math.max(mTick + 1, target - mSlots.length + 1);
+        int ran = 0;
+        for (long tick = from; tick <= target; tick++)
+        {
+            mTick = tick;
+            int slot = (int) (tick % mSlots.length);
+            Timer timer = mSlots[slot];
+            while (timer != null)
+            {
+                if (timer.mDeadlineMs > nowMs)
+                {
+                    timer = timer.mNext;
+                    continue;
+                }
+                cancel(timer);
+                timer.run(nowMs);
+                ran++;
+                //run() May Have Cancelled Others in This Slot - Start Over From its Head
+                timer = mSlots[slot];
+            }
+        }
+        mTick = Math.max(mTick, target);
+        return ran;
+    }
+
+    /**
+     * How Long the Loop Can Sleep Before the Next Timer Might Be Due
+     * @param nowMs - Current Time
+     * @return Milliseconds (At Least 1) - One Turn of the Wheel if Nothing is Scheduled, Never 0, Which to a Selector
+     *         Means Forever
+     */
+    long millisUntilNext(long nowMs)
+    {
+        if (mScheduled == 0)
+        {
+            return mSlots.length * mTickMs;
+        }
+        for (int i = 1; i <= mSlots.length; i++)
+        {
+            if (mSlots[(int) ((mTick + i) % mSlots.length)] != null)
+            {
+                return Math.max(1, (mTick + i) * mTickMs - nowMs);
+            }
+        }
+        return mTickMs;
+    }
+}
@@ -16,6 +16,10 @@ public class VisionUpdate
 {
     protected List<CameraTargetInfo> m_targets;
     protected long m_captured = 0;
+    protected long m_frame_id = -1;
+
+    //CameraTargetInfos From Before the Last reset(), Kept to be Reused Instead of Reallocated
+    private final ArrayList<CameraTargetInfo> m_spare = new ArrayList<>(3);
 
     /**
      * Constructs and Instantiates the ArrayList With Default Size 3
@@ -36,6 +40,92 @@ public class VisionUpdate
         m_targets.add(t);
     }
 
+    /**
+     * Adds Another Homogeneous Vision Vector, Reusing a CameraTargetInfo Left Over From Before reset() if There is One
+     * @param y - 'Y' of the Vector
+     * @param z - 'Z' of the Vector
+     */
+    public void addCameraTarget(double y, double z)
+    {
+        int spare = m_spare.size();
+        if (spare > 0)
+        {
+            CameraTargetInfo t = m_spare.remove(spare - 1);
+            t.set(y, z);
+            m_targets.add(t);
+        }
+        else
+        {
+            m_targets.add(new CameraTargetInfo(y, z));
+        }
+    }
+
+    /**
+     * Empties the Update So it Can Describe a New Frame, Keeping its Target Objects for Reuse
+     * @param capturedAtTimestamp - Capture Time of the New Frame
+     */
+    public void reset(long capturedAtTimestamp)
+    {
+        reset(capturedAtTimestamp, -1);
+    }
+
+    /**
+     * Empties the Update So it Can Describe a New Frame, Keeping its Target Objects for Reuse
+     * @param capturedAtTimestamp - Capture Time of the New Frame
+     * @param frameId - ID Given to the New Frame at Capture Start, or -1 if Unknown
+     */
+    public void reset(long capturedAtTimestamp, long frameId)
+    {
+        m_captured = capturedAtTimestamp;
+        m_frame_id = frameId;
+        for (int i = 0; i < m_targets.size(); i++)
+        {
+            CameraTargetInfo t = m_targets.get(i);
+            if (t != null)
+            {
+                m_spare.add(t);
+            }
+        }
+        m_targets.clear();
+    }
+
+    /**
+     * Returns the Targets in This Update
+     * @return The List of CameraTargetInfo (Not a Copy)
+     */
+    public List<CameraTargetInfo> getTargets()
+    {
+        return m_targets;
+    }
+
+    /**
+     * When the Frame Behind This Update Was Captured
+     * @return Capture Time (System.nanoTime)
+     */
+    public long getCapturedAt()
+    {
+        return m_captured;
+    }
+
+    /**
+     * Which Camera Frame This Update Describes (The Same ID is in the Video Stream's X-Frame-Id Header)
+     * @return Frame ID Given at Capture Start, or -1 if Unknown
+     */
+    public long getFrameId()
+    {
+        return m_frame_id;
+    }
+
+    /**
+     * How Long Before the Given Time This Update's Frame Was Captured
+     * @param timestamp - Reference Time (System.nanoTime)
+     * @return Capture Age in Milliseconds
+     */
+    public long getCapturedAgoMs(long timestamp)
+    {
+        return (timestamp - m_captured) / 1000000L;  // nanos to millis
+    }
+
     /**
      * Converts the Internal List of Target Information into JSON
      * @param timestamp - Timestamp for Capture Time Latency
@@ -43,11 +133,30 @@ public class VisionUpdate
      */
     public String getSendableJsonString(long timestamp)
     {
-        long captured_ago = (timestamp - m_captured) / 1000000L;  // nanos to millis
+        return getSendableJsonString(timestamp, -1);
+    }
+
+    /**
+     * Converts the Internal List of Target Information into JSON, With the Capture Time on the Robot's Clock
+     * @param timestamp - Timestamp for Capture Time Latency
+     * @param robotCapturedAtMicros - Capture Time on the Robot's Clock (See ClockSync), or -1 to Leave it Out
+     * @return The JSON Object converted into a String
+     */
+    public String getSendableJsonString(long timestamp, long robotCapturedAtMicros)
+    {
+        long captured_ago = getCapturedAgoMs(timestamp);
         JSONObject j = new JSONObject();
         try
         {
             j.put("capturedAgoMs", captured_ago);
+            if (robotCapturedAtMicros >= 0)
+            {
+                j.put("capturedAtRobotUs", robotCapturedAtMicros);
+            }
+            if (m_frame_id >= 0)
+            {
+                j.put("frameId", m_frame_id);
+            }
             JSONArray arr = new JSONArray();
             for (CameraTargetInfo t : m_targets)
             {
@@ -1,15 +1,22 @@
 package com.androidFRC.androidVision.comm.messages;
 
+import com.androidFRC.androidVision.comm.BinaryWireFormat;
+
 /**
- * Empty Message Periodically Sent So Both Sides Know the State of the Connection
+ * Small Message Periodically Sent So Both Sides Know the State of the Connection
  */
 public class HeartbeatMessage extends VisionMessage
 {
     private static HeartbeatMessage sInst = null;
 
+    //Advertises the Binary Wire Format - A Robot That Also Supports it Echoes the Same "wire" Value Back
+    private static final String MESSAGE_START = "{\"wire\":\"" + BinaryWireFormat.WIRE_NAME + "\",\"sent\":";
+
     /**
      * Singleton Instance Method
-     * Message Type is "heartbeat" and the Content is and Empty JSON String
+     * Message Type is "heartbeat" and the Content Lists the Wire Formats This Side Understands, and When it Was Sent
+     * (See ClockSync - a Robot Taking Part Puts That Time in its Own Heartbeats as "echo", With "received" and "sent"
+     * From its Own Clock)
      * @return Instance of HeartbeatMessage
      */
     public static HeartbeatMessage getInstance()
@@ -27,9 +34,17 @@ public class HeartbeatMessage extends VisionMessage
         return "heartbeat";
     }
 
+    //Built as it is Sent, so "sent" is When it Left (In Microseconds, System.nanoTime / 1000)
     @Override
     public String getMessage()
     {
-        return "{}";
+        return MESSAGE_START + System.nanoTime() / 1000L + "}";
+    }
+
+    //One Waiting Heartbeat Says All Another Would
+    @Override
+    public boolean isLatestOnly()
+    {
+        return true;
     }
 }
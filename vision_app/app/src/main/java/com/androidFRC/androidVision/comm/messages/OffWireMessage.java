@@ -32,6 +32,18 @@ public class OffWireMessage extends VisionMessage
         }
     }
 
+    /**
+     * Creates a New OffWireMessage From a Type and Content Already Read Off the Wire (See RobotMessageDecoder)
+     * @param type - Message Type
+     * @param message - Message Content
+     */
+    public OffWireMessage(String type, String message)
+    {
+        mType = type;
+        mMessage = message;
+        mValid = true;
+    }
+
     /**
      * Did the JSON Reader Run to Completion
      * @return mValid - If the JSON Reader Ran to Completion
@@ -1,14 +1,70 @@
 package com.androidFRC.androidVision.comm.messages;
 
+import com.androidFRC.androidVision.comm.BinaryWireFormat;
+import com.androidFRC.androidVision.comm.ClockSync;
 import com.androidFRC.androidVision.comm.VisionUpdate;
 
+import java.nio.ByteBuffer;
+
 /**
  * Message Packaging for Passing Along Target Information
+ * Per-Frame Messages Should Come From obtain(), Which Reuses Recycled Messages (Like android.os.Message)
  */
-public class TargetUpdateMessage extends VisionMessage
+public class TargetUpdateMessage extends VisionMessage implements VisionMessage.BinaryForm, VisionMessage.DatagramForm
 {
+    //Pool of Recycled Messages, Linked Through mNext So Taking and Returning Allocates Nothing
+    private static final Object sPoolLock = new Object();
+    private static final int MAX_POOL_SIZE = 40;
+    private static TargetUpdateMessage sPool;
+    private static int sPoolSize = 0;
+
     private VisionUpdate mUpdate;
     private long mTimestamp;
+    //Set by prepareToSend: When it Was Encoded, and the Capture Time on the Robot's Clock (-1 Until it is Known)
+    private long mSentAt;
+    private long mRobotCapturedAtMicros = -1;
+    private boolean mPooled;
+    private TargetUpdateMessage mNext;
+
+    /**
+     * Takes a Message Out of the Pool (Or Makes One), With an Empty VisionUpdate Ready to Fill
+     * @param capturedAtTimestamp - Capture Time of the Frame the Update Describes
+     * @return A Message Whose getUpdate() Has No Targets Yet - Set the Send Timestamp Before Sending
+     */
+    public static TargetUpdateMessage obtain(long capturedAtTimestamp)
+    {
+        return obtain(capturedAtTimestamp, -1);
+    }
+
+    /**
+     * Takes a Message Out of the Pool (Or Makes One), With an Empty VisionUpdate Ready to Fill
+     * @param capturedAtTimestamp - Capture Time of the Frame the Update Describes
+     * @param frameId - ID Given to That Frame at Capture Start, or -1 if Unknown
+     * @return A Message Whose getUpdate() Has No Targets Yet - Set the Send Timestamp Before Sending
+     */
+    public static TargetUpdateMessage obtain(long capturedAtTimestamp, long frameId)
+    {
+        TargetUpdateMessage m = null;
+        synchronized (sPoolLock)
+        {
+            if (sPool != null)
+            {
+                m = sPool;
+                sPool = m.mNext;
+                m.mNext = null;
+                sPoolSize--;
+            }
+        }
+        if (m == null)
+        {
+            m = new TargetUpdateMessage(new VisionUpdate(capturedAtTimestamp), 0);
+            m.mPooled = true;
+        }
+        m.mUpdate.reset(capturedAtTimestamp, frameId);
+        m.mSentAt = 0;
+        m.mRobotCapturedAtMicros = -1;
+        return m;
+    }
 
     /**
      * Creates the Target Update Message, Which Is Used to Pass Along a VisionUpdate
@@ -21,15 +77,120 @@ public class TargetUpdateMessage extends VisionMessage
         mTimestamp = timestamp;
     }
 
+    /**
+     * The VisionUpdate This Message Carries
+     * @return The Payload
+     */
+    public VisionUpdate getUpdate()
+    {
+        return mUpdate;
+    }
+
+    /**
+     * Gets the Reference Timestamp
+     * @return Time the Message Was Handed Off for Sending (System.nanoTime)
+     */
+    public long getTimestamp()
+    {
+        return mTimestamp;
+    }
+
+    /**
+     * Sets the Reference Timestamp (Useful for Latency Calculations)
+     * @param timestamp - Time the Message Was Handed Off for Sending (System.nanoTime)
+     */
+    public void setTimestamp(long timestamp)
+    {
+        mTimestamp = timestamp;
+    }
+
+    /**
+     * Returns an obtain()ed Message to the Pool (Messages Built With the Constructor Are Left Alone)
+     */
+    @Override
+    public void recycle()
+    {
+        if (!mPooled)
+        {
+            return;
+        }
+        synchronized (sPoolLock)
+        {
+            if (sPoolSize < MAX_POOL_SIZE)
+            {
+                mNext = sPool;
+                sPool = this;
+                sPoolSize++;
+            }
+        }
+    }
+
+    //Stale Targets Are Worse Than None - They Wait Behind Heartbeats, and a Newer Update Replaces One Still Waiting
+    @Override
+    public boolean isPriority()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isLatestOnly()
+    {
+        return true;
+    }
+
     @Override
     public String getType()
     {
         return "targets";
     }
 
+    //The Age Goes Out as of Encoding, Not Hand-Off, so Time Spent in the Queue is Counted; the Robot-Clock Capture
+    //Time Also Covers What Comes After (The Socket Buffers and the Wire)
+    @Override
+    public void prepareToSend(long nowNanos, ClockSync clock)
+    {
+        mSentAt = nowNanos;
+        mRobotCapturedAtMicros = clock.isSynced() ? clock.toRobotMicros(mUpdate.getCapturedAt() / 1000L) : -1;
+    }
+
     @Override
     public String getMessage()
     {
-        return mUpdate.getSendableJsonString(mTimestamp);
+        return mUpdate.getSendableJsonString(getSentAt(), mRobotCapturedAtMicros);
+    }
+
+    /**
+     * When the Capture Age Sent is Measured From
+     * @return The Time it Was Encoded, or the Hand-Off Timestamp if it Was Not Sent by RobotLink
+     */
+    private long getSentAt()
+    {
+        return mSentAt != 0 ? mSentAt : mTimestamp;
+    }
+
+    @Override
+    public int getMaxBinarySize()
+    {
+        return BinaryWireFormat.maxTargetsFrameSize(mUpdate.getTargets().size());
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer out)
+    {
+        BinaryWireFormat.writeTargets(out, mUpdate.getFrameId(), mRobotCapturedAtMicros,
+                mUpdate.getCapturedAgoMs(getSentAt()), mUpdate.getTargets());
+    }
+
+    @Override
+    public int getMaxDatagramSize()
+    {
+        return BinaryWireFormat.maxDatagramSize(mUpdate.getTargets().size());
+    }
+
+    @Override
+    public void writeDatagram(ByteBuffer out, long sequence, long nowNanos)
+    {
+        BinaryWireFormat.writeDatagram(out, sequence, mUpdate.getCapturedAt() / 1000L, mUpdate.getFrameId(),
+                mRobotCapturedAtMicros, mUpdate.getCapturedAgoMs(nowNanos), mUpdate.getTargets());
     }
 }
@@ -2,9 +2,13 @@ package com.androidFRC.androidVision.comm.messages;
 
 import android.util.Log;
 
+import com.androidFRC.androidVision.comm.ClockSync;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
+
 /**
  * Abstract Class Framework For the Vision Messages
  */
@@ -14,6 +18,42 @@ public abstract class VisionMessage
 
     public abstract String getMessage();
 
+    /**
+     * Called by RobotConnection Once the Message Has Been Written (or Could Not be Queued)
+     * Pooled Messages Return Themselves to Their Pool Here - Must Not be Used Afterwards
+     */
+    public void recycle()
+    {
+    }
+
+    /**
+     * Whether the Message Goes Ahead of Target Updates When the Link is Backed Up (See OutboundScheduler)
+     * Heartbeats and Replies to the Robot Are, so by Default Every Message is
+     * @return True to Send in the Priority Lane
+     */
+    public boolean isPriority()
+    {
+        return true;
+    }
+
+    /**
+     * Whether Only the Newest Unsent Message of this Type is Worth Sending (See OutboundScheduler)
+     * @return True if a Newer Message of the Same Type Replaces this One While it Waits
+     */
+    public boolean isLatestOnly()
+    {
+        return false;
+    }
+
+    /**
+     * Called by RobotLink Right Before the Message is Encoded (Either Way), With the Robot's Clock as Now Estimated
+     * @param nowNanos - System.nanoTime as it is Encoded
+     * @param clock - Phone-to-Robot Clock Estimate (May Not Be Synced)
+     */
+    public void prepareToSend(long nowNanos, ClockSync clock)
+    {
+    }
+
     /**
      * Procedure for Putting the Message into String JSON
      * @return A Compatible JSON String (Hopefully)
@@ -32,4 +72,46 @@ public abstract class VisionMessage
         }
         return j.toString();
     }
+
+    /**
+     * A Message That Can Also Go Out in the Binary Wire Format (See BinaryWireFormat)
+     * Only Messages Implementing This Are Ever Written in Binary - Every Other Message Stays JSON Whatever the Robot Agreed
+     */
+    public interface BinaryForm
+    {
+        /**
+         * Worst-Case Size of this Message in the Binary Wire Format
+         * @return Bytes Needed
+         */
+        int getMaxBinarySize();
+
+        /**
+         * Procedure for Putting the Message into the Binary Wire Format
+         * Only Called Once the Robot Has Agreed to the Format
+         * @param out - Buffer With at Least getMaxBinarySize() Bytes Remaining
+         */
+        void writeBinary(ByteBuffer out);
+    }
+
+    /**
+     * A Message That Can Go Out as One Datagram (See BinaryWireFormat.writeDatagram)
+     * Only Messages Implementing This Are Ever Sent Over UDP - Every Other Message Only Ever Goes Over TCP
+     */
+    public interface DatagramForm
+    {
+        /**
+         * Worst-Case Size of this Message as One Datagram
+         * @return Bytes Needed
+         */
+        int getMaxDatagramSize();
+
+        /**
+         * Procedure for Putting the Message Into One Datagram
+         * Only Called When the Robot Has a Datagram Port Configured
+         * @param out - Buffer With at Least getMaxDatagramSize() Bytes Remaining
+         * @param sequence - Number of This Datagram, One More Than the Last Sent
+         * @param nowNanos - System.nanoTime as it is Sent
+         */
+        void writeDatagram(ByteBuffer out, long sequence, long nowNanos);
+    }
 }
@@ -0,0 +1,276 @@
+package com.androidFRC.androidVision.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Connects Two Pipeline Stages - a Bounded Ring of Frames Going Downstream, and a Ring Bringing Them Back Once Used
+ * Every Frame is Allocated Up Front, so Passing Frames Along Never Allocates
+ * The Consumer Always Takes the Newest Frame; Anything Older is Dropped (And Counted), as is the Oldest Frame When the
+ * Producer Finds the Ring Full - a Slow Stage Makes the Pipeline Skip Frames, Not Fall Behind
+ */
+public class FrameLink<T>
+{
+    /**
+     * Makes the Link's Frames
+     */
+    public interface Factory<T>
+    {
+        T create();
+    }
+
+    /**
+     * Told About Every Frame Dropped Before the Consumer Saw It, so Frames Holding Outside Resources Can Let Them Go
+     * (Runs on Whichever End Dropped It)
+     */
+    public interface DropListener<T>
+    {
+        void onDropped(T frame);
+    }
+
+    private final String mName;
+    private final FrameRing<T> mQueue;
+    private final FrameRing<T> mFree;
+    private final DropListener<T> mDropListener;
+    //A Frame the Producer Got Back (Evicted or Not Used) - Producer Thread Only
+    private T mSpare;
+    //Consumer Parked in awaitNewest, For the Producer to Wake
+    private volatile Thread mWaiter;
+
+    private final AtomicLong mPublished = new AtomicLong();
+    private final AtomicLong mTaken = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private volatile int mPeakDepth;
+
+    /**
+     * Creates the Link and All of its Frames
+     * @param name - Shown in Reports
+     * @param capacity - Most Frames Waiting for the Consumer at Once
+     * @param factory - Makes Each Frame
+     */
+    public FrameLink(String name, int capacity, Factory<T> factory)
+    {
+        this(name, capacity, factory, null);
+    }
+
+    /**
+     * Creates the Link and All of its Frames
+     * @param name - Shown in Reports
+     * @param capacity - Most Frames Waiting for the Consumer at Once
+     * @param factory - Makes Each Frame
+     * @param dropListener - Told About Each Dropped Frame (May Be null)
+     */
+    public FrameLink(String name, int capacity, Factory<T> factory, DropListener<T> dropListener)
+    {
+        mName = name;
+        mQueue = new FrameRing<>(capacity);
+        mDropListener = dropListener;
+        //Enough That Neither End Waits for a Frame: the Full Ring, One Being Filled, One Being Read,
+        //and One the Consumer is Holding Only While Skipping Past It to a Newer One
+        int frames = capacity + 3;
+        mFree = new FrameRing<>(frames);
+        for (int i = 0; i < frames; i++)
+        {
+            mFree.offer(factory.create());
+        }
+    }
+
+    /**
+     * Gets an Unused Frame to Fill (Producer Thread)
+     * Must Be Followed by publish() or cancel() Before the Next acquire()
+     * @return The Frame - Still Holding Whatever the Last Frame to Use it Left Behind
+     */
+    public T acquire()
+    {
+        T frame = mSpare;
+        if (frame != null)
+        {
+            mSpare = null;
+            return frame;
+        }
+        frame = mFree.poll();
+        if (frame != null)
+        {
+            return frame;
+        }
+        //Only When the Consumer Has Not Handed its Frames Back Yet - Take the Oldest Waiting One Instead
+        frame = mQueue.poll();
+        if (frame == null)
+        {
+            throw new IllegalStateException("every frame of " + mName + " is held by a stage");
+        }
+        dropped(frame);
+        return frame;
+    }
+
+    /**
+     * Hands a Filled Frame to the Consumer, Pushing the Oldest One Out if the Ring is Full (Producer Thread)
+     * @param frame - Frame From acquire()
+     */
+    public void publish(T frame)
+    {
+        T evicted = mQueue.offerEvicting(frame);
+        mPublished.incrementAndGet();
+        if (evicted != null)
+        {
+            dropped(evicted);
+            mSpare = evicted;
+        }
+        int depth = mQueue.size();
+        if (depth > mPeakDepth)
+        {
+            mPeakDepth = depth;
+        }
+        Thread waiter = mWaiter;
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Gives Back a Frame From acquire() Without Publishing It (Producer Thread)
+     * @param frame - Frame From acquire()
+     */
+    public void cancel(T frame)
+    {
+        mSpare = frame;
+    }
+
+    /**
+     * Takes the Newest Waiting Frame, Dropping Any Older Ones (Consumer Thread)
+     * @return The Frame (Give it Back With release()), or null if None is Waiting
+     */
+    public T takeNewest()
+    {
+        T newest = mQueue.poll();
+        if (newest == null)
+        {
+            return null;
+        }
+        T next;
+        while ((next = mQueue.poll()) != null)
+        {
+            dropped(newest);
+            mFree.offer(newest);
+            newest = next;
+        }
+        mTaken.incrementAndGet();
+        return newest;
+    }
+
+    /**
+     * Same as takeNewest(), But Waits for a Frame if None is Waiting (Consumer Thread)
+     * @param timeoutNanos - Longest to Wait
+     * @return The Frame, or null if None Arrived in Time
+     * @throws InterruptedException - If the Thread is Interrupted While Waiting
+     */
+    public T awaitNewest(long timeoutNanos) throws InterruptedException
+    {
+        T frame = takeNewest();
+        if (frame != null)
+        {
+            return frame;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        mWaiter = Thread.currentThread();
+        try
+        {
+            //Checked Again After Registering, so a Frame Published in Between Still Wakes Us
+            while ((frame = takeNewest()) == null)
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+            }
+            return frame;
+        }
+        finally
+        {
+            mWaiter = null;
+        }
+    }
+
+    /**
+     * Gives a Frame Back to the Producer Once the Consumer is Done With It (Consumer Thread)
+     * @param frame - Frame From takeNewest() or awaitNewest()
+     */
+    public void release(T frame)
+    {
+        mFree.offer(frame);
+    }
+
+    private void dropped(T frame)
+    {
+        mDropped.incrementAndGet();
+        if (mDropListener != null)
+        {
+            mDropListener.onDropped(frame);
+        }
+    }
+
+    public String getName()
+    {
+        return mName;
+    }
+
+    public int getCapacity()
+    {
+        return mQueue.getCapacity();
+    }
+
+    /**
+     * Frames Waiting for the Consumer Right Now
+     * @return Queue Depth
+     */
+    public int getDepth()
+    {
+        return mQueue.size();
+    }
+
+    /**
+     * Deepest the Queue Has Been Since the Last resetCounters()
+     * @return Peak Queue Depth
+     */
+    public int getPeakDepth()
+    {
+        return mPeakDepth;
+    }
+
+    public long getPublished()
+    {
+        return mPublished.get();
+    }
+
+    public long getTaken()
+    {
+        return mTaken.get();
+    }
+
+    /**
+     * Frames Published But Never Taken - Pushed Out by a Newer Frame Either End
+     * @return Drop Count
+     */
+    public long getDropped()
+    {
+        return mDropped.get();
+    }
+
+    /**
+     * Zeroes the Counters (Frames Already in Flight Are Unaffected)
+     */
+    public void resetCounters()
+    {
+        mPublished.set(0);
+        mTaken.set(0);
+        mDropped.set(0);
+        mPeakDepth = 0;
+    }
+}
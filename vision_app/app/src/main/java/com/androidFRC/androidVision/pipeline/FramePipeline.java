@@ -0,0 +1,159 @@
+package com.androidFRC.androidVision.pipeline;
+
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A Chain of FrameStages, Each on its Own Thread, Joined by FrameLinks (Plain Java, No Android Dependencies)
+ * The First Link is Fed by Whoever Captures Frames (e.g. the GL Thread); Every Later Stage Always Works on the Newest Frame,
+ * so the Frame Rate is Limited by the Slowest Stage Instead of the Sum of Them All
+ * Reports Each Link's Queue Depth and Drops, and Each Stage's Time per Frame (Served by StatsHttpServer at /pipeline.txt)
+ */
+public class FramePipeline implements StatsHttpServer.Report
+{
+    private final List<FrameLink<?>> mLinks = new ArrayList<>();
+    private final List<FrameStage<?, ?>> mStages = new ArrayList<>();
+    private long mStartedAt = System.nanoTime();
+
+    /**
+     * Adds a Link to the Report (Links Should Be Added in Order)
+     * @param link - Link Between Two Stages
+     * @return The Same Link
+     */
+    public synchronized <T> FrameLink<T> addLink(FrameLink<T> link)
+    {
+        mLinks.add(link);
+        return link;
+    }
+
+    /**
+     * Adds a Stage, Started and Stopped With the Pipeline (Stages Should Be Added in Order)
+     * @param stage - Stage to Run
+     * @return The Same Stage
+     */
+    public synchronized <I, O> FrameStage<I, O> addStage(FrameStage<I, O> stage)
+    {
+        mStages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Starts Every Stage, Last First so No Stage Publishes Into One That is Not Running Yet
+     */
+    public synchronized void start()
+    {
+        reset();
+        for (int i = mStages.size() - 1; i >= 0; i--)
+        {
+            mStages.get(i).start();
+        }
+    }
+
+    /**
+     * Stops Every Stage, First First
+     */
+    public synchronized void stop()
+    {
+        for (FrameStage<?, ?> stage : mStages)
+        {
+            stage.stop();
+        }
+    }
+
+    /**
+     * Zeroes Every Link's and Stage's Counters
+     */
+    @Override
+    public synchronized void reset()
+    {
+        for (FrameLink<?> link : mLinks)
+        {
+            link.resetCounters();
+        }
+        for (FrameStage<?, ?> stage : mStages)
+        {
+            stage.resetCounters();
+        }
+        mStartedAt = System.nanoTime();
+    }
+
+    /**
+     * Frames Completed by the Last Stage per Second, Since the Counters Were Reset
+     * @return Frames per Second
+     */
+    public synchronized double getOutputFps()
+    {
+        if (mStages.isEmpty())
+        {
+            return 0;
+        }
+        double seconds = (System.nanoTime() - mStartedAt) / 1e9;
+        return seconds <= 0 ? 0 : mStages.get(mStages.size() - 1).getProcessed() / seconds;
+    }
+
+    /**
+     * One Line per Link, Then One per Stage
+     * @return Plain Text Report
+     */
+    @Override
+    public synchronized String toText()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-12s %5s %5s %4s %10s %10s %10s%n",
+                "link", "depth", "peak", "cap", "published", "taken", "dropped"));
+        for (FrameLink<?> link : mLinks)
+        {
+            sb.append(String.format(Locale.US, "%-12s %5d %5d %4d %10d %10d %10d%n",
+                    link.getName(), link.getDepth(), link.getPeakDepth(), link.getCapacity(),
+                    link.getPublished(), link.getTaken(), link.getDropped()));
+        }
+        sb.append(String.format(Locale.US, "%n%-12s %10s %9s%n", "stage", "frames", "meanMs"));
+        for (FrameStage<?, ?> stage : mStages)
+        {
+            sb.append(String.format(Locale.US, "%-12s %10d %9.3f%n",
+                    stage.getName(), stage.getProcessed(), stage.getMeanMillis()));
+        }
+        sb.append(String.format(Locale.US, "%noutput %.1f fps%n", getOutputFps()));
+        return sb.toString();
+    }
+
+    /**
+     * {"outputFps":..,"links":[{"name":..,"depth":..,"peak":..,"capacity":..,"published":..,"taken":..,"dropped":..},...],
+     * "stages":[{"name":..,"frames":..,"meanMs":..},...]}
+     * @return JSON Report
+     */
+    @Override
+    public synchronized String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "{\"outputFps\":%.2f,\"links\":[", getOutputFps()));
+        for (int i = 0; i < mLinks.size(); i++)
+        {
+            FrameLink<?> link = mLinks.get(i);
+            sb.append(i > 0 ? ",{" : "{")
+                    .append("\"name\":\"").append(link.getName())
+                    .append("\",\"depth\":").append(link.getDepth())
+                    .append(",\"peak\":").append(link.getPeakDepth())
+                    .append(",\"capacity\":").append(link.getCapacity())
+                    .append(",\"published\":").append(link.getPublished())
+                    .append(",\"taken\":").append(link.getTaken())
+                    .append(",\"dropped\":").append(link.getDropped())
+                    .append('}');
+        }
+        sb.append("],\"stages\":[");
+        for (int i = 0; i < mStages.size(); i++)
+        {
+            FrameStage<?, ?> stage = mStages.get(i);
+            sb.append(i > 0 ? ",{" : "{")
+                    .append("\"name\":\"").append(stage.getName())
+                    .append("\",\"frames\":").append(stage.getProcessed())
+                    .append(String.format(Locale.US, ",\"meanMs\":%.3f", stage.getMeanMillis()))
+                    .append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+}
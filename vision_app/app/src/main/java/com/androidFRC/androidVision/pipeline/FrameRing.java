@@ -0,0 +1,120 @@
+package com.androidFRC.androidVision.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded Ring Buffer Handing Objects From One Producer Thread to One Consumer Thread (Lock-Free, Never Allocates)
+ * When it is Full the Producer May Push the Oldest Entry Out Instead of Waiting (offerEvicting) - A Stage That Only
+ * Wants the Newest Frame Then Costs Dropped Frames When it Falls Behind, Never Latency
+ * Taking Moves the Read Index With compareAndSet, so the Producer Evicting and the Consumer Taking Never Both Get an Entry
+ */
+public class FrameRing<T>
+{
+    private final AtomicReferenceArray<T> mSlots;
+    private final int mMask;
+    private final int mCapacity;
+    //Next Entry to Write - Only the Producer Moves It
+    private final AtomicLong mHead = new AtomicLong();
+    //Next Entry to Read - Moved by Taking (Consumer) and by Evicting (Producer)
+    private final AtomicLong mTail = new AtomicLong();
+
+    /**
+     * Creates an Empty Ring
+     * @param capacity - Most Entries Held at Once
+     */
+    public FrameRing(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mSlots = new AtomicReferenceArray<>(size);
+        mMask = size - 1;
+        mCapacity = capacity;
+    }
+
+    /**
+     * Adds an Entry if There is Room (Producer Thread Only)
+     * @param item - Entry to Add
+     * @return false if the Ring Was Full (the Entry Was Not Added)
+     */
+    public boolean offer(T item)
+    {
+        long head = mHead.get();
+        if (head - mTail.get() >= mCapacity)
+        {
+            return false;
+        }
+        mSlots.set((int) (head & mMask), item);
+        mHead.set(head + 1);
+        return true;
+    }
+
+    /**
+     * Adds an Entry, Pushing the Oldest One Out First if the Ring is Full (Producer Thread Only)
+     * @param item - Entry to Add
+     * @return The Entry Pushed Out (Now Owned by the Caller), or null if There Was Room
+     */
+    public T offerEvicting(T item)
+    {
+        T evicted = null;
+        long head = mHead.get();
+        while (true)
+        {
+            long tail = mTail.get();
+            if (head - tail < mCapacity)
+            {
+                break;
+            }
+            T oldest = mSlots.get((int) (tail & mMask));
+            if (mTail.compareAndSet(tail, tail + 1))
+            {
+                evicted = oldest;
+                break;
+            }
+            //The Consumer Took it First - There is Room Now
+        }
+        mSlots.set((int) (head & mMask), item);
+        mHead.set(head + 1);
+        return evicted;
+    }
+
+    /**
+     * Takes the Oldest Entry (Consumer Thread - or the Producer, When it Needs One Back)
+     * @return The Entry, or null if the Ring is Empty
+     */
+    public T poll()
+    {
+        while (true)
+        {
+            long tail = mTail.get();
+            if (tail >= mHead.get())
+            {
+                return null;
+            }
+            //Read Before Claiming - Once the Tail Moves the Producer May Reuse the Slot
+            T item = mSlots.get((int) (tail & mMask));
+            if (mTail.compareAndSet(tail, tail + 1))
+            {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Entries Currently Held (A Snapshot - Either End May Move Right After)
+     * @return Number of Entries
+     */
+    public int size()
+    {
+        long tail = mTail.get();
+        return (int) Math.max(0, mHead.get() - tail);
+    }
+
+    public int getCapacity()
+    {
+        return mCapacity;
+    }
+}
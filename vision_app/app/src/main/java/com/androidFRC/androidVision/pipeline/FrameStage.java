@@ -0,0 +1,158 @@
+package com.androidFRC.androidVision.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Stage of a FramePipeline, on its Own Thread - Takes the Newest Frame From its Input Link, Works on It,
+ * and Passes the Result to its Output Link (The Last Stage Has No Output)
+ * @param <I> - Input Frame Type
+ * @param <O> - Output Frame Type (Anything, e.g. Void, for the Last Stage)
+ */
+public abstract class FrameStage<I, O>
+{
+    //How Long the Thread Waits for a Frame Before Checking Whether it Should Stop
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String mName;
+    private final FrameLink<I> mInput;
+    private final FrameLink<O> mOutput;
+    private Thread mThread;
+    private volatile boolean mRunning;
+
+    private final AtomicLong mProcessed = new AtomicLong();
+    private final AtomicLong mBusyNanos = new AtomicLong();
+
+    /**
+     * Creates the (Not Yet Running) Stage
+     * @param name - Thread Name, Also Shown in Reports
+     * @param input - Where Frames Come From
+     * @param output - Where Results Go (null for the Last Stage)
+     */
+    protected FrameStage(String name, FrameLink<I> input, FrameLink<O> output)
+    {
+        mName = name;
+        mInput = input;
+        mOutput = output;
+    }
+
+    /**
+     * Does the Stage's Work on One Frame
+     * @param in - Newest Input Frame (Handed Back Upstream When This Returns - Move Out Anything Still Needed)
+     * @param out - Unused Output Frame to Fill (null for the Last Stage)
+     * @return Whether 'out' Should Be Passed Downstream (false Keeps it for the Next Frame)
+     */
+    protected abstract boolean process(I in, O out);
+
+    /**
+     * Starts the Stage's Thread
+     */
+    public synchronized void start()
+    {
+        if (mRunning)
+        {
+            return;
+        }
+        mRunning = true;
+        mThread = new Thread(mLoop, mName);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the Stage's Thread, Waiting for the Current Frame to Finish
+     */
+    public synchronized void stop()
+    {
+        if (!mRunning)
+        {
+            return;
+        }
+        mRunning = false;
+        try
+        {
+            mThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final Runnable mLoop = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            while (mRunning)
+            {
+                I in;
+                try
+                {
+                    in = mInput.awaitNewest(IDLE_WAIT_NANOS);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                if (in == null)
+                {
+                    continue;
+                }
+                long start = System.nanoTime();
+                O out = mOutput != null ? mOutput.acquire() : null;
+                boolean pass;
+                try
+                {
+                    pass = process(in, out);
+                }
+                finally
+                {
+                    mInput.release(in);
+                }
+                if (out != null)
+                {
+                    if (pass)
+                    {
+                        mOutput.publish(out);
+                    }
+                    else
+                    {
+                        mOutput.cancel(out);
+                    }
+                }
+                mBusyNanos.addAndGet(System.nanoTime() - start);
+                mProcessed.incrementAndGet();
+            }
+        }
+    };
+
+    public String getName()
+    {
+        return mName;
+    }
+
+    public long getProcessed()
+    {
+        return mProcessed.get();
+    }
+
+    /**
+     * Average Time Spent on One Frame (Not Counting Time Waiting for Frames)
+     * @return Milliseconds, 0 if No Frame Has Been Processed
+     */
+    public double getMeanMillis()
+    {
+        long processed = mProcessed.get();
+        return processed == 0 ? 0 : mBusyNanos.get() / 1e6 / processed;
+    }
+
+    /**
+     * Zeroes the Counters
+     */
+    public void resetCounters()
+    {
+        mProcessed.set(0);
+        mBusyNanos.set(0);
+    }
+}
@@ -0,0 +1,222 @@
+package com.androidFRC.androidVision.stats;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Follows Individual Frames (By the Frame ID Given at Capture Start) Through Every Hop Until Their Targets Reach the Wire
+ * The Timestamps of the Most Recent Frames Are Kept in a Bounded Ring Buffer - A Frame Older Than the Ring is Forgotten -
+ * and the Time From Capture to Each Hop Goes Into a Histogram, so Sensor-to-Wire Latency Has a Distribution, Not Just a Mean
+ * Marking a Hop Never Locks or Allocates and is Safe From Any Thread
+ */
+public class FrameTrace
+{
+    //Hops, in the Order a Frame Normally Passes Through Them
+    public static final int HOP_CAPTURE = 0;
+    public static final int HOP_TEXTURE = 1;
+    public static final int HOP_PROCESSED = 2;
+    public static final int HOP_STREAMED = 3;
+    public static final int HOP_FILTERED = 4;
+    public static final int HOP_QUEUED = 5;
+    public static final int HOP_WIRE = 6;
+    public static final int HOP_COUNT = 7;
+
+    private static final String[] HOP_NAMES = {
+            //Capture Start, Reached onCameraTexture, Native Readback/Processing/Encode Done, JPEG Handed to the Stream
+            "capture", "texture", "processed", "streamed",
+            //Targets Picked Out, Handed to RobotConnection, Written to the Robot's Socket
+            "filtered", "queued", "wire"};
+
+    //Timestamp Value for a Hop the Frame Has Not Reached (Or Skipped, Like 'streamed' When No One is Watching)
+    private static final long NOT_REACHED = Long.MIN_VALUE;
+    private static final int REPORTED_FRAMES = 30;
+
+    private final int mMask;
+    private final AtomicLongArray mFrameIds;
+    private final AtomicLongArray mTimes;
+    private final AtomicLong mLatestFrameId = new AtomicLong(-1);
+    //One Histogram per Hop After Capture, Each Measuring Capture to That Hop ('wire' is Sensor-to-Wire)
+    private final LatencyStats mSinceCapture;
+
+    /**
+     * Creates an Empty Trace
+     * @param capacity - Number of Recent Frames Kept (Rounded Up to a Power of Two)
+     */
+    public FrameTrace(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mMask = size - 1;
+        mFrameIds = new AtomicLongArray(size);
+        mTimes = new AtomicLongArray(size * HOP_COUNT);
+        for (int i = 0; i < size; i++)
+        {
+            mFrameIds.set(i, -1);
+        }
+        String[] names = new String[HOP_COUNT - 1];
+        System.arraycopy(HOP_NAMES, 1, names, 0, names.length);
+        mSinceCapture = new LatencyStats(names);
+    }
+
+    /**
+     * Starts Following a Frame, Taking Over the Ring Slot of Whichever Frame Had It Before
+     * @param frameId - ID Given at Capture Start (Negative IDs Are Ignored)
+     * @param captureNanos - Capture Start Time (System.nanoTime)
+     */
+    public void begin(long frameId, long captureNanos)
+    {
+        if (frameId < 0)
+        {
+            return;
+        }
+        int slot = (int) (frameId & mMask);
+        //Claim the Slot First so Late Marks for the Old Frame Stop Landing Here
+        mFrameIds.set(slot, -1);
+        int base = slot * HOP_COUNT;
+        mTimes.set(base + HOP_CAPTURE, captureNanos);
+        for (int hop = 1; hop < HOP_COUNT; hop++)
+        {
+            mTimes.set(base + hop, NOT_REACHED);
+        }
+        mFrameIds.set(slot, frameId);
+
+        long latest;
+        while (frameId > (latest = mLatestFrameId.get()) && !mLatestFrameId.compareAndSet(latest, frameId))
+        {
+            //Lost a Race With Another Frame - Try Again
+        }
+    }
+
+    /**
+     * Records That a Frame Reached a Hop
+     * @param frameId - The Frame (Ignored if Negative or Already Pushed Out of the Ring)
+     * @param hop - One of the HOP_ Constants After HOP_CAPTURE
+     * @param nanos - When (System.nanoTime)
+     */
+    public void mark(long frameId, int hop, long nanos)
+    {
+        if (frameId < 0)
+        {
+            return;
+        }
+        int slot = (int) (frameId & mMask);
+        if (mFrameIds.get(slot) != frameId)
+        {
+            return;
+        }
+        int base = slot * HOP_COUNT;
+        mTimes.set(base + hop, nanos);
+        mSinceCapture.record(hop - 1, nanos - mTimes.get(base + HOP_CAPTURE));
+    }
+
+    /**
+     * Capture-to-Hop Histograms, Indexed by Hop - 1
+     * @return The Histograms
+     */
+    public LatencyStats getSinceCapture()
+    {
+        return mSinceCapture;
+    }
+
+    /**
+     * Clears the Histograms (The Ring of Recent Frames Rolls Over on its Own)
+     */
+    public void reset()
+    {
+        mSinceCapture.reset();
+    }
+
+    /**
+     * Capture-to-Hop Table, Then Milliseconds From Capture to Each Hop for the Most Recent Frames ('-' Where Not Reached)
+     * @return Plain Text Report
+     */
+    public String toText()
+    {
+        StringBuilder sb = new StringBuilder("capture to hop\n");
+        sb.append(mSinceCapture.toText()).append('\n');
+        sb.append(String.format(Locale.US, "%10s", "frame"));
+        for (int hop = 1; hop < HOP_COUNT; hop++)
+        {
+            sb.append(String.format(Locale.US, " %9s", HOP_NAMES[hop]));
+        }
+        sb.append('\n');
+
+        long[] times = new long[HOP_COUNT];
+        long latest = mLatestFrameId.get();
+        for (long frameId = latest; frameId >= 0 && frameId > latest - REPORTED_FRAMES; frameId--)
+        {
+            if (!copyFrame(frameId, times))
+            {
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%10d", frameId));
+            for (int hop = 1; hop < HOP_COUNT; hop++)
+            {
+                sb.append(times[hop] == NOT_REACHED ? String.format(Locale.US, " %9s", "-")
+                        : String.format(Locale.US, " %9.2f", (times[hop] - times[HOP_CAPTURE]) / 1e6));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {"hops":[..],"sinceCapture":{LatencyStats JSON},"frames":[{"id":..,"ms":[.., null, ..]},...]}
+     * @return JSON Report
+     */
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder("{\"hops\":[");
+        for (int hop = 1; hop < HOP_COUNT; hop++)
+        {
+            sb.append(hop > 1 ? ",\"" : "\"").append(HOP_NAMES[hop]).append('"');
+        }
+        sb.append("],\"sinceCapture\":").append(mSinceCapture.toJson()).append(",\"frames\":[");
+
+        long[] times = new long[HOP_COUNT];
+        long latest = mLatestFrameId.get();
+        boolean first = true;
+        for (long frameId = latest; frameId >= 0 && frameId > latest - REPORTED_FRAMES; frameId--)
+        {
+            if (!copyFrame(frameId, times))
+            {
+                continue;
+            }
+            sb.append(first ? "{\"id\":" : ",{\"id\":").append(frameId).append(",\"ms\":[");
+            first = false;
+            for (int hop = 1; hop < HOP_COUNT; hop++)
+            {
+                if (hop > 1)
+                {
+                    sb.append(',');
+                }
+                sb.append(times[hop] == NOT_REACHED ? "null"
+                        : String.format(Locale.US, "%.3f", (times[hop] - times[HOP_CAPTURE]) / 1e6));
+            }
+            sb.append("]}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * Copies One Frame's Timestamps Out of the Ring
+     * @param frameId - The Frame
+     * @param into - HOP_COUNT Entries
+     * @return False if the Frame is No Longer (Or Was Never) in the Ring
+     */
+    private boolean copyFrame(long frameId, long[] into)
+    {
+        int slot = (int) (frameId & mMask);
+        if (mFrameIds.get(slot) != frameId)
+        {
+            return false;
+        }
+        for (int hop = 0; hop < HOP_COUNT; hop++)
+        {
+            into[hop] = mTimes.get(slot * HOP_COUNT + hop);
+        }
+        //The Slot May Have Been Taken Over While Copying
+        return mFrameIds.get(slot) == frameId;
+    }
+}
@@ -0,0 +1,163 @@
+package com.androidFRC.androidVision.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-Bucket Latency Histogram - Recording is Lock-Free and Allocation-Free, so it Can Run for Every Stage of Every Frame
+ * Buckets Are in Microseconds: One per Microsecond Below 16us, Then 8 per Power of Two (At Most 12.5% Wide),
+ * Up to About 4 Hours - Anything Longer Lands in the Last Bucket
+ */
+public class LatencyHistogram
+{
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 34;
+    //Linear Buckets, Then the Logarithmic Ones, Then One Overflow Bucket
+    public static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - 4) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotalMicros = new AtomicLong();
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Adds One Measurement (Safe From Any Thread)
+     * @param nanos - Latency in Nanoseconds (Negative Values Are Ignored)
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            return;
+        }
+        long micros = nanos / 1000L;
+        mCounts.incrementAndGet(bucketOf(micros));
+        mCount.incrementAndGet();
+        mTotalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = mMaxMicros.get()) && !mMaxMicros.compareAndSet(max, micros))
+        {
+            //Lost a Race With Another Recorder - Try Again
+        }
+    }
+
+    /**
+     * Forgets Every Measurement (Measurements Racing With the Reset May Survive It)
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mTotalMicros.set(0);
+        mMaxMicros.set(0);
+    }
+
+    /**
+     * Copies the Bucket Counts Out, so Percentiles Can Be Read From One Consistent-Enough View
+     * @param into - Array of at Least BUCKET_COUNT Entries
+     * @return Sum of the Copied Counts
+     */
+    public long snapshot(long[] into)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            into[i] = mCounts.get(i);
+            total += into[i];
+        }
+        return total;
+    }
+
+    public long getCount()
+    {
+        return mCount.get();
+    }
+
+    public double getMeanMillis()
+    {
+        long count = mCount.get();
+        return count == 0 ? 0 : mTotalMicros.get() / 1000.0 / count;
+    }
+
+    public double getMaxMillis()
+    {
+        return mMaxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Latency Below Which a Fraction of the Snapshot's Measurements Fall (Upper Edge of That Bucket)
+     * @param snapshot - Counts From snapshot()
+     * @param total - Total Returned by snapshot()
+     * @param fraction - e.g. 0.99 for p99
+     * @return Latency in Milliseconds, 0 if Empty
+     */
+    public static double percentileMillis(long[] snapshot, long total, double fraction)
+    {
+        if (total == 0)
+        {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank))
+            {
+                return upperBoundMicros(i) / 1000.0;
+            }
+        }
+        return upperBoundMicros(BUCKET_COUNT - 1) / 1000.0;
+    }
+
+    /**
+     * Bucket a Latency Falls Into
+     * @param micros - Latency in Microseconds
+     * @return Bucket Index
+     */
+    static int bucketOf(long micros)
+    {
+        if (micros < LINEAR_BUCKETS)
+        {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT)
+        {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Smallest Latency in a Bucket
+     * @param bucket - Bucket Index
+     * @return Microseconds
+     */
+    static long lowerBoundMicros(int bucket)
+    {
+        if (bucket < LINEAR_BUCKETS)
+        {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Largest Latency in a Bucket
+     * @param bucket - Bucket Index
+     * @return Microseconds
+     */
+    static long upperBoundMicros(int bucket)
+    {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE / 1000L : lowerBoundMicros(bucket + 1) - 1;
+    }
+}
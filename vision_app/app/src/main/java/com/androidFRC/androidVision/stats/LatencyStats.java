@@ -0,0 +1,119 @@
+package com.androidFRC.androidVision.stats;
+
+import java.util.Locale;
+
+/**
+ * A Fixed Set of Named LatencyHistograms (One per Pipeline Stage) Plus Text and JSON Reports of Them
+ * Recording Never Locks or Allocates; Only Building a Report Does
+ */
+public class LatencyStats
+{
+    private final String[] mNames;
+    private final LatencyHistogram[] mHistograms;
+    private final long mStartedAt = System.currentTimeMillis();
+
+    /**
+     * Creates One Histogram per Name
+     * @param names - Stage Names, Indexed the Same Way as record()
+     */
+    public LatencyStats(String... names)
+    {
+        mNames = names.clone();
+        mHistograms = new LatencyHistogram[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Adds One Measurement to a Stage (Safe From Any Thread)
+     * @param stage - Stage Index
+     * @param nanos - Latency in Nanoseconds (Negative Means 'Did Not Run' and is Ignored)
+     */
+    public void record(int stage, long nanos)
+    {
+        mHistograms[stage].record(nanos);
+    }
+
+    public int getStageCount()
+    {
+        return mNames.length;
+    }
+
+    public String getName(int stage)
+    {
+        return mNames[stage];
+    }
+
+    public LatencyHistogram getHistogram(int stage)
+    {
+        return mHistograms[stage];
+    }
+
+    /**
+     * Clears Every Histogram
+     */
+    public void reset()
+    {
+        for (LatencyHistogram h : mHistograms)
+        {
+            h.reset();
+        }
+    }
+
+    /**
+     * One Line per Stage, Times in Milliseconds
+     * @return Plain Text Report
+     */
+    public String toText()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-12s %10s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean", "p50", "p90", "p99", "max"));
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        for (int i = 0; i < mNames.length; i++)
+        {
+            LatencyHistogram h = mHistograms[i];
+            long total = h.snapshot(buckets);
+            double max = h.getMaxMillis();
+            sb.append(String.format(Locale.US, "%-12s %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    mNames[i], total, h.getMeanMillis(),
+                    Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .50)),
+                    Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .90)),
+                    Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .99)), max));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * {"uptimeMs":..,"stages":{"name":{"count":..,"meanMs":..,"p50Ms":..,"p90Ms":..,"p99Ms":..,"maxMs":..},...}}
+     * @return JSON Report
+     */
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"uptimeMs\":").append(System.currentTimeMillis() - mStartedAt).append(",\"stages\":{");
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        for (int i = 0; i < mNames.length; i++)
+        {
+            LatencyHistogram h = mHistograms[i];
+            long total = h.snapshot(buckets);
+            double max = h.getMaxMillis();
+            if (i > 0)
+            {
+                sb.append(',');
+            }
+            sb.append('"').append(mNames[i]).append("\":{")
+                    .append("\"count\":").append(total)
+                    .append(String.format(Locale.US, ",\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f",
+                            h.getMeanMillis(),
+                            Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .50)),
+                            Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .90)),
+                            Math.min(max, LatencyHistogram.percentileMillis(buckets, total, .99)), max))
+                    .append('}');
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,263 @@
+package com.androidFRC.androidVision.stats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tiny HTTP Endpoint for Watching LatencyStats From the Driver Station (Plain Java, No Android Dependencies)
+ * One Background Thread Answers One Short Request at a Time - Meant for a Browser or curl, Not Heavy Traffic
+ *
+ *   GET /            Plain Text Table (Same as /stats.txt)
+ *   GET /stats.json  JSON
+ *   GET /trace.txt   Sensor-to-Wire Latency per Hop, and the Most Recent Frames (If There is a FrameTrace)
+ *   GET /trace.json  Same as JSON
+ *   GET /name.txt    Any Report Added With addReport (e.g. /pipeline.txt), and /name.json
+ *   GET /reset       Clears the Histograms (And Every Report)
+ */
+public class StatsHttpServer
+{
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int REQUEST_TIMEOUT_MS = 1000;
+
+    /**
+     * Anything Else Worth Watching, Served as /name.txt and /name.json
+     */
+    public interface Report
+    {
+        String toText();
+
+        String toJson();
+
+        void reset();
+    }
+
+    private final int mPort;
+    private final LatencyStats mStats;
+    private final FrameTrace mTrace;
+    private final Map<String, Report> mReports = new ConcurrentHashMap<>();
+    private ServerSocket mServerSocket;
+    private Thread mThread;
+    private volatile boolean mRunning;
+
+    /**
+     * Creates the (Not Yet Listening) Server
+     * @param port - TCP Port to Listen On (0 Picks a Free Port)
+     * @param stats - Histograms to Report
+     */
+    public StatsHttpServer(int port, LatencyStats stats)
+    {
+        this(port, stats, null);
+    }
+
+    /**
+     * Creates the (Not Yet Listening) Server, Also Reporting Per-Frame Traces
+     * @param port - TCP Port to Listen On (0 Picks a Free Port)
+     * @param stats - Histograms to Report
+     * @param trace - Frame Trace to Report Under /trace (May Be null)
+     */
+    public StatsHttpServer(int port, LatencyStats stats, FrameTrace trace)
+    {
+        mPort = port;
+        mStats = stats;
+        mTrace = trace;
+    }
+
+    /**
+     * Serves Another Report (Safe While Running - Adding the Same Name Again Replaces It)
+     * @param name - Path Name, Without the Slash or Extension
+     * @param report - What to Serve
+     */
+    public void addReport(String name, Report report)
+    {
+        mReports.put(name, report);
+    }
+
+    /**
+     * Binds the Port and Starts Answering Requests
+     * @throws IOException - If the Port Cannot be Bound
+     */
+    public synchronized void start() throws IOException
+    {
+        if (mRunning)
+        {
+            return;
+        }
+        mServerSocket = new ServerSocket();
+        mServerSocket.setReuseAddress(true);
+        mServerSocket.bind(new InetSocketAddress(mPort));
+        mRunning = true;
+        mThread = new Thread(mLoop, "StatsHttpServer");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops Answering and Closes the Port
+     */
+    public synchronized void stop()
+    {
+        if (!mRunning)
+        {
+            return;
+        }
+        mRunning = false;
+        try
+        {
+            mServerSocket.close();
+        }
+        catch (IOException e)
+        {
+            //Closing Anyway
+        }
+    }
+
+    /**
+     * Port Actually Bound (Useful When Constructed With Port 0)
+     * @return Local Port, or -1 if Not Listening
+     */
+    public int getLocalPort()
+    {
+        ServerSocket socket = mServerSocket;
+        return socket == null ? -1 : socket.getLocalPort();
+    }
+
+    private final Runnable mLoop = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            while (mRunning)
+            {
+                try (Socket socket = mServerSocket.accept())
+                {
+                    socket.setSoTimeout(REQUEST_TIMEOUT_MS);
+                    handle(socket);
+                }
+                catch (SocketTimeoutException e)
+                {
+                    //Client Never Finished its Request
+                }
+                catch (IOException e)
+                {
+                    if (!mRunning)
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Reads the Request Line, Answers, and Lets the Caller Close the Socket
+     * @param socket - Accepted Connection
+     * @throws IOException - If the Client Goes Away
+     */
+    private void handle(Socket socket) throws IOException
+    {
+        String path = readRequestPath(socket.getInputStream());
+        String body;
+        String type = "text/plain";
+        String status = "200 OK";
+        if (path == null)
+        {
+            return;
+        }
+        else if (path.equals("/") || path.equals("/stats.txt"))
+        {
+            body = mStats.toText();
+        }
+        else if (path.equals("/stats.json"))
+        {
+            body = mStats.toJson();
+            type = "application/json";
+        }
+        else if (mTrace != null && path.equals("/trace.txt"))
+        {
+            body = mTrace.toText();
+        }
+        else if (mTrace != null && path.equals("/trace.json"))
+        {
+            body = mTrace.toJson();
+            type = "application/json";
+        }
+        else if (path.equals("/reset"))
+        {
+            mStats.reset();
+            if (mTrace != null)
+            {
+                mTrace.reset();
+            }
+            for (Report report : mReports.values())
+            {
+                report.reset();
+            }
+            body = "reset\n";
+        }
+        else if (path.endsWith(".txt") && mReports.containsKey(path.substring(1, path.length() - 4)))
+        {
+            body = mReports.get(path.substring(1, path.length() - 4)).toText();
+        }
+        else if (path.endsWith(".json") && mReports.containsKey(path.substring(1, path.length() - 5)))
+        {
+            body = mReports.get(path.substring(1, path.length() - 5)).toJson();
+            type = "application/json";
+        }
+        else
+        {
+            status = "404 Not Found";
+            body = "not found\n";
+        }
+
+        byte[] content = body.getBytes(ASCII);
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.0 " + status + "\r\n" +
+                "Server: androidvision\r\n" +
+                "Cache-Control: no-cache\r\n" +
+                "Connection: close\r\n" +
+                "Access-Control-Allow-Origin: *\r\n" +
+                "Content-Type: " + type + "\r\n" +
+                "Content-Length: " + content.length + "\r\n\r\n").getBytes(ASCII));
+        out.write(content);
+        out.flush();
+    }
+
+    /**
+     * Pulls the Path Out of "GET /path?query HTTP/1.x", Ignoring the Headers That Follow
+     * @param in - Socket Input
+     * @return The Path, or null if the Request Was Not Understood
+     * @throws IOException - If the Client Goes Away
+     */
+    private static String readRequestPath(InputStream in) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n')
+        {
+            if (line.length() > 1024)
+            {
+                return null;
+            }
+            if (c != '\r')
+            {
+                line.append((char) c);
+            }
+        }
+        String[] parts = line.toString().split(" ");
+        if (parts.length < 2 || !parts[0].equals("GET"))
+        {
+            return null;
+        }
+        String path = parts[1];
+        int query = path.indexOf('?');
+        return query >= 0 ? path.substring(0, query) : path;
+    }
+}
@@ -0,0 +1,247 @@
+package com.androidFRC.androidVision.stream;
+
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.Locale;
+
+/**
+ * Holds the Stream Near a Target Bitrate by Capping the JPEG Quality (And, Once That Bottoms Out, the Scale) of Every
+ * Profile - Viewers Keep Their Profiles, They Just Get Cheaper Images While the Link is Full
+ *
+ * Closed Loop on What Was Actually Written to the Sockets, Checked Every WINDOW_NANOS:
+ *   Over the Target by More Than HIGH_MARGIN   - Quality Scaled Down in Proportion (Then Scale, at MIN_QUALITY)
+ *   Under the Target by More Than LOW_MARGIN   - Scale Back Up First, Then Quality, a Step at a Time, Only After
+ *                                                 RAISE_AFTER_WINDOWS Calm Windows in a Row
+ *   Anywhere in Between                        - Left Alone (Hysteresis, so Frame Size Swings Between Display Modes
+ *                                                 Do Not Make it Hunt)
+ *   A Socket Write Blocking (Buffer Full)      - Backs Off Right Away, Without Waiting for the Window
+ * Has No Clock or Sockets of its Own - update() is Handed Running Totals and the Time, so it Can Be Driven by a Simulation
+ * update() is Only Called From One Thread; the Caps and Report May Be Read From Anywhere
+ */
+public class BitrateController implements StatsHttpServer.Report
+{
+    public static final int MIN_QUALITY = 20;
+    public static final int MAX_QUALITY = 100;
+    static final long WINDOW_NANOS = 500000000L;
+    static final long BACKOFF_HOLD_NANOS = 150000000L;
+    static final double HIGH_MARGIN = 0.10;
+    static final double LOW_MARGIN = 0.15;
+    static final int RAISE_AFTER_WINDOWS = 4;
+    static final int QUALITY_STEP = 5;
+    static final double SCALE_STEP = 0.1;
+    static final double BACKOFF_FACTOR = 0.7;
+
+    private final long mTargetBitsPerSecond;
+    private final double mMinScale;
+
+    private volatile int mQualityCap = MAX_QUALITY;
+    private volatile double mScaleCap = 1.0;
+    private volatile double mMeasuredBitsPerSecond;
+
+    //Update Thread Only
+    private boolean mStarted;
+    private long mWindowStart;
+    private long mWindowBytes;
+    private long mLastBytes;
+    private long mLastStalls;
+    private long mLastBackoff;
+    private int mCalmWindows;
+
+    //Counters (Only Read Loosely, for Reporting)
+    private volatile long mBackoffs;
+    private volatile long mDecreases;
+    private volatile long mIncreases;
+
+    /**
+     * Creates the Controller With Nothing Capped
+     * @param targetBitsPerSecond - Bitrate to Hold the Stream Near (0 or Less Turns the Controller Off)
+     * @param minScale - Smallest Scale Cap it May Use (1 Keeps Every Image Full Size)
+     */
+    public BitrateController(long targetBitsPerSecond, double minScale)
+    {
+        mTargetBitsPerSecond = targetBitsPerSecond;
+        mMinScale = Math.max(StreamProfile.MIN_SCALE, Math.min(1.0, minScale));
+    }
+
+    /**
+     * Feeds in What the Sockets Have Done So Far, Adjusting the Caps When Due
+     * @param totalBytes - Bytes Written to Every Viewer Since the Server Started (Running Total)
+     * @param totalStalls - Writes That Found a Socket Buffer Full Since the Server Started (Running Total)
+     * @param nowNanos - System.nanoTime (Or Simulated Time)
+     */
+    public void update(long totalBytes, long totalStalls, long nowNanos)
+    {
+        if (mTargetBitsPerSecond <= 0)
+        {
+            return;
+        }
+        if (!mStarted)
+        {
+            mStarted = true;
+            mWindowStart = nowNanos;
+            mLastBytes = totalBytes;
+            mLastStalls = totalStalls;
+            return;
+        }
+        mWindowBytes += totalBytes - mLastBytes;
+        mLastBytes = totalBytes;
+        boolean stalled = totalStalls != mLastStalls;
+        mLastStalls = totalStalls;
+
+        //Quick Backoff - A Full Socket Buffer Means the Link is Already Behind, so Do Not Wait Out the Window
+        if (stalled && nowNanos - mLastBackoff >= BACKOFF_HOLD_NANOS)
+        {
+            mLastBackoff = nowNanos;
+            mCalmWindows = 0;
+            if (lower(BACKOFF_FACTOR))
+            {
+                mBackoffs++;
+            }
+        }
+
+        long elapsed = nowNanos - mWindowStart;
+        if (elapsed < WINDOW_NANOS)
+        {
+            return;
+        }
+        double bitsPerSecond = mWindowBytes * 8 * 1e9 / elapsed;
+        mMeasuredBitsPerSecond = bitsPerSecond;
+        mWindowStart = nowNanos;
+        mWindowBytes = 0;
+
+        if (bitsPerSecond > mTargetBitsPerSecond * (1 + HIGH_MARGIN))
+        {
+            mCalmWindows = 0;
+            //Image Size Goes Roughly With Quality Over This Range, so Scale Down in Proportion to the Overshoot
+            if (lower(mTargetBitsPerSecond / bitsPerSecond))
+            {
+                mDecreases++;
+            }
+        }
+        else if (bitsPerSecond < mTargetBitsPerSecond * (1 - LOW_MARGIN) && !stalled
+                && nowNanos - mLastBackoff >= WINDOW_NANOS)
+        {
+            if (++mCalmWindows >= RAISE_AFTER_WINDOWS)
+            {
+                mCalmWindows = 0;
+                raise();
+            }
+        }
+        else
+        {
+            mCalmWindows = 0;
+        }
+    }
+
+    /**
+     * Cuts the Quality Cap by a Factor, Moving to the Scale Cap Once Quality Can Go No Lower
+     * @param factor - Below 1
+     * @return False if Both Caps Were Already at Their Floor
+     */
+    private boolean lower(double factor)
+    {
+        int quality = mQualityCap;
+        if (quality > MIN_QUALITY)
+        {
+            int lowered = (int) Math.min(quality - QUALITY_STEP, quality * factor);
+            mQualityCap = Math.max(MIN_QUALITY, lowered);
+        }
+        else if (mScaleCap > mMinScale)
+        {
+            mScaleCap = Math.max(mMinScale, Math.round((mScaleCap - SCALE_STEP) * 100) / 100.0);
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gives Back One Step - Size Before Quality, as a Small Image Looks Worse Than a Blocky One
+     */
+    private void raise()
+    {
+        if (mScaleCap < 1.0)
+        {
+            mScaleCap = Math.min(1.0, Math.round((mScaleCap + SCALE_STEP) * 100) / 100.0);
+        }
+        else if (mQualityCap < MAX_QUALITY)
+        {
+            mQualityCap = Math.min(MAX_QUALITY, mQualityCap + QUALITY_STEP);
+        }
+        else
+        {
+            return;
+        }
+        mIncreases++;
+    }
+
+    /**
+     * Quality to Actually Encode a Profile At
+     * @param profile - Profile a Viewer Asked For
+     * @return The Profile's Quality, or the Cap if Lower
+     */
+    public int getQuality(StreamProfile profile)
+    {
+        return Math.min(profile.getQuality(), mQualityCap);
+    }
+
+    /**
+     * Scale to Actually Encode a Profile At
+     * @param profile - Profile a Viewer Asked For
+     * @return The Profile's Scale, or the Cap if Lower
+     */
+    public double getScale(StreamProfile profile)
+    {
+        return Math.min(profile.getScale(), mScaleCap);
+    }
+
+    public int getQualityCap()
+    {
+        return mQualityCap;
+    }
+
+    public double getScaleCap()
+    {
+        return mScaleCap;
+    }
+
+    /**
+     * Bitrate Written Over the Last Full Window
+     * @return Bits per Second
+     */
+    public double getMeasuredBitsPerSecond()
+    {
+        return mMeasuredBitsPerSecond;
+    }
+
+    @Override
+    public String toText()
+    {
+        return String.format(Locale.US, "target %d kbps, measured %.0f kbps%nquality cap %d, scale cap %.2f%n"
+                        + "backoffs %d, decreases %d, increases %d%n",
+                mTargetBitsPerSecond / 1000, mMeasuredBitsPerSecond / 1000, mQualityCap, mScaleCap,
+                mBackoffs, mDecreases, mIncreases);
+    }
+
+    @Override
+    public String toJson()
+    {
+        return String.format(Locale.US, "{\"targetKbps\":%d,\"measuredKbps\":%.0f,\"qualityCap\":%d,\"scaleCap\":%.2f,"
+                        + "\"backoffs\":%d,\"decreases\":%d,\"increases\":%d}",
+                mTargetBitsPerSecond / 1000, mMeasuredBitsPerSecond / 1000, mQualityCap, mScaleCap,
+                mBackoffs, mDecreases, mIncreases);
+    }
+
+    /**
+     * Zeroes the Counters (The Caps Stay Where They Are)
+     */
+    @Override
+    public void reset()
+    {
+        mBackoffs = 0;
+        mDecreases = 0;
+        mIncreases = 0;
+    }
+}
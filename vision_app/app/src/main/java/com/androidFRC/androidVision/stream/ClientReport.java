@@ -0,0 +1,77 @@
+package com.androidFRC.androidVision.stream;
+
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.Locale;
+
+/**
+ * Every Open Connection to a MjpgStreamServer With its Own Counters, and How Many Connections the Server Closed and Why
+ * Reads the Server's Current Clients Without Locking - Each Line is a Loose Snapshot, Good Enough for Watching
+ */
+public class ClientReport implements StatsHttpServer.Report
+{
+    private final MjpgStreamServer mServer;
+
+    ClientReport(MjpgStreamServer server)
+    {
+        mServer = server;
+    }
+
+    @Override
+    public String toText()
+    {
+        StreamClient[] clients = mServer.getClients();
+        long now = System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "clients %d, viewers %d%n"
+                        + "evicted, write timeout %d%nevicted, dropped frames %d%nclosed, idle %d%n",
+                clients.length, mServer.getViewerCount(), mServer.getEvictedWriteTimeout(), mServer.getEvictedDrops(),
+                mServer.getClosedIdle()));
+        for (StreamClient c : clients)
+        {
+            sb.append(String.format(Locale.US, "  %-22s %-8s %-24s sent %d frames, %d bytes, dropped %d (%d in a row),"
+                            + " stalls %d, requests %d, up %.1f s%n",
+                    c.getRemote(), c.getState(), c.getProfile(), c.getFramesSent(), c.getBytesSent(),
+                    c.getFramesDropped(), c.getConsecutiveDrops(), c.getWriteStalls(), c.getRequests(),
+                    (now - c.getConnectedNanos()) / 1e9));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toJson()
+    {
+        StreamClient[] clients = mServer.getClients();
+        long now = System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "{\"clients\":%d,\"viewers\":%d,\"evictedWriteTimeout\":%d,"
+                        + "\"evictedDrops\":%d,\"closedIdle\":%d,\"perClient\":[",
+                clients.length, mServer.getViewerCount(), mServer.getEvictedWriteTimeout(), mServer.getEvictedDrops(),
+                mServer.getClosedIdle()));
+        boolean first = true;
+        for (StreamClient c : clients)
+        {
+            StreamProfile profile = c.getProfile();
+            sb.append(first ? "{" : ",{")
+                    .append(String.format(Locale.US, "\"remote\":\"%s\",\"state\":\"%s\",\"mask\":%b,\"scale\":%.2f,"
+                                    + "\"quality\":%d,\"framesSent\":%d,\"bytesSent\":%d,\"framesDropped\":%d,"
+                                    + "\"consecutiveDrops\":%d,\"writeStalls\":%d,\"requests\":%d,\"upMs\":%d",
+                            c.getRemote(), c.getState(), profile.isMask(), profile.getScale(), profile.getQuality(),
+                            c.getFramesSent(), c.getBytesSent(), c.getFramesDropped(), c.getConsecutiveDrops(),
+                            c.getWriteStalls(), c.getRequests(), (now - c.getConnectedNanos()) / 1000000L))
+                    .append('}');
+            first = false;
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * Zeroes the Eviction Counts - Each Connection's Own Counters Last as Long as it Does
+     */
+    @Override
+    public void reset()
+    {
+        mServer.resetEvictions();
+    }
+}
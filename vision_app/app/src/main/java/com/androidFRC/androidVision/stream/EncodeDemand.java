@@ -0,0 +1,201 @@
+package com.androidFRC.androidVision.stream;
+
+import com.androidFRC.androidVision.stats.StatsHttpServer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides Which Profiles Each Processed Frame is JPEG Encoded In - None While Nobody is Watching, and Each Profile Only as
+ * Often as the Most Demanding of its Viewers Asked For (See StreamRequest) - and Counts Frames Encoded vs Frames Processed
+ * select is Only Called From the One Thread That Encodes; the Counters May Be Read From Anywhere
+ */
+public class EncodeDemand implements StatsHttpServer.Report
+{
+    private final AtomicLong mProcessed = new AtomicLong();
+    private final AtomicLong mFramesEncoded = new AtomicLong();
+    private final AtomicLong mImagesEncoded = new AtomicLong();
+    private final AtomicLong mSkippedNoViewers = new AtomicLong();
+    private final AtomicLong mSkippedRate = new AtomicLong();
+    private final Map<StreamProfile, AtomicLong> mEncodedPerProfile = new ConcurrentHashMap<>();
+    private volatile int mLastViewers;
+    private volatile int mLastProfiles;
+
+    //When Each Profile's Next Frame is Due at its Requested Rate - Encoding Thread Only
+    private final Map<StreamProfile, long[]> mNextDueNanos = new HashMap<>();
+
+    /**
+     * Counts One Processed Frame and Picks the Profiles to Encode it In
+     * @param viewers - Viewers Connected Right Now
+     * @param profiles - Every Profile in Use (See MjpgStreamServer.getProfiles)
+     * @param fps - Rate the Most Demanding Viewer of Each Profile Wants (Infinity for Every Frame)
+     * @param count - Number of Profiles in Use
+     * @param nowNanos - System.nanoTime
+     * @param out - Filled With the Profiles to Encode
+     * @return Number of Profiles to Encode (0 to Skip Encoding This Frame)
+     */
+    public int select(int viewers, StreamProfile[] profiles, double[] fps, int count, long nowNanos, StreamProfile[] out)
+    {
+        mProcessed.incrementAndGet();
+        mLastViewers = viewers;
+        mLastProfiles = count;
+        if (viewers <= 0 || count == 0)
+        {
+            mSkippedNoViewers.incrementAndGet();
+            return 0;
+        }
+        if (mNextDueNanos.size() > count)
+        {
+            forgetUnused(profiles, count);
+        }
+
+        int selected = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (isDue(profiles[i], fps[i], nowNanos))
+            {
+                out[selected++] = profiles[i];
+                counter(profiles[i]).incrementAndGet();
+            }
+            else
+            {
+                mSkippedRate.incrementAndGet();
+            }
+        }
+        if (selected > 0)
+        {
+            mFramesEncoded.incrementAndGet();
+            mImagesEncoded.addAndGet(selected);
+        }
+        return selected;
+    }
+
+    private boolean isDue(StreamProfile profile, double fps, long nowNanos)
+    {
+        if (Double.isInfinite(fps) || fps <= 0)
+        {
+            return true;
+        }
+        long[] nextDue = mNextDueNanos.get(profile);
+        if (nextDue == null)
+        {
+            nextDue = new long[] {nowNanos};
+            mNextDueNanos.put(profile, nextDue);
+        }
+        long period = (long) (1e9 / fps);
+        if (nowNanos - nextDue[0] < 0)
+        {
+            return false;
+        }
+        //Keeps to the Requested Rate on Average, But Never Saves Up a Burst After a Gap
+        nextDue[0] = nowNanos - nextDue[0] > period ? nowNanos + period : nextDue[0] + period;
+        return true;
+    }
+
+    private void forgetUnused(StreamProfile[] profiles, int count)
+    {
+        Iterator<StreamProfile> it = mNextDueNanos.keySet().iterator();
+        while (it.hasNext())
+        {
+            StreamProfile profile = it.next();
+            boolean used = false;
+            for (int i = 0; i < count; i++)
+            {
+                used |= profiles[i].equals(profile);
+            }
+            if (!used)
+            {
+                it.remove();
+            }
+        }
+    }
+
+    private AtomicLong counter(StreamProfile profile)
+    {
+        AtomicLong counter = mEncodedPerProfile.get(profile);
+        if (counter == null)
+        {
+            counter = new AtomicLong();
+            mEncodedPerProfile.put(profile, counter);
+        }
+        return counter;
+    }
+
+    public long getProcessed()
+    {
+        return mProcessed.get();
+    }
+
+    /**
+     * Frames Encoded in at Least One Profile
+     * @return Frame Count
+     */
+    public long getFramesEncoded()
+    {
+        return mFramesEncoded.get();
+    }
+
+    /**
+     * Images Encoded, Counting Each Profile of a Frame Separately
+     * @return Image Count
+     */
+    public long getImagesEncoded()
+    {
+        return mImagesEncoded.get();
+    }
+
+    @Override
+    public String toText()
+    {
+        long processed = mProcessed.get();
+        long encoded = mFramesEncoded.get();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "viewers %d, profiles %d%n"
+                        + "processed %d%nencoded %d (%.1f%%), %d images%nskipped, no viewers %d%n"
+                        + "skipped, above requested rate %d (per profile)%n",
+                mLastViewers, mLastProfiles, processed, encoded, processed == 0 ? 0 : encoded * 100.0 / processed,
+                mImagesEncoded.get(), mSkippedNoViewers.get(), mSkippedRate.get()));
+        for (Map.Entry<StreamProfile, AtomicLong> entry : mEncodedPerProfile.entrySet())
+        {
+            sb.append(String.format(Locale.US, "  %-24s %d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "{\"viewers\":%d,\"profiles\":%d,\"processed\":%d,\"encoded\":%d,\"images\":%d,"
+                        + "\"skippedNoViewers\":%d,\"skippedRate\":%d,\"perProfile\":[",
+                mLastViewers, mLastProfiles, mProcessed.get(), mFramesEncoded.get(), mImagesEncoded.get(),
+                mSkippedNoViewers.get(), mSkippedRate.get()));
+        boolean first = true;
+        for (Map.Entry<StreamProfile, AtomicLong> entry : mEncodedPerProfile.entrySet())
+        {
+            StreamProfile profile = entry.getKey();
+            sb.append(first ? "{" : ",{")
+                    .append(String.format(Locale.US, "\"mask\":%b,\"scale\":%.2f,\"quality\":%d,\"encoded\":%d",
+                            profile.isMask(), profile.getScale(), profile.getQuality(), entry.getValue().get()))
+                    .append('}');
+            first = false;
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    @Override
+    public void reset()
+    {
+        mProcessed.set(0);
+        mFramesEncoded.set(0);
+        mImagesEncoded.set(0);
+        mSkippedNoViewers.set(0);
+        mSkippedRate.set(0);
+        mEncodedPerProfile.clear();
+    }
+}
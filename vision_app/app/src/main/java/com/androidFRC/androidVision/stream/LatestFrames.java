@@ -0,0 +1,94 @@
+package com.androidFRC.androidVision.stream;
+
+/**
+ * The Newest Published JPEG Frame of Each Profile, so /snapshot.jpg Can Be Answered Without Encoding Anything
+ * Holds One Reference to Each Cached Frame - Swapping and Taking Happen Under One Short Lock, so a Frame is Never
+ * Released Back to its Pool Between Being Found and Being Retained by a Reader
+ */
+class LatestFrames
+{
+    private final StreamFrame[] mFrames;
+    private final long[] mPublishedNanos;
+
+    /**
+     * Creates an Empty Cache
+     * @param size - Most Profiles Cached at Once (The Oldest Frame Makes Way)
+     */
+    LatestFrames(int size)
+    {
+        mFrames = new StreamFrame[size];
+        mPublishedNanos = new long[size];
+    }
+
+    /**
+     * Caches a Frame in Place of the Last One of its Profile (Or the Oldest Frame, if its Profile is New)
+     * @param frame - Published Frame (A Reference is Taken Here)
+     * @param nowNanos - System.nanoTime
+     */
+    void put(StreamFrame frame, long nowNanos)
+    {
+        StreamFrame replaced;
+        synchronized (this)
+        {
+            int slot = 0;
+            for (int i = 0; i < mFrames.length; i++)
+            {
+                if (mFrames[i] != null && mFrames[i].getProfile().equals(frame.getProfile()))
+                {
+                    slot = i;
+                    break;
+                }
+                if (mFrames[slot] != null && (mFrames[i] == null || mPublishedNanos[i] - mPublishedNanos[slot] < 0))
+                {
+                    slot = i;
+                }
+            }
+            replaced = mFrames[slot];
+            mFrames[slot] = frame.retain();
+            mPublishedNanos[slot] = nowNanos;
+        }
+        if (replaced != null)
+        {
+            replaced.release();
+        }
+    }
+
+    /**
+     * The Newest Frame of a Profile, If it is Recent Enough
+     * @param profile - Profile Wanted
+     * @param nowNanos - System.nanoTime
+     * @param maxAgeNanos - Oldest Frame Worth Answering With
+     * @return The Frame With a Reference Owned by the Caller, or null if There is None Recent Enough
+     */
+    synchronized StreamFrame take(StreamProfile profile, long nowNanos, long maxAgeNanos)
+    {
+        for (int i = 0; i < mFrames.length; i++)
+        {
+            if (mFrames[i] != null && mFrames[i].getProfile().equals(profile))
+            {
+                return nowNanos - mPublishedNanos[i] <= maxAgeNanos ? mFrames[i].retain() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops Every Cached Frame
+     */
+    void clear()
+    {
+        for (int i = 0; i < mFrames.length; i++)
+        {
+            StreamFrame frame;
+            synchronized (this)
+            {
+                frame = mFrames[i];
+                mFrames[i] = null;
+            }
+            if (frame != null)
+            {
+                frame.release();
+            }
+        }
+    }
+}
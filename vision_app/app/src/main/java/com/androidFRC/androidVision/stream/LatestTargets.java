@@ -0,0 +1,109 @@
+package com.androidFRC.androidVision.stream;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The Targets Last Sent to the Robot, for /targets.json - Same Fields as VisionUpdate's JSON, so a Dashboard Reads
+ * Them the Same Way the Robot Does
+ * The Sending Thread Fills a Back Copy (begin, add) and Swaps it in (publish), so a Reader Never Sees Half an Update
+ */
+public class LatestTargets
+{
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    //Back Copy - Sending Thread Only (One Thread at a Time)
+    private Update mBack = new Update();
+    //Front Copy - Guarded by 'this'
+    private Update mFront = new Update();
+
+    /**
+     * Starts the Next Update (Sending Thread Only)
+     * @param capturedNanos - When the Frame Was Captured (System.nanoTime)
+     * @param frameId - ID Given to the Frame When its Capture Started (-1 if Unknown)
+     */
+    public void begin(long capturedNanos, long frameId)
+    {
+        mBack.capturedNanos = capturedNanos;
+        mBack.frameId = frameId;
+        mBack.count = 0;
+    }
+
+    /**
+     * Adds a Target to the Update Being Built (Sending Thread Only)
+     * @param y - Homogeneous Vector Y (See HomogeneousVectors)
+     * @param z - Homogeneous Vector Z
+     */
+    public void add(double y, double z)
+    {
+        Update back = mBack;
+        if (back.count == back.y.length)
+        {
+            back.y = Arrays.copyOf(back.y, back.count * 2);
+            back.z = Arrays.copyOf(back.z, back.count * 2);
+        }
+        back.y[back.count] = y;
+        back.z[back.count] = z;
+        back.count++;
+    }
+
+    /**
+     * Makes the Update Being Built the One Served (Sending Thread Only)
+     */
+    public void publish()
+    {
+        Update back = mBack;
+        synchronized (this)
+        {
+            back.valid = true;
+            mBack = mFront;
+            mFront = back;
+        }
+    }
+
+    /**
+     * The Latest Update as JSON, e.g. {"capturedAgoMs":12,"frameId":345,"targets":[{"y":0.1,"z":-0.02}]}
+     * @param nowNanos - System.nanoTime, for the Capture Age
+     * @return UTF-8 (Plain ASCII) JSON Bytes - Just {"targets":[]} Before the First Update
+     */
+    public synchronized byte[] toJson(long nowNanos)
+    {
+        Update front = mFront;
+        StringBuilder sb = new StringBuilder(32 + front.count * 48);
+        sb.append('{');
+        if (front.valid)
+        {
+            sb.append("\"capturedAgoMs\":").append((nowNanos - front.capturedNanos) / 1000000L).append(',');
+            if (front.frameId >= 0)
+            {
+                sb.append("\"frameId\":").append(front.frameId).append(',');
+            }
+        }
+        sb.append("\"targets\":[");
+        for (int i = 0; i < front.count; i++)
+        {
+            sb.append(i == 0 ? "{" : ",{")
+                    .append("\"y\":").append(finite(front.y[i]))
+                    .append(",\"z\":").append(finite(front.z[i]))
+                    .append('}');
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(US_ASCII);
+    }
+
+    //JSON Has No NaN or Infinity
+    private static double finite(double value)
+    {
+        return Double.isNaN(value) || Double.isInfinite(value) ? 0 : value;
+    }
+
+    private static class Update
+    {
+        boolean valid;
+        long capturedNanos;
+        long frameId = -1;
+        double[] y = new double[8];
+        double[] z = new double[8];
+        int count;
+    }
+}
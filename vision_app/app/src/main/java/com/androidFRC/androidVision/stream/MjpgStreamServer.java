@@ -0,0 +1,678 @@
+package com.androidFRC.androidVision.stream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Selector-Based MJPEG Streaming Engine and Minimal HTTP/1.1 Server (Plain Java, No Android Dependencies)
+ * One Thread Accepts, Reads and Writes Every Client Without Blocking
+ * Each Request is Routed by its Path (See StreamRequest) - Streams, Snapshots From the Newest Published Frame,
+ * and the Latest Targets; Snapshot and Target Connections Are Kept Alive for the Next Request
+ * Each Client Only Ever Holds the Newest Frame, So a Slow Viewer Skips Frames Instead of Stalling the Others
+ * Each Client is Only Sent Frames Encoded With its Own StreamProfile - the Encoder Asks getProfiles Which to Make
+ * A Viewer That Cannot Keep Up at All is Evicted - When One Write Takes Longer Than the Write Timeout, or Too Many
+ * Frames in a Row Were Skipped While it Was Still Writing - and a Connection Sending No Request is Closed; Each Socket's
+ * Send Buffer is Capped so a Slow Link Backs Up Into Skipped Frames, Not Seconds of Queued Video (See getClientReport)
+ */
+public class MjpgStreamServer
+{
+    //Most Distinct Profiles Encoded per Frame - Viewers Asking for Another Once This Many Are in Use Share the Closest One
+    public static final int MAX_PROFILES = 4;
+    //A Published Frame This Recent Answers a Snapshot Right Away - Older, and the Snapshot Waits for the Next One
+    static final long SNAPSHOT_MAX_AGE_NANOS = 250000000L;
+
+    //Connection Policy Used Unless the Constructor is Given Another
+    public static final int DEFAULT_SEND_BUFFER_BYTES = 128 * 1024;
+    public static final long DEFAULT_WRITE_TIMEOUT_MS = 2000;
+    public static final int DEFAULT_MAX_CONSECUTIVE_DROPS = 30;
+    //A Connection That Has Not Sent a (Next) Request This Long After Connecting or Being Answered is Closed
+    static final long KEEP_ALIVE_TIMEOUT_NANOS = 15000000000L;
+    //How Often Deadlines Are Checked - Also the Longest the Selector Sleeps
+    static final long SWEEP_INTERVAL_MS = 100;
+
+    private static final ByteBuffer PREAMBLE = ByteBuffer.wrap(("HTTP/1.0 200 OK\r\n" +
+            "Server: androidvision\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "Pragma: no-cache\r\n" +
+            "Connection: close\r\n" +
+            "Content-Type: multipart/x-mixed-replace;boundary=--" + StreamFrame.K_BOUNDARY + "\r\n")
+            .getBytes(Charset.forName("US-ASCII"))).asReadOnlyBuffer();
+    private static final byte[] NOT_FOUND = "Try /stream.mjpg, /mask.mjpg, /snapshot.jpg or /targets.json\n"
+            .getBytes(Charset.forName("US-ASCII"));
+
+    private final int mPort;
+    private final int mSendBufferBytes;
+    private final long mWriteTimeoutNanos;
+    private final int mMaxConsecutiveDrops;
+    private Selector mSelector;
+    private ServerSocketChannel mServerChannel;
+    private Thread mThread;
+    private volatile boolean mRunning;
+
+    //Replaced (Never Modified) by the Selector Thread, Iterated by Publishers Without Allocating
+    private static final StreamClient[] NO_CLIENTS = new StreamClient[0];
+    private volatile StreamClient[] mClients = NO_CLIENTS;
+
+    //Scratch Buffer for Draining Whatever the Viewers Send Us
+    private final ByteBuffer mReadScratch = ByteBuffer.allocate(1024);
+
+    //What the Non-Streaming Routes Answer With
+    private final LatestFrames mLatest = new LatestFrames(MAX_PROFILES);
+    private final LatestTargets mTargets = new LatestTargets();
+
+    //Running Totals Over Every Client, Including Ones Since Disconnected - Written by the Selector Thread Only
+    private volatile long mTotalBytesSent;
+    private volatile long mTotalWriteStalls;
+
+    //Why Connections Were Closed by the Server - Written by the Selector Thread Only
+    private volatile long mEvictedWriteTimeout;
+    private volatile long mEvictedDrops;
+    private volatile long mClosedIdle;
+    private long mLastSweepNanos;
+
+    private final ClientReport mReport = new ClientReport(this);
+
+    /**
+     * Creates the (Not Yet Listening) Server With the Default Connection Policy
+     * @param port - TCP Port to Listen On (0 Picks a Free Port)
+     */
+    public MjpgStreamServer(int port)
+    {
+        this(port, DEFAULT_SEND_BUFFER_BYTES, DEFAULT_WRITE_TIMEOUT_MS, DEFAULT_MAX_CONSECUTIVE_DROPS);
+    }
+
+    /**
+     * Creates the (Not Yet Listening) Server
+     * @param port - TCP Port to Listen On (0 Picks a Free Port)
+     * @param sendBufferBytes - Socket Send Buffer for Each Client (0 Leaves the System Default)
+     * @param writeTimeoutMs - Longest One Frame or Response May Take to Write Before the Client is Evicted (0 for No Limit)
+     * @param maxConsecutiveDrops - Frames in a Row a Client May Skip While Still Writing Before it is Evicted (0 for No Limit)
+     */
+    public MjpgStreamServer(int port, int sendBufferBytes, long writeTimeoutMs, int maxConsecutiveDrops)
+    {
+        mPort = port;
+        mSendBufferBytes = sendBufferBytes;
+        mWriteTimeoutNanos = writeTimeoutMs * 1000000L;
+        mMaxConsecutiveDrops = maxConsecutiveDrops;
+    }
+
+    /**
+     * Binds the Listening Socket and Starts the Selector Thread
+     * @throws IOException - If the Port Cannot be Bound
+     */
+    public synchronized void start() throws IOException
+    {
+        if (mRunning)
+        {
+            return;
+        }
+        mSelector = Selector.open();
+        mServerChannel = ServerSocketChannel.open();
+        mServerChannel.configureBlocking(false);
+        mServerChannel.socket().setReuseAddress(true);
+        mServerChannel.socket().bind(new InetSocketAddress(mPort));
+        mServerChannel.register(mSelector, SelectionKey.OP_ACCEPT);
+        mRunning = true;
+        mThread = new Thread(mLoop, "MjpgServer");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the Selector Thread and Closes Every Client
+     */
+    public synchronized void stop()
+    {
+        if (!mRunning)
+        {
+            return;
+        }
+        mRunning = false;
+        mSelector.wakeup();
+        try
+        {
+            mThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Port Actually Bound (Useful When Constructed With Port 0)
+     * @return Local Port, or -1 if Not Listening
+     */
+    public int getLocalPort()
+    {
+        ServerSocketChannel channel = mServerChannel;
+        return channel == null ? -1 : channel.socket().getLocalPort();
+    }
+
+    /**
+     * Number of Open Connections, Including Ones Only Kept Alive Between Requests
+     * @return Client Count
+     */
+    public int getClientCount()
+    {
+        return mClients.length;
+    }
+
+    /**
+     * Number of Clients Wanting Frames Right Now - Streaming, or Waiting to Answer a Snapshot
+     * @return Viewer Count
+     */
+    public int getViewerCount()
+    {
+        int viewers = 0;
+        for (StreamClient c : mClients)
+        {
+            if (c.wantsFrames())
+            {
+                viewers++;
+            }
+        }
+        return viewers;
+    }
+
+    /**
+     * Where to Put the Targets Sent to the Robot, so /targets.json Can Serve Them
+     * @return The Latest Targets
+     */
+    public LatestTargets getLatestTargets()
+    {
+        return mTargets;
+    }
+
+    /**
+     * Frame Rate the Most Demanding Viewer Asked For - What the Encoder Needs to Keep Up With
+     * @return Frames per Second, Infinity if Any Viewer Wants Every Frame, 0 With No Viewers
+     */
+    public double getRequestedFps()
+    {
+        double fps = 0;
+        for (StreamClient c : mClients)
+        {
+            if (!c.wantsFrames())
+            {
+                continue;
+            }
+            double wanted = wantedFps(c);
+            if (wanted <= 0)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            fps = Math.max(fps, wanted);
+        }
+        return fps;
+    }
+
+    /**
+     * Every Distinct Profile Some Viewer is Using, With the Frame Rate the Most Demanding of its Viewers Asked For
+     * @param profiles - Filled With the Profiles (At Least MAX_PROFILES Long)
+     * @param fps - Filled With Each Profile's Frame Rate (Infinity if a Viewer Wants Every Frame)
+     * @return Number of Profiles Filled In (0 With No Viewers)
+     */
+    public int getProfiles(StreamProfile[] profiles, double[] fps)
+    {
+        int count = 0;
+        for (StreamClient c : mClients)
+        {
+            if (!c.wantsFrames())
+            {
+                continue;
+            }
+            StreamProfile profile = c.getProfile();
+            double wanted = wantedFps(c);
+            wanted = wanted <= 0 ? Double.POSITIVE_INFINITY : wanted;
+            int i = 0;
+            while (i < count && !profiles[i].equals(profile))
+            {
+                i++;
+            }
+            if (i == count)
+            {
+                if (count == profiles.length)
+                {
+                    continue;
+                }
+                profiles[count] = profile;
+                fps[count] = wanted;
+                count++;
+            }
+            else
+            {
+                fps[i] = Math.max(fps[i], wanted);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Frame Rate a Client Asked For - A Waiting Snapshot Wants the Very Next Frame, Whatever its Query Says
+     * @param c - Client Wanting Frames
+     * @return Frames per Second, 0 for Every Frame
+     */
+    private static double wantedFps(StreamClient c)
+    {
+        StreamRequest request = c.getRequest();
+        return request.getRoute() == StreamRequest.Route.SNAPSHOT ? 0 : request.getMaxFps();
+    }
+
+    /**
+     * Hands the Newest Frame to Every Client - Never Blocks on the Network
+     * A Client Still Busy With an Older Frame Will Skip Straight to This One When It Catches Up
+     * Every Client on the Frame's Profile Takes its Own Reference, as Does the Snapshot Cache (JPEG Frames Only)
+     * The Caller Still Owns (and Must Release) Its Own
+     * @param frame - Frame to Stream
+     */
+    public void publish(StreamFrame frame)
+    {
+        if (frame == null || !mRunning)
+        {
+            return;
+        }
+        StreamProfile profile = frame.getProfile();
+        if (!profile.isMask())
+        {
+            mLatest.put(frame, System.nanoTime());
+        }
+        for (StreamClient c : mClients)
+        {
+            if (c.wantsFrames() && c.getProfile().equals(profile))
+            {
+                c.offer(frame);
+            }
+        }
+        mSelector.wakeup();
+    }
+
+    /**
+     * Sum of Frames Skipped by All Current Clients Because They Were Still Busy
+     * @return Dropped Frame Count
+     */
+    public long getFramesDropped()
+    {
+        long total = 0;
+        for (StreamClient c : mClients)
+        {
+            total += c.getFramesDropped();
+        }
+        return total;
+    }
+
+    /**
+     * Sum of Frames Fully Written to All Current Clients
+     * @return Sent Frame Count
+     */
+    public long getFramesSent()
+    {
+        long total = 0;
+        for (StreamClient c : mClients)
+        {
+            total += c.getFramesSent();
+        }
+        return total;
+    }
+
+    /**
+     * Bytes Written to Every Viewer Since the Server Started, Including Viewers That Have Left
+     * @return Byte Count
+     */
+    public long getTotalBytesSent()
+    {
+        return mTotalBytesSent;
+    }
+
+    /**
+     * Writes That Found a Viewer's Socket Buffer Full Since the Server Started
+     * @return Stall Count
+     */
+    public long getTotalWriteStalls()
+    {
+        return mTotalWriteStalls;
+    }
+
+    /**
+     * Every Open Connection With its Own Counters, and How Many Were Evicted and Why - Served as /clients.txt
+     * @return The Report
+     */
+    public ClientReport getClientReport()
+    {
+        return mReport;
+    }
+
+    StreamClient[] getClients()
+    {
+        return mClients;
+    }
+
+    long getEvictedWriteTimeout()
+    {
+        return mEvictedWriteTimeout;
+    }
+
+    long getEvictedDrops()
+    {
+        return mEvictedDrops;
+    }
+
+    long getClosedIdle()
+    {
+        return mClosedIdle;
+    }
+
+    /**
+     * Zeroes the Eviction Counts (Each Connection Keeps its Own Counters Until it Closes)
+     */
+    void resetEvictions()
+    {
+        mEvictedWriteTimeout = 0;
+        mEvictedDrops = 0;
+        mClosedIdle = 0;
+    }
+
+    //The Selector Loop Itself
+    private final Runnable mLoop = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            while (mRunning)
+            {
+                try
+                {
+                    mSelector.select(SWEEP_INTERVAL_MS);
+                }
+                catch (IOException e)
+                {
+                    break;
+                }
+
+                Iterator<SelectionKey> it = mSelector.selectedKeys().iterator();
+                while (it.hasNext())
+                {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                        continue;
+                    }
+
+                    StreamClient client = (StreamClient) key.attachment();
+                    try
+                    {
+                        if (key.isReadable())
+                        {
+                            drain(client);
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            long bytes = client.getBytesSent();
+                            long stalls = client.getWriteStalls();
+                            try
+                            {
+                                client.onWritable();
+                            }
+                            finally
+                            {
+                                mTotalBytesSent += client.getBytesSent() - bytes;
+                                mTotalWriteStalls += client.getWriteStalls() - stalls;
+                            }
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        disconnect(client);
+                        continue;
+                    }
+                    if (client.isDone())
+                    {
+                        disconnect(client);
+                    }
+                    else if (client.hasRequest())
+                    {
+                        route(client);
+                    }
+                }
+
+                //Frames Published Since the Last Pass Get Started on Idle Clients
+                for (StreamClient c : mClients)
+                {
+                    c.startNextFrame();
+                }
+
+                long now = System.nanoTime();
+                if (now - mLastSweepNanos >= SWEEP_INTERVAL_MS * 1000000L)
+                {
+                    mLastSweepNanos = now;
+                    sweep(now);
+                }
+            }
+
+            for (StreamClient c : mClients)
+            {
+                c.close();
+            }
+            mClients = NO_CLIENTS;
+            mLatest.clear();
+            try
+            {
+                mServerChannel.close();
+                mSelector.close();
+            }
+            catch (IOException e)
+            {
+                //Shutting Down Anyway
+            }
+        }
+    };
+
+    /**
+     * Accepts Every Pending Connection - Nothing is Sent Until its Request Has Been Read and Routed
+     */
+    private void accept()
+    {
+        while (true)
+        {
+            SocketChannel channel;
+            try
+            {
+                channel = mServerChannel.accept();
+                if (channel == null)
+                {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                if (mSendBufferBytes > 0)
+                {
+                    channel.socket().setSendBufferSize(mSendBufferBytes);
+                }
+                SelectionKey key = channel.register(mSelector, SelectionKey.OP_READ);
+                StreamClient client = new StreamClient(channel, key);
+                key.attach(client);
+                StreamClient[] clients = Arrays.copyOf(mClients, mClients.length + 1);
+                clients[clients.length - 1] = client;
+                mClients = clients;
+            }
+            catch (IOException e)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads Request Bytes, Noticing When the Client Hangs Up
+     * @param client - Readable Client
+     * @throws IOException - If the Peer Has Closed or Reset the Connection
+     */
+    private void drain(StreamClient client) throws IOException
+    {
+        int read;
+        do
+        {
+            mReadScratch.clear();
+            read = client.getChannel().read(mReadScratch);
+            if (read > 0)
+            {
+                mReadScratch.flip();
+                client.onRequestBytes(mReadScratch);
+            }
+        }
+        while (read > 0 && !client.isDone());
+        if (read < 0)
+        {
+            throw new IOException("Client closed the connection");
+        }
+    }
+
+    /**
+     * Answers a Request That Has Just Been Read, by its Path
+     * @param client - Client With a Request Waiting (See StreamClient.hasRequest)
+     */
+    private void route(StreamClient client)
+    {
+        StreamRequest request = client.getPendingRequest();
+        switch (request.getRoute())
+        {
+            case STREAM:
+            case MASK:
+                client.startStream(PREAMBLE);
+                limitProfiles(client);
+                break;
+            case SNAPSHOT:
+                //Straight From the Cache When a Recent Frame is There - Otherwise the Next Frame Encoded for it
+                StreamFrame cached = mLatest.take(request.getProfile(), System.nanoTime(), SNAPSHOT_MAX_AGE_NANOS);
+                if (cached != null)
+                {
+                    client.sendSnapshot(cached);
+                }
+                else
+                {
+                    client.awaitSnapshot();
+                    limitProfiles(client);
+                }
+                break;
+            case TARGETS:
+                client.sendResponse("200 OK", "application/json", mTargets.toJson(System.nanoTime()));
+                break;
+            default:
+                client.sendResponse("404 Not Found", "text/plain", NOT_FOUND);
+                break;
+        }
+    }
+
+    /**
+     * Moves a New Viewer to the Closest Profile Already in Use if its Own Would Be One More Than MAX_PROFILES
+     * @param client - Client Whose Request Just Arrived
+     */
+    private void limitProfiles(StreamClient client)
+    {
+        StreamProfile wanted = client.getProfile();
+        StreamProfile[] inUse = new StreamProfile[MAX_PROFILES];
+        int count = 0;
+        for (StreamClient c : mClients)
+        {
+            if (c == client || !c.wantsFrames())
+            {
+                continue;
+            }
+            StreamProfile profile = c.getProfile();
+            if (profile.equals(wanted))
+            {
+                return;
+            }
+            boolean seen = false;
+            for (int i = 0; i < count; i++)
+            {
+                seen |= inUse[i].equals(profile);
+            }
+            if (!seen && count < inUse.length)
+            {
+                inUse[count++] = profile;
+            }
+        }
+        if (count < MAX_PROFILES)
+        {
+            return;
+        }
+        StreamProfile nearest = inUse[0];
+        for (int i = 1; i < count; i++)
+        {
+            if (distance(inUse[i], wanted) < distance(nearest, wanted))
+            {
+                nearest = inUse[i];
+            }
+        }
+        client.setProfile(nearest);
+    }
+
+    private static double distance(StreamProfile a, StreamProfile b)
+    {
+        //A Mask Viewer Only Gets the Displayed Image (or the Other Way Round) When No Profile of its Own Kind is in Use
+        double kind = a.isMask() != b.isMask() ? 10 : 0;
+        return kind + Math.abs(a.getScale() - b.getScale()) + Math.abs(a.getQuality() - b.getQuality()) / 100.0;
+    }
+
+    /**
+     * Evicts Every Client That is Past a Deadline or Has Skipped Too Many Frames in a Row, and Closes Quiet Ones
+     * @param nowNanos - System.nanoTime
+     */
+    private void sweep(long nowNanos)
+    {
+        for (StreamClient c : mClients)
+        {
+            if (mWriteTimeoutNanos > 0 && c.isWriteOverdue(nowNanos, mWriteTimeoutNanos))
+            {
+                mEvictedWriteTimeout++;
+                disconnect(c);
+            }
+            else if (mMaxConsecutiveDrops > 0 && c.getConsecutiveDrops() >= mMaxConsecutiveDrops)
+            {
+                mEvictedDrops++;
+                disconnect(c);
+            }
+            else if (c.isIdle(nowNanos, KEEP_ALIVE_TIMEOUT_NANOS))
+            {
+                mClosedIdle++;
+                disconnect(c);
+            }
+        }
+    }
+
+    /**
+     * Removes a Client and Closes its Socket
+     * @param client - Client to Remove
+     */
+    private void disconnect(StreamClient client)
+    {
+        StreamClient[] clients = mClients;
+        for (int i = 0; i < clients.length; i++)
+        {
+            if (clients[i] == client)
+            {
+                StreamClient[] remaining = new StreamClient[clients.length - 1];
+                System.arraycopy(clients, 0, remaining, 0, i);
+                System.arraycopy(clients, i + 1, remaining, i, clients.length - i - 1);
+                mClients = remaining;
+                break;
+            }
+        }
+        client.close();
+    }
+}
@@ -0,0 +1,580 @@
+package com.androidFRC.androidVision.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One Connection to MjpgStreamServer, Owned by its Selector Thread
+ * Reads a Request, Then Either Streams (Until the Viewer Leaves) or Writes One Response and, if Kept Alive,
+ * Goes Back to Reading the Next Request
+ * Holds Only the Newest Frame Waiting to be Sent - Older Ones Are Skipped, Never Queued
+ * Owns One Reference to the Waiting Frame and One to the Frame on the Wire
+ * Keeps What MjpgStreamServer Needs to Evict it - When the Write in Progress Started, How Many Frames in a Row Were
+ * Skipped While it Was Mid-Write, and When it Last Heard From the Client
+ */
+class StreamClient
+{
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    //Most Request Bytes Held While Waiting - Anyone Sending More Without Waiting for Answers is Dropped
+    private static final int INBOUND_CAPACITY = 4096;
+
+    private enum Mode
+    {
+        //Reading a Request - Nothing to Write
+        REQUEST,
+        //Sending Every Frame (That its Rate Allows) Until the Viewer Leaves
+        STREAM,
+        //Waiting for the Next Frame of its Profile to Answer a Snapshot With
+        SNAPSHOT,
+        //Writing One Response, Then Back to REQUEST (Kept Alive) or Closed
+        RESPONSE
+    }
+
+    private final SocketChannel mChannel;
+    private final SelectionKey mKey;
+    private final String mRemote;
+    private final long mConnectedNanos;
+
+    //Latest-Frame-Only Slot - Written by the Publisher, Taken by the Selector Thread
+    private final AtomicReference<StreamFrame> mPending = new AtomicReference<>();
+
+    //Gathering Write State for the Frame (or Response) Currently on the Wire
+    private final ByteBuffer[] mGather = new ByteBuffer[3];
+    private int mGatherOffset;
+    private int mGatherLength;
+    private StreamFrame mSending;
+    private volatile boolean mClosed;
+    private volatile Mode mMode = Mode.REQUEST;
+    private boolean mDone;
+
+    //Deadlines - Written by the Selector Thread, mWriting Also Read by the Publisher
+    private volatile boolean mWriting;
+    private volatile long mWriteStartNanos;
+    private long mLastHeardNanos;
+
+    //Request Being Read - Bytes Are Kept Until a Whole Request Head Has Arrived
+    private final ByteBuffer mInbound = ByteBuffer.allocate(INBOUND_CAPACITY);
+    private final StringBuilder mLine = new StringBuilder();
+    private StreamRequest mReading;
+    private boolean mRequestDone;
+
+    //What the Viewer Asked For - Default Until its Request Has Arrived
+    private volatile StreamRequest mRequest = new StreamRequest();
+    private volatile StreamProfile mProfile = StreamProfile.DEFAULT;
+    private long mLastFrameStartNanos;
+
+    //Counters (Only Read Loosely, for Reporting)
+    private volatile long mFramesSent;
+    private volatile long mFramesDropped;
+    private final AtomicInteger mConsecutiveDrops = new AtomicInteger();
+    private volatile long mBytesSent;
+    private volatile long mWriteStalls;
+    private volatile long mRequests;
+
+    /**
+     * Creates the Client, Waiting for its Request
+     * @param channel - Non-Blocking Channel Accepted From the Server Socket
+     * @param key - Selection Key of That Channel
+     */
+    StreamClient(SocketChannel channel, SelectionKey key)
+    {
+        mChannel = channel;
+        mKey = key;
+        mKey.interestOps(SelectionKey.OP_READ);
+        mRemote = String.valueOf(channel.socket().getRemoteSocketAddress());
+        mConnectedNanos = System.nanoTime();
+        mLastHeardNanos = mConnectedNanos;
+    }
+
+    /**
+     * Replaces Whatever Frame Was Waiting With the Newest One (Called From Any Thread)
+     * A Frame Replaced While the Client Was Still Writing Counts Toward its Drops in a Row - One Replaced Only Because
+     * the Viewer Asked for a Lower Rate Does Not
+     * @param frame - Newest Frame (A Reference is Taken Here)
+     */
+    void offer(StreamFrame frame)
+    {
+        StreamFrame skipped = mPending.getAndSet(frame.retain());
+        if (skipped != null)
+        {
+            skipped.release();
+            mFramesDropped++;
+            if (mWriting)
+            {
+                mConsecutiveDrops.incrementAndGet();
+            }
+        }
+        if (mClosed)
+        {
+            releasePending();
+        }
+    }
+
+    /**
+     * Whether Published Frames Should Be Offered to This Client - Streaming, or Waiting to Answer a Snapshot
+     * @return If the Client Wants Frames
+     */
+    boolean wantsFrames()
+    {
+        Mode mode = mMode;
+        return mode == Mode.STREAM || mode == Mode.SNAPSHOT;
+    }
+
+    /**
+     * If the Socket is Idle and a Frame is Waiting, Starts Sending It (Selector Thread Only)
+     */
+    void startNextFrame()
+    {
+        if (isBusy() || !mKey.isValid() || !wantsFrames())
+        {
+            return;
+        }
+        //A Viewer That Asked for Fewer Frames Leaves the Newest Waiting (Replaced by Newer Ones) Until it is Due
+        long now = System.nanoTime();
+        long interval = mRequest.getMinIntervalNanos();
+        if (mMode == Mode.STREAM && interval > 0 && mFramesSent > 0 && now - mLastFrameStartNanos < interval)
+        {
+            return;
+        }
+        StreamFrame next = mPending.getAndSet(null);
+        if (next == null)
+        {
+            return;
+        }
+        mLastFrameStartNanos = now;
+        if (mMode == Mode.SNAPSHOT)
+        {
+            mMode = Mode.RESPONSE;
+            startGather(snapshotHeader(next), next);
+            return;
+        }
+        startGather(next.headerView(), next);
+    }
+
+    /**
+     * Writes as Much of the Current Frame or Response as the Socket Will Take Without Blocking
+     * @throws IOException - If the Peer Has Gone Away
+     */
+    void onWritable() throws IOException
+    {
+        while (mGatherLength > 0)
+        {
+            long written = mChannel.write(mGather, mGatherOffset, mGatherLength);
+            mBytesSent += written;
+            while (mGatherLength > 0 && !mGather[mGatherOffset].hasRemaining())
+            {
+                mGather[mGatherOffset] = null;
+                mGatherOffset++;
+                mGatherLength--;
+            }
+            if (written == 0)
+            {
+                //Socket Buffer is Full, Wait For the Next OP_WRITE
+                mWriteStalls++;
+                return;
+            }
+        }
+
+        mWriting = false;
+        if (mSending != null)
+        {
+            mFramesSent++;
+            mConsecutiveDrops.set(0);
+            mSending.release();
+            mSending = null;
+        }
+        mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_WRITE);
+        if (mMode == Mode.RESPONSE)
+        {
+            finishResponse();
+            return;
+        }
+        startNextFrame();
+    }
+
+    /**
+     * Takes in Bytes the Client Sent (Selector Thread Only) - A Streaming Viewer Has Nothing More to Say, so Those Are Ignored
+     * @param bytes - Bytes Just Read (Position to Limit)
+     */
+    void onRequestBytes(ByteBuffer bytes)
+    {
+        mLastHeardNanos = System.nanoTime();
+        if (mMode == Mode.STREAM)
+        {
+            return;
+        }
+        if (bytes.remaining() > mInbound.remaining())
+        {
+            mDone = true;
+            return;
+        }
+        mInbound.put(bytes);
+        if (mMode == Mode.REQUEST)
+        {
+            readRequest();
+        }
+    }
+
+    /**
+     * Reads Lines Out of the Held Bytes Until a Whole Request Head (Request Line, Headers, Blank Line) Has Arrived
+     * Bytes After it (A Pipelined Next Request) Stay Held for Later
+     */
+    private void readRequest()
+    {
+        mInbound.flip();
+        while (!mRequestDone && mInbound.hasRemaining())
+        {
+            char c = (char) (mInbound.get() & 0xff);
+            if (c == '\r')
+            {
+                continue;
+            }
+            if (c != '\n')
+            {
+                if (mLine.length() < StreamRequest.MAX_LINE_LENGTH)
+                {
+                    mLine.append(c);
+                }
+                continue;
+            }
+            if (mReading == null)
+            {
+                //Blank Lines Before a Request Line Are Allowed (and Ignored)
+                if (mLine.length() > 0)
+                {
+                    mReading = StreamRequest.parse(mLine);
+                }
+            }
+            else if (mLine.length() == 0)
+            {
+                mRequestDone = true;
+            }
+            else
+            {
+                mReading.header(mLine);
+            }
+            mLine.setLength(0);
+        }
+        mInbound.compact();
+    }
+
+    /**
+     * Whether a Whole Request Has Arrived and is Waiting to Be Routed (See MjpgStreamServer)
+     * @return If There is a Request to Answer
+     */
+    boolean hasRequest()
+    {
+        return mMode == Mode.REQUEST && mRequestDone;
+    }
+
+    /**
+     * The Request Waiting to Be Routed (Selector Thread Only)
+     * @return The Request, or null Until hasRequest
+     */
+    StreamRequest getPendingRequest()
+    {
+        return mRequestDone ? mReading : null;
+    }
+
+    /**
+     * The Request Being Answered (Defaults Until the First Request is Routed)
+     * @return The Request
+     */
+    StreamRequest getRequest()
+    {
+        return mRequest;
+    }
+
+    /**
+     * Answers the Request With a Stream of Frames of its Profile, Starting With the Stream's Response Header
+     * @param preamble - HTTP Response Header Bytes (Shared, Not Modified)
+     */
+    void startStream(ByteBuffer preamble)
+    {
+        StreamRequest request = takeRequest();
+        mProfile = request.getProfile();
+        releasePending();
+        mMode = Mode.STREAM;
+        startGather(preamble.duplicate(), null);
+    }
+
+    /**
+     * Answers the Request With the Next Frame of its Profile to Be Published
+     */
+    void awaitSnapshot()
+    {
+        StreamRequest request = takeRequest();
+        mProfile = request.getProfile();
+        releasePending();
+        mMode = Mode.SNAPSHOT;
+    }
+
+    /**
+     * Answers the Request With a Frame Already Published
+     * @param frame - The Frame (The Caller's Reference is Taken Over)
+     */
+    void sendSnapshot(StreamFrame frame)
+    {
+        takeRequest();
+        mMode = Mode.RESPONSE;
+        mLastFrameStartNanos = System.nanoTime();
+        startGather(snapshotHeader(frame), frame);
+    }
+
+    /**
+     * Answers the Request With a Fixed Body
+     * @param status - Status Line Text, e.g. "200 OK"
+     * @param contentType - MIME Type of the Body
+     * @param body - Response Body (Not Modified)
+     */
+    void sendResponse(String status, String contentType, byte[] body)
+    {
+        StreamRequest request = takeRequest();
+        mMode = Mode.RESPONSE;
+        String header = String.format(Locale.US, "HTTP/1.1 %s\r\nServer: androidvision\r\nCache-Control: no-cache\r\n"
+                        + "Content-Type: %s\r\nContent-Length: %d\r\nConnection: %s\r\n\r\n",
+                status, contentType, body.length, request.isKeepAlive() ? "keep-alive" : "close");
+        mGather[0] = ByteBuffer.wrap(header.getBytes(US_ASCII));
+        mGather[1] = ByteBuffer.wrap(body);
+        mGatherOffset = 0;
+        mGatherLength = 2;
+        beginWrite();
+    }
+
+    /**
+     * Moves the Request Just Read Into Place as the One Being Answered, Ready to Read the Next
+     * @return The Request
+     */
+    private StreamRequest takeRequest()
+    {
+        StreamRequest request = mReading;
+        mRequest = request;
+        mReading = null;
+        mRequestDone = false;
+        mRequests++;
+        return request;
+    }
+
+    /**
+     * Response Header for a Snapshot - Standalone, Unlike the Multipart Header Each Streamed Frame Carries
+     * @param frame - Frame Being Sent
+     * @return The Header Bytes
+     */
+    private ByteBuffer snapshotHeader(StreamFrame frame)
+    {
+        String header = String.format(Locale.US, "HTTP/1.1 200 OK\r\nServer: androidvision\r\nCache-Control: no-cache\r\n"
+                        + "Content-Type: %s\r\nContent-Length: %d\r\n%sConnection: %s\r\n\r\n",
+                frame.getProfile().isMask() ? "image/png" : "image/jpeg", frame.getLength(),
+                frame.getFrameId() >= 0 ? "X-Frame-Id: " + frame.getFrameId() + "\r\n" : "",
+                mRequest.isKeepAlive() ? "keep-alive" : "close");
+        return ByteBuffer.wrap(header.getBytes(US_ASCII));
+    }
+
+    /**
+     * Queues a Header and a Frame's Payload (If Any) as the Next Write
+     * @param header - Bytes Sent First
+     * @param frame - Frame Whose Payload Follows (Its Reference is Taken Over), or null
+     */
+    private void startGather(ByteBuffer header, StreamFrame frame)
+    {
+        mSending = frame;
+        mGather[0] = header;
+        mGather[1] = frame != null ? frame.payloadView() : null;
+        mGatherOffset = 0;
+        mGatherLength = frame != null ? 2 : 1;
+        beginWrite();
+    }
+
+    /**
+     * Starts the Write Deadline and Asks for OP_WRITE
+     */
+    private void beginWrite()
+    {
+        mWriteStartNanos = System.nanoTime();
+        mWriting = true;
+        mKey.interestOps(mKey.interestOps() | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * A Response Was Fully Written - Closes, or Goes Back to Reading (Including Any Request Already Held)
+     */
+    private void finishResponse()
+    {
+        if (!mRequest.isKeepAlive())
+        {
+            mDone = true;
+            return;
+        }
+        mMode = Mode.REQUEST;
+        mLastHeardNanos = System.nanoTime();
+        releasePending();
+        readRequest();
+    }
+
+    /**
+     * Whether the Connection Has Nothing More to Do (Answered Without Keep-Alive, or Sent Too Much) - The Server Closes It
+     * @return If the Client Should Be Disconnected
+     */
+    boolean isDone()
+    {
+        return mDone;
+    }
+
+    /**
+     * Profile of the Frames This Viewer is Sent - What it Asked For, Unless the Server Had to Change It
+     * @return The Profile
+     */
+    StreamProfile getProfile()
+    {
+        return mProfile;
+    }
+
+    void setProfile(StreamProfile profile)
+    {
+        mProfile = profile;
+    }
+
+    /**
+     * Whether Part of a Frame (or a Response) is Still Waiting to Be Written
+     * @return If the Client is Mid-Write
+     */
+    boolean isBusy()
+    {
+        return mGatherLength > 0;
+    }
+
+    /**
+     * Whether the Frame (or Response) Being Written Has Taken Longer Than Allowed
+     * @param nowNanos - System.nanoTime
+     * @param timeoutNanos - Longest a Write May Take
+     * @return If the Write is Past its Deadline
+     */
+    boolean isWriteOverdue(long nowNanos, long timeoutNanos)
+    {
+        return mWriting && nowNanos - mWriteStartNanos > timeoutNanos;
+    }
+
+    /**
+     * Whether the Client Has Been Waited On for a Request (Its First, or the Next on a Kept-Alive Connection) Too Long
+     * (Selector Thread Only)
+     * @param nowNanos - System.nanoTime
+     * @param timeoutNanos - Longest to Wait
+     * @return If the Client Has Gone Quiet
+     */
+    boolean isIdle(long nowNanos, long timeoutNanos)
+    {
+        return mMode == Mode.REQUEST && nowNanos - mLastHeardNanos > timeoutNanos;
+    }
+
+    /**
+     * Closes the Socket, Dropping Any Waiting Frame
+     */
+    void close()
+    {
+        mClosed = true;
+        mWriting = false;
+        mKey.cancel();
+        releasePending();
+        if (mSending != null)
+        {
+            mSending.release();
+            mSending = null;
+        }
+        try
+        {
+            mChannel.close();
+        }
+        catch (IOException e)
+        {
+            //Already Closed
+        }
+    }
+
+    /**
+     * Gives Back the Reference Held by the Waiting Slot, If Any
+     */
+    private void releasePending()
+    {
+        StreamFrame pending = mPending.getAndSet(null);
+        if (pending != null)
+        {
+            pending.release();
+        }
+    }
+
+    SocketChannel getChannel()
+    {
+        return mChannel;
+    }
+
+    /**
+     * Where the Client Connected From
+     * @return Remote Address and Port
+     */
+    String getRemote()
+    {
+        return mRemote;
+    }
+
+    long getConnectedNanos()
+    {
+        return mConnectedNanos;
+    }
+
+    /**
+     * What the Connection is Doing Right Now
+     * @return "request" (Waiting for One), "stream", "snapshot" (Waiting for a Frame) or "response"
+     */
+    String getState()
+    {
+        return mMode.name().toLowerCase(Locale.US);
+    }
+
+    long getFramesSent()
+    {
+        return mFramesSent;
+    }
+
+    long getFramesDropped()
+    {
+        return mFramesDropped;
+    }
+
+    long getBytesSent()
+    {
+        return mBytesSent;
+    }
+
+    /**
+     * Frames Skipped While This Client Was Still Writing, Since it Last Finished One
+     * @return Drops in a Row
+     */
+    int getConsecutiveDrops()
+    {
+        return mConsecutiveDrops.get();
+    }
+
+    /**
+     * Writes That Found the Socket Buffer Full - The Link to This Viewer Was Not Keeping Up
+     * @return Stall Count
+     */
+    long getWriteStalls()
+    {
+        return mWriteStalls;
+    }
+
+    /**
+     * Requests Answered on This Connection (More Than One Only With Keep-Alive)
+     * @return Request Count
+     */
+    long getRequests()
+    {
+        return mRequests;
+    }
+}
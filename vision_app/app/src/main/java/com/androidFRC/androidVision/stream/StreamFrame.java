@@ -0,0 +1,226 @@
+package com.androidFRC.androidVision.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One Encoded JPEG Image Plus the Multipart Header That Precedes it on the Wire
+ * Reference Counted - Every Client Holding the Frame Owns One Reference, and the Last
+ * Release Hands the Backing Array Back to its StreamFramePool (If It Came From One)
+ * Frames With a Frame ID Also Carry it in an X-Frame-Id Header, so a Viewer Can Match the Image to a Target Update
+ */
+public class StreamFrame
+{
+    static final String K_BOUNDARY = "boundary";
+    private static final byte[] HEADER_PREFIX = ("\r\n--" + K_BOUNDARY + "\r\n" +
+            "Content-type: image/jpeg\r\n" +
+            "Content-Length: ").getBytes(Charset.forName("US-ASCII"));
+    //Threshold Mask Frames (See StreamProfile.isMask) - Browsers Show PNG Parts of a Multipart Stream Just the Same
+    private static final byte[] MASK_HEADER_PREFIX = ("\r\n--" + K_BOUNDARY + "\r\n" +
+            "Content-type: image/png\r\n" +
+            "Content-Length: ").getBytes(Charset.forName("US-ASCII"));
+    private static final byte[] FRAME_ID_PREFIX = "\r\nX-Frame-Id: ".getBytes(Charset.forName("US-ASCII"));
+    //Prefix (The JPEG One is the Longer), Length Digits, Optional Frame ID Line, Blank Line
+    private static final int HEADER_CAPACITY = HEADER_PREFIX.length + 10 + FRAME_ID_PREFIX.length + 19 + 4;
+
+    private final StreamFramePool mPool;
+    private final byte[] mData;
+    private final byte[] mHeaderBytes = new byte[HEADER_CAPACITY];
+    private byte[] mHeaderPrefix = HEADER_PREFIX;
+    private final ByteBuffer mHeader = ByteBuffer.wrap(mHeaderBytes);
+    private final ByteBuffer mPayload;
+    private final AtomicInteger mRefCount = new AtomicInteger();
+    private int mLength;
+    private long mFrameId = -1;
+    private StreamProfile mProfile = StreamProfile.DEFAULT;
+
+    /**
+     * Wraps the First 'length' Bytes of the Array as a Standalone Frame (The Array is Not Copied)
+     * @param jpeg - Encoded JPEG Bytes
+     * @param length - Number of Valid Bytes in the Array
+     */
+    public StreamFrame(byte[] jpeg, int length)
+    {
+        this(null, jpeg);
+        mRefCount.set(1);
+        setLength(length);
+    }
+
+    /**
+     * Creates an Empty Pooled Frame
+     * @param pool - Pool to Return to When the Last Reference is Released
+     * @param data - Backing Array the Encoder Writes Into
+     */
+    StreamFrame(StreamFramePool pool, byte[] data)
+    {
+        mPool = pool;
+        mData = data;
+        mPayload = ByteBuffer.wrap(mData);
+        System.arraycopy(HEADER_PREFIX, 0, mHeaderBytes, 0, HEADER_PREFIX.length);
+    }
+
+    /**
+     * Backing Array for the Encoder to Fill - Only Valid to Write Before the Frame is Published
+     * @return The Backing Byte Array
+     */
+    public byte[] getData()
+    {
+        return mData;
+    }
+
+    /**
+     * Size of the JPEG Image Itself
+     * @return Number of Payload Bytes
+     */
+    public int getLength()
+    {
+        return mLength;
+    }
+
+    /**
+     * ID of the Camera Frame This Image Came From
+     * @return Frame ID, or -1 if Unknown
+     */
+    public long getFrameId()
+    {
+        return mFrameId;
+    }
+
+    /**
+     * How the Image Was Encoded - Only Viewers With This Profile Are Sent It
+     * @return The Profile
+     */
+    public StreamProfile getProfile()
+    {
+        return mProfile;
+    }
+
+    /**
+     * Records How the Image Was Encoded - Must Be Called Before setLength, Which Writes the Header (and its Content Type)
+     * @param profile - Profile the Image Was Encoded For
+     */
+    public void setProfile(StreamProfile profile)
+    {
+        mProfile = profile;
+        byte[] prefix = profile.isMask() ? MASK_HEADER_PREFIX : HEADER_PREFIX;
+        if (prefix != mHeaderPrefix)
+        {
+            System.arraycopy(prefix, 0, mHeaderBytes, 0, prefix.length);
+            mHeaderPrefix = prefix;
+        }
+    }
+
+    /**
+     * Tags the Image With the Camera Frame it Came From - Must Be Called Before setLength, Which Writes the Header
+     * @param frameId - Frame ID Given at Capture Start, or -1 for None
+     */
+    public void setFrameId(long frameId)
+    {
+        mFrameId = frameId;
+    }
+
+    /**
+     * Records How Many Bytes of the Backing Array Are Valid, and Rewrites the Multipart Header to Match
+     * (No Strings are Built - The Digits are Written Straight Into the Reusable Header Array)
+     * @param length - Number of Valid JPEG Bytes
+     */
+    public void setLength(int length)
+    {
+        if (length < 0 || length > mData.length)
+        {
+            throw new IllegalArgumentException("Frame length " + length + " does not fit in " + mData.length);
+        }
+        mLength = length;
+        mPayload.clear();
+        mPayload.limit(length);
+
+        int pos = writeDigits(mHeaderPrefix.length, length);
+        if (mFrameId >= 0)
+        {
+            System.arraycopy(FRAME_ID_PREFIX, 0, mHeaderBytes, pos, FRAME_ID_PREFIX.length);
+            pos = writeDigits(pos + FRAME_ID_PREFIX.length, mFrameId);
+        }
+        mHeaderBytes[pos++] = '\r';
+        mHeaderBytes[pos++] = '\n';
+        mHeaderBytes[pos++] = '\r';
+        mHeaderBytes[pos++] = '\n';
+        mHeader.clear();
+        mHeader.limit(pos);
+    }
+
+    /**
+     * Writes a Non-Negative Number Into the Header in Decimal
+     * @param pos - Where the First Digit Goes
+     * @param value - Number to Write
+     * @return Position Just After the Last Digit
+     */
+    private int writeDigits(int pos, long value)
+    {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10)
+        {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--, value /= 10)
+        {
+            mHeaderBytes[pos + i] = (byte) ('0' + value % 10);
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Takes Another Reference to the Frame
+     * @return This Frame
+     */
+    public StreamFrame retain()
+    {
+        mRefCount.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Drops a Reference, Returning the Frame to its Pool When No One is Left Using It
+     */
+    public void release()
+    {
+        int remaining = mRefCount.decrementAndGet();
+        if (remaining == 0 && mPool != null)
+        {
+            mPool.recycle(this);
+        }
+        else if (remaining < 0)
+        {
+            throw new IllegalStateException("StreamFrame released too many times");
+        }
+    }
+
+    /**
+     * Resets the Reference Count When Handed Out by the Pool
+     */
+    void onAcquire()
+    {
+        mRefCount.set(1);
+        mLength = 0;
+        mFrameId = -1;
+        setProfile(StreamProfile.DEFAULT);
+    }
+
+    /**
+     * Gives a Client Its Own Cursor Into the Header (Shares the Bytes)
+     * @return Independent View of the Multipart Header
+     */
+    ByteBuffer headerView()
+    {
+        return mHeader.duplicate();
+    }
+
+    /**
+     * Gives a Client Its Own Cursor Into the JPEG Payload (Shares the Bytes)
+     * @return Independent View of the JPEG Payload
+     */
+    ByteBuffer payloadView()
+    {
+        return mPayload.duplicate();
+    }
+}
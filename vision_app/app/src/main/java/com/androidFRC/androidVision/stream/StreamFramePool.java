@@ -0,0 +1,74 @@
+package com.androidFRC.androidVision.stream;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-Size Pool of Reusable StreamFrames, So Streaming Does Not Allocate a New Array Every Frame
+ * Frames Come Back Automatically When Their Last Reference is Released
+ */
+public class StreamFramePool
+{
+    private final int mFrameCapacity;
+    private final int mMaxFrames;
+    private final ConcurrentLinkedQueue<StreamFrame> mFree = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mCreated = new AtomicInteger();
+
+    /**
+     * Creates an Empty Pool - Frames are Allocated Lazily, Up to maxFrames
+     * @param frameCapacity - Size of Each Frame's Backing Array (Worst-Case Encoded Size)
+     * @param maxFrames - Most Frames That May Be In Flight at Once
+     */
+    public StreamFramePool(int frameCapacity, int maxFrames)
+    {
+        mFrameCapacity = frameCapacity;
+        mMaxFrames = maxFrames;
+    }
+
+    /**
+     * Takes a Frame Out of the Pool, With One Reference Owned by the Caller
+     * @return An Empty Frame, or null if Every Frame is Still in Use
+     */
+    public StreamFrame acquire()
+    {
+        StreamFrame frame = mFree.poll();
+        if (frame == null)
+        {
+            if (mCreated.incrementAndGet() > mMaxFrames)
+            {
+                mCreated.decrementAndGet();
+                return null;
+            }
+            frame = new StreamFrame(this, new byte[mFrameCapacity]);
+        }
+        frame.onAcquire();
+        return frame;
+    }
+
+    /**
+     * Puts a Frame Back - Called by StreamFrame When its Reference Count Hits Zero
+     * @param frame - Frame No Longer Referenced by Anyone
+     */
+    void recycle(StreamFrame frame)
+    {
+        mFree.offer(frame);
+    }
+
+    /**
+     * Number of Frames Allocated So Far (In Use or Free)
+     * @return Allocated Frame Count
+     */
+    public int getAllocatedCount()
+    {
+        return mCreated.get();
+    }
+
+    /**
+     * Number of Frames Sitting Unused in the Pool
+     * @return Free Frame Count
+     */
+    public int getFreeCount()
+    {
+        return mFree.size();
+    }
+}
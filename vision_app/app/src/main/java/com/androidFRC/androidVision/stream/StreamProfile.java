@@ -0,0 +1,94 @@
+package com.androidFRC.androidVision.stream;
+
+import java.util.Locale;
+
+/**
+ * How a Viewer Wants its Images Encoded - Every Viewer With the Same Profile Shares the Same Encoded Frames,
+ * so the Encoder Only Works Once per Distinct Profile, However Many Viewers There Are
+ * A Mask Profile is the Threshold Mask Itself as a 1-Bit PNG (Sharp Edges, a Fraction of the Bytes) - Quality Does Not Apply
+ */
+public final class StreamProfile
+{
+    //OpenCV's Own Default Quality - What Every Viewer Got Before Profiles Existed
+    public static final int DEFAULT_QUALITY = 95;
+    public static final double MIN_SCALE = 0.1;
+    public static final StreamProfile DEFAULT = new StreamProfile(1.0, DEFAULT_QUALITY);
+
+    private final double mScale;
+    private final int mQuality;
+    private final boolean mMask;
+
+    /**
+     * Creates a JPEG Profile (Values Are Clamped to What the Encoder Accepts)
+     * @param scale - Image Size Relative to the Camera Frame, MIN_SCALE to 1
+     * @param quality - JPEG Quality, 1 to 100
+     */
+    public StreamProfile(double scale, int quality)
+    {
+        this(scale, quality, false);
+    }
+
+    private StreamProfile(double scale, int quality, boolean mask)
+    {
+        //Rounded to Hundredths so Near-Identical Requests Still Share a Profile
+        mScale = Math.round(Math.max(MIN_SCALE, Math.min(1.0, scale)) * 100) / 100.0;
+        mQuality = Math.max(1, Math.min(100, quality));
+        mMask = mask;
+    }
+
+    /**
+     * Creates a Threshold Mask Profile
+     * @param scale - Image Size Relative to the Camera Frame, MIN_SCALE to 1
+     * @return The Profile
+     */
+    public static StreamProfile mask(double scale)
+    {
+        return new StreamProfile(scale, 100, true);
+    }
+
+    public double getScale()
+    {
+        return mScale;
+    }
+
+    public int getQuality()
+    {
+        return mQuality;
+    }
+
+    /**
+     * Whether This Profile Streams the Threshold Mask (PNG) Rather Than the Displayed Image (JPEG)
+     * @return If This is a Mask Profile
+     */
+    public boolean isMask()
+    {
+        return mMask;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof StreamProfile))
+        {
+            return false;
+        }
+        StreamProfile other = (StreamProfile) o;
+        return mScale == other.mScale && mQuality == other.mQuality && mMask == other.mMask;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (Double.valueOf(mScale).hashCode() * 31 + mQuality) * 2 + (mMask ? 1 : 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (mMask)
+        {
+            return String.format(Locale.US, "mask?scale=%.2f", mScale);
+        }
+        return String.format(Locale.US, "scale=%.2f&quality=%d", mScale, mQuality);
+    }
+}
@@ -0,0 +1,210 @@
+package com.androidFRC.androidVision.stream;
+
+/**
+ * What a Client Asked For in its Request Line, e.g. "GET /stream.mjpg?scale=0.5&quality=40&fps=15 HTTP/1.1"
+ * Paths (See Route):
+ *   / or /stream.mjpg - The Displayed Image as an MJPEG Stream
+ *   /mask or /mask.mjpg - The Threshold Mask as a Stream of 1-Bit PNGs
+ *   /snapshot.jpg - One JPEG, the Newest Already Encoded if There is a Recent One
+ *   /targets.json - The Targets Last Sent to the Robot
+ * Query Parameters Understood:
+ *   fps - Most Frames per Second the Viewer Wants (Anything Not Above 0 Means Every Frame)
+ *   scale - Image Size Relative to the Camera Frame (StreamProfile.MIN_SCALE to 1, Default 1)
+ *   quality - JPEG Quality, 1 to 100 (Default StreamProfile.DEFAULT_QUALITY)
+ * Unknown Parameters and Unparsable Values Are Ignored, so Any Old Viewer URL Still Works
+ */
+public class StreamRequest
+{
+    //Longest Request or Header Line Looked At - Anything Past This is Ignored
+    static final int MAX_LINE_LENGTH = 512;
+
+    public enum Route
+    {
+        STREAM,
+        MASK,
+        SNAPSHOT,
+        TARGETS,
+        NOT_FOUND
+    }
+
+    private Route mRoute = Route.STREAM;
+    private boolean mKeepAlive;
+    private double mMaxFps;
+    private double mScale = 1.0;
+    private int mQuality = StreamProfile.DEFAULT_QUALITY;
+    private StreamProfile mProfile = StreamProfile.DEFAULT;
+
+    /**
+     * What the Path Asked For
+     * @return The Route
+     */
+    public Route getRoute()
+    {
+        return mRoute;
+    }
+
+    /**
+     * Whether the Connection Should Stay Open for Another Request Once This One is Answered
+     * (HTTP/1.1 Unless "Connection: close", HTTP/1.0 Only With "Connection: keep-alive"; Streams Never End Anyway)
+     * @return If the Connection is Kept Alive
+     */
+    public boolean isKeepAlive()
+    {
+        return mKeepAlive;
+    }
+
+    /**
+     * Most Frames per Second the Viewer Wants
+     * @return Frames per Second, or 0 for Every Frame
+     */
+    public double getMaxFps()
+    {
+        return mMaxFps;
+    }
+
+    /**
+     * Whether the Viewer Asked for the Threshold Mask
+     * @return If This is a Mask Request
+     */
+    public boolean isMask()
+    {
+        return mRoute == Route.MASK;
+    }
+
+    /**
+     * Scale and Quality Asked For - Viewers Asking the Same Share Encoded Frames
+     * @return The Profile
+     */
+    public StreamProfile getProfile()
+    {
+        return mProfile;
+    }
+
+    /**
+     * Minimum Time Between the Starts of Two Frames Sent to This Viewer
+     * @return Nanoseconds, 0 for No Limit
+     */
+    public long getMinIntervalNanos()
+    {
+        return mMaxFps > 0 ? (long) (1e9 / mMaxFps) : 0;
+    }
+
+    /**
+     * Reads the Path, Version and Query String of a Request Line (Everything Else is Left at its Default)
+     * @param line - First Line of the Request, Without the Line Break
+     * @return The Request
+     */
+    public static StreamRequest parse(CharSequence line)
+    {
+        StreamRequest request = new StreamRequest();
+        String text = line.toString();
+        int pathStart = text.indexOf(' ') + 1;
+        if (pathStart == 0)
+        {
+            return request;
+        }
+        int pathEnd = text.indexOf(' ', pathStart);
+        if (pathEnd < 0)
+        {
+            pathEnd = text.length();
+        }
+        request.mKeepAlive = text.startsWith("HTTP/1.1", pathEnd + 1);
+        int query = text.indexOf('?', pathStart);
+        if (query < 0 || query > pathEnd)
+        {
+            query = pathEnd;
+        }
+        request.mRoute = route(text.substring(pathStart, query));
+        if (query < pathEnd)
+        {
+            for (String param : text.substring(query + 1, pathEnd).split("&"))
+            {
+                int eq = param.indexOf('=');
+                if (eq <= 0)
+                {
+                    continue;
+                }
+                request.set(param.substring(0, eq), param.substring(eq + 1));
+            }
+        }
+        if (request.mRoute == Route.MASK)
+        {
+            request.mProfile = StreamProfile.mask(request.mScale);
+        }
+        else if (request.mScale != 1.0 || request.mQuality != StreamProfile.DEFAULT_QUALITY)
+        {
+            request.mProfile = new StreamProfile(request.mScale, request.mQuality);
+        }
+        return request;
+    }
+
+    private static Route route(String path)
+    {
+        switch (path)
+        {
+            case "/":
+            case "/stream.mjpg":
+                return Route.STREAM;
+            case "/mask":
+            case "/mask.mjpg":
+                return Route.MASK;
+            case "/snapshot.jpg":
+                return Route.SNAPSHOT;
+            case "/targets.json":
+                return Route.TARGETS;
+            default:
+                return Route.NOT_FOUND;
+        }
+    }
+
+    /**
+     * Reads One Header Line of the Request - Only Connection is Looked At
+     * @param line - Header Line, Without the Line Break
+     */
+    void header(CharSequence line)
+    {
+        String text = line.toString();
+        int colon = text.indexOf(':');
+        if (colon < 0 || !text.substring(0, colon).trim().equalsIgnoreCase("Connection"))
+        {
+            return;
+        }
+        String value = text.substring(colon + 1).trim();
+        if (value.equalsIgnoreCase("close"))
+        {
+            mKeepAlive = false;
+        }
+        else if (value.equalsIgnoreCase("keep-alive"))
+        {
+            mKeepAlive = true;
+        }
+    }
+
+    private void set(String name, String value)
+    {
+        try
+        {
+            if (name.equals("fps"))
+            {
+                double fps = Double.parseDouble(value);
+                mMaxFps = fps > 0 && !Double.isInfinite(fps) ? fps : 0;
+            }
+            else if (name.equals("scale"))
+            {
+                double scale = Double.parseDouble(value);
+                if (scale > 0)
+                {
+                    mScale = scale;
+                }
+            }
+            else if (name.equals("quality"))
+            {
+                mQuality = Integer.parseInt(value);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            //Keep the Default
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * A Growable Struct-of-Arrays of Contour Candidates (Plain Java, No Android Dependencies)
+ * Filled In Place by the C++ Code Every Frame, and by the TargetPipeline Stages in Java
+ * Candidate i Spans 'count' Entries of Each Column; its Contour is pointCount[i] (x, y) Pairs in 'points',
+ * Starting at Pair pointOffset[i]
+ * Fields referenced from native code, DO NOT CHANGE ANY NAMING!!!!
+ */
+public class CandidateList
+{
+    //Default Number of Candidates a List Starts With Room For
+    public static final int DEFAULT_CAPACITY = 8;
+
+    public int count;
+    public double[] centroidX;
+    public double[] centroidY;
+    public double[] width;
+    public double[] height;
+    //Area of the Original (Not Convex) Contour, in Pixels
+    public double[] area;
+
+    public int numPoints;
+    public int[] pointOffset;
+    public int[] pointCount;
+    public int[] points;
+
+    /**
+     * Constructor For CandidateList, Sets Up Room For the Default Number of Candidates
+     */
+    public CandidateList()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor For CandidateList
+     * @param capacity - Number of Candidates That Fit Before Growing
+     */
+    public CandidateList(int capacity)
+    {
+        capacity = Math.max(1, capacity);
+        centroidX = new double[capacity];
+        centroidY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        area = new double[capacity];
+        pointOffset = new int[capacity];
+        pointCount = new int[capacity];
+        points = new int[capacity * 16];
+    }
+
+    /**
+     * Makes Sure 'candidates' Candidates and 'totalPoints' Contour Points Fit (Called From C++ Before Filling)
+     * Grows by Doubling, so After the First Few Busy Frames This Never Allocates Again
+     * Existing Entries Are Kept
+     * @param candidates - Number of Candidates About to Be Held
+     * @param totalPoints - Total Contour Points Across Those Candidates
+     */
+    public void ensureCapacity(int candidates, int totalPoints)
+    {
+        if (centroidX.length < candidates)
+        {
+            int capacity = Math.max(candidates, centroidX.length * 2);
+            centroidX = grow(centroidX, capacity);
+            centroidY = grow(centroidY, capacity);
+            width = grow(width, capacity);
+            height = grow(height, capacity);
+            area = grow(area, capacity);
+            pointOffset = grow(pointOffset, capacity);
+            pointCount = grow(pointCount, capacity);
+        }
+        if (points.length < totalPoints * 2)
+        {
+            points = grow(points, Math.max(totalPoints * 2, points.length * 2));
+        }
+    }
+
+    /**
+     * Empties the List (Keeps the Arrays)
+     */
+    public void clear()
+    {
+        count = 0;
+        numPoints = 0;
+    }
+
+    /**
+     * Appends a Candidate Without Contour Points
+     * @return Index of the New Candidate
+     */
+    public int add(double centroidX, double centroidY, double width, double height, double area)
+    {
+        ensureCapacity(count + 1, numPoints);
+        int i = count++;
+        this.centroidX[i] = centroidX;
+        this.centroidY[i] = centroidY;
+        this.width[i] = width;
+        this.height[i] = height;
+        this.area[i] = area;
+        pointOffset[i] = numPoints;
+        pointCount[i] = 0;
+        return i;
+    }
+
+    /**
+     * Appends a Copy of Another List's Candidate (Including its Contour Points)
+     * @param src - List to Copy From
+     * @param index - Candidate in 'src'
+     * @return Index of the New Candidate
+     */
+    public int add(CandidateList src, int index)
+    {
+        int n = src.pointCount[index];
+        ensureCapacity(count + 1, numPoints + n);
+        int i = add(src.centroidX[index], src.centroidY[index], src.width[index], src.height[index], src.area[index]);
+        System.arraycopy(src.points, src.pointOffset[index] * 2, points, numPoints * 2, n * 2);
+        pointCount[i] = n;
+        numPoints += n;
+        return i;
+    }
+
+    /**
+     * Replaces This List's Contents With a Copy of Another's (Only Allocates if 'src' Does Not Fit)
+     * @param src - List to Copy
+     */
+    public void set(CandidateList src)
+    {
+        clear();
+        for (int i = 0; i < src.count; i++)
+        {
+            add(src, i);
+        }
+    }
+
+    /**
+     * Appends Contour Points to the Most Recently Added Candidate
+     * @param xy - Points as x, y Pairs
+     * @param pairs - Number of Points to Take From 'xy'
+     */
+    public void addPoints(int[] xy, int pairs)
+    {
+        ensureCapacity(count, numPoints + pairs);
+        System.arraycopy(xy, 0, points, numPoints * 2, pairs * 2);
+        pointCount[count - 1] += pairs;
+        numPoints += pairs;
+    }
+
+    private static double[] grow(double[] array, int length)
+    {
+        double[] grown = new double[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int length)
+    {
+        int[] grown = new int[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
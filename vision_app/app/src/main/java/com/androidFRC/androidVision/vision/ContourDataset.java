@@ -0,0 +1,112 @@
+package com.androidFRC.androidVision.vision;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded Contour Candidates, One Frame After Another, for Running the TargetPipeline Off the Phone
+ *
+ * Text Format (One Candidate per Line, Frames in Order, '#' Starts a Comment):
+ *   frame,centroidX,centroidY,width,height,area
+ * A Frame With No Candidates is Written as Just "frame" So it Still Counts
+ * Contour Points Are Not Recorded - None of the Filters Look at Them
+ */
+public class ContourDataset
+{
+    private final List<CandidateList> mFrames = new ArrayList<>();
+
+    /**
+     * Parses a Dataset
+     * @param in - Dataset Text
+     * @return The Parsed Dataset
+     * @throws IOException - If Reading Fails or a Line is Malformed
+     */
+    public static ContourDataset read(Reader in) throws IOException
+    {
+        ContourDataset dataset = new ContourDataset();
+        BufferedReader reader = new BufferedReader(in);
+        long lastFrame = Long.MIN_VALUE;
+        CandidateList frame = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+            {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty())
+            {
+                continue;
+            }
+
+            String[] parts = line.split(",");
+            try
+            {
+                long frameId = Long.parseLong(parts[0].trim());
+                if (frame == null || frameId != lastFrame)
+                {
+                    frame = new CandidateList();
+                    dataset.mFrames.add(frame);
+                    lastFrame = frameId;
+                }
+                if (parts.length == 1)
+                {
+                    continue;
+                }
+                if (parts.length != 6)
+                {
+                    throw new IOException("Line " + lineNumber + ": expected 6 fields, got " + parts.length);
+                }
+                frame.add(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]),
+                        Double.parseDouble(parts[4]), Double.parseDouble(parts[5]));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return dataset;
+    }
+
+    /**
+     * Appends One Frame in the Dataset Format (e.g. to Record Candidates From the Phone)
+     * @param out - Destination
+     * @param frameId - Frame Number
+     * @param candidates - Every Candidate of the Frame
+     * @throws IOException - If Writing Fails
+     */
+    public static void writeFrame(Appendable out, long frameId, CandidateList candidates) throws IOException
+    {
+        if (candidates.count == 0)
+        {
+            out.append(Long.toString(frameId)).append('\n');
+            return;
+        }
+        for (int i = 0; i < candidates.count; i++)
+        {
+            out.append(Long.toString(frameId)).append(',')
+                    .append(Double.toString(candidates.centroidX[i])).append(',')
+                    .append(Double.toString(candidates.centroidY[i])).append(',')
+                    .append(Double.toString(candidates.width[i])).append(',')
+                    .append(Double.toString(candidates.height[i])).append(',')
+                    .append(Double.toString(candidates.area[i])).append('\n');
+        }
+    }
+
+    public int getFrameCount()
+    {
+        return mFrames.size();
+    }
+
+    public CandidateList getFrame(int index)
+    {
+        return mFrames.get(index);
+    }
+}
@@ -0,0 +1,139 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java Copy of the Color, Threshold and Contour Stages of processImpl (image_processor.cpp), Step for Step
+ * Lets Recorded Frames Go Through the Same Work Without a Phone or OpenGL - Keep the Two in Sync
+ * Not Thread-Safe - Every Working Mat is Reused Between Calls
+ */
+public class ContourExtractor
+{
+    private final Mat mRgb = new Mat();
+    private final Mat mContourInput = new Mat();
+    private final Mat mHierarchy = new Mat();
+    private final List<MatOfPoint> mContours = new ArrayList<>();
+    private final MatOfInt mHull = new MatOfInt();
+    private final MatOfPoint mConvex = new MatOfPoint();
+    private final Scalar mLower = new Scalar(0, 0, 0);
+    private final Scalar mUpper = new Scalar(0, 0, 0);
+    private final HsvThresholdLut mLut = new HsvThresholdLut();
+
+    //Scratch Arrays for Pulling Points Out of OpenCV (Grown as Needed)
+    private int[] mContourXY = new int[256];
+    private int[] mHullIndices = new int[128];
+    private int[] mConvexXY = new int[256];
+
+    /**
+     * RGBA to HSV, the Same Two Conversions the C++ Code Does
+     * @param rgba - Input Image (CV_8UC4)
+     * @param hsv - Output Image (CV_8UC3)
+     */
+    public void toHsv(Mat rgba, Mat hsv)
+    {
+        Imgproc.cvtColor(rgba, mRgb, Imgproc.COLOR_RGBA2RGB);
+        Imgproc.cvtColor(mRgb, hsv, Imgproc.COLOR_RGB2HSV);
+    }
+
+    /**
+     * Binary Image of the Pixels Inside the HSV Range (White In Range, Else Black)
+     * @param hsv - HSV Image From toHsv
+     * @param thresh - Output Mask (CV_8UC1)
+     */
+    public void threshold(Mat hsv, int hMin, int hMax, int sMin, int sMax, int vMin, int vMax, Mat thresh)
+    {
+        mLower.val[0] = hMin;
+        mLower.val[1] = sMin;
+        mLower.val[2] = vMin;
+        mUpper.val[0] = hMax;
+        mUpper.val[1] = sMax;
+        mUpper.val[2] = vMax;
+        Core.inRange(hsv, mLower, mUpper, thresh);
+    }
+
+    /**
+     * Sets the HSV Range for thresholdRgba, Rebuilding its Lookup Table if the Range Changed (Slow - See HsvThresholdLut)
+     * @return Whether the Table Was Rebuilt
+     */
+    public boolean setThresholdRanges(int hMin, int hMax, int sMin, int sMax, int vMin, int vMax)
+    {
+        return mLut.update(hMin, hMax, sMin, sMax, vMin, vMax);
+    }
+
+    /**
+     * Binary Image of the Pixels Inside the HSV Range, Straight From RGBA in One Pass (What the C++ Code Does Now)
+     * Same Output as toHsv Then threshold, Bit for Bit
+     * @param rgba - Input Image (CV_8UC4)
+     * @param thresh - Output Mask (CV_8UC1)
+     */
+    public void thresholdRgba(Mat rgba, Mat thresh)
+    {
+        mLut.apply(rgba, thresh);
+    }
+
+    /**
+     * Finds Every Convex Contour of a Mask and Reports it as a Candidate (Same Fields as the C++ Code)
+     * @param thresh - Mask From threshold (Not Modified)
+     * @param out - List to Fill (Cleared First)
+     */
+    public void findCandidates(Mat thresh, CandidateList out)
+    {
+        out.clear();
+        thresh.copyTo(mContourInput);
+        Imgproc.findContours(mContourInput, mContours, mHierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_TC89_KCOS);
+
+        for (int c = 0; c < mContours.size(); c++)
+        {
+            MatOfPoint contour = mContours.get(c);
+            int numPoints = (int) contour.total();
+            if (mContourXY.length < numPoints * 2)
+            {
+                mContourXY = new int[numPoints * 4];
+            }
+            contour.get(0, 0, mContourXY);
+
+            //Convex Hull Comes Back as Indices Into the Contour - Turn Them Back Into Points
+            Imgproc.convexHull(contour, mHull, false);
+            int hullSize = (int) mHull.total();
+            if (mHullIndices.length < hullSize)
+            {
+                mHullIndices = new int[hullSize * 2];
+                mConvexXY = new int[hullSize * 4];
+            }
+            mHull.get(0, 0, mHullIndices);
+            for (int i = 0; i < hullSize; i++)
+            {
+                mConvexXY[i * 2] = mContourXY[mHullIndices[i] * 2];
+                mConvexXY[i * 2 + 1] = mContourXY[mHullIndices[i] * 2 + 1];
+            }
+            mConvex.create(hullSize, 1, CvType.CV_32SC2);
+            mConvex.put(0, 0, mConvexXY);
+
+            if (hullSize > 0 && Imgproc.isContourConvex(mConvex))
+            {
+                Rect bounds = Imgproc.boundingRect(mConvex);
+                //Integer Division and Bottom-Edge centroidY on Purpose - Matches the C++ Code
+                out.add(bounds.x + (bounds.width / 2), bounds.y + bounds.height, bounds.width, bounds.height,
+                        Imgproc.contourArea(contour));
+                out.addPoints(mConvexXY, hullSize);
+            }
+        }
+
+        //Contours Hold Native Memory - Free it Now Instead of Waiting for the Garbage Collector
+        for (int c = 0; c < mContours.size(); c++)
+        {
+            mContours.get(c).release();
+        }
+        mContours.clear();
+    }
+}
@@ -0,0 +1,22 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * One Step of the TargetPipeline - Decides Whether a Single Contour Candidate Survives
+ * Stages Are Run in Order, and a Candidate is Rejected by the First Stage That Says No
+ */
+public interface FilterStage
+{
+    /**
+     * Short Name Used in Stats and Logs
+     * @return Stage Name
+     */
+    String getName();
+
+    /**
+     * Checks One Candidate (Must Not Allocate - This Runs for Every Contour of Every Frame)
+     * @param candidates - Every Candidate of the Frame
+     * @param i - Candidate to Check
+     * @return Whether the Candidate Passes This Stage
+     */
+    boolean accept(CandidateList candidates, int i);
+}
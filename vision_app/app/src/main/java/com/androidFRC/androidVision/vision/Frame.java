@@ -0,0 +1,19 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Mat;
+
+/**
+ * One Image From a FrameSource - Reused From Frame to Frame, so Hold On to Nothing After the Next Call
+ */
+public class Frame
+{
+    //RGBA Pixels, Same Layout the C++ Code Reads Back From OpenGL
+    public final Mat rgba = new Mat();
+    //The Camera's YUV Planes, When the Recording Has Them (rgba is Then Converted From These - See YuvThresholdLut.toRgba)
+    public final YuvPlanes yuv = new YuvPlanes();
+    public boolean hasYuv;
+    //When the Image Was Originally Captured (System.nanoTime Domain of the Recording Device)
+    public long timestampNanos;
+    //Position in the Source, Starting at 0
+    public long index;
+}
@@ -0,0 +1,19 @@
+package com.androidFRC.androidVision.vision;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Anything That Hands Out Camera Frames One After Another (A Recording, a Test Pattern, ...)
+ * The Live Camera Stays on the OpenGL Texture Path (See VisionTrackerGLSurfaceView), Which Never Leaves the GPU Until C++ Reads It
+ */
+public interface FrameSource extends Closeable
+{
+    /**
+     * Loads the Next Frame, Blocking if the Source is Paced
+     * @param into - Frame to Fill (Its Mat is Reused)
+     * @return false Once There Are No More Frames
+     * @throws IOException - If the Frame Could Not Be Read
+     */
+    boolean next(Frame into) throws IOException;
+}
@@ -0,0 +1,29 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Rejects Candidates by How Much of Their Bounding Box the Contour Actually Fills
+ */
+public class FullnessFilter implements FilterStage
+{
+    private final double mMinFullness;
+    private final double mMaxFullness;
+
+    public FullnessFilter(double minFullness, double maxFullness)
+    {
+        mMinFullness = minFullness;
+        mMaxFullness = maxFullness;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "fullness";
+    }
+
+    @Override
+    public boolean accept(CandidateList candidates, int i)
+    {
+        double fullness = candidates.area[i] / (candidates.width[i] * candidates.height[i]);
+        return fullness >= mMinFullness && fullness <= mMaxFullness;
+    }
+}
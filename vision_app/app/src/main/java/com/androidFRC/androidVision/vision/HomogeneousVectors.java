@@ -0,0 +1,39 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Pixel to Homogeneous Vector Math for Targets (x = 1, so Only y and z Are Kept)
+ * "Convert to a homogeneous 3d vector with x = 1
+ * This is a seemingly strange operation, but it actually allows for some pretty neat vision operations
+ * Basically, it is treated like a vector (only y and z, since x is distance (scale) in their model)
+ * So, distance can be calculated easily taking into account Robot Pitch and Yaw
+ * @see "https://stackoverflow.com/questions/29199480/what-is-the-use-of-homogeneous-vectors-in-computer-vision"
+ * @see "https://prateekvjoshi.com/2014/06/13/the-concept-of-homogeneous-coordinates/"
+ */
+public final class HomogeneousVectors
+{
+    /**
+     * 'Y' of the Vector - Positive to the Left of the Image Center
+     * @param centroidX - Target Column in Pixels
+     * @param centerCol - Column of the Optical Center
+     * @param focalLengthPixels - Focal Length of the Camera, in Pixels
+     * @return Horizontal Component of the Vector
+     */
+    public static double y(double centroidX, double centerCol, double focalLengthPixels)
+    {
+        return -(centroidX - centerCol) / focalLengthPixels;
+    }
+
+    /**
+     * 'Z' of the Vector - Positive Below the Image Center
+     * @param centroidY - Target Row in Pixels
+     * @param centerRow - Row of the Optical Center
+     * @param focalLengthPixels - Focal Length of the Camera, in Pixels
+     * @return Vertical Component of the Vector
+     */
+    public static double z(double centroidY, double centerRow, double focalLengthPixels)
+    {
+        return (centroidY - centerRow) / focalLengthPixels;
+    }
+
+    private HomogeneousVectors() {}
+}
@@ -0,0 +1,134 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * HSV Threshold Straight From RGBA in One Pass - Java Copy of HsvThresholdLut (hsv_threshold_lut.cpp), Keep the Two in Sync
+ * Every 24-Bit RGB Color Gets One Pass/Fail Bit (2 MB), Worked Out by Running OpenCV's Own RGB2HSV and inRange Over Every
+ * Color - So the Mask Matches cvtColor + cvtColor + inRange Bit for Bit. The Table is Only Rebuilt When the Ranges Change
+ * Not Thread-Safe
+ */
+public class HsvThresholdLut
+{
+    //Colors Are Built 256 x 256 at a Time (One Red Value per Chunk) to Keep the Working Mats Small
+    private static final int CHUNK = 256 * 256;
+
+    private final byte[] mBits = new byte[(1 << 24) / 8];
+    private final int[] mRanges = new int[6];
+    private boolean mBuilt = false;
+
+    //Scratch for the Mat Versions of apply (Grown as Needed)
+    private byte[] mRgba = new byte[0];
+    private byte[] mMask = new byte[0];
+
+    /**
+     * Rebuilds the Table if the Ranges Differ From the Last Build (Takes a While - Every Color is Converted)
+     * @return Whether the Table Was Rebuilt
+     */
+    public boolean update(int hMin, int hMax, int sMin, int sMax, int vMin, int vMax)
+    {
+        if (mBuilt && mRanges[0] == hMin && mRanges[1] == hMax && mRanges[2] == sMin
+                && mRanges[3] == sMax && mRanges[4] == vMin && mRanges[5] == vMax)
+        {
+            return false;
+        }
+
+        Mat rgb = new Mat(256, 256, CvType.CV_8UC3);
+        Mat hsv = new Mat();
+        Mat pass = new Mat();
+        byte[] colors = new byte[CHUNK * 3];
+        byte[] passBytes = new byte[CHUNK];
+        Scalar lower = new Scalar(hMin, sMin, vMin);
+        Scalar upper = new Scalar(hMax, sMax, vMax);
+        for (int i = 0; i < CHUNK; i++)
+        {
+            colors[i * 3 + 1] = (byte) (i >> 8);
+            colors[i * 3 + 2] = (byte) i;
+        }
+        try
+        {
+            for (int r = 0; r < 256; r++)
+            {
+                for (int i = 0; i < CHUNK; i++)
+                {
+                    colors[i * 3] = (byte) r;
+                }
+                rgb.put(0, 0, colors);
+                Imgproc.cvtColor(rgb, hsv, Imgproc.COLOR_RGB2HSV);
+                Core.inRange(hsv, lower, upper, pass);
+                pass.get(0, 0, passBytes);
+
+                //Chunk Index is (g << 8) | b, so Each Red Value Fills 8 KB of the Table in Order
+                int base = r * (CHUNK / 8);
+                for (int i = 0; i < CHUNK; i += 8)
+                {
+                    int packed = 0;
+                    for (int bit = 0; bit < 8; bit++)
+                    {
+                        packed |= (passBytes[i + bit] & 1) << bit;
+                    }
+                    mBits[base + (i >> 3)] = (byte) packed;
+                }
+            }
+        }
+        finally
+        {
+            rgb.release();
+            hsv.release();
+            pass.release();
+        }
+
+        mRanges[0] = hMin;
+        mRanges[1] = hMax;
+        mRanges[2] = sMin;
+        mRanges[3] = sMax;
+        mRanges[4] = vMin;
+        mRanges[5] = vMax;
+        mBuilt = true;
+        return true;
+    }
+
+    /**
+     * Thresholds Packed RGBA Pixels (Alpha is Ignored, Like RGBA2RGB)
+     * @param rgba - 4 Bytes per Pixel
+     * @param pixels - Number of Pixels
+     * @param mask - Receives 255 for Pixels in Range, Else 0 (At Least 'pixels' Long)
+     */
+    public void apply(byte[] rgba, int pixels, byte[] mask)
+    {
+        if (!mBuilt)
+        {
+            throw new IllegalStateException("update() has not been called");
+        }
+        byte[] bits = mBits;
+        for (int i = 0, p = 0; i < pixels; i++, p += 4)
+        {
+            int color = (rgba[p] & 0xFF) << 16 | (rgba[p + 1] & 0xFF) << 8 | (rgba[p + 2] & 0xFF);
+            mask[i] = (byte) -((bits[color >>> 3] >> (color & 7)) & 1);
+        }
+    }
+
+    /**
+     * Thresholds an RGBA Mat Into a Mask Mat - Same Output as ContourExtractor.toHsv Then threshold
+     * @param rgba - Input Image (CV_8UC4, Continuous)
+     * @param mask - Output Mask (CV_8UC1)
+     */
+    public void apply(Mat rgba, Mat mask)
+    {
+        int pixels = (int) rgba.total();
+        if (mRgba.length < pixels * 4)
+        {
+            mRgba = new byte[pixels * 4];
+            mMask = new byte[pixels];
+        }
+        rgba.get(0, 0, mRgba);
+        apply(mRgba, pixels, mMask);
+        mask.create(rgba.rows(), rgba.cols(), CvType.CV_8UC1);
+        //put Stops at the End of the Mat, so the Scratch Array Can Be Longer Than the Image
+        mask.put(0, 0, mMask);
+    }
+}
@@ -0,0 +1,14 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Last Step of the TargetPipeline - Picks the Final Targets Out of the Candidates That Passed Every Filter
+ */
+public interface PairSelector
+{
+    /**
+     * Appends the Chosen Targets (Must Not Allocate Once the Output Has Grown)
+     * @param accepted - Candidates That Passed Every FilterStage
+     * @param targets - Empty List to Append the Chosen Targets To
+     */
+    void select(CandidateList accepted, CandidateList targets);
+}
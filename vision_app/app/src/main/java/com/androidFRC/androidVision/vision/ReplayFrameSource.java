@@ -0,0 +1,309 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays Back Recorded Frames, Either at the Pace They Were Captured or As Fast As Possible
+ *
+ * Two Recording Layouts Are Understood:
+ *   A Directory of Images - PNG/JPEG (Anything imread Takes), Raw RGBA (.rgba) or Raw Camera YUV (.nv21, .i420),
+ *   With an Optional 'frames.txt' Index:
+ *     file timestampNanos [width height]     (One Frame per Line, width/height Are Required for Raw Files)
+ *   YUV Frames Fill Frame.yuv, and Frame.rgba With the Same Conversion the YUV Threshold Assumes
+ *   Without an Index, Every Image in the Directory is Played in Name Order, FALLBACK_FRAME_NANOS Apart
+ *   A Single Container File - Frames Back to Back, Each Written by writeRawFrame:
+ *     int width, int height, long timestampNanos, width * height * 4 RGBA Bytes   (Big-Endian)
+ *
+ * Row Order: Every Frame is Handed Out in glReadPixels Order (Bottom Row First), What the Phone's Pipeline Sees -
+ * centroidY, the Target Vectors' z and the Stacked Pair Choice All Depend on It
+ *   Raw RGBA (.rgba and Containers) is a Readback Dump, Already Bottom Row First, so it is Used As Is
+ *   PNG/JPEG is Upright (Top Row First) - Saved From /snapshot.jpg or /stream.mjpg, Which Are Flipped Upright for
+ *   Viewing - so it is Flipped Back on Load
+ *   Raw YUV (.nv21/.i420) is the Camera's Own Order (Top Row First) and is Left That Way - YuvThresholdLut Flips
+ *   the Mask and rgba as it Builds Them, Like the Phone Does
+ */
+public class ReplayFrameSource implements FrameSource
+{
+    public enum Pace
+    {
+        //Sleep Between Frames so They Arrive as Far Apart as When They Were Captured
+        REAL_TIME,
+        //Hand Out Frames as Soon as They Are Asked For
+        AS_FAST_AS_POSSIBLE
+    }
+
+    public static final String INDEX_FILE = "frames.txt";
+    public static final String RAW_EXTENSION = ".rgba";
+    public static final String NV21_EXTENSION = ".nv21";
+    public static final String I420_EXTENSION = ".i420";
+    public static final long FALLBACK_FRAME_NANOS = 33333333L;
+
+    private final Pace mPace;
+
+    //Directory Playback
+    private final List<File> mFiles = new ArrayList<>();
+    private final List<long[]> mFrameInfo = new ArrayList<>();
+
+    //Container Playback
+    private DataInputStream mContainer;
+
+    private byte[] mRawBytes = new byte[0];
+    //Frame.yuv Wraps This Array, so Like the Rest of the Frame it is Only Valid Until the Next Call
+    private byte[] mYuvBytes = new byte[0];
+    private long mNextIndex;
+    private long mFirstTimestamp;
+    private long mReplayStartNanos;
+
+    /**
+     * Opens a Recording
+     * @param recording - Directory of Images, or a Container File
+     * @param pace - How Fast to Hand Out Frames
+     * @throws IOException - If the Recording Cannot Be Read
+     */
+    public ReplayFrameSource(File recording, Pace pace) throws IOException
+    {
+        mPace = pace;
+        if (recording.isDirectory())
+        {
+            openDirectory(recording);
+        }
+        else
+        {
+            mContainer = new DataInputStream(new BufferedInputStream(new FileInputStream(recording), 1 << 16));
+        }
+    }
+
+    /**
+     * Number of Frames, if Known Up Front
+     * @return Frame Count, or -1 for a Container File
+     */
+    public int getFrameCount()
+    {
+        return mContainer == null ? mFiles.size() : -1;
+    }
+
+    @Override
+    public boolean next(Frame into) throws IOException
+    {
+        long timestamp;
+        if (mContainer != null)
+        {
+            int width;
+            try
+            {
+                width = mContainer.readInt();
+            }
+            catch (EOFException e)
+            {
+                return false;
+            }
+            int height = mContainer.readInt();
+            timestamp = mContainer.readLong();
+            readRaw(mContainer, width, height, into.rgba);
+            into.hasYuv = false;
+        }
+        else
+        {
+            if (mNextIndex >= mFiles.size())
+            {
+                return false;
+            }
+            File file = mFiles.get((int) mNextIndex);
+            long[] info = mFrameInfo.get((int) mNextIndex);
+            timestamp = info[0];
+            loadImage(file, (int) info[1], (int) info[2], into);
+        }
+
+        if (mNextIndex == 0)
+        {
+            mFirstTimestamp = timestamp;
+            mReplayStartNanos = System.nanoTime();
+        }
+        else if (mPace == Pace.REAL_TIME)
+        {
+            long due = mReplayStartNanos + (timestamp - mFirstTimestamp);
+            long wait = due - System.nanoTime();
+            if (wait > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while pacing replay");
+                }
+            }
+        }
+
+        into.timestampNanos = timestamp;
+        into.index = mNextIndex++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (mContainer != null)
+        {
+            mContainer.close();
+        }
+    }
+
+    /**
+     * Appends One Frame to a Container File
+     * @param out - Container Being Written
+     * @param width - Image Width
+     * @param height - Image Height
+     * @param timestampNanos - Capture Time
+     * @param rgba - width * height * 4 Bytes of RGBA Pixels
+     * @throws IOException - If Writing Fails
+     */
+    public static void writeRawFrame(DataOutputStream out, int width, int height, long timestampNanos, byte[] rgba)
+            throws IOException
+    {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(timestampNanos);
+        out.write(rgba, 0, width * height * 4);
+    }
+
+    private void openDirectory(File dir) throws IOException
+    {
+        File index = new File(dir, INDEX_FILE);
+        if (index.isFile())
+        {
+            try (BufferedReader reader = new BufferedReader(new FileReader(index)))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#"))
+                    {
+                        continue;
+                    }
+                    String[] parts = line.split("\\s+");
+                    if (parts.length != 2 && parts.length != 4)
+                    {
+                        throw new IOException(INDEX_FILE + ": expected 'file timestamp [width height]', got '" + line + "'");
+                    }
+                    mFiles.add(new File(dir, parts[0]));
+                    mFrameInfo.add(new long[]{Long.parseLong(parts[1]),
+                            parts.length == 4 ? Long.parseLong(parts[2]) : 0,
+                            parts.length == 4 ? Long.parseLong(parts[3]) : 0});
+                }
+            }
+            return;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            throw new IOException("Cannot list " + dir);
+        }
+        Arrays.sort(files);
+        for (File file : files)
+        {
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg"))
+            {
+                mFrameInfo.add(new long[]{mFiles.size() * FALLBACK_FRAME_NANOS, 0, 0});
+                mFiles.add(file);
+            }
+        }
+    }
+
+    private void loadImage(File file, int width, int height, Frame into) throws IOException
+    {
+        Mat rgba = into.rgba;
+        String name = file.getName().toLowerCase();
+        into.hasYuv = name.endsWith(NV21_EXTENSION) || name.endsWith(I420_EXTENSION);
+        if (into.hasYuv)
+        {
+            if (width <= 0 || height <= 0)
+            {
+                throw new IOException(file + ": raw frames need a width and height in " + INDEX_FILE);
+            }
+            int size = YuvPlanes.frameSize(width, height);
+            if (mYuvBytes.length < size)
+            {
+                mYuvBytes = new byte[size];
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+            {
+                in.readFully(mYuvBytes, 0, size);
+            }
+            if (name.endsWith(NV21_EXTENSION))
+            {
+                into.yuv.wrapNv21(mYuvBytes, width, height);
+            }
+            else
+            {
+                into.yuv.wrapI420(mYuvBytes, width, height);
+            }
+            YuvThresholdLut.toRgba(into.yuv, rgba);
+            return;
+        }
+
+        if (name.endsWith(RAW_EXTENSION))
+        {
+            if (width <= 0 || height <= 0)
+            {
+                throw new IOException(file + ": raw frames need a width and height in " + INDEX_FILE);
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+            {
+                readRaw(in, width, height, rgba);
+            }
+            return;
+        }
+
+        Mat decoded = Imgcodecs.imread(file.getPath(), Imgcodecs.IMREAD_UNCHANGED);
+        if (decoded.empty())
+        {
+            throw new IOException("Cannot decode " + file);
+        }
+        //imread Gives BGR(A) or Gray - The Pipeline Wants RGBA Like glReadPixels Gives
+        switch (decoded.channels())
+        {
+            case 1: Imgproc.cvtColor(decoded, rgba, Imgproc.COLOR_GRAY2RGBA); break;
+            case 3: Imgproc.cvtColor(decoded, rgba, Imgproc.COLOR_BGR2RGBA); break;
+            default: Imgproc.cvtColor(decoded, rgba, Imgproc.COLOR_BGRA2RGBA); break;
+        }
+        decoded.release();
+        //Upright Image Back to Readback Rows (Bottom Row First) - the Same Flip the Stream Encoder Undid
+        Core.flip(rgba, rgba, 0);
+    }
+
+    private void readRaw(DataInputStream in, int width, int height, Mat rgba) throws IOException
+    {
+        int size = width * height * 4;
+        if (mRawBytes.length < size)
+        {
+            mRawBytes = new byte[size];
+        }
+        in.readFully(mRawBytes, 0, size);
+        rgba.create(height, width, CvType.CV_8UC4);
+        //put() Stops at the End of the Mat, so a Larger Scratch Array From an Earlier Frame is Fine
+        rgba.put(0, 0, mRawBytes);
+    }
+}
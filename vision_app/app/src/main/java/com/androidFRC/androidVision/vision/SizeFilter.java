@@ -0,0 +1,34 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Rejects Candidates Whose Bounding Box is Too Small or Too Large (Width and Height are in Imager Pixels)
+ */
+public class SizeFilter implements FilterStage
+{
+    private final double mMinWidth;
+    private final double mMaxWidth;
+    private final double mMinHeight;
+    private final double mMaxHeight;
+
+    public SizeFilter(double minWidth, double maxWidth, double minHeight, double maxHeight)
+    {
+        mMinWidth = minWidth;
+        mMaxWidth = maxWidth;
+        mMinHeight = minHeight;
+        mMaxHeight = maxHeight;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "size";
+    }
+
+    @Override
+    public boolean accept(CandidateList candidates, int i)
+    {
+        double width = candidates.width[i];
+        double height = candidates.height[i];
+        return width >= mMinWidth && width <= mMaxWidth && height >= mMinHeight && height <= mMaxHeight;
+    }
+}
@@ -0,0 +1,41 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Finds the First Two Candidates Stacked Above One Another (Centers Within 'maxOffset' Pixels Horizontally)
+ * and Reports the Upper (Top) One, if it is Also the Taller of the Two
+ * Same Rule the C++ Code Has Always Used - Rows Are in glReadPixels Order (Bottom Row First), so the Larger centroidY
+ * is Higher in the Image
+ */
+public class StackedPairSelector implements PairSelector
+{
+    private final double mMaxOffset;
+
+    public StackedPairSelector(double maxOffset)
+    {
+        mMaxOffset = maxOffset;
+    }
+
+    @Override
+    public void select(CandidateList accepted, CandidateList targets)
+    {
+        for (int i = 0; i < accepted.count; i++)
+        {
+            for (int j = 0; j < accepted.count; j++)
+            {
+                if (i == j || Math.abs(accepted.centroidX[i] - accepted.centroidX[j]) >= mMaxOffset)
+                {
+                    continue;
+                }
+
+                //centroidY is the Top Edge in Readback Rows (Bottom Row First), so the Larger Value is the Top Target
+                int top = accepted.centroidY[i] > accepted.centroidY[j] ? i : j;
+                int bottom = accepted.centroidY[i] < accepted.centroidY[j] ? i : j;
+                if (accepted.height[top] > accepted.height[bottom])
+                {
+                    targets.add(accepted, top);
+                    return;
+                }
+            }
+        }
+    }
+}
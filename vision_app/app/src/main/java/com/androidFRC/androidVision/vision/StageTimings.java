@@ -0,0 +1,108 @@
+package com.androidFRC.androidVision.vision;
+
+import java.util.Locale;
+
+/**
+ * Running Count, Total, Min and Max Time of Each Named Stage (Single Thread, No Allocation When Recording)
+ */
+public class StageTimings
+{
+    private final String[] mNames;
+    private final long[] mCount;
+    private final long[] mTotalNanos;
+    private final long[] mMinNanos;
+    private final long[] mMaxNanos;
+
+    /**
+     * Creates the Table
+     * @param names - Stage Names, Indexed the Same Way as record()
+     */
+    public StageTimings(String... names)
+    {
+        mNames = names.clone();
+        mCount = new long[names.length];
+        mTotalNanos = new long[names.length];
+        mMinNanos = new long[names.length];
+        mMaxNanos = new long[names.length];
+        reset();
+    }
+
+    /**
+     * Adds One Measurement
+     * @param stage - Stage Index
+     * @param nanos - How Long it Took
+     */
+    public void record(int stage, long nanos)
+    {
+        mCount[stage]++;
+        mTotalNanos[stage] += nanos;
+        if (nanos < mMinNanos[stage])
+        {
+            mMinNanos[stage] = nanos;
+        }
+        if (nanos > mMaxNanos[stage])
+        {
+            mMaxNanos[stage] = nanos;
+        }
+    }
+
+    /**
+     * Forgets Every Measurement
+     */
+    public void reset()
+    {
+        for (int i = 0; i < mNames.length; i++)
+        {
+            mCount[i] = 0;
+            mTotalNanos[i] = 0;
+            mMinNanos[i] = Long.MAX_VALUE;
+            mMaxNanos[i] = 0;
+        }
+    }
+
+    public int getStageCount()
+    {
+        return mNames.length;
+    }
+
+    public String getName(int stage)
+    {
+        return mNames[stage];
+    }
+
+    public long getCount(int stage)
+    {
+        return mCount[stage];
+    }
+
+    public double getMeanMillis(int stage)
+    {
+        return mCount[stage] == 0 ? 0 : mTotalNanos[stage] / 1e6 / mCount[stage];
+    }
+
+    public double getMinMillis(int stage)
+    {
+        return mCount[stage] == 0 ? 0 : mMinNanos[stage] / 1e6;
+    }
+
+    public double getMaxMillis(int stage)
+    {
+        return mMaxNanos[stage] / 1e6;
+    }
+
+    /**
+     * One Line per Stage - "name: n=.. mean=..ms min=..ms max=..ms"
+     * @return Printable Table
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mNames.length; i++)
+        {
+            sb.append(String.format(Locale.US, "%-10s n=%d mean=%.3fms min=%.3fms max=%.3fms%n",
+                    mNames[i], mCount[i], getMeanMillis(i), getMinMillis(i), getMaxMillis(i)));
+        }
+        return sb.toString();
+    }
+}
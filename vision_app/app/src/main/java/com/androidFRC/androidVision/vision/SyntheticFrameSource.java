@@ -0,0 +1,107 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+
+/**
+ * Hands Out Generated Frames - a Pair of Green Targets Sliding Across a Noisy Background - so the Pipeline Can Be
+ * Run and Timed on a Desktop Without a Recording
+ * Every Distinct Frame is Drawn Up Front, so Handing One Out Only Costs a Copy
+ */
+public class SyntheticFrameSource implements FrameSource
+{
+    //Bright Green, Inside the Default HSV Range (res/values/integers.xml)
+    private static final Scalar TARGET_COLOR = new Scalar(0, 200, 0, 255);
+
+    private final Mat[] mFrames;
+    private final long mFrameCount;
+    private final long mPeriodNanos;
+    private long mNextIndex;
+    private long mStartNanos;
+
+    /**
+     * Draws the Frames
+     * @param width - Frame Width
+     * @param height - Frame Height
+     * @param distinct - Different Frames to Draw (The Targets Take This Many Frames to Cross the Image)
+     * @param frameCount - Frames to Hand Out Before next() Returns false (-1 to Never Stop)
+     * @param fps - Rate to Hand Them Out At (0 for As Fast As Possible)
+     */
+    public SyntheticFrameSource(int width, int height, int distinct, long frameCount, double fps)
+    {
+        mFrameCount = frameCount;
+        mPeriodNanos = fps > 0 ? (long) (1e9 / fps) : 0;
+        mFrames = new Mat[Math.max(1, distinct)];
+
+        Mat noise = new Mat(height, width, CvType.CV_8UC4);
+        int targetWidth = Math.max(2, width / 30);
+        int targetHeight = Math.max(4, height / 8);
+        int gap = targetWidth * 3;
+        int travel = Math.max(1, width - gap - targetWidth * 2);
+        for (int i = 0; i < mFrames.length; i++)
+        {
+            Mat frame = new Mat(height, width, CvType.CV_8UC4, new Scalar(40, 40, 40, 255));
+            Core.randu(noise, 0, 48);
+            Core.add(frame, noise, frame);
+
+            //Targets Bob Up and Down a Little on Their Way Across, so Each Frame's Contours Differ
+            int x = i * travel / mFrames.length;
+            int y = (int) (height / 2 + Math.sin(i * 2 * Math.PI / mFrames.length) * height / 8) - targetHeight / 2;
+            Imgproc.rectangle(frame, new Point(x, y), new Point(x + targetWidth, y + targetHeight), TARGET_COLOR, -1);
+            Imgproc.rectangle(frame, new Point(x + targetWidth + gap, y),
+                    new Point(x + targetWidth * 2 + gap, y + targetHeight), TARGET_COLOR, -1);
+            mFrames[i] = frame;
+        }
+        noise.release();
+    }
+
+    @Override
+    public boolean next(Frame into) throws IOException
+    {
+        if (mFrameCount >= 0 && mNextIndex >= mFrameCount)
+        {
+            return false;
+        }
+        if (mNextIndex == 0)
+        {
+            mStartNanos = System.nanoTime();
+        }
+        else if (mPeriodNanos > 0)
+        {
+            long wait = mStartNanos + mNextIndex * mPeriodNanos - System.nanoTime();
+            if (wait > 0)
+            {
+                try
+                {
+                    Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while pacing frames");
+                }
+            }
+        }
+
+        mFrames[(int) (mNextIndex % mFrames.length)].copyTo(into.rgba);
+        into.hasYuv = false;
+        into.timestampNanos = System.nanoTime();
+        into.index = mNextIndex++;
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        for (Mat frame : mFrames)
+        {
+            frame.release();
+        }
+    }
+}
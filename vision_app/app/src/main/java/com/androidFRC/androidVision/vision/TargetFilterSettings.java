@@ -0,0 +1,63 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Tunable Numbers Behind the Default TargetPipeline (Stored in Preferences on the Phone)
+ * Defaults Match the Constants the C++ Code Used Before Filtering Moved to Java
+ */
+public class TargetFilterSettings
+{
+    public static final double DEFAULT_MIN_WIDTH = 20;
+    public static final double DEFAULT_MAX_WIDTH = 300;
+    public static final double DEFAULT_MIN_HEIGHT = 10;
+    public static final double DEFAULT_MAX_HEIGHT = 100;
+    public static final double DEFAULT_MIN_WIDENESS = 1.5;
+    public static final double DEFAULT_MAX_WIDENESS = 7.0;
+    public static final double DEFAULT_MIN_FULLNESS = .45;
+    public static final double DEFAULT_MAX_FULLNESS = .95;
+    public static final double DEFAULT_MAX_PAIR_OFFSET = 10;
+
+    public double minWidth = DEFAULT_MIN_WIDTH;
+    public double maxWidth = DEFAULT_MAX_WIDTH;
+    public double minHeight = DEFAULT_MIN_HEIGHT;
+    public double maxHeight = DEFAULT_MAX_HEIGHT;
+    public double minWideness = DEFAULT_MIN_WIDENESS;
+    public double maxWideness = DEFAULT_MAX_WIDENESS;
+    public double minFullness = DEFAULT_MIN_FULLNESS;
+    public double maxFullness = DEFAULT_MAX_FULLNESS;
+    public double maxPairOffset = DEFAULT_MAX_PAIR_OFFSET;
+
+    /**
+     * Sets One Value by Name (Used by Host-Side Tools Taking "name=value" Arguments)
+     * @param name - Field Name, e.g. "minWidth"
+     * @param value - New Value
+     * @throws IllegalArgumentException - If There is No Such Setting
+     */
+    public void set(String name, double value)
+    {
+        switch (name)
+        {
+            case "minWidth": minWidth = value; break;
+            case "maxWidth": maxWidth = value; break;
+            case "minHeight": minHeight = value; break;
+            case "maxHeight": maxHeight = value; break;
+            case "minWideness": minWideness = value; break;
+            case "maxWideness": maxWideness = value; break;
+            case "minFullness": minFullness = value; break;
+            case "maxFullness": maxFullness = value; break;
+            case "maxPairOffset": maxPairOffset = value; break;
+            default: throw new IllegalArgumentException("Unknown filter setting " + name);
+        }
+    }
+
+    /**
+     * Builds the Standard Pipeline: Size, Then Wideness, Then Fullness, Then Stacked-Pair Selection
+     * @return New Pipeline Using These Settings
+     */
+    public TargetPipeline buildPipeline()
+    {
+        return new TargetPipeline(new StackedPairSelector(maxPairOffset),
+                new SizeFilter(minWidth, maxWidth, minHeight, maxHeight),
+                new WidenessFilter(minWideness, maxWideness),
+                new FullnessFilter(minFullness, maxFullness));
+    }
+}
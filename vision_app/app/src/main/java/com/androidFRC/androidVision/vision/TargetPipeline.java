@@ -0,0 +1,105 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Turns Every Contour Candidate of a Frame Into the Targets Sent to the Robot (Plain Java, No Android Dependencies)
+ * Runs a Chain of FilterStages Over Primitive Arrays, Then a PairSelector, Reusing its Output Lists Every Frame
+ * The Same Pipeline Runs on the Phone and on a Desktop JVM (See ContourDataset and TargetPipelineRunner)
+ * Not Thread-Safe - Use One Pipeline per Processing Thread
+ */
+public class TargetPipeline
+{
+    private final FilterStage[] mStages;
+    private final PairSelector mSelector;
+
+    //Outputs of the Last process() Call
+    private final CandidateList mAccepted = new CandidateList();
+    private final CandidateList mRejected = new CandidateList();
+    private final CandidateList mTargets = new CandidateList();
+
+    //Stats - How Many Candidates Each Stage Has Rejected, and How Many Were Seen in Total
+    private final long[] mRejectedBy;
+    private long mCandidatesSeen;
+
+    /**
+     * Creates a Pipeline
+     * @param selector - Picks the Final Targets From the Accepted Candidates
+     * @param stages - Filters, Run in This Order
+     */
+    public TargetPipeline(PairSelector selector, FilterStage... stages)
+    {
+        mSelector = selector;
+        mStages = stages.clone();
+        mRejectedBy = new long[mStages.length];
+    }
+
+    /**
+     * Runs Every Stage Over One Frame's Candidates
+     * @param candidates - Every Contour Candidate of the Frame (Not Modified)
+     * @return The Chosen Targets (Reused - Valid Until the Next Call)
+     */
+    public CandidateList process(CandidateList candidates)
+    {
+        mAccepted.clear();
+        mRejected.clear();
+        mTargets.clear();
+
+        for (int i = 0; i < candidates.count; i++)
+        {
+            boolean passed = true;
+            for (int s = 0; s < mStages.length; s++)
+            {
+                if (!mStages[s].accept(candidates, i))
+                {
+                    mRejectedBy[s]++;
+                    passed = false;
+                    break;
+                }
+            }
+            (passed ? mAccepted : mRejected).add(candidates, i);
+        }
+        mCandidatesSeen += candidates.count;
+
+        mSelector.select(mAccepted, mTargets);
+        return mTargets;
+    }
+
+    public CandidateList getAccepted()
+    {
+        return mAccepted;
+    }
+
+    public CandidateList getRejected()
+    {
+        return mRejected;
+    }
+
+    public CandidateList getTargets()
+    {
+        return mTargets;
+    }
+
+    public int getStageCount()
+    {
+        return mStages.length;
+    }
+
+    public String getStageName(int stage)
+    {
+        return mStages[stage].getName();
+    }
+
+    /**
+     * Candidates Rejected by One Stage Since the Pipeline Was Created
+     * @param stage - Index of the Stage
+     * @return Rejection Count
+     */
+    public long getRejectedCount(int stage)
+    {
+        return mRejectedBy[stage];
+    }
+
+    public long getCandidatesSeen()
+    {
+        return mCandidatesSeen;
+    }
+}
@@ -0,0 +1,83 @@
+package com.androidFRC.androidVision.vision;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Desktop Entry Point - Runs the TargetPipeline Over a Recorded ContourDataset and Prints What Each Stage Did
+ * Only Uses Plain Java, So the 'vision' Package Can Be Compiled and Run Without the Android SDK:
+ *
+ *   javac -d out app/src/main/java/com/androidFRC/androidVision/vision/*.java
+ *   java -cp out com.androidFRC.androidVision.vision.TargetPipelineRunner contours.csv minFullness=0.5 --iterations 1000
+ *
+ * Settings Not Given Keep Their TargetFilterSettings Defaults
+ */
+public class TargetPipelineRunner
+{
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: TargetPipelineRunner <dataset.csv> [setting=value ...] [--iterations N]");
+            System.exit(2);
+        }
+
+        TargetFilterSettings settings = new TargetFilterSettings();
+        int iterations = 1;
+        for (int a = 1; a < args.length; a++)
+        {
+            if (args[a].equals("--iterations") && a + 1 < args.length)
+            {
+                iterations = Integer.parseInt(args[++a]);
+                continue;
+            }
+            int eq = args[a].indexOf('=');
+            if (eq < 0)
+            {
+                throw new IllegalArgumentException("Expected setting=value, got " + args[a]);
+            }
+            settings.set(args[a].substring(0, eq), Double.parseDouble(args[a].substring(eq + 1)));
+        }
+
+        ContourDataset dataset;
+        try (Reader in = new FileReader(args[0]))
+        {
+            dataset = ContourDataset.read(in);
+        }
+
+        //First Pass Gathers the Per-Stage Stats, Timed Passes Use a Fresh Pipeline
+        TargetPipeline pipeline = settings.buildPipeline();
+        int framesWithTarget = 0;
+        for (int f = 0; f < dataset.getFrameCount(); f++)
+        {
+            if (pipeline.process(dataset.getFrame(f)).count > 0)
+            {
+                framesWithTarget++;
+            }
+        }
+
+        System.out.println("Frames: " + dataset.getFrameCount() + ", with a target: " + framesWithTarget);
+        System.out.println("Candidates: " + pipeline.getCandidatesSeen());
+        for (int s = 0; s < pipeline.getStageCount(); s++)
+        {
+            System.out.println("  rejected by " + pipeline.getStageName(s) + ": " + pipeline.getRejectedCount(s));
+        }
+
+        if (iterations > 1 && dataset.getFrameCount() > 0)
+        {
+            TargetPipeline timed = settings.buildPipeline();
+            long start = System.nanoTime();
+            for (int it = 0; it < iterations; it++)
+            {
+                for (int f = 0; f < dataset.getFrameCount(); f++)
+                {
+                    timed.process(dataset.getFrame(f));
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%.1f ns/frame over %d iterations",
+                    (double) elapsed / ((long) iterations * dataset.getFrameCount()), iterations));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.androidFRC.androidVision.vision;
+
+/**
+ * Rejects Candidates by Shape - 'Wideness' is the Bounding Box Width Over its Height
+ */
+public class WidenessFilter implements FilterStage
+{
+    private final double mMinWideness;
+    private final double mMaxWideness;
+
+    public WidenessFilter(double minWideness, double maxWideness)
+    {
+        mMinWideness = minWideness;
+        mMaxWideness = maxWideness;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "wideness";
+    }
+
+    @Override
+    public boolean accept(CandidateList candidates, int i)
+    {
+        double wideness = candidates.width[i] / candidates.height[i];
+        return wideness >= mMinWideness && wideness <= mMaxWideness;
+    }
+}
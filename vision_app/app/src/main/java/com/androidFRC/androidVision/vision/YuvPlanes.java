@@ -0,0 +1,76 @@
+package com.androidFRC.androidVision.vision;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One YUV 4:2:0 Image as Three Planes, Laid Out the Way Camera2's YUV_420_888 Describes Them
+ * (Chroma is Half Resolution Both Ways; uvPixelStride is 1 for I420, 2 for NV21/NV12)
+ * The Buffers Are Not Copied - On the Phone They Are the Image's Own Planes, in a Replay They Wrap a Recorded Frame
+ */
+public class YuvPlanes
+{
+    public ByteBuffer y;
+    public ByteBuffer u;
+    public ByteBuffer v;
+    public int width;
+    public int height;
+    public int yRowStride;
+    public int uvRowStride;
+    public int uvPixelStride;
+
+    /**
+     * Points at Planes Described Elsewhere (e.g. an android.media.Image)
+     */
+    public void set(ByteBuffer y, ByteBuffer u, ByteBuffer v, int width, int height,
+                    int yRowStride, int uvRowStride, int uvPixelStride)
+    {
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.width = width;
+        this.height = height;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    /**
+     * Wraps an NV21 Frame (Full Y Plane, Then Interleaved V,U Pairs - the Old Camera API Preview Format)
+     * @param data - frameSize(width, height) Bytes
+     */
+    public void wrapNv21(byte[] data, int width, int height)
+    {
+        int ySize = width * height;
+        int chromaWidth = (width + 1) / 2;
+        int vuSize = chromaWidth * 2 * ((height + 1) / 2);
+        set(slice(data, 0, ySize), slice(data, ySize + 1, vuSize - 1), slice(data, ySize, vuSize),
+                width, height, width, chromaWidth * 2, 2);
+    }
+
+    /**
+     * Wraps an I420 Frame (Full Y Plane, Then the Whole U Plane, Then the Whole V Plane)
+     * @param data - frameSize(width, height) Bytes
+     */
+    public void wrapI420(byte[] data, int width, int height)
+    {
+        int ySize = width * height;
+        int chromaWidth = (width + 1) / 2;
+        int chromaSize = chromaWidth * ((height + 1) / 2);
+        set(slice(data, 0, ySize), slice(data, ySize, chromaSize), slice(data, ySize + chromaSize, chromaSize),
+                width, height, width, chromaWidth, 1);
+    }
+
+    /**
+     * Bytes in One NV21 or I420 Frame
+     * @return Size of the Y Plane Plus Both Chroma Planes
+     */
+    public static int frameSize(int width, int height)
+    {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    private static ByteBuffer slice(byte[] data, int offset, int length)
+    {
+        return ByteBuffer.wrap(data, offset, length).slice();
+    }
+}
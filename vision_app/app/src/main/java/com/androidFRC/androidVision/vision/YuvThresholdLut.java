@@ -0,0 +1,217 @@
+package com.androidFRC.androidVision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HSV Threshold Straight on YUV Planes - Java Copy of YuvThresholdLut (yuv_threshold_lut.cpp), Keep the Two in Sync
+ * The HSV Ranges Are Mapped to YUV by Running Every (Y, U, V) Through Full-Range BT.601 (JFIF, What Camera2 Delivers)
+ * to RGB, Then OpenCV's RGB2HSV and inRange, Into One Pass/Fail Bit per Color (2 MB). The Y/U/V Box Around the
+ * Passing Colors Rejects Most Pixels Before the Table is Touched. Only Rebuilt When the Ranges Change
+ * Camera Rows Are Top Down, but Masks and Images Come Out Bottom Row First, Like the GL Readback (See ReplayFrameSource)
+ * - so centroidY and the Stacked-Pair Choice Are the Same With and Without YUV_THRESHOLD
+ * Not Thread-Safe
+ */
+public class YuvThresholdLut
+{
+    //Colors Are Built 256 x 256 at a Time (One Y Value per Chunk) to Keep the Working Mats Small
+    private static final int CHUNK = 256 * 256;
+
+    private final byte[] mBits = new byte[(1 << 24) / 8];
+    private final int[] mRanges = new int[6];
+    private final int[] mBounds = new int[6];
+    private boolean mBuilt = false;
+
+    //Scratch for the Mat Version of apply (Grown as Needed)
+    private byte[] mMask = new byte[0];
+
+    /**
+     * Rebuilds the Table if the HSV Ranges Differ From the Last Build (Takes a While - Every Color is Converted)
+     * @return Whether the Table Was Rebuilt
+     */
+    public boolean update(int hMin, int hMax, int sMin, int sMax, int vMin, int vMax)
+    {
+        if (mBuilt && mRanges[0] == hMin && mRanges[1] == hMax && mRanges[2] == sMin
+                && mRanges[3] == sMax && mRanges[4] == vMin && mRanges[5] == vMax)
+        {
+            return false;
+        }
+
+        //OpenCV Orders it Y, Cr (V), Cb (U) - U Down the Rows, V Across the Columns, Only Y Changes Between Chunks
+        Mat ycrcb = new Mat(256, 256, CvType.CV_8UC3);
+        Mat rgb = new Mat();
+        Mat hsv = new Mat();
+        Mat pass = new Mat();
+        byte[] colors = new byte[CHUNK * 3];
+        byte[] passBytes = new byte[CHUNK];
+        Scalar lower = new Scalar(hMin, sMin, vMin);
+        Scalar upper = new Scalar(hMax, sMax, vMax);
+        int[] bounds = {256, -1, 256, -1, 256, -1};
+        for (int i = 0; i < CHUNK; i++)
+        {
+            colors[i * 3 + 1] = (byte) i;
+            colors[i * 3 + 2] = (byte) (i >> 8);
+        }
+        try
+        {
+            for (int y = 0; y < 256; y++)
+            {
+                for (int i = 0; i < CHUNK; i++)
+                {
+                    colors[i * 3] = (byte) y;
+                }
+                ycrcb.put(0, 0, colors);
+                Imgproc.cvtColor(ycrcb, rgb, Imgproc.COLOR_YCrCb2RGB);
+                Imgproc.cvtColor(rgb, hsv, Imgproc.COLOR_RGB2HSV);
+                Core.inRange(hsv, lower, upper, pass);
+                pass.get(0, 0, passBytes);
+
+                //Chunk Index is (u << 8) | v, so Each Y Value Fills 8 KB of the Table in Order
+                int base = y * (CHUNK / 8);
+                for (int i = 0; i < CHUNK; i += 8)
+                {
+                    int packed = 0;
+                    for (int bit = 0; bit < 8; bit++)
+                    {
+                        if (passBytes[i + bit] != 0)
+                        {
+                            packed |= 1 << bit;
+                            int u = (i + bit) >> 8, v = (i + bit) & 0xFF;
+                            bounds[0] = Math.min(bounds[0], y);
+                            bounds[1] = Math.max(bounds[1], y);
+                            bounds[2] = Math.min(bounds[2], u);
+                            bounds[3] = Math.max(bounds[3], u);
+                            bounds[4] = Math.min(bounds[4], v);
+                            bounds[5] = Math.max(bounds[5], v);
+                        }
+                    }
+                    mBits[base + (i >> 3)] = (byte) packed;
+                }
+            }
+        }
+        finally
+        {
+            ycrcb.release();
+            rgb.release();
+            hsv.release();
+            pass.release();
+        }
+
+        mRanges[0] = hMin;
+        mRanges[1] = hMax;
+        mRanges[2] = sMin;
+        mRanges[3] = sMax;
+        mRanges[4] = vMin;
+        mRanges[5] = vMax;
+        System.arraycopy(bounds, 0, mBounds, 0, 6);
+        mBuilt = true;
+        return true;
+    }
+
+    /**
+     * Smallest Y/U/V Box Holding Every Color That Passes the HSV Ranges
+     * @return {yMin, yMax, uMin, uMax, vMin, vMax} (min > max When Nothing Passes) - Do Not Modify
+     */
+    public int[] getBounds()
+    {
+        return mBounds;
+    }
+
+    /**
+     * Thresholds One Image (Each Chroma Sample Covers a 2x2 Block)
+     * @param planes - The Image
+     * @param mask - Receives 255 for Pixels in Range, Else 0, Bottom Row First (At Least width * height Long)
+     */
+    public void apply(YuvPlanes planes, byte[] mask)
+    {
+        if (!mBuilt)
+        {
+            throw new IllegalStateException("update() has not been called");
+        }
+        byte[] bits = mBits;
+        int yMin = mBounds[0], yMax = mBounds[1];
+        int uMin = mBounds[2], uMax = mBounds[3];
+        int vMin = mBounds[4], vMax = mBounds[5];
+        ByteBuffer yPlane = planes.y, uPlane = planes.u, vPlane = planes.v;
+        int step = planes.uvPixelStride;
+        for (int row = 0; row < planes.height; row++)
+        {
+            int yRow = row * planes.yRowStride;
+            int uvRow = (row >> 1) * planes.uvRowStride;
+            int i = (planes.height - 1 - row) * planes.width;
+            for (int x = 0; x < planes.width; x++, i++)
+            {
+                int y = yPlane.get(yRow + x) & 0xFF;
+                int u = uPlane.get(uvRow + (x >> 1) * step) & 0xFF;
+                int v = vPlane.get(uvRow + (x >> 1) * step) & 0xFF;
+                if (y < yMin || y > yMax || u < uMin || u > uMax || v < vMin || v > vMax)
+                {
+                    mask[i] = 0;
+                    continue;
+                }
+                int color = y << 16 | u << 8 | v;
+                mask[i] = (byte) -((bits[color >>> 3] >> (color & 7)) & 1);
+            }
+        }
+    }
+
+    /**
+     * Thresholds One Image Into a Mask Mat
+     * @param planes - The Image
+     * @param mask - Output Mask (CV_8UC1)
+     */
+    public void apply(YuvPlanes planes, Mat mask)
+    {
+        int pixels = planes.width * planes.height;
+        if (mMask.length < pixels)
+        {
+            mMask = new byte[pixels];
+        }
+        apply(planes, mMask);
+        mask.create(planes.height, planes.width, CvType.CV_8UC1);
+        //put Stops at the End of the Mat, so the Scratch Array Can Be Longer Than the Image
+        mask.put(0, 0, mMask);
+    }
+
+    /**
+     * Converts to RGBA With the Same Full-Range BT.601 Math the Table is Built With (Chroma Repeated Over Each 2x2 Block)
+     * So thresholding the Result With inRange Gives Exactly the Mask apply() Gives
+     * @param planes - The Image
+     * @param rgba - Output Image (CV_8UC4), Bottom Row First Like apply()'s Mask
+     */
+    public static void toRgba(YuvPlanes planes, Mat rgba)
+    {
+        byte[] ycrcbBytes = new byte[planes.width * planes.height * 3];
+        int step = planes.uvPixelStride;
+        for (int row = 0; row < planes.height; row++)
+        {
+            int yRow = row * planes.yRowStride;
+            int uvRow = (row >> 1) * planes.uvRowStride;
+            int p = (planes.height - 1 - row) * planes.width * 3;
+            for (int x = 0; x < planes.width; x++, p += 3)
+            {
+                ycrcbBytes[p] = planes.y.get(yRow + x);
+                ycrcbBytes[p + 1] = planes.v.get(uvRow + (x >> 1) * step);
+                ycrcbBytes[p + 2] = planes.u.get(uvRow + (x >> 1) * step);
+            }
+        }
+        Mat ycrcb = new Mat(planes.height, planes.width, CvType.CV_8UC3);
+        Mat rgb = new Mat();
+        try
+        {
+            ycrcb.put(0, 0, ycrcbBytes);
+            Imgproc.cvtColor(ycrcb, rgb, Imgproc.COLOR_YCrCb2RGB);
+            Imgproc.cvtColor(rgb, rgba, Imgproc.COLOR_RGB2RGBA);
+        }
+        finally
+        {
+            ycrcb.release();
+            rgb.release();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.opencv.android;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -8,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Camera;
+import android.graphics.ImageFormat;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.hardware.camera2.CameraAccessException;
@@ -17,6 +19,8 @@ import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
 import android.hardware.camera2.CaptureRequest;
 import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
@@ -31,6 +35,8 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
         public int width;
         public int height;
         public Map<CaptureRequest.Key, Object> camera_settings;
+        // also deliver every frame as YUV_420_888 to the view's YuvImageListener, alongside the preview
+        public boolean yuv_threshold;
     }
 
     protected final String LOGTAG = "Camera2Renderer";
@@ -45,6 +51,12 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
     private Handler mBackgroundHandler;
     private Semaphore mCameraOpenCloseLock = new Semaphore(1);
 
+    // YUV frames get their own thread so slow processing never holds up the camera callbacks
+    private ImageReader mImageReader;
+    private HandlerThread mImageThread;
+    private Handler mImageHandler;
+    private final long[] mImageCapture = new long[2];
+
     BetterCamera2Renderer(BetterCameraGLSurfaceView view, Settings settings) {
         super(view);
         mSettings = settings;
@@ -205,6 +217,10 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
                 mCameraDevice.close();
                 mCameraDevice = null;
             }
+            if (null != mImageReader) {
+                mImageReader.close();
+                mImageReader = null;
+            }
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while trying to lock camera closing.", e);
         } finally {
@@ -267,7 +283,20 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
                     .createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
             mPreviewRequestBuilder.addTarget(surface);
 
-            mCameraDevice.createCaptureSession(Arrays.asList(surface),
+            List<Surface> outputs = new ArrayList<Surface>();
+            outputs.add(surface);
+            if (mSettings.yuv_threshold) {
+                if (null != mImageReader) {
+                    mImageReader.close();
+                }
+                // two images: one being processed while the next is filled
+                mImageReader = ImageReader.newInstance(w, h, ImageFormat.YUV_420_888, 2);
+                mImageReader.setOnImageAvailableListener(mImageListener, mImageHandler);
+                mPreviewRequestBuilder.addTarget(mImageReader.getSurface());
+                outputs.add(mImageReader.getSurface());
+            }
+
+            mCameraDevice.createCaptureSession(outputs,
                     new CameraCaptureSession.StateCallback() {
                         @Override
                         public void onConfigured(CameraCaptureSession cameraCaptureSession) {
@@ -301,12 +330,41 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
         }
     }
 
+    private final ImageReader.OnImageAvailableListener mImageListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            // skip straight to the newest frame if processing fell behind
+            Image image = reader.acquireLatestImage();
+            if (image == null)
+                return;
+            try {
+                BetterCameraGLSurfaceView.YuvImageListener listener = mView.getYuvImageListener();
+                if (listener == null)
+                    return;
+                long frame_id = -1;
+                long capture_start_time = System.nanoTime();
+                if (lookupCapture(image.getTimestamp(), mImageCapture)) {
+                    frame_id = mImageCapture[0];
+                    capture_start_time = mImageCapture[1];
+                }
+                listener.onYuvImage(image, capture_start_time, frame_id);
+            } finally {
+                image.close();
+            }
+        }
+    };
+
     private void startBackgroundThread() {
         Log.i(LOGTAG, "startBackgroundThread");
         stopBackgroundThread();
         mBackgroundThread = new HandlerThread("CameraBackground");
         mBackgroundThread.start();
         mBackgroundHandler = new Handler(mBackgroundThread.getLooper());
+        if (mSettings.yuv_threshold) {
+            mImageThread = new HandlerThread("CameraYuv");
+            mImageThread.start();
+            mImageHandler = new Handler(mImageThread.getLooper());
+        }
     }
 
     private void stopBackgroundThread() {
@@ -321,6 +379,16 @@ public class BetterCamera2Renderer extends BetterCameraGLRendererBase {
         } catch (InterruptedException e) {
             Log.e(LOGTAG, "stopBackgroundThread");
         }
+        if (mImageThread == null)
+            return;
+        mImageThread.quitSafely();
+        try {
+            mImageThread.join();
+            mImageThread = null;
+            mImageHandler = null;
+        } catch (InterruptedException e) {
+            Log.e(LOGTAG, "stopBackgroundThread - image thread");
+        }
     }
 
     @Override
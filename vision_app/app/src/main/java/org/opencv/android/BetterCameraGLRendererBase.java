@@ -3,7 +3,7 @@ package org.opencv.android;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Arrays;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -99,26 +99,51 @@ public abstract class BetterCameraGLRendererBase implements GLSurfaceView.Render
 
     protected abstract void setCameraPreviewSize(int width, int height); // updates mCameraWidth & mCameraHeight
 
-    class FrameTimestampToCaptureStartTime {
-        public long frame_timestamp;
-        public long capture_start_time;
+    // Every capture is given a frame ID when the camera starts it. The ID and the capture start time are kept,
+    // keyed by sensor timestamp, in a small fixed ring so the GL thread can find them again once the frame reaches
+    // the SurfaceTexture. The camera never gets more than a few frames ahead of the renderer, so older entries are
+    // simply overwritten instead of piling up.
+    private static final int CAPTURE_HISTORY = 16;
+    private final Object mCaptureLock = new Object();
+    private final long[] mCaptureFrameTimestamps = new long[CAPTURE_HISTORY];
+    private final long[] mCaptureStartTimes = new long[CAPTURE_HISTORY];
+    private final long[] mCaptureFrameIds = new long[CAPTURE_HISTORY];
+    private long mNextFrameId = 0;
+    private final long[] mFoundCapture = new long[2];
 
-        FrameTimestampToCaptureStartTime(long frame_timestamp, long capture_start_time) {
-            this.frame_timestamp = frame_timestamp;
-            this.capture_start_time = capture_start_time;
-        }
-    }
-
-    protected ConcurrentLinkedQueue<FrameTimestampToCaptureStartTime> mCaptureTimes = new ConcurrentLinkedQueue<>();
     protected CameraCaptureSession.CaptureCallback mCaptureCallback = new CameraCaptureSession.CaptureCallback() {
         @Override
         public void onCaptureStarted(CameraCaptureSession session, CaptureRequest request, long timestamp, long frameNumber) {
             super.onCaptureStarted(session, request, timestamp, frameNumber);
-            Log.d(LOGTAG, "onCaptureStarted - Timestamp " + timestamp + ", current time " + System.nanoTime() / 1E9);
-            mCaptureTimes.add(new FrameTimestampToCaptureStartTime(timestamp, System.nanoTime()));
+            long capture_start_time = System.nanoTime();
+            synchronized (mCaptureLock) {
+                int slot = (int) (mNextFrameId % CAPTURE_HISTORY);
+                mCaptureFrameTimestamps[slot] = timestamp;
+                mCaptureStartTimes[slot] = capture_start_time;
+                mCaptureFrameIds[slot] = mNextFrameId++;
+            }
         }
     };
 
+    /**
+     * Finds the frame ID and capture start time recorded for a sensor timestamp.
+     *
+     * @param frame_timestamp - timestamp of the frame in the SurfaceTexture (or Image)
+     * @param into            - receives {frame ID, capture start time}, left untouched if the capture is unknown
+     * @return whether the capture was found
+     */
+    protected boolean lookupCapture(long frame_timestamp, long[] into) {
+        synchronized (mCaptureLock) {
+            for (int i = 0; i < CAPTURE_HISTORY; i++) {
+                if (mCaptureFrameIds[i] >= 0 && mCaptureFrameTimestamps[i] == frame_timestamp) {
+                    into[0] = mCaptureFrameIds[i];
+                    into[1] = mCaptureStartTimes[i];
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
     public BetterCameraGLRendererBase(BetterCameraGLSurfaceView view) {
         mView = view;
@@ -129,6 +154,7 @@ public abstract class BetterCameraGLRendererBase implements GLSurfaceView.Render
         vert.put(vertices).position(0);
         texOES.put(texCoordOES).position(0);
         tex2D.put(texCoord2D).position(0);
+        Arrays.fill(mCaptureFrameIds, -1);
     }
 
     @Override
@@ -160,22 +186,16 @@ public abstract class BetterCameraGLRendererBase implements GLSurfaceView.Render
                 // texCamera(OES) -> texFBO
                 drawTex(texCamera[0], true, FBO[0]);
 
-                // The timestamp on the frame is usually not comparable to system time, so look up the capture
-                // start time by frame timestamp.
-                long frame_timestamp = mSTexture.getTimestamp();
-                while (true) {
-                    FrameTimestampToCaptureStartTime time = mCaptureTimes.poll();
-                    if (time != null) {
-                        if (time.frame_timestamp == frame_timestamp) {
-                            capture_start_time = time.capture_start_time;
-                            break;
-                        }
-                    } else {
-                        break;
-                    }
+                // The timestamp on the frame is usually not comparable to system time, so look up the frame ID
+                // and capture start time by frame timestamp.
+                long frame_id = -1;
+                if (lookupCapture(mSTexture.getTimestamp(), mFoundCapture)) {
+                    frame_id = mFoundCapture[0];
+                    capture_start_time = mFoundCapture[1];
                 }
                 // call user code (texFBO -> texDraw)
-                boolean modified = texListener.onCameraTexture(texFBO[0], texDraw[0], mCameraWidth, mCameraHeight, capture_start_time);
+                boolean modified = texListener.onCameraTexture(texFBO[0], texDraw[0], mCameraWidth, mCameraHeight,
+                        capture_start_time, frame_id);
 
                 if (modified) {
                     // texDraw -> screen
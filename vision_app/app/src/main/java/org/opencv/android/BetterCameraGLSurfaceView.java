@@ -4,6 +4,7 @@ import org.opencv.R;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.media.Image;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -37,14 +38,28 @@ public class BetterCameraGLSurfaceView extends GLSurfaceView {
          * @param width              -  the width of the frame
          * @param height             - the height of the frame
          * @param system_time_millis - the estimated timestamp of that the frame was captured
+         * @param frame_id           - ID given to the frame when its capture started, or -1 if it could not be matched
          * @return `true` if `texOut` should be displayed, `false` - to show `texIn`
          */
-        public boolean onCameraTexture(int texIn, int texOut, int width, int height, long system_time_millis);
+        public boolean onCameraTexture(int texIn, int texOut, int width, int height, long system_time_millis, long frame_id);
     }
 
     ;
 
+    public interface YuvImageListener {
+        /**
+         * This method is invoked on the camera's image thread when a YUV_420_888 frame is ready, if the renderer
+         * was started with Settings.yuv_threshold. Only the newest frame is delivered; older ones are dropped.
+         *
+         * @param image              - the frame; it is closed as soon as this method returns, so do not keep it
+         * @param system_time_millis - the estimated timestamp of that the frame was captured
+         * @param frame_id           - ID given to the frame when its capture started, or -1 if it could not be matched
+         */
+        public void onYuvImage(Image image, long system_time_millis, long frame_id);
+    }
+
     private CameraTextureListener mTexListener;
+    private volatile YuvImageListener mYuvListener;
     private BetterCameraGLRendererBase mRenderer;
     double mFocalLengthPixels;
 
@@ -72,6 +87,14 @@ public class BetterCameraGLSurfaceView extends GLSurfaceView {
         return mTexListener;
     }
 
+    public void setYuvImageListener(YuvImageListener yuvListener) {
+        mYuvListener = yuvListener;
+    }
+
+    public YuvImageListener getYuvImageListener() {
+        return mYuvListener;
+    }
+
     public void setCameraIndex(int cameraIndex) {
         mRenderer.setCameraIndex(cameraIndex);
     }
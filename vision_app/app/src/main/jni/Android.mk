@@ -5,7 +5,7 @@ include $(CLEAR_VARS)
 include $(LOCAL_PATH)/OpenCV.mk
 
 LOCAL_MODULE    := JNIpart
-LOCAL_SRC_FILES := jni.c image_processor.cpp
+LOCAL_SRC_FILES := jni.c image_processor.cpp hsv_threshold_lut.cpp yuv_threshold_lut.cpp
 LOCAL_LDLIBS    += -llog -lGLESv2 -lEGL -ldl
 LOCAL_CPPFLAGS  += -O3 -std=c++11
 
@@ -20,3 +20,9 @@ static inline int64_t getTimeMs() {
 static inline int getTimeInterval(int64_t startTime) {
   return int(getTimeMs() - startTime);
 }
+
+static inline int64_t getTimeNs() {
+  struct timespec now;
+  clock_gettime(CLOCK_MONOTONIC, &now);
+  return (int64_t)now.tv_sec * 1000000000LL + now.tv_nsec;
+}
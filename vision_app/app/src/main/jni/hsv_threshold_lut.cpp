@@ -0,0 +1,98 @@
+#include "hsv_threshold_lut.h"
+
+#include <algorithm>
+
+#include <opencv2/imgproc.hpp>
+
+//Colors Are Built 256 x 256 at a Time (One Red Value per Chunk) to Keep the Working Mats Small
+static const int kChunk = 256 * 256;
+
+HsvThresholdLut::HsvThresholdLut() : m_bits((1 << 24) / 8), m_built(false)
+{
+}
+
+bool HsvThresholdLut::update(int h_min, int h_max, int s_min, int s_max, int v_min, int v_max)
+{
+    const int ranges[6] = {h_min, h_max, s_min, s_max, v_min, v_max};
+    if (m_built && std::equal(ranges, ranges + 6, m_ranges))
+    {
+        return false;
+    }
+
+    //Green Down the Rows, Blue Across the Columns - Only Red Changes Between Chunks
+    cv::Mat rgb(256, 256, CV_8UC3);
+    for (int g = 0; g < 256; ++g)
+    {
+        uint8_t *row = rgb.ptr<uint8_t>(g);
+        for (int b = 0; b < 256; ++b)
+        {
+            row[b * 3 + 1] = (uint8_t) g;
+            row[b * 3 + 2] = (uint8_t) b;
+        }
+    }
+    cv::Mat hsv, pass;
+    const cv::Scalar lower(h_min, s_min, v_min), upper(h_max, s_max, v_max);
+    for (int r = 0; r < 256; ++r)
+    {
+        uint8_t *colors = rgb.ptr<uint8_t>(0);
+        for (int i = 0; i < kChunk; ++i)
+        {
+            colors[i * 3] = (uint8_t) r;
+        }
+        cv::cvtColor(rgb, hsv, CV_RGB2HSV);
+        cv::inRange(hsv, lower, upper, pass);
+
+        //Chunk Index is (g << 8) | b, so Each Red Value Fills 8 KB of the Table in Order
+        const uint8_t *passed = pass.ptr<uint8_t>(0);
+        uint8_t *bits = &m_bits[r * (kChunk / 8)];
+        for (int i = 0; i < kChunk; i += 8)
+        {
+            uint8_t packed = 0;
+            for (int bit = 0; bit < 8; ++bit)
+            {
+                packed |= (passed[i + bit] & 1) << bit;
+            }
+            bits[i >> 3] = packed;
+        }
+    }
+
+    std::copy(ranges, ranges + 6, m_ranges);
+    m_built = true;
+    return true;
+}
+
+//Rows Are Split Across OpenCV's Worker Threads, Like cvtColor Does
+class ApplyLutBody : public cv::ParallelLoopBody
+{
+public:
+    ApplyLutBody(const uint8_t *bits, const cv::Mat &rgba, cv::Mat &mask) : m_bits(bits), m_rgba(rgba), m_mask(mask)
+    {
+    }
+
+    virtual void operator()(const cv::Range &rows) const
+    {
+        const uint8_t *bits = m_bits;
+        for (int y = rows.start; y < rows.end; ++y)
+        {
+            const uint8_t *in = m_rgba.ptr<uint8_t>(y);
+            uint8_t *out = m_mask.ptr<uint8_t>(y);
+            for (int x = 0; x < m_rgba.cols; ++x, in += 4)
+            {
+                uint32_t color = ((uint32_t) in[0] << 16) | ((uint32_t) in[1] << 8) | in[2];
+                out[x] = (uint8_t) -((bits[color >> 3] >> (color & 7)) & 1);
+            }
+        }
+    }
+
+private:
+    const uint8_t *m_bits;
+    const cv::Mat &m_rgba;
+    cv::Mat &m_mask;
+};
+
+void HsvThresholdLut::apply(const cv::Mat &rgba, cv::Mat &mask) const
+{
+    CV_Assert(m_built && rgba.type() == CV_8UC4);
+    mask.create(rgba.rows, rgba.cols, CV_8UC1);
+    cv::parallel_for_(cv::Range(0, rgba.rows), ApplyLutBody(&m_bits[0], rgba, mask));
+}
@@ -0,0 +1,26 @@
+#pragma once
+
+#include <stdint.h>
+#include <vector>
+
+#include <opencv2/core.hpp>
+
+//HSV Threshold Straight From the RGBA Readback in One Pass, Instead of RGBA2RGB, RGB2HSV and inRange (Three Passes, Two Images)
+//Every 24-Bit RGB Color Gets One Pass/Fail Bit (2 MB), Worked Out by Running OpenCV's Own RGB2HSV and inRange Over Every
+//Color - So the Mask Matches the Old Path Bit for Bit. Only Rebuilt When the Ranges Change (See vision/HsvThresholdLut.java)
+class HsvThresholdLut
+{
+public:
+    HsvThresholdLut();
+
+    //Rebuilds the Table if the Ranges Differ From the Last Build - Returns Whether it Did
+    bool update(int h_min, int h_max, int s_min, int s_max, int v_min, int v_max);
+
+    //Writes 255 for Pixels in Range, Else 0 (Alpha is Ignored, Like RGBA2RGB)
+    void apply(const cv::Mat &rgba, cv::Mat &mask) const;
+
+private:
+    std::vector<uint8_t> m_bits;
+    int m_ranges[6];
+    bool m_built;
+};
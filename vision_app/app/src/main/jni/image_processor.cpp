@@ -12,6 +12,8 @@
 #include <opencv2/imgcodecs.hpp>
 
 #include "common.hpp"
+#include "hsv_threshold_lut.h"
+#include "yuv_threshold_lut.h"
 
 enum DisplayMode
 {
@@ -27,54 +29,44 @@ struct TargetInfo
     double centroid_y;
     double width;
     double height;
+    double area;
     std::vector<cv::Point> points;
 };
 
-std::vector<TargetInfo> processImpl(int w, int h, int texOut, DisplayMode mode,
-                                    int h_min, int h_max, int s_min, int s_max,
-                                    int v_min, int v_max, cv::Mat *&display)
+//Stages Timed Every Frame - Same Order as the Native Stages in PipelineStats (Java)
+enum NativeStage
 {
-    LOGD("Image is %d x %d", w, h);
-    LOGD("H %d-%d S %d-%d V %d-%d", h_min, h_max, s_min, s_max, v_min, v_max);
-    int64_t t;
-
-    //TODO: Do these arrays really need static lifecycles?
-    //Creates Pixel Array (Mat): https://docs.opencv.org/3.1.0/d3/d63/classcv_1_1Mat.html
-    static cv::Mat input;
-    input.create(h, w, CV_8UC4);
-
-    //Retrieves the Image Bitmap from the 'OpenGL Buffer'
-    //https://stackoverflow.com/questions/29003414/render-camera-preview-on-a-texture-with-target-gl-texture-2d
-    t = getTimeMs();
-    glReadPixels(0, 0, w, h, GL_RGBA, GL_UNSIGNED_BYTE, input.data);
-    LOGD("glReadPixels() costs %d ms", getTimeInterval(t));
+    STAGE_READBACK = 0,
+    STAGE_COLOR = 1,
+    STAGE_THRESHOLD = 2,
+    STAGE_CONTOURS = 3,
+    STAGE_DRAW = 4,
+    STAGE_UPLOAD = 5,
+    STAGE_CONVERT = 6,
+    STAGE_ENCODE = 7,
+    NATIVE_STAGE_COUNT = 8
+};
 
-    //Creates a Copy of the Mat Formatted in HSV
-    t = getTimeMs();
-    static cv::Mat hsv;
-    cv::cvtColor(input, hsv, CV_RGBA2RGB);
-    cv::cvtColor(hsv, hsv, CV_RGB2HSV);
-    LOGD("cvtColor() costs %d ms", getTimeInterval(t));
+//Every Candidate From One Frame - Kept Between Frames so the Vector Only Allocates While Growing
+//The Candidates (and the Stage Timings) Go Back to Java, Whose TargetPipeline Alone Decides What is a Target
+struct FrameResults
+{
+    //Nanoseconds Spent in Each NativeStage This Frame, -1 if the Stage Did Not Run
+    jlong stageNanos[NATIVE_STAGE_COUNT];
 
-    //Creates a Copy of the HSV Mat as a Binary Image (Colors in Range are White, Else Black)
-    t = getTimeMs();
-    static cv::Mat thresh;
-    cv::inRange(hsv, cv::Scalar(h_min, s_min, v_min), cv::Scalar(h_max, s_max, v_max), thresh);
-    LOGD("inRange() costs %d ms", getTimeInterval(t));
+    std::vector<TargetInfo> candidates;
+};
 
-    //Begins Algorithm to Determine Visible Targets
-    t = getTimeMs();
+//Finds Every Convex Contour of a Binary Image - the Candidates Handed to Java (No Filtering Happens Here)
+static void findTargets(const cv::Mat &thresh, FrameResults &results)
+{
     //Clones the Binary Threshold Image
     static cv::Mat contour_input;
     contour_input = thresh.clone();
     //Creates Lists for Different Shapes (Before Consideration for Target)
     std::vector<std::vector<cv::Point>> contours;
     std::vector<cv::Point> convex_contour;
-    std::vector<cv::Point> poly;
-    //Creates Lists for Different Target Considerations
-    std::vector<TargetInfo> accepted_targets;
-    std::vector<TargetInfo> targets;
-    std::vector<TargetInfo> rejected_targets;
+    results.candidates.clear();
     //Starts Finding the 'Contours' on the Binary Image
     cv::findContours(contour_input, contours, cv::RETR_EXTERNAL, cv::CHAIN_APPROX_TC89_KCOS);
     //Loops Through Each Found Contour for Target Consideration
@@ -82,8 +74,6 @@ std::vector<TargetInfo> processImpl(int w, int h, int texOut, DisplayMode mode,
     {
         convex_contour.clear();
         cv::convexHull(contour, convex_contour, false);
-        poly.clear();
-        //cv::approxPolyDP(convex_contour, poly, 20, true);
 
         if (cv::isContourConvex(convex_contour))
         {
@@ -94,274 +84,706 @@ std::vector<TargetInfo> processImpl(int w, int h, int texOut, DisplayMode mode,
             target.centroid_y = bounding_rect.y + bounding_rect.height;
             target.width = bounding_rect.width;target.height = bounding_rect.height;
             target.points = convex_contour;
+            target.area = cv::contourArea(contour);
+            results.candidates.push_back(std::move(target));
+        }
+    }
+}
 
-            //Filter based on size
-            //Keep in mind width/height are in imager terms...
-            //TODO: Revise based on New Size
-            const double kMinTargetWidth = 20;
-            const double kMaxTargetWidth = 300;
-            const double kMinTargetHeight = 10;
-            const double kMaxTargetHeight = 100;
-            if (target.width < kMinTargetWidth || target.width > kMaxTargetWidth ||
-                target.height < kMinTargetHeight || target.height > kMaxTargetHeight)
-            {
-                LOGD("Rejecting target due to size. H: %.2lf | W: %.2lf",
-                    target.height, target.width);
-                rejected_targets.push_back(std::move(target));
-                continue;
-            }
-
-            // Filter based on shape
-            const double kMaxWideness = 7.0;
-            const double kMinWideness = 1.5;
-            double wideness = target.width / target.height;
-            if (wideness < kMinWideness || wideness > kMaxWideness)
-            {
-                LOGD("Rejecting target due to shape : %.2lf", wideness);
-                rejected_targets.push_back(std::move(target));
-                continue;
-            }
-
-            // Filter based on fullness
-            const double kMinFullness = .45;
-            const double kMaxFullness = .95;
-            double original_contour_area = cv::contourArea(contour);
-            double area = target.width * target.height * 1.0;
-            double fullness = original_contour_area / area;
-            if (fullness < kMinFullness || fullness > kMaxFullness)
-            {
-                LOGD("Rejecting target due to fullness : %.2lf", fullness);
-                rejected_targets.push_back(std::move(target));
-                continue;
-            }
-
-            // We found a target
-            LOGD("Found target at %.2lf, %.2lf %.2lf, %.2lf",
-                target.centroid_x, target.centroid_y, target.width, target.height);
-            accepted_targets.push_back(std::move(target));
+//RGB to Pass/Fail Lookup Table - Shared by processImpl (GL Thread) and processRgbaFrame (Pipeline Thread), Which Are
+//Never Both in Use (See Configuration.STAGED_PIPELINE). Every Entry Point Below Also Keeps its Own Static Scratch Mats,
+//so Each Must Only Ever Be Called From One Thread
+static HsvThresholdLut sRgbLut;
+
+//Reads the Frame Back From GL, Thresholds it and Finds the Candidates - Nothing is Drawn Until Java Has Picked the
+//Targets (See drawFrame)
+void processImpl(int w, int h, int h_min, int h_max, int s_min, int s_max,
+                 int v_min, int v_max, cv::Mat *&input_out, cv::Mat *&mask, FrameResults &results)
+{
+    LOGD("Image is %d x %d", w, h);
+    LOGD("H %d-%d S %d-%d V %d-%d", h_min, h_max, s_min, s_max, v_min, v_max);
+    int64_t t;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
+
+    //TODO: Do these arrays really need static lifecycles?
+    //Creates Pixel Array (Mat): https://docs.opencv.org/3.1.0/d3/d63/classcv_1_1Mat.html
+    static cv::Mat input;
+    input.create(h, w, CV_8UC4);
+
+    //Retrieves the Image Bitmap from the 'OpenGL Buffer'
+    //https://stackoverflow.com/questions/29003414/render-camera-preview-on-a-texture-with-target-gl-texture-2d
+    t = getTimeNs();
+    glReadPixels(0, 0, w, h, GL_RGBA, GL_UNSIGNED_BYTE, input.data);
+    results.stageNanos[STAGE_READBACK] = getTimeNs() - t;
+
+    //Rebuilds the RGB to Pass/Fail Lookup Table, Only When the HSV Ranges Have Changed
+    //(The 'color' Stage Now Times That Rebuild - it Stays -1 on Every Other Frame)
+    t = getTimeNs();
+    if (sRgbLut.update(h_min, h_max, s_min, s_max, v_min, v_max))
+    {
+        results.stageNanos[STAGE_COLOR] = getTimeNs() - t;
+    }
+
+    //Binary Image Straight From the RGBA Readback (Colors in Range are White, Else Black)
+    //Same Result as cvtColor(RGBA2RGB), cvtColor(RGB2HSV), inRange - in One Pass, With No HSV Image
+    t = getTimeNs();
+    static cv::Mat thresh;
+    sRgbLut.apply(input, thresh);
+    results.stageNanos[STAGE_THRESHOLD] = getTimeNs() - t;
+
+    //Begins Algorithm to Determine Visible Targets
+    t = getTimeNs();
+    findTargets(thresh, results);
+    results.stageNanos[STAGE_CONTOURS] = getTimeNs() - t;
+
+    //Sets the Mat Pointers to the Read Back Frame and the Threshold Mask
+    input_out = &input;
+    mask = &thresh;
+}
+
+static bool sFieldsRegistered = false;
+
+static jfieldID sCandidatesField;
+static jfieldID sStageNanosField;
+
+static jfieldID sCountField;
+static jfieldID sCentroidXField;
+static jfieldID sCentroidYField;
+static jfieldID sWidthField;
+static jfieldID sHeightField;
+static jfieldID sAreaField;
+static jfieldID sNumPointsField;
+static jfieldID sPointOffsetField;
+static jfieldID sPointCountField;
+static jfieldID sPointsField;
+static jmethodID sEnsureCapacityMethod;
+
+static void ensureJniRegistered(JNIEnv *env)
+{
+    if (sFieldsRegistered)
+    {
+        return;
+    }
+
+    jclass targetsInfoClass =
+        env->FindClass("com/androidFRC/androidVision/NativePart$TargetsInfo");
+    sCandidatesField = env->GetFieldID(targetsInfoClass, "candidates",
+                                       "Lcom/androidFRC/androidVision/vision/CandidateList;");
+    sStageNanosField = env->GetFieldID(targetsInfoClass, "stageNanos", "[J");
+
+    jclass listClass = env->FindClass("com/androidFRC/androidVision/vision/CandidateList");
+    sCountField = env->GetFieldID(listClass, "count", "I");
+    sCentroidXField = env->GetFieldID(listClass, "centroidX", "[D");
+    sCentroidYField = env->GetFieldID(listClass, "centroidY", "[D");
+    sWidthField = env->GetFieldID(listClass, "width", "[D");
+    sHeightField = env->GetFieldID(listClass, "height", "[D");
+    sAreaField = env->GetFieldID(listClass, "area", "[D");
+    sNumPointsField = env->GetFieldID(listClass, "numPoints", "I");
+    sPointOffsetField = env->GetFieldID(listClass, "pointOffset", "[I");
+    sPointCountField = env->GetFieldID(listClass, "pointCount", "[I");
+    sPointsField = env->GetFieldID(listClass, "points", "[I");
+    sEnsureCapacityMethod = env->GetMethodID(listClass, "ensureCapacity", "(II)V");
+    //Set Last - Pipeline Threads May Get Here at the Same Time, and Looking the IDs Up Twice is Harmless
+    sFieldsRegistered = true;
+}
+
+//Copies One Column of the Results Into the Matching Java-Owned double[] (No Java Objects are Created)
+static void writeColumn(JNIEnv *env, jobject list, jfieldID field, const double *values, int count)
+{
+    jdoubleArray array = static_cast<jdoubleArray>(env->GetObjectField(list, field));
+    env->SetDoubleArrayRegion(array, 0, count, values);
+    env->DeleteLocalRef(array);
+}
+
+//Same as Above, for int[] Columns
+static void writeColumn(JNIEnv *env, jobject list, jfieldID field, const jint *values, int count)
+{
+    jintArray array = static_cast<jintArray>(env->GetObjectField(list, field));
+    env->SetIntArrayRegion(array, 0, count, values);
+    env->DeleteLocalRef(array);
+}
+
+//Sends One List of Candidates (With Their Contour Points) to a Java-Side CandidateList
+//The List Grows Itself (Through ensureCapacity) Only When This Frame Has More Than Ever Before
+static void writeCandidates(JNIEnv *env, jobject list, const std::vector<TargetInfo> &candidates)
+{
+    int count = candidates.size();
+    int numPoints = 0;
+    for (const auto &candidate : candidates)
+    {
+        numPoints += candidate.points.size();
+    }
+    env->CallVoidMethod(list, sEnsureCapacityMethod, count, numPoints);
+    if (env->ExceptionCheck())
+    {
+        //Out of Memory While Growing - Leave the Exception for Java and Report Nothing
+        return;
+    }
+    env->SetIntField(list, sCountField, count);
+    env->SetIntField(list, sNumPointsField, numPoints);
+    if (count == 0)
+    {
+        return;
+    }
+
+    static std::vector<double> column;
+    column.resize(count);
+    for (int i = 0; i < count; ++i) column[i] = candidates[i].centroid_x;
+    writeColumn(env, list, sCentroidXField, column.data(), count);
+    for (int i = 0; i < count; ++i) column[i] = candidates[i].centroid_y;
+    writeColumn(env, list, sCentroidYField, column.data(), count);
+    for (int i = 0; i < count; ++i) column[i] = candidates[i].width;
+    writeColumn(env, list, sWidthField, column.data(), count);
+    for (int i = 0; i < count; ++i) column[i] = candidates[i].height;
+    writeColumn(env, list, sHeightField, column.data(), count);
+    for (int i = 0; i < count; ++i) column[i] = candidates[i].area;
+    writeColumn(env, list, sAreaField, column.data(), count);
+
+    //Points are Flattened as x,y Pairs - Candidate i Owns pointCount[i] Pairs Starting at Pair pointOffset[i]
+    static std::vector<jint> offsets, counts, points;
+    offsets.resize(count);
+    counts.resize(count);
+    points.resize(numPoints * 2);
+    int next = 0;
+    for (int i = 0; i < count; ++i)
+    {
+        offsets[i] = next;
+        counts[i] = candidates[i].points.size();
+        for (const auto &p : candidates[i].points)
+        {
+            points[next * 2] = p.x;
+            points[next * 2 + 1] = p.y;
+            next++;
         }
     }
+    writeColumn(env, list, sPointOffsetField, offsets.data(), count);
+    writeColumn(env, list, sPointCountField, counts.data(), count);
+    writeColumn(env, list, sPointsField, points.data(), numPoints * 2);
+}
+
+//Sends Only How Long Each Stage Took to the Java-Side TargetsInfo (For Calls That Find No Candidates)
+static void writeStageNanos(JNIEnv *env, jobject destTargetInfo, const FrameResults &results)
+{
+    ensureJniRegistered(env);
+    jlongArray stages = static_cast<jlongArray>(env->GetObjectField(destTargetInfo, sStageNanosField));
+    env->SetLongArrayRegion(stages, 0, NATIVE_STAGE_COUNT, results.stageNanos);
+    env->DeleteLocalRef(stages);
+}
+
+//Sends Every Convex Contour (Before Any Filtering), and How Long Each Stage Took, to the Java-Side TargetsInfo
+static void writeResults(JNIEnv *env, jobject destTargetInfo, const FrameResults &results)
+{
+    ensureJniRegistered(env);
+    jobject list = env->GetObjectField(destTargetInfo, sCandidatesField);
+    writeCandidates(env, list, results.candidates);
+    env->DeleteLocalRef(list);
 
-    LOGD("Contour analysis costs %d ms", getTimeInterval(t));
+    writeStageNanos(env, destTargetInfo, results);
+}
 
-    //Runs Through the Targets, and Finds Their Relations To One Another
-    //Used to Find the Close Pairs of Targets
-    const double kMaxOffset = 10;
-    bool found = false;
-    for (int i = 0; !found && i < accepted_targets.size(); i++)
+//Draws the Contours of a Java-Side CandidateList (e.g. the Targets the Java TargetPipeline Picked)
+//Optionally Marking Each Centroid
+static void drawCandidates(JNIEnv *env, jobject list, cv::Mat &vis, const cv::Scalar &color, bool mark_centroid)
+{
+    ensureJniRegistered(env);
+    int count = env->GetIntField(list, sCountField);
+    int numPoints = env->GetIntField(list, sNumPointsField);
+    if (count <= 0)
     {
-        for (int j = 0; !found && j < accepted_targets.size(); j++)
+        return;
+    }
+
+    static std::vector<jint> offsets, counts, points;
+    static std::vector<double> centroid_x, centroid_y;
+    offsets.resize(count);
+    counts.resize(count);
+    points.resize(numPoints * 2);
+    centroid_x.resize(count);
+    centroid_y.resize(count);
+    jintArray array = static_cast<jintArray>(env->GetObjectField(list, sPointOffsetField));
+    env->GetIntArrayRegion(array, 0, count, offsets.data());
+    env->DeleteLocalRef(array);
+    array = static_cast<jintArray>(env->GetObjectField(list, sPointCountField));
+    env->GetIntArrayRegion(array, 0, count, counts.data());
+    env->DeleteLocalRef(array);
+    array = static_cast<jintArray>(env->GetObjectField(list, sPointsField));
+    env->GetIntArrayRegion(array, 0, numPoints * 2, points.data());
+    env->DeleteLocalRef(array);
+    jdoubleArray column = static_cast<jdoubleArray>(env->GetObjectField(list, sCentroidXField));
+    env->GetDoubleArrayRegion(column, 0, count, centroid_x.data());
+    env->DeleteLocalRef(column);
+    column = static_cast<jdoubleArray>(env->GetObjectField(list, sCentroidYField));
+    env->GetDoubleArrayRegion(column, 0, count, centroid_y.data());
+    env->DeleteLocalRef(column);
+
+    static std::vector<cv::Point> contour;
+    for (int i = 0; i < count; ++i)
+    {
+        contour.clear();
+        for (int p = offsets[i]; p < offsets[i] + counts[i]; ++p)
         {
-            if (i == j)
-            {
-                continue;
-            }
-
-            TargetInfo targetI = accepted_targets[i];
-            TargetInfo targetJ = accepted_targets[j];
-            double offset = std::abs(targetI.centroid_x - targetJ.centroid_x);
-            if (offset < kMaxOffset)
-            {
-                TargetInfo topTarget = targetI.centroid_y > targetJ.centroid_y ? targetI : targetJ;
-                TargetInfo bottomTarget = targetI.centroid_y < targetJ.centroid_y ? targetI : targetJ;
-                if (topTarget.height > bottomTarget.height)
-                {
-                    targets.push_back(std::move(topTarget));
-                    found = true;
-                    break;
-                }
-            }
+            contour.push_back(cv::Point(points[p * 2], points[p * 2 + 1]));
+        }
+        cv::polylines(vis, contour, true, color, 3);
+        if (mark_centroid)
+        {
+            cv::circle(vis, cv::Point(centroid_x[i], centroid_y[i]), 4, cv::Scalar(255, 50, 255), 3);
         }
     }
+}
 
-    //Write Back - 'vis' is the Image Array that Will Be Displayed
-    t = getTimeMs();
-    static cv::Mat vis;
-    if (mode == DISP_MODE_RAW)
+//Copies Encoded Bytes Straight Into the (Pooled) Java-Side Stream Array in One Go
+//http://adndevblog.typepad.com/cloud_and_mobile/2013/08/android-ndk-passing-complex-data-to-jni.html
+//Returns the Number of Bytes Copied (-1 if the Array Was Too Small)
+static int copyEncoded(JNIEnv *env, const std::vector<unsigned char> &buffer, jbyteArray out_dis)
+{
+    int bufferSize = buffer.size();
+    LOGD("Copying %d Entries", bufferSize);
+    if (bufferSize > env->GetArrayLength(out_dis))
     {
-        vis = input;
+        LOGE("Encoded frame (%d bytes) does not fit the stream buffer", bufferSize);
+        return -1;
     }
-    else if (mode == DISP_MODE_THRESH)
+    env->SetByteArrayRegion(out_dis, 0, bufferSize, reinterpret_cast<const jbyte *>(buffer.data()));
+    return bufferSize;
+}
+
+//Shrinks the Displayed Image (For Scale Below 1), Flips it Right Side Up, JPEG Encodes It at the Given Quality,
+//and Copies it Into the Java-Side Stream Array - One Call per Stream Profile (See stream/StreamProfile)
+//Returns the Number of Encoded Bytes (-1 if the Array Was Too Small)
+//Static Scratch Space - Only Ever Called From One Thread per Mode (The GL Thread, or the Staged Pipeline's Encode Thread)
+static int encodeForStream(JNIEnv *env, const cv::Mat &dis, double scale, int quality, jbyteArray out_dis,
+                           FrameResults &results)
+{
+    //Sets Up Timing Variable
+    int64_t t = getTimeNs();
+
+    //Shrinking First Means Every Later Step Touches Fewer Pixels
+    static cv::Mat small;
+    const cv::Mat *src = &dis;
+    if (scale < 1.0)
     {
-        cv::cvtColor(thresh, vis, CV_GRAY2RGBA);
+        cv::resize(dis, small, cv::Size(), scale, scale, cv::INTER_AREA);
+        src = &small;
     }
-    else
+
+    //imencode Wants BGR - Dropping Alpha Here Also Means the Encoder Reads 3 Bytes a Pixel Instead of 4
+    //Both Are Whole-Image (Vectorized) OpenCV Calls Instead of a Per-Pixel Loop; GL Rows Come Bottom First, so Flip
+    static cv::Mat bgr;
+    static cv::Mat upright;
+    cv::cvtColor(*src, bgr, CV_RGBA2BGR);
+    cv::flip(bgr, upright, 0);
+    results.stageNanos[STAGE_CONVERT] = getTimeNs() - t;
+
+    t = getTimeNs();
+    //Converts Picture on Screen to jpeg format (so that it can be streamed over ip)
+    //The Encode Buffer is Kept Between Frames so it Only Allocates While Growing
+    static std::vector<unsigned char> buffer;
+    static std::vector<int> params(2);
+    params[0] = cv::IMWRITE_JPEG_QUALITY;
+    params[1] = quality;
+    buffer.clear();
+    cv::imencode(".jpg", upright, buffer, params);
+    int bufferSize = copyEncoded(env, buffer, out_dis);
+    results.stageNanos[STAGE_ENCODE] = getTimeNs() - t;
+    return bufferSize;
+}
+
+//Shrinks the Threshold Mask (For Scale Below 1), Flips it Right Side Up and Encodes it as a 1-Bit PNG Into the Java-Side
+//Stream Array - Every Pixel is Either In Range or Not, so Packing 8 to a Byte and Run-Length Deflating Keeps the Edges
+//Exact at a Fraction of a JPEG's Size and Time (No Expanding to RGBA First). One Call per Mask Profile
+//Returns the Number of Encoded Bytes (-1 if the Array Was Too Small)
+//Static Scratch Space - Only Ever Called From One Thread per Mode (The GL Thread, or the Staged Pipeline's Encode Thread)
+static int encodeMaskForStream(JNIEnv *env, const cv::Mat &mask, double scale, jbyteArray out_dis,
+                               FrameResults &results)
+{
+    int64_t t = getTimeNs();
+
+    //Nearest Neighbour so the Smaller Mask is Still Only In Range or Not (No Gray Edges)
+    static cv::Mat small;
+    static cv::Mat upright;
+    const cv::Mat *src = &mask;
+    if (scale < 1.0)
     {
-        vis = input;
-        //Render the targets - Creates the On-Screen Visualization to Show Identified Targets
-        for (auto &target : targets)
-        {
-            cv::polylines(vis, target.points, true, cv::Scalar(0, 112, 255), 3);
-            cv::circle(vis, cv::Point(target.centroid_x, target.centroid_y), 4,
-                 cv::Scalar(255, 50, 255), 3);
-        }
+        cv::resize(mask, small, cv::Size(), scale, scale, cv::INTER_NEAREST);
+        src = &small;
+    }
+    cv::flip(*src, upright, 0);
+    results.stageNanos[STAGE_CONVERT] = getTimeNs() - t;
+
+    t = getTimeNs();
+    //Bilevel Writes One Bit a Pixel (Any Nonzero Byte is Set); Long Runs of Equal Bytes are What RLE is Made For,
+    //and Level 1 Gets Nearly All of the Saving Without the Time the Higher Levels Spend Searching
+    static std::vector<unsigned char> buffer;
+    static std::vector<int> params(6);
+    params[0] = cv::IMWRITE_PNG_BILEVEL;
+    params[1] = 1;
+    params[2] = cv::IMWRITE_PNG_STRATEGY;
+    params[3] = cv::IMWRITE_PNG_STRATEGY_RLE;
+    params[4] = cv::IMWRITE_PNG_COMPRESSION;
+    params[5] = 1;
+    buffer.clear();
+    cv::imencode(".png", upright, buffer, params);
+    int bufferSize = copyEncoded(env, buffer, out_dis);
+    results.stageNanos[STAGE_ENCODE] = getTimeNs() - t;
+    return bufferSize;
+}
+
+//The Frame processFrame Last Read Back, for drawFrame (GL Thread Only)
+static cv::Mat *sFrameInput = NULL;
+//The Image drawFrame Last Put on Screen, for encodeDisplayedFrame (GL Thread Only)
+static cv::Mat *sDisplayed = NULL;
+//The Threshold Mask processFrame Last Made, for drawFrame and encodeDisplayedMask (GL Thread Only) - NULL When Only
+//Reading Back
+static cv::Mat *sDisplayedMask = NULL;
+
+extern "C" void processFrame(JNIEnv *env, int tex1, int w, int h,
+                             int h_min, int h_max, int s_min,
+                             int s_max, int v_min, int v_max,
+                             jobject destTargetInfo)
+{
+    cv::Mat *input;
+    cv::Mat *mask;
+    static FrameResults results;
+    processImpl(w, h, h_min,h_max, s_min, s_max, v_min, v_max, input, mask, results);
+    sFrameInput = input;
+    sDisplayed = NULL;
+    sDisplayedMask = mask;
+    writeResults(env, destTargetInfo, results);
+}
+
+extern "C" void drawFrame(JNIEnv *env, int texOut, int w, int h, int mode, jobject targets, jobject rejected,
+                          jobject destTargetInfo)
+{
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
     }
 
-    if (mode == DISP_MODE_TARGETS_PLUS)
+    if (sFrameInput == NULL || sFrameInput->empty() || sDisplayedMask == NULL)
     {
-        for (auto &target : rejected_targets)
+        LOGE("No processed frame to draw");
+        writeStageNanos(env, destTargetInfo, results);
+        return;
+    }
+
+    //Write Back - 'vis' is the Image Array that Will Be Displayed
+    //Draws the Targets the Java TargetPipeline Picked (The Ones Sent to the Robot) - Same Drawing as annotateFrame
+    //The Threshold Image Gets its Own Mat - Converting Into 'vis' Would Write Into the Frame it Last Wrapped
+    int64_t t = getTimeNs();
+    static cv::Mat vis;
+    static cv::Mat thresh_rgba;
+    DisplayMode display_mode = static_cast<DisplayMode>(mode);
+    if (display_mode == DISP_MODE_THRESH)
+    {
+        cv::cvtColor(*sDisplayedMask, thresh_rgba, CV_GRAY2RGBA);
+        vis = thresh_rgba;
+    }
+    else
+    {
+        vis = *sFrameInput;
+        if (display_mode != DISP_MODE_RAW)
         {
-            cv::polylines(vis, target.points, true, cv::Scalar(255, 0, 0), 3);
+            drawCandidates(env, targets, vis, cv::Scalar(0, 112, 255), true);
+        }
+        if (display_mode == DISP_MODE_TARGETS_PLUS)
+        {
+            drawCandidates(env, rejected, vis, cv::Scalar(255, 0, 0), false);
         }
     }
-    LOGD("Creating vis costs %d ms", getTimeInterval(t));
+    results.stageNanos[STAGE_DRAW] = getTimeNs() - t;
 
     //OpenGL Code - Pushes Image Pixel (Mat) Out to Screen 'glTexSubImage2D'
     //https://developer.android.com/reference/android/opengl/GLUtils.html
     glActiveTexture(GL_TEXTURE0);
     glBindTexture(GL_TEXTURE_2D, texOut);
-    t = getTimeMs();
+    t = getTimeNs();
     //https://www.khronos.org/registry/OpenGL-Refpages/gl4/html/glTexSubImage2D.xhtml
     glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, w, h, GL_RGBA, GL_UNSIGNED_BYTE,
         vis.data);
-    LOGD("glTexSubImage2D() costs %d ms", getTimeInterval(t));
+    results.stageNanos[STAGE_UPLOAD] = getTimeNs() - t;
+    sDisplayed = &vis;
 
-    //Sets the Mat Pointer to the Pointer of the Displayed Mat
-    display = &vis;
-    return targets;
+    writeStageNanos(env, destTargetInfo, results);
 }
 
-static bool sFieldsRegistered = false;
+extern "C" int encodeDisplayedFrame(JNIEnv *env, double scale, int quality, jbyteArray out_dis,
+                                    jobject destTargetInfo)
+{
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
 
-static jfieldID sNumTargetsField;
-static jfieldID sTargetsField;
+    //Called After Java Has Sent the Frame's Targets, so Encoding Never Holds Up the Robot's Update
+    if (sDisplayed == NULL || sDisplayed->empty())
+    {
+        LOGE("No processed frame to encode");
+        writeStageNanos(env, destTargetInfo, results);
+        return -1;
+    }
+    int bufferSize = encodeForStream(env, *sDisplayed, scale, quality, out_dis, results);
 
-static jfieldID sCentroidXField;
-static jfieldID sCentroidYField;
-static jfieldID sWidthField;
-static jfieldID sHeightField;
+    writeStageNanos(env, destTargetInfo, results);
+    return bufferSize;
+}
 
-static void ensureJniRegistered(JNIEnv *env)
+extern "C" int encodeDisplayedMask(JNIEnv *env, double scale, jbyteArray out_dis, jobject destTargetInfo)
 {
-    if (sFieldsRegistered)
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
+
+    //Only processFrame Thresholds on the GL Thread - readbackForStream (YUV Mode) Leaves No Mask Here
+    if (sDisplayedMask == NULL || sDisplayedMask->empty())
     {
+        LOGE("No threshold mask to encode");
+        writeStageNanos(env, destTargetInfo, results);
+        return -1;
+    }
+    int bufferSize = encodeMaskForStream(env, *sDisplayedMask, scale, out_dis, results);
+
+    writeStageNanos(env, destTargetInfo, results);
+    return bufferSize;
+}
+
+extern "C" void processYuvFrame(JNIEnv *env, jobject y_plane, jobject u_plane, jobject v_plane,
+                                int w, int h, int y_row_stride, int uv_row_stride, int uv_pixel_stride,
+                                int h_min, int h_max, int s_min, int s_max, int v_min, int v_max,
+                                jobject destTargetInfo)
+{
+    int64_t t;
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
+
+    //The Camera's Own Buffers - Nothing is Read Back From OpenGL or Converted to RGB
+    YuvPlanes planes;
+    planes.y = static_cast<const uint8_t *>(env->GetDirectBufferAddress(y_plane));
+    planes.u = static_cast<const uint8_t *>(env->GetDirectBufferAddress(u_plane));
+    planes.v = static_cast<const uint8_t *>(env->GetDirectBufferAddress(v_plane));
+    planes.width = w;
+    planes.height = h;
+    planes.y_row_stride = y_row_stride;
+    planes.uv_row_stride = uv_row_stride;
+    planes.uv_pixel_stride = uv_pixel_stride;
+    if (planes.y == NULL || planes.u == NULL || planes.v == NULL)
+    {
+        LOGE("YUV planes are not direct buffers");
+        results.candidates.clear();
+        writeResults(env, destTargetInfo, results);
         return;
     }
 
-    sFieldsRegistered = true;
-    jclass targetsInfoClass =
-        env->FindClass("com/androidFRC/androidVision/NativePart$TargetsInfo");
-    sNumTargetsField = env->GetFieldID(targetsInfoClass, "numTargets", "I");
-    sTargetsField = env->GetFieldID(targetsInfoClass, "targets",
-        "[Lcom/androidFRC/androidVision/NativePart$TargetsInfo$Target;");
-    jclass targetClass =env->FindClass("com/androidFRC/androidVision/NativePart$TargetsInfo$Target");
-
-    sCentroidXField = env->GetFieldID(targetClass, "centroidX", "D");
-    sCentroidYField = env->GetFieldID(targetClass, "centroidY", "D");
-    sWidthField = env->GetFieldID(targetClass, "width", "D");
-    sHeightField = env->GetFieldID(targetClass, "height", "D");
+    //Rebuilds the YUV to Pass/Fail Lookup Table, Only When the HSV Ranges Have Changed
+    static YuvThresholdLut lut;
+    t = getTimeNs();
+    if (lut.update(h_min, h_max, s_min, s_max, v_min, v_max))
+    {
+        results.stageNanos[STAGE_COLOR] = getTimeNs() - t;
+    }
+
+    t = getTimeNs();
+    static cv::Mat thresh;
+    lut.apply(planes, thresh);
+    results.stageNanos[STAGE_THRESHOLD] = getTimeNs() - t;
+
+    t = getTimeNs();
+    findTargets(thresh, results);
+    results.stageNanos[STAGE_CONTOURS] = getTimeNs() - t;
+
+    writeResults(env, destTargetInfo, results);
 }
 
-inline unsigned int colorRGBAToARGB(unsigned int x)
+extern "C" void readbackForStream(JNIEnv *env, int w, int h, jobject destTargetInfo)
 {
-    //https://stackoverflow.com/questions/11259391/fast-converting-rgba-to-argb
-    return (unsigned int) ((x & 0xff000000) |
-                            (x & 0x000000ff) << 16 |
-                            (x & 0x0000ff00) |
-                            ((x & 0x00ff0000) >> 16));
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
+
+    //Only Feeds the Video Stream (Targets Come From processYuvFrame), so There is Nothing to Threshold or Draw
+    //encodeDisplayedFrame Then Encodes it Once per Stream Profile
+    static cv::Mat input;
+    input.create(h, w, CV_8UC4);
+    int64_t t = getTimeNs();
+    glReadPixels(0, 0, w, h, GL_RGBA, GL_UNSIGNED_BYTE, input.data);
+    results.stageNanos[STAGE_READBACK] = getTimeNs() - t;
+    sFrameInput = NULL;
+    sDisplayed = &input;
+    sDisplayedMask = NULL;
+
+    writeStageNanos(env, destTargetInfo, results);
 }
 
-extern "C" void processFrame(JNIEnv *env, int tex1, int tex2, int w, int h,
-                             int mode, int h_min, int h_max, int s_min,
-                             int s_max, int v_min, int v_max,
-                             jobject destTargetInfo)
+extern "C" void readbackFrame(JNIEnv *env, int w, int h, jobject rgba_buffer, jobject destTargetInfo)
 {
-    cv::Mat *dis;
-    auto targets = processImpl(w, h, tex2, static_cast<DisplayMode>(mode), h_min,h_max, s_min, s_max, v_min, v_max, dis);
-    int numTargets = targets.size();
-    ensureJniRegistered(env);
-    env->SetIntField(destTargetInfo, sNumTargetsField, numTargets);
-    if (numTargets == 0)
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
     {
-        return;
+        results.stageNanos[i] = -1;
     }
 
-    //Sends all of the Target Information to Java-Side Objects
-    jobjectArray targetsArray = static_cast<jobjectArray>(env->GetObjectField(destTargetInfo, sTargetsField));
-    for (int i = 0; i < std::min(numTargets, 3); ++i)
+    //Reads Straight Into the Pipeline Frame's Own Buffer - Everything After This Runs Off the GL Thread
+    void *rgba = env->GetDirectBufferAddress(rgba_buffer);
+    if (rgba == NULL || env->GetDirectBufferCapacity(rgba_buffer) < (jlong) w * h * 4)
     {
-        jobject targetObject = env->GetObjectArrayElement(targetsArray, i);
-        const auto &target = targets[i];
-        env->SetDoubleField(targetObject, sCentroidXField, target.centroid_x);
-        env->SetDoubleField(targetObject, sCentroidYField, target.centroid_y);
-        env->SetDoubleField(targetObject, sWidthField, target.width);
-        env->SetDoubleField(targetObject, sHeightField, target.height);
+        LOGE("RGBA buffer is not a direct buffer of %d x %d pixels", w, h);
+        writeStageNanos(env, destTargetInfo, results);
+        return;
     }
+    int64_t t = getTimeNs();
+    glReadPixels(0, 0, w, h, GL_RGBA, GL_UNSIGNED_BYTE, rgba);
+    results.stageNanos[STAGE_READBACK] = getTimeNs() - t;
+
+    writeStageNanos(env, destTargetInfo, results);
 }
 
-extern "C" void processFrameAndSetImage(JNIEnv *env, int tex1, int tex2, int w, int h,
-                               int mode, int h_min, int h_max, int s_min,
-                               int s_max, int v_min, int v_max, jbyte *out_dis,
-                               jobject destTargetInfo)
+extern "C" void processRgbaFrame(JNIEnv *env, jobject rgba_buffer, jobject mask_buffer, int w, int h,
+                                 int h_min, int h_max, int s_min, int s_max, int v_min, int v_max,
+                                 jobject destTargetInfo)
 {
-    cv::Mat *dis;
     int64_t t;
-    auto targets = processImpl(w, h, tex2, static_cast<DisplayMode>(mode), h_min,
-                               h_max, s_min, s_max, v_min, v_max, dis);
-    int numTargets = targets.size();
-    ensureJniRegistered(env);
-    env->SetIntField(destTargetInfo, sNumTargetsField, numTargets);
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
+    {
+        results.stageNanos[i] = -1;
+    }
+
+    uint8_t *rgba = static_cast<uint8_t *>(env->GetDirectBufferAddress(rgba_buffer));
+    uint8_t *mask = static_cast<uint8_t *>(env->GetDirectBufferAddress(mask_buffer));
+    if (rgba == NULL || mask == NULL)
+    {
+        LOGE("Pipeline frame buffers are not direct buffers");
+        results.candidates.clear();
+        writeResults(env, destTargetInfo, results);
+        return;
+    }
+    //Both Mats Wrap the Frame's Buffers, so the Mask Travels On With the Frame (For the Threshold Display Mode)
+    cv::Mat input(h, w, CV_8UC4, rgba);
+    cv::Mat thresh(h, w, CV_8UC1, mask);
+
+    t = getTimeNs();
+    if (sRgbLut.update(h_min, h_max, s_min, s_max, v_min, v_max))
+    {
+        results.stageNanos[STAGE_COLOR] = getTimeNs() - t;
+    }
 
-    //Sets Up Timing Variable and Grabs Output Byte Array From JNI
-    t = getTimeMs();
-    jbyte *arr = env->GetByteArrayElements((jbyteArray) out_dis, NULL);
-    cv::Mat tempMat(dis->rows, dis->cols, dis->type());
+    t = getTimeNs();
+    sRgbLut.apply(input, thresh);
+    results.stageNanos[STAGE_THRESHOLD] = getTimeNs() - t;
 
-    //https://stackoverflow.com/questions/14276655/passing-a-byte-array-from-jni-directly-in-android-bitmap
-    //https://stackoverflow.com/questions/16059389/pass-bitmap-reference-from-java-to-c
-    //https://stackoverflow.com/questions/23001512/c-and-opencv-get-and-set-pixel-color-to-mat
-    //https://stackoverflow.com/questions/4665122/android-pass-bitmap-to-native-in-2-1-and-lower
+    t = getTimeNs();
+    findTargets(thresh, results);
+    results.stageNanos[STAGE_CONTOURS] = getTimeNs() - t;
 
-    //Copies Over Individual Integer (Representing the Pixel) and Converts to ARGB, which Cv:imencode can turn to jpeg format
-    for(int i = dis->rows - 1; i >= 0; i--)
+    writeResults(env, destTargetInfo, results);
+}
+
+//The Image annotateFrame Last Drew, for encodeAnnotatedFrame (Staged Pipeline's Encode Thread Only)
+static cv::Mat sAnnotated;
+
+extern "C" void annotateFrame(JNIEnv *env, jobject rgba_buffer, jobject mask_buffer, int w, int h, int mode,
+                              jobject targets, jobject rejected, jobject destTargetInfo)
+{
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
     {
-        for(int j = dis->cols - 1; j >= 0; j--)
+        results.stageNanos[i] = -1;
+    }
+
+    uint8_t *rgba = static_cast<uint8_t *>(env->GetDirectBufferAddress(rgba_buffer));
+    uint8_t *mask = static_cast<uint8_t *>(env->GetDirectBufferAddress(mask_buffer));
+    if (rgba == NULL || mask == NULL)
+    {
+        LOGE("Pipeline frame buffers are not direct buffers");
+        sAnnotated.release();
+        writeStageNanos(env, destTargetInfo, results);
+        return;
+    }
+    cv::Mat input(h, w, CV_8UC4, rgba);
+    cv::Mat thresh(h, w, CV_8UC1, mask);
+
+    //Draws the Targets the Java TargetPipeline Picked (The Ones Sent to the Robot) Right Onto the Frame
+    //'vis' Wraps the Frame's Own Buffer (Except in Threshold Mode), so it is Only Valid Until the Frame Moves On
+    //The Threshold Image Gets its Own Mat - Converting Into 'vis' Would Write Into Whatever Frame it Last Wrapped
+    int64_t t = getTimeNs();
+    static cv::Mat thresh_rgba;
+    cv::Mat &vis = sAnnotated;
+    DisplayMode display_mode = static_cast<DisplayMode>(mode);
+    if (display_mode == DISP_MODE_THRESH)
+    {
+        cv::cvtColor(thresh, thresh_rgba, CV_GRAY2RGBA);
+        vis = thresh_rgba;
+    }
+    else
+    {
+        vis = input;
+        if (display_mode != DISP_MODE_RAW)
         {
-            tempMat.at<unsigned int>(dis->rows - i - 1, j) = colorRGBAToARGB(dis->at<unsigned int>(i,j));
+            drawCandidates(env, targets, vis, cv::Scalar(0, 112, 255), true);
+        }
+        if (display_mode == DISP_MODE_TARGETS_PLUS)
+        {
+            drawCandidates(env, rejected, vis, cv::Scalar(255, 0, 0), false);
         }
     }
-    LOGD("Array Conversion Costs %d ms", getTimeInterval(t));
+    results.stageNanos[STAGE_DRAW] = getTimeNs() - t;
 
-    t = getTimeMs();
-    //Converts Picture on Screen to jpeg format (so that it can be streamed over ip)
-    cv::InputArray inputArray(tempMat);
-    std::vector<unsigned char> buffer;
-    cv::imencode(".jpg", inputArray, buffer);
-    int bufferSize = buffer.size();
-    LOGD("Copying %d Entries", bufferSize);
+    writeStageNanos(env, destTargetInfo, results);
+}
 
-    //Copies Buffer Bytes to The Java-Side Array
-    for(int i = 0; i < bufferSize; i++)
+extern "C" int encodeAnnotatedFrame(JNIEnv *env, double scale, int quality, jbyteArray out_dis,
+                                    jobject destTargetInfo)
+{
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
     {
-        arr[i] = buffer[i];
+        results.stageNanos[i] = -1;
     }
 
-    //Places a Size Integer at the End of the "Worse-Case Scenario" Sized Byte Array
-    arr[w * h * 4] = (unsigned char) ((bufferSize & 0xff000000) >> 24);
-    arr[w * h * 4 + 1] = (unsigned char) ((bufferSize & 0x00ff0000) >> 16);
-    arr[w * h * 4 + 2] = (unsigned char) ((bufferSize & 0x0000ff00) >> 8);
-    arr[w * h * 4 + 3] = (unsigned char) ((bufferSize & 0x000000ff));
-
-    //http://adndevblog.typepad.com/cloud_and_mobile/2013/08/android-ndk-passing-complex-data-to-jni.html
+    if (sAnnotated.empty())
+    {
+        LOGE("No annotated frame to encode");
+        writeStageNanos(env, destTargetInfo, results);
+        return -1;
+    }
+    int bufferSize = encodeForStream(env, sAnnotated, scale, quality, out_dis, results);
 
-    //Releases Java Array Back to Java
-    env->ReleaseByteArrayElements((jbyteArray) out_dis, arr, 0);
-    LOGD("Array Transfer Costs %d ms", getTimeInterval(t));
+    writeStageNanos(env, destTargetInfo, results);
+    return bufferSize;
+}
 
-    if (numTargets == 0)
+extern "C" int encodeFrameMask(JNIEnv *env, jobject mask_buffer, int w, int h, double scale, jbyteArray out_dis,
+                               jobject destTargetInfo)
+{
+    static FrameResults results;
+    for (int i = 0; i < NATIVE_STAGE_COUNT; ++i)
     {
-      return;
+        results.stageNanos[i] = -1;
     }
-    //Sends all of the Target Information to Java-Side Objects
-    jobjectArray targetsArray = static_cast<jobjectArray>(
-        env->GetObjectField(destTargetInfo, sTargetsField));
-    for (int i = 0; i < std::min(numTargets, 3); ++i)
+
+    //The Mask processRgbaFrame Left in the Frame - Encoded Straight From the Frame's Buffer, Whatever the Display Mode
+    uint8_t *mask = static_cast<uint8_t *>(env->GetDirectBufferAddress(mask_buffer));
+    if (mask == NULL)
     {
-        jobject targetObject = env->GetObjectArrayElement(targetsArray, i);
-        const auto &target = targets[i];
-        env->SetDoubleField(targetObject, sCentroidXField, target.centroid_x);
-        env->SetDoubleField(targetObject, sCentroidYField, target.centroid_y);
-        env->SetDoubleField(targetObject, sWidthField, target.width);
-        env->SetDoubleField(targetObject, sHeightField, target.height);
+        LOGE("Pipeline frame buffers are not direct buffers");
+        writeStageNanos(env, destTargetInfo, results);
+        return -1;
     }
+    cv::Mat thresh(h, w, CV_8UC1, mask);
+    int bufferSize = encodeMaskForStream(env, thresh, scale, out_dis, results);
+
+    writeStageNanos(env, destTargetInfo, results);
+    return bufferSize;
 }
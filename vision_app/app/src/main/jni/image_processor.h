@@ -8,10 +8,8 @@ extern "C" {
 
   void processFrame(JNIEnv* env,
                     int tex1,
-                    int tex2,
                     int w,
                     int h,
-                    int mode,
                     int h_min,
                     int h_max,
                     int s_min,
@@ -20,19 +18,89 @@ extern "C" {
                     int v_max,
                     jobject destTargetInfo);
 
-  void processFrameAndSetImage(JNIEnv* env,
-                    int tex1,
-                    int tex2,
+  void drawFrame(JNIEnv* env,
+                    int texOut,
                     int w,
                     int h,
                     int mode,
+                    jobject targets,
+                    jobject rejected,
+                    jobject destTargetInfo);
+
+  int encodeDisplayedFrame(JNIEnv* env,
+                    double scale,
+                    int quality,
+                    jbyteArray out_dis,
+                    jobject destTargetInfo);
+
+  int encodeDisplayedMask(JNIEnv* env,
+                    double scale,
+                    jbyteArray out_dis,
+                    jobject destTargetInfo);
+
+  void processYuvFrame(JNIEnv* env,
+                    jobject y_plane,
+                    jobject u_plane,
+                    jobject v_plane,
+                    int w,
+                    int h,
+                    int y_row_stride,
+                    int uv_row_stride,
+                    int uv_pixel_stride,
                     int h_min,
                     int h_max,
                     int s_min,
                     int s_max,
                     int v_min,
                     int v_max,
-                    jbyte *out_dis,
+                    jobject destTargetInfo);
+
+  void readbackForStream(JNIEnv* env,
+                    int w,
+                    int h,
+                    jobject destTargetInfo);
+
+  void readbackFrame(JNIEnv* env,
+                    int w,
+                    int h,
+                    jobject rgba_buffer,
+                    jobject destTargetInfo);
+
+  void processRgbaFrame(JNIEnv* env,
+                    jobject rgba_buffer,
+                    jobject mask_buffer,
+                    int w,
+                    int h,
+                    int h_min,
+                    int h_max,
+                    int s_min,
+                    int s_max,
+                    int v_min,
+                    int v_max,
+                    jobject destTargetInfo);
+
+  void annotateFrame(JNIEnv* env,
+                    jobject rgba_buffer,
+                    jobject mask_buffer,
+                    int w,
+                    int h,
+                    int mode,
+                    jobject targets,
+                    jobject rejected,
+                    jobject destTargetInfo);
+
+  int encodeAnnotatedFrame(JNIEnv* env,
+                    double scale,
+                    int quality,
+                    jbyteArray out_dis,
+                    jobject destTargetInfo);
+
+  int encodeFrameMask(JNIEnv* env,
+                    jobject mask_buffer,
+                    int w,
+                    int h,
+                    double scale,
+                    jbyteArray out_dis,
                     jobject destTargetInfo);
 
 #ifdef __cplusplus
@@ -4,10 +4,61 @@ JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_processFrame
     JNIEnv *env,
     jclass cls,
     jint tex1,
-    jint tex2,
+    jint w,
+    jint h,
+    jint h_min,
+    jint h_max,
+    jint s_min,
+    jint s_max,
+    jint v_min,
+    jint v_max,
+    jobject destTargetInfo) {
+  processFrame(env, tex1, w, h, h_min, h_max, s_min, s_max, v_min, v_max, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_drawFrame(
+    JNIEnv *env,
+    jclass cls,
+    jint texOut,
     jint w,
     jint h,
     jint mode,
+    jobject targets,
+    jobject rejected,
+    jobject destTargetInfo) {
+  drawFrame(env, texOut, w, h, mode, targets, rejected, destTargetInfo);
+}
+
+JNIEXPORT jint JNICALL Java_com_androidFRC_androidVision_NativePart_encodeDisplayedFrame(
+    JNIEnv *env,
+    jclass cls,
+    jdouble scale,
+    jint quality,
+    jbyteArray out_dis,
+    jobject destTargetInfo) {
+  return encodeDisplayedFrame(env, scale, quality, out_dis, destTargetInfo);
+}
+
+JNIEXPORT jint JNICALL Java_com_androidFRC_androidVision_NativePart_encodeDisplayedMask(
+    JNIEnv *env,
+    jclass cls,
+    jdouble scale,
+    jbyteArray out_dis,
+    jobject destTargetInfo) {
+  return encodeDisplayedMask(env, scale, out_dis, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_processYuvFrame(
+    JNIEnv *env,
+    jclass cls,
+    jobject y_plane,
+    jobject u_plane,
+    jobject v_plane,
+    jint w,
+    jint h,
+    jint y_row_stride,
+    jint uv_row_stride,
+    jint uv_pixel_stride,
     jint h_min,
     jint h_max,
     jint s_min,
@@ -15,24 +66,78 @@ JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_processFrame
     jint v_min,
     jint v_max,
     jobject destTargetInfo) {
-  processFrame(env, tex1, tex2, w, h, mode, h_min, h_max, s_min, s_max, v_min, v_max, destTargetInfo);
-}
-
-  JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_processFrameAndSetImage(
-      JNIEnv *env,
-      jclass cls,
-      jint tex1,
-      jint tex2,
-      jint w,
-      jint h,
-      jint mode,
-      jint h_min,
-      jint h_max,
-      jint s_min,
-      jint s_max,
-      jint v_min,
-      jint v_max,
-      jbyte *out_dis,
-      jobject destTargetInfo) {
-    processFrameAndSetImage(env, tex1, tex2, w, h, mode, h_min, h_max, s_min, s_max, v_min, v_max, out_dis, destTargetInfo);
+  processYuvFrame(env, y_plane, u_plane, v_plane, w, h, y_row_stride, uv_row_stride, uv_pixel_stride,
+                  h_min, h_max, s_min, s_max, v_min, v_max, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_readbackForStream(
+    JNIEnv *env,
+    jclass cls,
+    jint w,
+    jint h,
+    jobject destTargetInfo) {
+  readbackForStream(env, w, h, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_readbackFrame(
+    JNIEnv *env,
+    jclass cls,
+    jint w,
+    jint h,
+    jobject rgba_buffer,
+    jobject destTargetInfo) {
+  readbackFrame(env, w, h, rgba_buffer, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_processRgbaFrame(
+    JNIEnv *env,
+    jclass cls,
+    jobject rgba_buffer,
+    jobject mask_buffer,
+    jint w,
+    jint h,
+    jint h_min,
+    jint h_max,
+    jint s_min,
+    jint s_max,
+    jint v_min,
+    jint v_max,
+    jobject destTargetInfo) {
+  processRgbaFrame(env, rgba_buffer, mask_buffer, w, h, h_min, h_max, s_min, s_max, v_min, v_max, destTargetInfo);
+}
+
+JNIEXPORT void JNICALL Java_com_androidFRC_androidVision_NativePart_annotateFrame(
+    JNIEnv *env,
+    jclass cls,
+    jobject rgba_buffer,
+    jobject mask_buffer,
+    jint w,
+    jint h,
+    jint mode,
+    jobject targets,
+    jobject rejected,
+    jobject destTargetInfo) {
+  annotateFrame(env, rgba_buffer, mask_buffer, w, h, mode, targets, rejected, destTargetInfo);
+}
+
+JNIEXPORT jint JNICALL Java_com_androidFRC_androidVision_NativePart_encodeAnnotatedFrame(
+    JNIEnv *env,
+    jclass cls,
+    jdouble scale,
+    jint quality,
+    jbyteArray out_dis,
+    jobject destTargetInfo) {
+  return encodeAnnotatedFrame(env, scale, quality, out_dis, destTargetInfo);
+}
+
+JNIEXPORT jint JNICALL Java_com_androidFRC_androidVision_NativePart_encodeFrameMask(
+    JNIEnv *env,
+    jclass cls,
+    jobject mask_buffer,
+    jint w,
+    jint h,
+    jdouble scale,
+    jbyteArray out_dis,
+    jobject destTargetInfo) {
+  return encodeFrameMask(env, mask_buffer, w, h, scale, out_dis, destTargetInfo);
 }
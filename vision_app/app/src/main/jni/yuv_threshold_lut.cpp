@@ -0,0 +1,128 @@
+#include "yuv_threshold_lut.h"
+
+#include <algorithm>
+
+#include <opencv2/imgproc.hpp>
+
+//Colors Are Built 256 x 256 at a Time (One Y Value per Chunk) to Keep the Working Mats Small
+static const int kChunk = 256 * 256;
+
+YuvThresholdLut::YuvThresholdLut() : m_bits((1 << 24) / 8), m_built(false)
+{
+}
+
+bool YuvThresholdLut::update(int h_min, int h_max, int s_min, int s_max, int v_min, int v_max)
+{
+    const int ranges[6] = {h_min, h_max, s_min, s_max, v_min, v_max};
+    if (m_built && std::equal(ranges, ranges + 6, m_ranges))
+    {
+        return false;
+    }
+
+    //OpenCV Orders it Y, Cr (V), Cb (U) - U Down the Rows, V Across the Columns, Only Y Changes Between Chunks
+    cv::Mat ycrcb(256, 256, CV_8UC3);
+    for (int u = 0; u < 256; ++u)
+    {
+        uint8_t *row = ycrcb.ptr<uint8_t>(u);
+        for (int v = 0; v < 256; ++v)
+        {
+            row[v * 3 + 1] = (uint8_t) v;
+            row[v * 3 + 2] = (uint8_t) u;
+        }
+    }
+    cv::Mat rgb, hsv, pass;
+    const cv::Scalar lower(h_min, s_min, v_min), upper(h_max, s_max, v_max);
+    int bounds[6] = {256, -1, 256, -1, 256, -1};
+    for (int y = 0; y < 256; ++y)
+    {
+        uint8_t *colors = ycrcb.ptr<uint8_t>(0);
+        for (int i = 0; i < kChunk; ++i)
+        {
+            colors[i * 3] = (uint8_t) y;
+        }
+        cv::cvtColor(ycrcb, rgb, CV_YCrCb2RGB);
+        cv::cvtColor(rgb, hsv, CV_RGB2HSV);
+        cv::inRange(hsv, lower, upper, pass);
+
+        //Chunk Index is (u << 8) | v, so Each Y Value Fills 8 KB of the Table in Order
+        const uint8_t *passed = pass.ptr<uint8_t>(0);
+        uint8_t *bits = &m_bits[y * (kChunk / 8)];
+        for (int i = 0; i < kChunk; i += 8)
+        {
+            uint8_t packed = 0;
+            for (int bit = 0; bit < 8; ++bit)
+            {
+                if (passed[i + bit])
+                {
+                    packed |= 1 << bit;
+                    int u = (i + bit) >> 8, v = (i + bit) & 0xFF;
+                    bounds[0] = std::min(bounds[0], y);
+                    bounds[1] = std::max(bounds[1], y);
+                    bounds[2] = std::min(bounds[2], u);
+                    bounds[3] = std::max(bounds[3], u);
+                    bounds[4] = std::min(bounds[4], v);
+                    bounds[5] = std::max(bounds[5], v);
+                }
+            }
+            bits[i >> 3] = packed;
+        }
+    }
+
+    std::copy(ranges, ranges + 6, m_ranges);
+    std::copy(bounds, bounds + 6, m_bounds);
+    m_built = true;
+    return true;
+}
+
+//Rows Are Split Across OpenCV's Worker Threads
+class ApplyYuvLutBody : public cv::ParallelLoopBody
+{
+public:
+    ApplyYuvLutBody(const uint8_t *bits, const int *bounds, const YuvPlanes &planes, cv::Mat &mask)
+        : m_bits(bits), m_bounds(bounds), m_planes(planes), m_mask(mask)
+    {
+    }
+
+    virtual void operator()(const cv::Range &rows) const
+    {
+        const uint8_t *bits = m_bits;
+        const int y_min = m_bounds[0], y_max = m_bounds[1];
+        const int u_min = m_bounds[2], u_max = m_bounds[3];
+        const int v_min = m_bounds[4], v_max = m_bounds[5];
+        const int step = m_planes.uv_pixel_stride;
+        for (int row = rows.start; row < rows.end; ++row)
+        {
+            const uint8_t *y_row = m_planes.y + row * m_planes.y_row_stride;
+            const uint8_t *u_row = m_planes.u + (row >> 1) * m_planes.uv_row_stride;
+            const uint8_t *v_row = m_planes.v + (row >> 1) * m_planes.uv_row_stride;
+            //Camera Rows Are Top Down, the Mask is Bottom Row First Like the GL Readback
+            uint8_t *out = m_mask.ptr<uint8_t>(m_planes.height - 1 - row);
+            for (int x = 0; x < m_planes.width; ++x)
+            {
+                int y = y_row[x];
+                int u = u_row[(x >> 1) * step];
+                int v = v_row[(x >> 1) * step];
+                if (y < y_min || y > y_max || u < u_min || u > u_max || v < v_min || v > v_max)
+                {
+                    out[x] = 0;
+                    continue;
+                }
+                uint32_t color = ((uint32_t) y << 16) | ((uint32_t) u << 8) | (uint32_t) v;
+                out[x] = (uint8_t) -((bits[color >> 3] >> (color & 7)) & 1);
+            }
+        }
+    }
+
+private:
+    const uint8_t *m_bits;
+    const int *m_bounds;
+    const YuvPlanes &m_planes;
+    cv::Mat &m_mask;
+};
+
+void YuvThresholdLut::apply(const YuvPlanes &planes, cv::Mat &mask) const
+{
+    CV_Assert(m_built);
+    mask.create(planes.height, planes.width, CV_8UC1);
+    cv::parallel_for_(cv::Range(0, planes.height), ApplyYuvLutBody(&m_bits[0], m_bounds, planes, mask));
+}
@@ -0,0 +1,45 @@
+#pragma once
+
+#include <stdint.h>
+#include <vector>
+
+#include <opencv2/core.hpp>
+
+//One Camera2 YUV_420_888 Image - Chroma is Half Resolution Both Ways; uv_pixel_stride is 1 for I420, 2 for NV21/NV12
+struct YuvPlanes
+{
+    const uint8_t *y;
+    const uint8_t *u;
+    const uint8_t *v;
+    int width;
+    int height;
+    int y_row_stride;
+    int uv_row_stride;
+    int uv_pixel_stride;
+};
+
+//HSV Threshold Straight on the Camera's YUV Planes - No OpenGL Readback and No Conversion to RGB (See vision/YuvThresholdLut.java)
+//The User's HSV Ranges Are Mapped to YUV by Running Every (Y, U, V) Through Full-Range BT.601 (JFIF, What Camera2 Delivers)
+//to RGB, Then OpenCV's RGB2HSV and inRange, Into One Pass/Fail Bit per Color. The Y/U/V Box Around the Passing Colors
+//Rejects Most Pixels Before the Table is Even Touched
+//No Android Dependencies, so it Builds and Runs on a Linux Host With Plain OpenCV
+class YuvThresholdLut
+{
+public:
+    YuvThresholdLut();
+
+    //Rebuilds the Table if the HSV Ranges Differ From the Last Build - Returns Whether it Did
+    bool update(int h_min, int h_max, int s_min, int s_max, int v_min, int v_max);
+
+    //Writes 255 for Pixels in Range, Else 0 (Each Chroma Sample Covers a 2x2 Block) - Bottom Row First, Like the GL Readback
+    void apply(const YuvPlanes &planes, cv::Mat &mask) const;
+
+    //Smallest Box Holding Every Passing Color: {y_min, y_max, u_min, u_max, v_min, v_max} (Empty if min > max)
+    const int *bounds() const { return m_bounds; }
+
+private:
+    std::vector<uint8_t> m_bits;
+    int m_ranges[6];
+    int m_bounds[6];
+    bool m_built;
+};
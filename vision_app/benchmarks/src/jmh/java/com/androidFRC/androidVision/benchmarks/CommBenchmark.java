@@ -0,0 +1,83 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.comm.BinaryWireFormat;
+import com.androidFRC.androidVision.comm.VisionUpdate;
+import com.androidFRC.androidVision.comm.messages.HeartbeatMessage;
+import com.androidFRC.androidVision.comm.messages.OffWireMessage;
+import com.androidFRC.androidVision.comm.messages.TargetUpdateMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What Every Frame (and Every Heartbeat) Costs on the Robot Connection: JSON Building, JSON Parsing, Binary Framing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommBenchmark
+{
+    @Param({"1", "3"})
+    public int targets;
+
+    private VisionUpdate mUpdate;
+    private TargetUpdateMessage mMessage;
+    private ByteBuffer mBinary;
+    private long mNow;
+
+    private static final String HEARTBEAT_LINE = "{\"type\":\"heartbeat\",\"message\":\"{\\\"wire\\\":\\\"binary1\\\"}\"}";
+
+    @Setup
+    public void setup()
+    {
+        mNow = System.nanoTime();
+        mUpdate = new VisionUpdate(mNow - 25000000L);
+        for (int i = 0; i < targets; i++)
+        {
+            mUpdate.addCameraTarget(0.1 * i - 0.05, 0.2 - 0.01 * i);
+        }
+        mMessage = new TargetUpdateMessage(mUpdate, mNow);
+        mBinary = ByteBuffer.allocate(mMessage.getMaxBinarySize());
+    }
+
+    @Benchmark
+    public String visionUpdateGetSendableJsonString()
+    {
+        return mUpdate.getSendableJsonString(mNow);
+    }
+
+    @Benchmark
+    public String targetUpdateMessageToJson()
+    {
+        return mMessage.toJson();
+    }
+
+    @Benchmark
+    public String heartbeatMessageToJson()
+    {
+        return HeartbeatMessage.getInstance().toJson();
+    }
+
+    @Benchmark
+    public String offWireMessageParse()
+    {
+        return new OffWireMessage(HEARTBEAT_LINE).getType();
+    }
+
+    @Benchmark
+    public int binaryWriteTargets()
+    {
+        mBinary.clear();
+        BinaryWireFormat.writeTargets(mBinary, mUpdate.getCapturedAgoMs(mNow), mUpdate.getTargets());
+        return mBinary.position();
+    }
+}
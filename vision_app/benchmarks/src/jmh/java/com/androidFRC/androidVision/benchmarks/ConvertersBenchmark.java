@@ -0,0 +1,90 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.utils.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting Contour Points Into an OpenCV Mat From Java - The Converters Way (Boxed Points) vs Primitive Arrays
+ * (ContourExtractor Uses the Primitive Way)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConvertersBenchmark
+{
+    @Param({"16", "128"})
+    public int points;
+
+    private List<Point> mPointList;
+    private Point[] mPointArray;
+    private int[] mXY;
+    private Mat mReused;
+
+    @Setup
+    public void setup()
+    {
+        nu.pattern.OpenCV.loadShared();
+        mPointList = new ArrayList<>(points);
+        mPointArray = new Point[points];
+        mXY = new int[points * 2];
+        for (int i = 0; i < points; i++)
+        {
+            double angle = 2 * Math.PI * i / points;
+            int x = (int) (320 + 100 * Math.cos(angle));
+            int y = (int) (240 + 60 * Math.sin(angle));
+            mPointArray[i] = new Point(x, y);
+            mPointList.add(mPointArray[i]);
+            mXY[i * 2] = x;
+            mXY[i * 2 + 1] = y;
+        }
+        mReused = new Mat();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        mReused.release();
+    }
+
+    @Benchmark
+    public long convertersVectorPointToMat()
+    {
+        Mat m = Converters.vector_Point_to_Mat(mPointList);
+        long total = m.total();
+        m.release();
+        return total;
+    }
+
+    @Benchmark
+    public long matOfPointFromArray()
+    {
+        MatOfPoint m = new MatOfPoint(mPointArray);
+        long total = m.total();
+        m.release();
+        return total;
+    }
+
+    @Benchmark
+    public long reusedMatPutIntArray()
+    {
+        mReused.create(points, 1, CvType.CV_32SC2);
+        mReused.put(0, 0, mXY);
+        return mReused.total();
+    }
+}
@@ -0,0 +1,144 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.comm.RobotLink;
+import com.androidFRC.androidVision.comm.messages.VisionMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time From RobotConnection.send to the Robot Reading the Message, Against a Mock Robot Over Loopback
+ * The Mock Answers Every Heartbeat Like a Real Robot (Staying on JSON Lines), so the Link Counts as Connected
+ * With the Event Loop This is Bounded by the Socket, Not by Any Poll or Sleep Interval
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RobotLinkBenchmark
+{
+    private static final String HEARTBEAT_REPLY = "{\"type\":\"heartbeat\",\"message\":\"{}\"}\n";
+
+    private static final VisionMessage BENCH_MESSAGE = new VisionMessage()
+    {
+        @Override
+        public String getType()
+        {
+            return "bench";
+        }
+
+        @Override
+        public String getMessage()
+        {
+            return "{}";
+        }
+    };
+
+    private final AtomicLong mReceived = new AtomicLong();
+    private ServerSocket mRobot;
+    private Thread mRobotThread;
+    private RobotLink mLink;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException
+    {
+        mRobot = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        mRobotThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try (Socket socket = mRobot.accept())
+                {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                    OutputStream out = socket.getOutputStream();
+                    String line;
+                    while ((line = in.readLine()) != null)
+                    {
+                        if (line.contains("\"heartbeat\""))
+                        {
+                            out.write(HEARTBEAT_REPLY.getBytes("UTF-8"));
+                        }
+                        else
+                        {
+                            mReceived.incrementAndGet();
+                        }
+                    }
+                }
+                catch (IOException e)
+                {
+                    //Closed at Teardown
+                }
+            }
+        }, "mock-robot");
+        mRobotThread.setDaemon(true);
+        mRobotThread.start();
+
+        mLink = new RobotLink(InetAddress.getLoopbackAddress().getHostAddress(), mRobot.getLocalPort(), 100, 800, 100,
+                new RobotLink.Listener()
+                {
+                    @Override
+                    public void onRobotConnected()
+                    {
+                    }
+
+                    @Override
+                    public void onRobotDisconnected()
+                    {
+                    }
+
+                    @Override
+                    public void onMessage(VisionMessage message)
+                    {
+                    }
+
+                    @Override
+                    public void onSent(VisionMessage message, long nowNanos)
+                    {
+                    }
+                });
+        mLink.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!mLink.isConnected() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        mLink.stop();
+        mRobot.close();
+    }
+
+    @Benchmark
+    public long sendToRobot()
+    {
+        long target = mReceived.get() + 1;
+        mLink.send(BENCH_MESSAGE);
+        long received;
+        while ((received = mReceived.get()) < target)
+        {
+            //Spin - Sleeping Here Would Measure the Scheduler, Not the Link
+        }
+        return received;
+    }
+}
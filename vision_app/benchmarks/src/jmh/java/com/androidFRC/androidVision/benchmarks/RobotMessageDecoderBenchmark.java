@@ -0,0 +1,137 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.comm.RobotMessageDecoder;
+import com.androidFRC.androidVision.comm.messages.OffWireMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding What the Robot Sends - Mostly Heartbeats, Some Mode Changes, the Odd Malformed or Binary Frame - Cut Into
+ * Segments the Way TCP Might Deliver Them: Single Bytes, Random Small Pieces, or Many Messages Coalesced Into One Read
+ * (Segment Sizes Are Random Around the Parameter, From a Fixed Seed) - Throughput Only; That Every Split Decodes the
+ * Same Messages is Checked by RobotMessageDecoderTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RobotMessageDecoderBenchmark
+{
+    private static final int MESSAGES = 1000;
+    private static final String HEARTBEAT_LINE = "{\"type\":\"heartbeat\",\"message\":\"{\\\"wire\\\":\\\"binary1\\\"}\"}\n";
+
+    @Param({"1", "16", "1500", "65536"})
+    public int segmentBytes;
+
+    private ByteBuffer[] mSegments;
+    private byte[] mStream;
+    private final RobotMessageDecoder mDecoder = new RobotMessageDecoder();
+    private final Counter mCounter = new Counter();
+
+    @Setup
+    public void setup() throws IOException
+    {
+        Random random = new Random(254);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            int kind = random.nextInt(20);
+            if (kind == 0)
+            {
+                out.write("{\"type\":\"camera_mode\",\"message\":\"intake\"}\n".getBytes("UTF-8"));
+            }
+            else if (kind == 1)
+            {
+                out.write("not json\n".getBytes("UTF-8"));
+            }
+            else if (kind == 2)
+            {
+                out.write(new byte[] {(byte) 0xB7, 3, 2, '\n', 7});
+            }
+            else
+            {
+                out.write(HEARTBEAT_LINE.getBytes("UTF-8"));
+            }
+        }
+        mStream = out.toByteArray();
+
+        ByteBuffer[] segments = new ByteBuffer[mStream.length];
+        int count = 0;
+        for (int p = 0; p < mStream.length; )
+        {
+            int n = segmentBytes == 1 ? 1 : 1 + random.nextInt(2 * segmentBytes);
+            n = Math.min(n, mStream.length - p);
+            segments[count++] = ByteBuffer.wrap(mStream, p, n).slice();
+            p += n;
+        }
+        mSegments = new ByteBuffer[count];
+        System.arraycopy(segments, 0, mSegments, 0, count);
+    }
+
+    @Benchmark
+    public int decode()
+    {
+        mDecoder.reset();
+        mCounter.heartbeats = 0;
+        mCounter.others = 0;
+        for (ByteBuffer segment : mSegments)
+        {
+            segment.clear();
+            mDecoder.feed(segment, mCounter);
+        }
+        return mCounter.heartbeats + mCounter.others;
+    }
+
+    /**
+     * What ReadThread Used to Do With the Same Bytes: Lines as Strings, Each Parsed to a JSONObject
+     * (Only Meaningful Coalesced - it Reads From One Stream, so the Segment Size Does Not Apply)
+     */
+    @Benchmark
+    public int readLineAndParseJson() throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(mStream), "UTF-8"));
+        int heartbeats = 0;
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.startsWith("{") && "heartbeat".equals(new OffWireMessage(line).getType()))
+            {
+                heartbeats++;
+            }
+        }
+        return heartbeats;
+    }
+
+    private static class Counter implements RobotMessageDecoder.Handler
+    {
+        int heartbeats;
+        int others;
+
+        @Override
+        public void onHeartbeat(boolean binaryWire, long echoMicros, long receivedMicros, long sentMicros)
+        {
+            heartbeats++;
+        }
+
+        @Override
+        public void onMessage(String type, String message)
+        {
+            others++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.stream.MjpgStreamServer;
+import com.androidFRC.androidVision.stream.StreamFrame;
+import com.androidFRC.androidVision.stream.StreamFramePool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost to the Vision Thread of Handing One Encoded Frame to Every MJPEG Viewer (Real Sockets Over Loopback)
+ * Viewers Read as Fast as They Can on Their Own Threads, so Slow Sockets Show Up as Dropped Frames, Not Stalls
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StreamFanOutBenchmark
+{
+    @Param({"1", "4"})
+    public int clients;
+
+    @Param({"40000"})
+    public int frameBytes;
+
+    private MjpgStreamServer mServer;
+    private StreamFramePool mPool;
+    private Socket[] mSockets;
+    private Thread[] mReaders;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException
+    {
+        mServer = new MjpgStreamServer(0);
+        mServer.start();
+        mPool = new StreamFramePool(frameBytes, 8);
+
+        mSockets = new Socket[clients];
+        mReaders = new Thread[clients];
+        for (int i = 0; i < clients; i++)
+        {
+            final Socket socket = new Socket(InetAddress.getLoopbackAddress(), mServer.getLocalPort());
+            socket.getOutputStream().write("GET / HTTP/1.0\r\n\r\n".getBytes("US-ASCII"));
+            mSockets[i] = socket;
+            mReaders[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    byte[] sink = new byte[1 << 16];
+                    try
+                    {
+                        InputStream in = socket.getInputStream();
+                        while (in.read(sink) >= 0)
+                        {
+                            //Discard
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        //Closed at Teardown
+                    }
+                }
+            }, "viewer-" + i);
+            mReaders[i].setDaemon(true);
+            mReaders[i].start();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mServer.getViewerCount() < clients && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        for (Socket socket : mSockets)
+        {
+            socket.close();
+        }
+        mServer.stop();
+    }
+
+    @Benchmark
+    public boolean publish()
+    {
+        StreamFrame frame = mPool.acquire();
+        if (frame == null)
+        {
+            //Every Pooled Frame is Still on a Socket - The Phone Would Fall Back to Not Streaming This Frame
+            return false;
+        }
+        frame.setLength(frameBytes);
+        mServer.publish(frame);
+        frame.release();
+        return true;
+    }
+}
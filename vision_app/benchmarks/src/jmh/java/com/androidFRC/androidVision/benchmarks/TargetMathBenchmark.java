@@ -0,0 +1,86 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.comm.VisionUpdate;
+import com.androidFRC.androidVision.vision.CandidateList;
+import com.androidFRC.androidVision.vision.HomogeneousVectors;
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+import com.androidFRC.androidVision.vision.TargetPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java Half of onCameraTexture: Filtering Candidates, Then Turning Targets Into Homogeneous Vectors for the Robot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TargetMathBenchmark
+{
+    //Same Numbers VisionTrackerGLSurfaceView Uses for a 640x480 Image
+    private static final double CENTER_COL = 640 / 2.0 - .5;
+    private static final double CENTER_ROW = 480 / 2.0 - .5;
+    private static final double FOCAL_LENGTH_PIXELS = 520;
+
+    @Param({"3", "20"})
+    public int candidates;
+
+    private CandidateList mCandidates;
+    private TargetPipeline mPipeline;
+    private VisionUpdate mUpdate;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(254);
+        mCandidates = new CandidateList();
+        for (int i = 0; i < candidates; i++)
+        {
+            double width = 10 + random.nextInt(120);
+            double height = 5 + random.nextInt(60);
+            mCandidates.add(random.nextInt(640), random.nextInt(480), width, height,
+                    width * height * (0.3 + 0.7 * random.nextDouble()));
+        }
+        mPipeline = new TargetFilterSettings().buildPipeline();
+        mUpdate = new VisionUpdate(0);
+    }
+
+    @Benchmark
+    public double homogeneousVectors()
+    {
+        double sum = 0;
+        for (int i = 0; i < mCandidates.count; i++)
+        {
+            sum += HomogeneousVectors.y(mCandidates.centroidX[i], CENTER_COL, FOCAL_LENGTH_PIXELS);
+            sum += HomogeneousVectors.z(mCandidates.centroidY[i], CENTER_ROW, FOCAL_LENGTH_PIXELS);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int homogeneousVectorsIntoVisionUpdate()
+    {
+        mUpdate.reset(0);
+        for (int i = 0; i < mCandidates.count; i++)
+        {
+            mUpdate.addCameraTarget(HomogeneousVectors.y(mCandidates.centroidX[i], CENTER_COL, FOCAL_LENGTH_PIXELS),
+                    HomogeneousVectors.z(mCandidates.centroidY[i], CENTER_ROW, FOCAL_LENGTH_PIXELS));
+        }
+        return mUpdate.getTargets().size();
+    }
+
+    @Benchmark
+    public int targetPipeline()
+    {
+        return mPipeline.process(mCandidates).count;
+    }
+}
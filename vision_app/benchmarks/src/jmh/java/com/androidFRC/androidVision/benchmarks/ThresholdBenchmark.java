@@ -0,0 +1,155 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.vision.ContourExtractor;
+import com.androidFRC.androidVision.vision.HsvThresholdLut;
+import com.androidFRC.androidVision.vision.YuvPlanes;
+import com.androidFRC.androidVision.vision.YuvThresholdLut;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RGBA to Threshold Mask for One 640x480 Frame - The Old Three Passes (RGBA2RGB, RGB2HSV, inRange) vs the One-Pass Lookup Table,
+ * and the YUV Table That Thresholds the Camera's Planes Directly (The Phone Runs the C++ Copies, hsv/yuv_threshold_lut.cpp)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ThresholdBenchmark
+{
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    //Same Defaults as res/values/integers.xml
+    private static final int[] HSV = {40, 80, 100, 255, 30, 255};
+
+    private ContourExtractor mExtractor;
+    private HsvThresholdLut mLut;
+    private Mat mRgba;
+    private Mat mHsv;
+    private Mat mThresh;
+    private byte[] mRgbaBytes;
+    private byte[] mMaskBytes;
+    private boolean mRebuildToggle;
+    private YuvThresholdLut mYuvLut;
+    private YuvPlanes mNv21;
+
+    @Setup
+    public void setup()
+    {
+        nu.pattern.OpenCV.loadShared();
+        //Smooth Gradients Plus Noise, Roughly Like a Camera Image (Pure Noise Would Make the Table Lookups Unfairly Random)
+        Random random = new Random(254);
+        mRgbaBytes = new byte[WIDTH * HEIGHT * 4];
+        for (int y = 0, p = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++, p += 4)
+            {
+                mRgbaBytes[p] = (byte) (x * 255 / WIDTH + random.nextInt(8));
+                mRgbaBytes[p + 1] = (byte) (y * 255 / HEIGHT + random.nextInt(8));
+                mRgbaBytes[p + 2] = (byte) ((x + y) * 255 / (WIDTH + HEIGHT) + random.nextInt(8));
+                mRgbaBytes[p + 3] = (byte) 255;
+            }
+        }
+        mRgba = new Mat(HEIGHT, WIDTH, CvType.CV_8UC4);
+        mRgba.put(0, 0, mRgbaBytes);
+        mHsv = new Mat();
+        mThresh = new Mat();
+        mMaskBytes = new byte[WIDTH * HEIGHT];
+
+        mExtractor = new ContourExtractor();
+        mExtractor.setThresholdRanges(HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+        mLut = new HsvThresholdLut();
+        mLut.update(HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+
+        //The Same Kind of Image as NV21 - Gradients in Every Plane, Chroma at Half Resolution
+        byte[] nv21 = new byte[YuvPlanes.frameSize(WIDTH, HEIGHT)];
+        for (int y = 0, p = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++, p++)
+            {
+                nv21[p] = (byte) (x * 255 / WIDTH + random.nextInt(8));
+            }
+        }
+        for (int y = 0, p = WIDTH * HEIGHT; y < HEIGHT / 2; y++)
+        {
+            for (int x = 0; x < WIDTH / 2; x++, p += 2)
+            {
+                nv21[p] = (byte) (y * 255 / (HEIGHT / 2) + random.nextInt(8));
+                nv21[p + 1] = (byte) (x * 255 / (WIDTH / 2) + random.nextInt(8));
+            }
+        }
+        mNv21 = new YuvPlanes();
+        mNv21.wrapNv21(nv21, WIDTH, HEIGHT);
+        mYuvLut = new YuvThresholdLut();
+        mYuvLut.update(HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        mRgba.release();
+        mHsv.release();
+        mThresh.release();
+    }
+
+    @Benchmark
+    public Mat cvtColorThenInRange()
+    {
+        mExtractor.toHsv(mRgba, mHsv);
+        mExtractor.threshold(mHsv, HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5], mThresh);
+        return mThresh;
+    }
+
+    //Includes Copying the Image Out of and the Mask Back Into OpenCV
+    @Benchmark
+    public Mat lookupTableFromMat()
+    {
+        mExtractor.thresholdRgba(mRgba, mThresh);
+        return mThresh;
+    }
+
+    //Just the Lookups - Closest to What the C++ Copy Does on the Readback Buffer
+    @Benchmark
+    public byte[] lookupTableFromArray()
+    {
+        mLut.apply(mRgbaBytes, WIDTH * HEIGHT, mMaskBytes);
+        return mMaskBytes;
+    }
+
+    //Skips the Readback and RGBA Entirely - What the Phone Does With YUV_420_888 Capture
+    @Benchmark
+    public byte[] yuvLookupTable()
+    {
+        mYuvLut.apply(mNv21, mMaskBytes);
+        return mMaskBytes;
+    }
+
+    //Paid Once Each Time the HSV Ranges Change
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean lookupTableRebuild()
+    {
+        //Alternate Between Two Ranges so Every Call Really Rebuilds
+        mRebuildToggle = !mRebuildToggle;
+        return mLut.update(HSV[0], mRebuildToggle ? HSV[1] - 1 : HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean yuvLookupTableRebuild()
+    {
+        mRebuildToggle = !mRebuildToggle;
+        return mYuvLut.update(HSV[0], mRebuildToggle ? HSV[1] - 1 : HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+    }
+}
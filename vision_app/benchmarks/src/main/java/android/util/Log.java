@@ -0,0 +1,16 @@
+package android.util;
+
+/**
+ * Host Stand-In for android.util.Log, so App Classes That Log Can Run on a Desktop JVM (Benchmarks Only)
+ * Only the Calls the Shared Sources Actually Make Are Here
+ */
+public final class Log
+{
+    public static int e(String tag, String msg)
+    {
+        System.err.println("E/" + tag + ": " + msg);
+        return 0;
+    }
+
+    private Log() {}
+}
@@ -0,0 +1,614 @@
+package com.androidFRC.androidVision.benchmarks;
+
+import com.androidFRC.androidVision.comm.BinaryWireFormat;
+import com.androidFRC.androidVision.comm.RobotLink;
+import com.androidFRC.androidVision.comm.messages.TargetUpdateMessage;
+import com.androidFRC.androidVision.comm.messages.VisionMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How Old the Robot's Newest Target Update Is - Over TCP, Then Over UDP - With Loss and Reordering Simulated Between
+ * RobotLink and a Mock Robot on Loopback
+ * A Relay in the Middle Holds Back Each Packet by the Link Delay; a "Lost" One Costs:
+ *   tcp - A Retransmission Timeout, and Everything Sent After it Waits Too (Head-of-Line Blocking)
+ *   udp - Just Itself; Some Datagrams Are Also Held Back Longer so They Arrive Out of Order, and the Robot
+ *         Throws Those Away (See BinaryWireFormat.DatagramDecoder)
+ * The Robot's Update Age (Now Minus the Capture Time of the Newest Update it Has) is Sampled Every Millisecond
+ *
+ * Usage: TransportRunner [--seconds S] [--fps F] [--loss P] [--reorder P] [--delay MS] [--jitter MS] [--rto MS]
+ *   --seconds S - Time to Run Each Transport (Default 10)
+ *   --fps F - Target Updates per Second, Like the Camera (Default 60)
+ *   --loss P - Chance Each Packet is Lost (Default 0.02)
+ *   --reorder P - Chance a Datagram is Held Back Up to the Jitter, Arriving After Later Ones (Default 0.05)
+ *   --delay MS - One-Way Link Delay (Default 2)
+ *   --jitter MS - Most Extra Delay for a Reordered Datagram (Default 20)
+ *   --rto MS - TCP Retransmission Timeout (Default 200, Linux's Minimum)
+ */
+public class TransportRunner
+{
+    private static final String HEARTBEAT_REPLY = "{\"type\":\"heartbeat\",\"message\":\"{\\\"wire\\\":\\\""
+            + BinaryWireFormat.WIRE_NAME + "\\\"}\"}\n";
+
+    private double mSeconds = 10;
+    private double mFps = 60;
+    private double mLoss = 0.02;
+    private double mReorder = 0.05;
+    private long mDelayMs = 2;
+    private long mJitterMs = 20;
+    private long mRtoMs = 200;
+    private volatile boolean mSampling;
+
+    public static void main(String[] args) throws Exception
+    {
+        TransportRunner runner = new TransportRunner();
+        for (int a = 0; a < args.length; a++)
+        {
+            String arg = args[a];
+            if (a + 1 >= args.length)
+            {
+                throw new IllegalArgumentException(arg + " takes a value");
+            }
+            else if (arg.equals("--seconds"))
+            {
+                runner.mSeconds = Double.parseDouble(args[++a]);
+            }
+            else if (arg.equals("--fps"))
+            {
+                runner.mFps = Double.parseDouble(args[++a]);
+            }
+            else if (arg.equals("--loss"))
+            {
+                runner.mLoss = Double.parseDouble(args[++a]);
+            }
+            else if (arg.equals("--reorder"))
+            {
+                runner.mReorder = Double.parseDouble(args[++a]);
+            }
+            else if (arg.equals("--delay"))
+            {
+                runner.mDelayMs = Long.parseLong(args[++a]);
+            }
+            else if (arg.equals("--jitter"))
+            {
+                runner.mJitterMs = Long.parseLong(args[++a]);
+            }
+            else if (arg.equals("--rto"))
+            {
+                runner.mRtoMs = Long.parseLong(args[++a]);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%.0f updates/s for %.0fs, %.1f%% loss, %.1f%% reordered by up to %dms, %dms delay, %dms rto",
+                runner.mFps, runner.mSeconds, runner.mLoss * 100, runner.mReorder * 100, runner.mJitterMs,
+                runner.mDelayMs, runner.mRtoMs));
+        runner.run(false);
+        runner.run(true);
+    }
+
+    /**
+     * One Run Over One Transport
+     * @param datagrams - Send Target Updates Over UDP (Otherwise Everything Stays on TCP)
+     */
+    private void run(boolean datagrams) throws Exception
+    {
+        int frames = (int) (mSeconds * mFps);
+        final long[] capturedAt = new long[frames];
+        final AtomicLong newest = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLong received = new AtomicLong();
+        final Random random = new Random(254);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+
+        //The Robot's Side: Heartbeats and Binary Target Frames Over TCP, Target Datagrams Over UDP
+        final ServerSocket robotTcp = new ServerSocket(0, 1, loopback);
+        final DatagramSocket robotUdp = new DatagramSocket(0, loopback);
+        final BinaryWireFormat.DatagramDecoder datagramDecoder = new BinaryWireFormat.DatagramDecoder();
+        final Receiver onTarget = new Receiver()
+        {
+            @Override
+            public void onTargets(BinaryWireFormat.Targets targets)
+            {
+                if (targets.frameId >= 0 && targets.frameId < capturedAt.length)
+                {
+                    received.incrementAndGet();
+                    long captured = capturedAt[(int) targets.frameId];
+                    long last;
+                    while ((last = newest.get()) < captured && !newest.compareAndSet(last, captured))
+                    {
+                        //Retry - The UDP and TCP Threads Can Both Get Here
+                    }
+                }
+            }
+        };
+        daemon("robot-tcp", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try (Socket socket = robotTcp.accept())
+                {
+                    readRobotStream(socket, onTarget);
+                }
+                catch (IOException e)
+                {
+                    //Closed at the End of the Run
+                }
+            }
+        });
+        daemon("robot-udp", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                byte[] buffer = new byte[2048];
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                BinaryWireFormat.Targets targets = new BinaryWireFormat.Targets();
+                try
+                {
+                    while (true)
+                    {
+                        robotUdp.receive(packet);
+                        if (datagramDecoder.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), targets))
+                        {
+                            onTarget.onTargets(targets);
+                        }
+                    }
+                }
+                catch (IOException e)
+                {
+                    //Closed at the End of the Run
+                }
+            }
+        });
+
+        //The Impaired Link in the Middle
+        TcpRelay tcpRelay = new TcpRelay(robotTcp.getLocalSocketAddress(), new DelayLine("tcp-delay"), random);
+        UdpRelay udpRelay = new UdpRelay(robotUdp.getLocalSocketAddress(), new DelayLine("udp-delay"), random);
+
+        RobotLink link = new RobotLink(loopback.getHostAddress(), tcpRelay.getPort(), datagrams ? udpRelay.getPort() : 0,
+                50, 800, 100, new RobotLink.Listener()
+        {
+            @Override
+            public void onRobotConnected()
+            {
+            }
+
+            @Override
+            public void onRobotDisconnected()
+            {
+            }
+
+            @Override
+            public void onMessage(VisionMessage message)
+            {
+            }
+
+            @Override
+            public void onSent(VisionMessage message, long nowNanos)
+            {
+            }
+        });
+        link.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!link.isConnected() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        //A Few More Heartbeats, so Binary Framing is Agreed Before the First Update
+        Thread.sleep(200);
+
+        final long[] ages = new long[(int) (mSeconds * 1000) + 1000];
+        final int[] sampleCount = new int[1];
+        mSampling = true;
+        Thread sampler = daemon("sampler", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (mSampling && sampleCount[0] < ages.length)
+                {
+                    long last = newest.get();
+                    if (last != Long.MIN_VALUE)
+                    {
+                        ages[sampleCount[0]++] = System.nanoTime() - last;
+                    }
+                    sleepNanos(1000000L);
+                }
+            }
+        });
+
+        long period = (long) (1e9 / mFps);
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+        {
+            long due = start + i * period;
+            sleepNanos(due - System.nanoTime());
+            long now = System.nanoTime();
+            capturedAt[i] = now;
+            TargetUpdateMessage message = TargetUpdateMessage.obtain(now, i);
+            message.getUpdate().addCameraTarget(0.1 * (i % 10), 0.2);
+            message.setTimestamp(now);
+            link.send(message);
+        }
+        mSampling = false;
+        sampler.join();
+
+        link.stop();
+        tcpRelay.close();
+        udpRelay.close();
+        robotTcp.close();
+        robotUdp.close();
+
+        long[] sorted = Arrays.copyOf(ages, sampleCount[0]);
+        Arrays.sort(sorted);
+        String late = datagrams ? String.format(Locale.US, ", %d late datagrams thrown away", datagramDecoder.getLate())
+                : "";
+        System.out.println(String.format(Locale.US,
+                "%s: update age ms p50 %.1f, p90 %.1f, p99 %.1f, max %.1f; %d/%d updates received%s",
+                datagrams ? "udp" : "tcp", percentile(sorted, 0.5), percentile(sorted, 0.9),
+                percentile(sorted, 0.99), percentile(sorted, 1), received.get(), frames, late));
+    }
+
+    /**
+     * Reads What the Phone Sends Over TCP - Answers Heartbeats (Agreeing to Binary Framing) and Decodes Target Frames
+     */
+    private static void readRobotStream(Socket socket, Receiver receiver) throws IOException
+    {
+        final OutputStream out = socket.getOutputStream();
+        InputStream in = socket.getInputStream();
+        BinaryWireFormat.Decoder decoder = new BinaryWireFormat.Decoder();
+        BinaryWireFormat.Targets targets = new BinaryWireFormat.Targets();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] heartbeat = HEARTBEAT_REPLY.getBytes("UTF-8");
+        int read;
+        while ((read = in.read(buffer.array(), buffer.position(), buffer.remaining())) > 0)
+        {
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                if (buffer.get(buffer.position()) == BinaryWireFormat.MARKER)
+                {
+                    byte type = decoder.decode(buffer, targets);
+                    if (type == 0)
+                    {
+                        break;
+                    }
+                    if (type == BinaryWireFormat.TYPE_TARGETS)
+                    {
+                        receiver.onTargets(targets);
+                    }
+                    continue;
+                }
+                //A JSON Line - Only Heartbeats Matter Here, and Each Gets an Answer
+                int end = buffer.position();
+                while (end < buffer.limit() && buffer.get(end) != '\n')
+                {
+                    end++;
+                }
+                if (end == buffer.limit())
+                {
+                    break;
+                }
+                buffer.position(end + 1);
+                out.write(heartbeat);
+            }
+            buffer.compact();
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction)
+    {
+        if (sorted.length == 0)
+        {
+            return Double.NaN;
+        }
+        int index = Math.min(sorted.length - 1, (int) (fraction * sorted.length));
+        return sorted[index] / 1e6;
+    }
+
+    private static void sleepNanos(long nanos)
+    {
+        if (nanos > 0)
+        {
+            try
+            {
+                Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Thread daemon(String name, Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private interface Receiver
+    {
+        void onTargets(BinaryWireFormat.Targets targets);
+    }
+
+    /**
+     * Delivers Each Packet at its Release Time, Earliest First, on its Own Thread
+     */
+    private static class DelayLine
+    {
+        private final PriorityQueue<Packet> mQueue = new PriorityQueue<>();
+        private long mOrder;
+        private boolean mClosed;
+
+        DelayLine(String name)
+        {
+            daemon(name, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    deliverLoop();
+                }
+            });
+        }
+
+        synchronized void add(long releaseNanos, Runnable delivery)
+        {
+            mQueue.add(new Packet(releaseNanos, mOrder++, delivery));
+            notifyAll();
+        }
+
+        synchronized void close()
+        {
+            mClosed = true;
+            notifyAll();
+        }
+
+        private void deliverLoop()
+        {
+            while (true)
+            {
+                Packet next;
+                synchronized (this)
+                {
+                    while (!mClosed && (mQueue.isEmpty() || mQueue.peek().mRelease > System.nanoTime()))
+                    {
+                        try
+                        {
+                            if (mQueue.isEmpty())
+                            {
+                                wait();
+                            }
+                            else
+                            {
+                                long wait = mQueue.peek().mRelease - System.nanoTime();
+                                wait(Math.max(0, wait / 1000000L), (int) Math.max(0, wait % 1000000L));
+                            }
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+                    if (mClosed)
+                    {
+                        return;
+                    }
+                    next = mQueue.poll();
+                }
+                next.mDelivery.run();
+            }
+        }
+
+        private static class Packet implements Comparable<Packet>
+        {
+            final long mRelease;
+            final long mOrder;
+            final Runnable mDelivery;
+
+            Packet(long release, long order, Runnable delivery)
+            {
+                mRelease = release;
+                mOrder = order;
+                mDelivery = delivery;
+            }
+
+            @Override
+            public int compareTo(Packet other)
+            {
+                int c = Long.compare(mRelease, other.mRelease);
+                return c != 0 ? c : Long.compare(mOrder, other.mOrder);
+            }
+        }
+    }
+
+    /**
+     * Accepts the Phone's Connection and Forwards it to the Robot - Phone to Robot Through the Delay Line, in Order,
+     * So a Lost Segment's Retransmission Holds Back Everything Behind It; Robot to Phone Straight Through
+     */
+    private class TcpRelay
+    {
+        private final ServerSocket mServer;
+        private final DelayLine mLine;
+
+        TcpRelay(final SocketAddress robot, DelayLine line, final Random random) throws IOException
+        {
+            mServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            mLine = line;
+            daemon("tcp-relay", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try (Socket phone = mServer.accept(); Socket toRobot = new Socket())
+                    {
+                        phone.setTcpNoDelay(true);
+                        toRobot.setTcpNoDelay(true);
+                        toRobot.connect(robot);
+                        pipe("tcp-relay-down", toRobot.getInputStream(), phone.getOutputStream());
+                        final OutputStream out = toRobot.getOutputStream();
+                        InputStream in = phone.getInputStream();
+                        long lastRelease = 0;
+                        byte[] buffer = new byte[64 * 1024];
+                        int read;
+                        while ((read = in.read(buffer)) > 0)
+                        {
+                            final byte[] segment = Arrays.copyOf(buffer, read);
+                            long delay = mDelayMs + (random.nextDouble() < mLoss ? mRtoMs : 0);
+                            lastRelease = Math.max(lastRelease, System.nanoTime() + delay * 1000000L);
+                            mLine.add(lastRelease, new Runnable()
+                            {
+                                @Override
+                                public void run()
+                                {
+                                    try
+                                    {
+                                        out.write(segment);
+                                    }
+                                    catch (IOException e)
+                                    {
+                                        //Robot Side Closed at the End of the Run
+                                    }
+                                }
+                            });
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        //Closed at the End of the Run
+                    }
+                }
+            });
+        }
+
+        int getPort()
+        {
+            return mServer.getLocalPort();
+        }
+
+        void close() throws IOException
+        {
+            mLine.close();
+            mServer.close();
+        }
+
+        private void pipe(String name, final InputStream in, final OutputStream out)
+        {
+            daemon(name, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    try
+                    {
+                        while ((read = in.read(buffer)) > 0)
+                        {
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        //Closed at the End of the Run
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Forwards the Phone's Datagrams to the Robot, Losing Some and Holding Others Back Past Later Ones
+     */
+    private class UdpRelay
+    {
+        private final DatagramSocket mSocket;
+        private final DelayLine mLine;
+
+        UdpRelay(final SocketAddress robot, DelayLine line, final Random random) throws IOException
+        {
+            mSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            mLine = line;
+            daemon("udp-relay", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    byte[] buffer = new byte[2048];
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    try
+                    {
+                        while (true)
+                        {
+                            mSocket.receive(packet);
+                            if (random.nextDouble() < mLoss)
+                            {
+                                continue;
+                            }
+                            long delay = mDelayMs * 1000000L;
+                            if (random.nextDouble() < mReorder)
+                            {
+                                delay += (long) (random.nextDouble() * mJitterMs * 1000000L);
+                            }
+                            final DatagramPacket forward = new DatagramPacket(
+                                    Arrays.copyOf(buffer, packet.getLength()), packet.getLength(), robot);
+                            mLine.add(System.nanoTime() + delay, new Runnable()
+                            {
+                                @Override
+                                public void run()
+                                {
+                                    try
+                                    {
+                                        mSocket.send(forward);
+                                    }
+                                    catch (IOException e)
+                                    {
+                                        //Closed at the End of the Run
+                                    }
+                                }
+                            });
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        //Closed at the End of the Run
+                    }
+                }
+            });
+        }
+
+        int getPort()
+        {
+            return mSocket.getLocalPort();
+        }
+
+        void close()
+        {
+            mLine.close();
+            mSocket.close();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.androidFRC.androidVision.comm;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round Trips Through BinaryWireFormat's Writers and its Reference Decoders (Stream and Datagram)
+ */
+public class BinaryWireFormatTest
+{
+    private static List<CameraTargetInfo> targets(double... yz)
+    {
+        List<CameraTargetInfo> list = new ArrayList<>();
+        for (int i = 0; i < yz.length; i += 2)
+        {
+            list.add(new CameraTargetInfo(yz[i], yz[i + 1]));
+        }
+        return list;
+    }
+
+    private static ByteBuffer written(long frameId, long robotCapturedAtMicros, long capturedAgoMs,
+                                      List<CameraTargetInfo> targets)
+    {
+        ByteBuffer out = ByteBuffer.allocate(BinaryWireFormat.maxTargetsFrameSize(targets.size()));
+        BinaryWireFormat.writeTargets(out, frameId, robotCapturedAtMicros, capturedAgoMs, targets);
+        out.flip();
+        return out;
+    }
+
+    private static ByteBuffer datagram(long sequence, List<CameraTargetInfo> targets)
+    {
+        ByteBuffer out = ByteBuffer.allocate(BinaryWireFormat.maxDatagramSize(targets.size()));
+        BinaryWireFormat.writeDatagram(out, sequence, 1000 + sequence, -1, -1, 5, targets);
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Feeds the Bytes One at a Time the Way a Socket Might, Collecting the Type of Every Frame Decoded
+     */
+    private static List<Byte> decodeByteByByte(ByteBuffer bytes, BinaryWireFormat.Decoder decoder,
+                                               BinaryWireFormat.Targets into)
+    {
+        List<Byte> types = new ArrayList<>();
+        ByteBuffer received = ByteBuffer.allocate(bytes.remaining());
+        while (bytes.hasRemaining())
+        {
+            received.put(bytes.get());
+            received.flip();
+            byte type;
+            while ((type = decoder.decode(received, into)) != 0)
+            {
+                types.add(type);
+            }
+            received.compact();
+        }
+        assertEquals("Bytes left over after the last frame", 0, received.position());
+        return types;
+    }
+
+    @Test
+    public void targetsRoundTripFedByteByByte()
+    {
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        List<Byte> types = decodeByteByByte(written(-1, -1, 42, targets(0.25, -0.5, 1.5, 2.0)),
+                new BinaryWireFormat.Decoder(), into);
+
+        assertEquals(Arrays.asList(BinaryWireFormat.TYPE_TARGETS), types);
+        assertEquals(42, into.capturedAgoMs);
+        assertEquals(2, into.count);
+        assertEquals(0.25f, into.y[0], 0f);
+        assertEquals(-0.5f, into.z[0], 0f);
+        assertEquals(1.5f, into.y[1], 0f);
+        assertEquals(2.0f, into.z[1], 0f);
+        assertEquals(-1, into.frameId);
+        assertEquals(-1, into.robotCapturedAtMicros);
+        assertEquals(-1, into.sequence);
+    }
+
+    @Test
+    public void manyTargetsGrowTheDecodedArrays()
+    {
+        double[] yz = new double[2 * 9];
+        for (int i = 0; i < yz.length; i++)
+        {
+            yz[i] = i * 0.125;
+        }
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        decodeByteByByte(written(-1, -1, 0, targets(yz)), new BinaryWireFormat.Decoder(), into);
+
+        assertEquals(9, into.count);
+        assertEquals(16 * 0.125f, into.y[8], 0f);
+        assertEquals(17 * 0.125f, into.z[8], 0f);
+    }
+
+    @Test
+    public void frameIdAndRobotTimePrefixesApplyToTheNextTargetsOnly()
+    {
+        ByteBuffer stream = ByteBuffer.allocate(1024);
+        stream.put(written(77, 123456789L, 3, targets(1, 2)));
+        stream.put(written(-1, -1, 4, targets(3, 4)));
+        stream.flip();
+
+        BinaryWireFormat.Decoder decoder = new BinaryWireFormat.Decoder();
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        assertEquals(BinaryWireFormat.TYPE_FRAME_ID, decoder.decode(stream, into));
+        assertEquals(BinaryWireFormat.TYPE_ROBOT_TIME, decoder.decode(stream, into));
+        assertEquals(BinaryWireFormat.TYPE_TARGETS, decoder.decode(stream, into));
+        assertEquals(77, into.frameId);
+        assertEquals(123456789L, into.robotCapturedAtMicros);
+        assertEquals(3, into.capturedAgoMs);
+
+        assertEquals(BinaryWireFormat.TYPE_TARGETS, decoder.decode(stream, into));
+        assertEquals(-1, into.frameId);
+        assertEquals(-1, into.robotCapturedAtMicros);
+        assertEquals(4, into.capturedAgoMs);
+        assertFalse(stream.hasRemaining());
+    }
+
+    @Test
+    public void prefixesSurviveByteByByteDelivery()
+    {
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        List<Byte> types = decodeByteByByte(written(1L << 40, 1L << 50, 9, targets(5, 6)),
+                new BinaryWireFormat.Decoder(), into);
+
+        assertEquals(Arrays.asList(BinaryWireFormat.TYPE_FRAME_ID, BinaryWireFormat.TYPE_ROBOT_TIME,
+                BinaryWireFormat.TYPE_TARGETS), types);
+        assertEquals(1L << 40, into.frameId);
+        assertEquals(1L << 50, into.robotCapturedAtMicros);
+    }
+
+    @Test
+    public void unknownTypeIsSkippedWhole()
+    {
+        ByteBuffer stream = ByteBuffer.allocate(1024);
+        //A Type From Some Later Version, With a Payload This Decoder Knows Nothing About
+        stream.put(BinaryWireFormat.MARKER);
+        BinaryWireFormat.writeVarint(stream, 4);
+        stream.put((byte) 99);
+        stream.put(new byte[] {BinaryWireFormat.MARKER, 1, 2});
+        stream.put(written(-1, -1, 8, targets(7, 8)));
+        stream.flip();
+
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        List<Byte> types = decodeByteByByte(stream, new BinaryWireFormat.Decoder(), into);
+        assertEquals(Arrays.asList((byte) 99, BinaryWireFormat.TYPE_TARGETS), types);
+        assertEquals(8, into.capturedAgoMs);
+        assertEquals(7f, into.y[0], 0f);
+    }
+
+    @Test
+    public void incompleteFrameLeavesTheBufferUntouched()
+    {
+        ByteBuffer whole = written(-1, -1, 1, targets(1, 1));
+        ByteBuffer partial = ByteBuffer.wrap(whole.array(), 0, whole.limit() - 1);
+        assertEquals(0, new BinaryWireFormat.Decoder().decode(partial, new BinaryWireFormat.Targets()));
+        assertEquals(0, partial.position());
+    }
+
+    @Test
+    public void badMarkerIsRejected()
+    {
+        ByteBuffer bytes = written(-1, -1, 1, targets(1, 1));
+        bytes.put(0, (byte) '{');
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void zeroLengthIsRejected()
+    {
+        assertRejected(ByteBuffer.wrap(new byte[] {BinaryWireFormat.MARKER, 0, BinaryWireFormat.TYPE_TARGETS}));
+    }
+
+    @Test
+    public void oversizedLengthIsRejected()
+    {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.put(BinaryWireFormat.MARKER);
+        BinaryWireFormat.writeVarint(bytes, BinaryWireFormat.MAX_FRAME_LENGTH + 1);
+        bytes.put(BinaryWireFormat.TYPE_TARGETS);
+        bytes.flip();
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void targetCountDisagreeingWithLengthIsRejected()
+    {
+        //Claims 2 Targets but Only Carries One
+        ByteBuffer bytes = ByteBuffer.allocate(32);
+        bytes.put(BinaryWireFormat.MARKER);
+        BinaryWireFormat.writeVarint(bytes, 1 + 1 + 1 + 8);
+        bytes.put(BinaryWireFormat.TYPE_TARGETS);
+        BinaryWireFormat.writeVarint(bytes, 0);
+        BinaryWireFormat.writeVarint(bytes, 2);
+        bytes.putFloat(1f).putFloat(2f);
+        bytes.flip();
+        assertRejected(bytes);
+    }
+
+    private static void assertRejected(ByteBuffer bytes)
+    {
+        try
+        {
+            new BinaryWireFormat.Decoder().decode(bytes, new BinaryWireFormat.Targets());
+            fail("Decoded a corrupt frame");
+        }
+        catch (IllegalArgumentException e)
+        {
+            //Expected
+        }
+    }
+
+    @Test
+    public void datagramRoundTrip()
+    {
+        ByteBuffer out = ByteBuffer.allocate(BinaryWireFormat.maxDatagramSize(1));
+        BinaryWireFormat.writeDatagram(out, 12, 3456, 78, 910, 11, targets(0.5, 0.75));
+        out.flip();
+
+        BinaryWireFormat.DatagramDecoder decoder = new BinaryWireFormat.DatagramDecoder();
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        assertTrue(decoder.decode(out, into));
+        assertEquals(12, into.sequence);
+        assertEquals(3456, into.capturedAtMicros);
+        assertEquals(78, into.frameId);
+        assertEquals(910, into.robotCapturedAtMicros);
+        assertEquals(11, into.capturedAgoMs);
+        assertEquals(1, into.count);
+        assertEquals(0.75f, into.z[0], 0f);
+        assertEquals(1, decoder.getAccepted());
+    }
+
+    @Test
+    public void lateAndDuplicateDatagramsAreThrownAway()
+    {
+        BinaryWireFormat.DatagramDecoder decoder = new BinaryWireFormat.DatagramDecoder();
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        List<CameraTargetInfo> t = targets(1, 2);
+
+        assertTrue(decoder.decode(datagram(0, t), into));
+        assertTrue(decoder.decode(datagram(2, t), into));
+        //Reordered Behind 2
+        assertFalse(decoder.decode(datagram(1, t), into));
+        //Duplicated
+        assertFalse(decoder.decode(datagram(2, t), into));
+        //A Gap is Only Lost Datagrams - the Next Newer One is Still Taken
+        assertTrue(decoder.decode(datagram(7, t), into));
+
+        assertEquals(3, decoder.getAccepted());
+        assertEquals(2, decoder.getLate());
+        assertEquals(0, decoder.getMalformed());
+    }
+
+    @Test
+    public void senderRestartingFromZeroIsAcceptedAgain()
+    {
+        BinaryWireFormat.DatagramDecoder decoder = new BinaryWireFormat.DatagramDecoder();
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+        List<CameraTargetInfo> t = targets(1, 2);
+
+        long newest = BinaryWireFormat.DatagramDecoder.RESTART_GAP + 500;
+        assertTrue(decoder.decode(datagram(newest, t), into));
+        //Just Inside the Gap is Still Late
+        assertFalse(decoder.decode(datagram(newest - BinaryWireFormat.DatagramDecoder.RESTART_GAP + 1, t), into));
+        //Far Enough Behind Means the Sender Restarted
+        assertTrue(decoder.decode(datagram(0, t), into));
+        assertTrue(decoder.decode(datagram(1, t), into));
+        assertFalse(decoder.decode(datagram(1, t), into));
+
+        assertEquals(3, decoder.getAccepted());
+        assertEquals(2, decoder.getLate());
+    }
+
+    @Test
+    public void malformedDatagramsAreCounted()
+    {
+        BinaryWireFormat.DatagramDecoder decoder = new BinaryWireFormat.DatagramDecoder();
+        BinaryWireFormat.Targets into = new BinaryWireFormat.Targets();
+
+        //Targets Without a Sequence Frame (What Goes Over TCP) Are Not a Datagram
+        assertFalse(decoder.decode(written(-1, -1, 1, targets(1, 2)), into));
+        //Cut Off Inside a Frame
+        ByteBuffer whole = datagram(3, targets(1, 2));
+        assertFalse(decoder.decode(ByteBuffer.wrap(whole.array(), 0, whole.limit() - 2), into));
+        //Not Binary at All
+        assertFalse(decoder.decode(ByteBuffer.wrap("{\"type\":\"heartbeat\"}".getBytes()), into));
+
+        assertEquals(3, decoder.getMalformed());
+        assertEquals(0, decoder.getAccepted());
+        //A Good One Still Gets Through Afterwards
+        assertTrue(decoder.decode(datagram(3, targets(1, 2)), into));
+    }
+}
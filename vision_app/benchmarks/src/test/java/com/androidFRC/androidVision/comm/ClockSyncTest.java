@@ -0,0 +1,382 @@
+package com.androidFRC.androidVision.comm;
+
+import com.androidFRC.androidVision.comm.messages.TargetUpdateMessage;
+import com.androidFRC.androidVision.comm.messages.VisionMessage;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * How Close ClockSync Gets to a Robot Clock it Cannot See, With Each Direction's Delay Set Separately
+ * Exchange by Exchange on Simulated Links (Exchanges Every 100ms on a Perfect Clock), Then End to End Over Loopback:
+ * RobotLink Against a Mock Robot, Checking the Robot-Clock Capture Time on the Target Updates it Decodes
+ * A Sample's Offset is Off by Half the Difference Between the Two Delays - Jitter Comes and Goes (And is What the
+ * Filter Removes), But Lopsided Base Delays Stay in the Estimate: Neither End Can Tell Them From a Clock Offset
+ */
+public class ClockSyncTest
+{
+    //The Robot's Clock Starts Somewhere Else Entirely (An FPGA Clock Counts From Robot Power-On)
+    private static final long ROBOT_OFFSET_MICROS = 1234567890L;
+    private static final int EXCHANGES = 1000;
+    private static final long[] SEEDS = {1, 2, 3, 254, 1114};
+    //Mean Jitter Each Way in the Jittery Links, and How Far Past Half the Asymmetry the Estimate May Be There - The
+    //Shortest Round Trip in the Window Still Holds Some Queueing (Around 2ms at Worst Over These Seeds)
+    private static final double JITTER_MS = 3;
+    private static final long FILTERED_SLACK_MICROS = 3000;
+    //Loopback Round Trips Are Well Under a Millisecond, but the Test Machine May Stall a Thread Now and Then
+    private static final long LOOPBACK_BOUND_MICROS = 5000;
+    private static final long HEARTBEAT_PERIOD_MS = 20;
+
+    /**
+     * The Estimate's Error After Each Exchange (Once the Window is Full), and the Error of Each Exchange on its Own
+     */
+    private static class Run
+    {
+        final long[] filtered = new long[EXCHANGES - ClockSync.WINDOW];
+        final long[] single = new long[EXCHANGES - ClockSync.WINDOW];
+        final long[] bound = new long[EXCHANGES - ClockSync.WINDOW];
+    }
+
+    /**
+     * One Simulated Link
+     * @param forwardMs - Phone-to-Robot Base Delay
+     * @param backMs - Robot-to-Phone Base Delay
+     * @param jitterMs - Mean Extra Delay Each Way (Exponentially Distributed, Like Queueing)
+     * @param spikeChance - Chance Each Way is Held Up a Further 50ms (A Retransmission, a Busy Radio)
+     */
+    private static Run simulate(long seed, double forwardMs, double backMs, double jitterMs, double spikeChance)
+    {
+        Random random = new Random(seed);
+        ClockSync clock = new ClockSync();
+        Run run = new Run();
+        for (int i = 0; i < EXCHANGES; i++)
+        {
+            long t1 = i * 100000L;
+            long forward = delayMicros(random, forwardMs, jitterMs, spikeChance);
+            long hold = 100 + random.nextInt(400);
+            long back = delayMicros(random, backMs, jitterMs, spikeChance);
+            long t2 = t1 + forward + ROBOT_OFFSET_MICROS;
+            long t3 = t2 + hold;
+            long t4 = t1 + forward + hold + back;
+            assertTrue(clock.addSample(t1, t2, t3, t4));
+            if (i >= ClockSync.WINDOW)
+            {
+                int n = i - ClockSync.WINDOW;
+                run.filtered[n] = clock.getOffsetMicros() - ROBOT_OFFSET_MICROS;
+                run.single[n] = ((t2 - t1) + (t3 - t4)) / 2 - ROBOT_OFFSET_MICROS;
+                run.bound[n] = clock.getRoundTripMicros() / 2;
+            }
+        }
+        return run;
+    }
+
+    private static long delayMicros(Random random, double baseMs, double jitterMs, double spikeChance)
+    {
+        double ms = baseMs - jitterMs * Math.log(1 - random.nextDouble());
+        if (random.nextDouble() < spikeChance)
+        {
+            ms += 50;
+        }
+        return (long) (ms * 1000);
+    }
+
+    private static long worst(long[] values)
+    {
+        long worst = 0;
+        for (long v : values)
+        {
+            worst = Math.max(worst, Math.abs(v));
+        }
+        return worst;
+    }
+
+    //Mean Distance From the Error Lopsided Delays Alone Would Give
+    private static double meanDeviation(long[] values, double forwardMs, double backMs)
+    {
+        double bias = (forwardMs - backMs) * 1000 / 2;
+        double sum = 0;
+        for (long v : values)
+        {
+            sum += Math.abs(v - bias);
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * Checks Every Estimate Once the Window is Full Against Half the Asymmetry (Plus the Slack When There is Jitter)
+     * @return The Run, for Further Checks
+     */
+    private static Run assertWithinHalfTheAsymmetry(long seed, double forwardMs, double backMs, double jitterMs,
+                                                    double spikeChance)
+    {
+        Run run = simulate(seed, forwardMs, backMs, jitterMs, spikeChance);
+        long halfAsymmetry = (long) (Math.abs(forwardMs - backMs) * 1000 / 2);
+        long slack = jitterMs > 0 ? FILTERED_SLACK_MICROS : 1;
+        for (int n = 0; n < run.filtered.length; n++)
+        {
+            String what = "seed " + seed + ", " + forwardMs + "ms/" + backMs + "ms, " + jitterMs + "ms jitter, exchange "
+                    + (n + ClockSync.WINDOW);
+            assertTrue(what + ": error " + run.filtered[n] + "us", Math.abs(run.filtered[n]) <= halfAsymmetry + slack);
+            //And the Error Bound ClockSync Reports Always Holds
+            assertTrue(what + ": bound " + run.bound[n] + "us", Math.abs(run.filtered[n]) <= run.bound[n] + 1);
+        }
+        return run;
+    }
+
+    @Test
+    public void symmetricLinkWithoutJitterIsExact()
+    {
+        assertWithinHalfTheAsymmetry(254, 2, 2, 0, 0);
+    }
+
+    @Test
+    public void lopsidedLinkErrorIsHalfTheAsymmetry()
+    {
+        for (long seed : SEEDS)
+        {
+            Run run = assertWithinHalfTheAsymmetry(seed, 1, 9, 0, 0);
+            //Always Lopsided the Same Way - Not Something Either End Can Filter Out
+            assertEquals(-4000, run.filtered[run.filtered.length - 1], 1);
+        }
+    }
+
+    @Test
+    public void filterRemovesJitter()
+    {
+        for (long seed : SEEDS)
+        {
+            Run symmetric = assertWithinHalfTheAsymmetry(seed, 2, 2, JITTER_MS, 0);
+            Run lopsided = assertWithinHalfTheAsymmetry(seed, 1, 9, JITTER_MS, 0);
+            //Taken on its Own, an Exchange is Usually Much Further Off
+            assertTrue(meanDeviation(symmetric.filtered, 2, 2) * 2 < meanDeviation(symmetric.single, 2, 2));
+            assertTrue(meanDeviation(lopsided.filtered, 1, 9) * 2 < meanDeviation(lopsided.single, 1, 9));
+        }
+    }
+
+    @Test
+    public void filterRejectsQueueingSpikes()
+    {
+        for (long seed : SEEDS)
+        {
+            Run symmetric = assertWithinHalfTheAsymmetry(seed, 2, 2, JITTER_MS, 0.1);
+            Run lopsided = assertWithinHalfTheAsymmetry(seed, 1, 9, JITTER_MS, 0.1);
+            //The Spikes Were There - Exchanges Taken on Their Own Land a Quarter of a Spike Out or More
+            assertTrue(worst(symmetric.single) > 20000);
+            assertTrue(worst(lopsided.single) > 20000);
+        }
+    }
+
+    @Test
+    public void spikeBurstShorterThanTheWindowLeavesTheEstimateAlone()
+    {
+        ClockSync clock = new ClockSync();
+        long t1 = 0;
+        for (int i = 0; i < ClockSync.WINDOW; i++, t1 += 100000)
+        {
+            long t2 = t1 + 2000 + ROBOT_OFFSET_MICROS;
+            clock.addSample(t1, t2, t2 + 200, t1 + 4200);
+        }
+        assertEquals(ROBOT_OFFSET_MICROS, clock.getOffsetMicros());
+        assertEquals(4000, clock.getRoundTripMicros());
+
+        //Every Heartbeat to the Robot Held Up 50ms - Each Alone Would Put the Offset 25ms Out
+        for (int i = 0; i < ClockSync.WINDOW - 1; i++, t1 += 100000)
+        {
+            long t2 = t1 + 52000 + ROBOT_OFFSET_MICROS;
+            clock.addSample(t1, t2, t2 + 200, t1 + 54200);
+            assertEquals(ROBOT_OFFSET_MICROS, clock.getOffsetMicros());
+        }
+        //Once it Lasts a Whole Window the Filter Has Nothing Better Left - Still Within Half its Round Trip
+        long t2 = t1 + 52000 + ROBOT_OFFSET_MICROS;
+        clock.addSample(t1, t2, t2 + 200, t1 + 54200);
+        assertEquals(ROBOT_OFFSET_MICROS + 25000, clock.getOffsetMicros());
+        assertEquals(54000, clock.getRoundTripMicros());
+    }
+
+    @Test
+    public void impossibleTimesAreIgnored()
+    {
+        ClockSync clock = new ClockSync();
+        assertTrue(clock.addSample(0, ROBOT_OFFSET_MICROS + 1000, ROBOT_OFFSET_MICROS + 1100, 2100));
+        long offset = clock.getOffsetMicros();
+        //Reply Before the Request, the Robot Replying Before it Heard, a Robot Hold Longer Than the Round Trip
+        assertFalse(clock.addSample(5000, ROBOT_OFFSET_MICROS, ROBOT_OFFSET_MICROS, 4000));
+        assertFalse(clock.addSample(0, ROBOT_OFFSET_MICROS + 1000, ROBOT_OFFSET_MICROS + 900, 2100));
+        assertFalse(clock.addSample(0, ROBOT_OFFSET_MICROS, ROBOT_OFFSET_MICROS + 5000, 2000));
+        assertEquals(offset, clock.getOffsetMicros());
+    }
+
+    private static long robotMicros()
+    {
+        return System.nanoTime() / 1000L + ROBOT_OFFSET_MICROS;
+    }
+
+    /**
+     * RobotLink Against a Mock Robot Over Loopback - Every Binary Target Update Carries its Capture Time on the Robot's
+     * Clock, and That Time is Right to Within a Few Milliseconds (Loopback Adds No Lopsided Delay of its Own)
+     */
+    @Test(timeout = 20000)
+    public void loopbackUpdatesCarryTheRobotCaptureTime() throws Exception
+    {
+        final int frames = 60;
+        final long[] capturedAt = new long[frames];
+        final List<Long> errors = new ArrayList<>();
+        final long[] echo = {-1, -1};
+        final ServerSocket robot = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+
+        Thread mock = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try (Socket socket = robot.accept())
+                {
+                    socket.setTcpNoDelay(true);
+                    readPhone(socket.getInputStream(), socket.getOutputStream(), echo, capturedAt, errors);
+                }
+                catch (IOException e)
+                {
+                    //Closed at the End of the Test
+                }
+            }
+        }, "mock-robot");
+        mock.setDaemon(true);
+        mock.start();
+
+        RobotLink link = new RobotLink(InetAddress.getLoopbackAddress().getHostAddress(), robot.getLocalPort(),
+                HEARTBEAT_PERIOD_MS, 800, 100, new RobotLink.Listener()
+        {
+            @Override
+            public void onRobotConnected()
+            {
+            }
+
+            @Override
+            public void onRobotDisconnected()
+            {
+            }
+
+            @Override
+            public void onMessage(VisionMessage message)
+            {
+            }
+
+            @Override
+            public void onSent(VisionMessage message, long nowNanos)
+            {
+            }
+        });
+        try
+        {
+            link.start();
+            while (!link.getClock().isSynced())
+            {
+                Thread.sleep(10);
+            }
+            //Lets the Window Fill Before Judging it - the First Exchanges Also Pay for Class Loading
+            Thread.sleep(ClockSync.WINDOW * HEARTBEAT_PERIOD_MS * 2);
+            for (int i = 0; i < frames; i++)
+            {
+                long now = System.nanoTime();
+                capturedAt[i] = now;
+                TargetUpdateMessage message = TargetUpdateMessage.obtain(now, i);
+                message.getUpdate().addCameraTarget(0.1, 0.2);
+                message.setTimestamp(now);
+                link.send(message);
+                Thread.sleep(5);
+            }
+            Thread.sleep(200);
+        }
+        finally
+        {
+            link.stop();
+            robot.close();
+        }
+
+        synchronized (errors)
+        {
+            assertFalse(errors.isEmpty());
+            for (long error : errors)
+            {
+                assertTrue("error " + error + "us", Math.abs(error) <= LOOPBACK_BOUND_MICROS);
+            }
+        }
+    }
+
+    /**
+     * The Mock Robot - Answers Each Phone Heartbeat With its Own, Echoing it NTP Style, and Checks the Robot-Clock
+     * Capture Time of Every Binary Target Frame Against the Truth
+     */
+    private static void readPhone(InputStream in, OutputStream out, long[] echo, long[] capturedAt, List<Long> errors)
+            throws IOException
+    {
+        Pattern phoneSent = Pattern.compile("\\\\\"sent\\\\\":(\\d+)");
+        BinaryWireFormat.Decoder decoder = new BinaryWireFormat.Decoder();
+        BinaryWireFormat.Targets targets = new BinaryWireFormat.Targets();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        int read;
+        while ((read = in.read(buffer.array(), buffer.position(), buffer.remaining())) > 0)
+        {
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                if (buffer.get(buffer.position()) == BinaryWireFormat.MARKER)
+                {
+                    byte type = decoder.decode(buffer, targets);
+                    if (type == 0)
+                    {
+                        break;
+                    }
+                    if (type == BinaryWireFormat.TYPE_TARGETS && targets.robotCapturedAtMicros >= 0
+                            && targets.frameId >= 0 && targets.frameId < capturedAt.length)
+                    {
+                        long truth = capturedAt[(int) targets.frameId] / 1000L + ROBOT_OFFSET_MICROS;
+                        synchronized (errors)
+                        {
+                            errors.add(targets.robotCapturedAtMicros - truth);
+                        }
+                    }
+                    continue;
+                }
+                int end = buffer.position();
+                while (end < buffer.limit() && buffer.get(end) != '\n')
+                {
+                    end++;
+                }
+                if (end == buffer.limit())
+                {
+                    break;
+                }
+                String line = new String(buffer.array(), buffer.position(), end - buffer.position(), "UTF-8");
+                buffer.position(end + 1);
+                Matcher sent = phoneSent.matcher(line);
+                if (line.contains("\"heartbeat\"") && sent.find())
+                {
+                    echo[0] = Long.parseLong(sent.group(1));
+                    echo[1] = robotMicros();
+                    String message = "{\\\"wire\\\":\\\"" + BinaryWireFormat.WIRE_NAME + "\\\",\\\"echo\\\":" + echo[0]
+                            + ",\\\"received\\\":" + echo[1] + ",\\\"sent\\\":" + robotMicros() + "}";
+                    out.write(("{\"type\":\"heartbeat\",\"message\":\"" + message + "\"}\n").getBytes("UTF-8"));
+                }
+            }
+            buffer.compact();
+        }
+    }
+}
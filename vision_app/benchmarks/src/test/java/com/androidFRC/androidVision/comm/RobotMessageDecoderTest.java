@@ -0,0 +1,281 @@
+package com.androidFRC.androidVision.comm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds RobotMessageDecoder the Same Stream Cut Every Way TCP Might Deliver It - Every Segment Size From 1 Up, Random
+ * Segments and Everything at Once - and Checks it Decodes Exactly the Messages Written, in Order, Every Time
+ * The Stream Mixes Heartbeats (With and Without Clock Times), Other Messages (Escaped and Not), Malformed and Blank
+ * Lines, Lines Too Long to Hold, One Just Short Enough, Binary Frames and Bytes That Only Look Like One
+ */
+public class RobotMessageDecoderTest
+{
+    private static final long[] SEEDS = {1, 2, 3, 254, 1114};
+    private static final int MAX_SEGMENT_BYTES = 64;
+    private static final int MESSAGES = 300;
+
+    /**
+     * A Stream of Bytes and What Decoding it Must Give
+     */
+    private static class Script
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final List<String> expected = new ArrayList<>();
+        long malformed;
+        long oversized;
+        long binaryFrames;
+
+        void write(String text)
+        {
+            try
+            {
+                byte[] b = text.getBytes("UTF-8");
+                bytes.write(b, 0, b.length);
+            }
+            catch (UnsupportedEncodingException e)
+            {
+                throw new AssertionError(e);
+            }
+        }
+
+        void write(byte[] b)
+        {
+            bytes.write(b, 0, b.length);
+        }
+    }
+
+    /**
+     * Records Every Message Decoded as One String, so Two Runs Can Be Compared Whole
+     */
+    private static class Recorder implements RobotMessageDecoder.Handler
+    {
+        final List<String> decoded = new ArrayList<>();
+
+        @Override
+        public void onHeartbeat(boolean binaryWire, long echoMicros, long receivedMicros, long sentMicros)
+        {
+            decoded.add(heartbeat(binaryWire, echoMicros, receivedMicros, sentMicros));
+        }
+
+        @Override
+        public void onMessage(String type, String message)
+        {
+            decoded.add(message(type, message));
+        }
+    }
+
+    private static String heartbeat(boolean binaryWire, long echo, long received, long sent)
+    {
+        return "heartbeat " + binaryWire + " " + echo + " " + received + " " + sent;
+    }
+
+    private static String message(String type, String message)
+    {
+        return "message " + type + " " + message;
+    }
+
+    private static String repeat(char c, int count)
+    {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static Script script(long seed)
+    {
+        Random random = new Random(seed);
+        Script script = new Script();
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            int kind = random.nextInt(40);
+            if (kind < 2)
+            {
+                script.write("{\"type\":\"camera_mode\",\"message\":\"intake\"}\n");
+                script.expected.add(message("camera_mode", "intake"));
+            }
+            else if (kind < 4)
+            {
+                script.write("{\"type\":\"note\",\"message\":\"a\\\"b\\\\c\\nd\\u00e9\\ud83d\\ude00\"}\r\n");
+                script.expected.add(message("note", "a\"b\\c\nd\u00e9\ud83d\ude00"));
+            }
+            else if (kind == 4)
+            {
+                script.write("{ \"message\" : {\"a\":[1,{\"b\":\"}\"}]} , \"type\" : \"config\" }\n");
+                script.expected.add(message("config", "{\"a\":[1,{\"b\":\"}\"}]}"));
+            }
+            else if (kind == 5)
+            {
+                script.write(random.nextBoolean() ? "not json\n" : "{\"type\":1,\"message\":\"x\"}\n");
+                script.malformed++;
+            }
+            else if (kind == 6)
+            {
+                script.write(random.nextBoolean() ? "\n" : "  \r\n");
+            }
+            else if (kind == 7)
+            {
+                //Longer Than the Decoder Holds - Skipped Up to its Line Break, Whatever it Says
+                int extra = random.nextInt(6000);
+                script.write("{\"type\":\"camera_mode\",\"message\":\""
+                        + repeat('x', RobotMessageDecoder.MAX_LINE_LENGTH + extra) + "\"}\n");
+                script.oversized++;
+            }
+            else if (kind == 8)
+            {
+                //Exactly Fills the Decoder's Buffer, Line Break Included
+                String prefix = "{\"type\":\"long\",\"message\":\"";
+                String body = repeat('y', RobotMessageDecoder.MAX_LINE_LENGTH - 1 - prefix.length() - 2);
+                script.write(prefix + body + "\"}\n");
+                script.expected.add(message("long", body));
+            }
+            else if (kind < 12)
+            {
+                //Target Floats Are Random Bytes, so Line Breaks and Braces Turn Up Inside the Frame Bodies
+                List<CameraTargetInfo> targets = new ArrayList<>();
+                int count = random.nextInt(24);
+                for (int t = 0; t < count; t++)
+                {
+                    targets.add(new CameraTargetInfo(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1));
+                }
+                long frameId = random.nextBoolean() ? random.nextInt(1 << 20) : -1;
+                long robotTime = random.nextBoolean() ? random.nextLong() & 0xFFFFFFFFFFL : -1;
+                ByteBuffer out = ByteBuffer.allocate(BinaryWireFormat.maxTargetsFrameSize(count));
+                BinaryWireFormat.writeTargets(out, frameId, robotTime, random.nextInt(100), targets);
+                script.write(Arrays.copyOf(out.array(), out.position()));
+                script.binaryFrames += 1 + (frameId >= 0 ? 1 : 0) + (robotTime >= 0 ? 1 : 0);
+            }
+            else if (kind == 12)
+            {
+                //A Marker Whose Length is Out of Range - Not a Frame, so the Rest of its Line Goes Too
+                script.write(new byte[] {BinaryWireFormat.MARKER, 0});
+                script.write("{\"type\":\"camera_mode\",\"message\":\"lost\"}\n");
+                script.malformed++;
+            }
+            else
+            {
+                boolean wire = random.nextBoolean();
+                boolean clock = random.nextBoolean();
+                long echo = clock ? random.nextLong() & 0xFFFFFFFFFFFFL : -1;
+                long received = clock ? random.nextLong() & 0xFFFFFFFFFFFFL : -1;
+                long sent = clock ? received + random.nextInt(1000) : -1;
+                StringBuilder inner = new StringBuilder("{");
+                if (wire)
+                {
+                    inner.append("\\\"wire\\\":\\\"").append(BinaryWireFormat.WIRE_NAME).append("\\\"");
+                }
+                if (clock)
+                {
+                    inner.append(wire ? "," : "").append("\\\"echo\\\":").append(echo)
+                            .append(",\\\"received\\\":").append(received).append(",\\\"sent\\\":").append(sent);
+                }
+                inner.append("}");
+                script.write("{\"type\":\"heartbeat\",\"message\":\"" + inner + "\"}\n");
+                script.expected.add(heartbeat(wire, echo, received, sent));
+            }
+        }
+        return script;
+    }
+
+    private static void assertDecoded(Script script, RobotMessageDecoder decoder, Recorder recorder, String how)
+    {
+        assertEquals(how, script.expected, recorder.decoded);
+        assertEquals(how, script.malformed, decoder.getMalformed());
+        assertEquals(how, script.oversized, decoder.getOversized());
+        assertEquals(how, script.binaryFrames, decoder.getBinaryFrames());
+    }
+
+    @Test
+    public void everySegmentSizeDecodesTheSameMessages()
+    {
+        for (long seed : SEEDS)
+        {
+            Script script = script(seed);
+            byte[] stream = script.bytes.toByteArray();
+            int[] extraSizes = {1500, RobotMessageDecoder.MAX_LINE_LENGTH, 65536, stream.length};
+            for (int i = 1; i <= MAX_SEGMENT_BYTES + extraSizes.length; i++)
+            {
+                int segmentBytes = i <= MAX_SEGMENT_BYTES ? i : extraSizes[i - MAX_SEGMENT_BYTES - 1];
+                RobotMessageDecoder decoder = new RobotMessageDecoder();
+                Recorder recorder = new Recorder();
+                int decoded = 0;
+                for (int p = 0; p < stream.length; p += segmentBytes)
+                {
+                    decoded += decoder.feed(ByteBuffer.wrap(stream, p, Math.min(segmentBytes, stream.length - p)),
+                            recorder);
+                }
+                String how = "seed " + seed + ", " + segmentBytes + " byte segments";
+                assertDecoded(script, decoder, recorder, how);
+                assertEquals(how, script.expected.size(), decoded);
+            }
+        }
+    }
+
+    @Test
+    public void randomSegmentsDecodeTheSameMessages()
+    {
+        for (long seed : SEEDS)
+        {
+            Script script = script(seed);
+            byte[] stream = script.bytes.toByteArray();
+            Random random = new Random(seed * 31);
+            for (int run = 0; run < 20; run++)
+            {
+                RobotMessageDecoder decoder = new RobotMessageDecoder();
+                Recorder recorder = new Recorder();
+                int maxSegment = 1 << random.nextInt(14);
+                for (int p = 0; p < stream.length; )
+                {
+                    int n = Math.min(1 + random.nextInt(maxSegment), stream.length - p);
+                    decoder.feed(ByteBuffer.wrap(stream, p, n), recorder);
+                    p += n;
+                }
+                assertDecoded(script, decoder, recorder, "seed " + seed + ", segments up to " + maxSegment);
+            }
+        }
+    }
+
+    @Test
+    public void readingIntoTheBufferDecodesTheSameMessages()
+    {
+        //The Way RobotLink Reads - Straight Into getBuffer(), as Much as Fits, Then decode
+        for (long seed : SEEDS)
+        {
+            Script script = script(seed);
+            byte[] stream = script.bytes.toByteArray();
+            Random random = new Random(seed * 17);
+            RobotMessageDecoder decoder = new RobotMessageDecoder();
+            Recorder recorder = new Recorder();
+            for (int p = 0; p < stream.length; )
+            {
+                ByteBuffer buffer = decoder.getBuffer();
+                int n = Math.min(Math.min(1 + random.nextInt(3000), buffer.remaining()), stream.length - p);
+                buffer.put(stream, p, n);
+                p += n;
+                decoder.decode(recorder);
+            }
+            assertDecoded(script, decoder, recorder, "seed " + seed);
+        }
+    }
+
+    @Test
+    public void resetDropsAPartialLine()
+    {
+        RobotMessageDecoder decoder = new RobotMessageDecoder();
+        Recorder recorder = new Recorder();
+        decoder.feed(ByteBuffer.wrap("{\"type\":\"camera_mode\",\"mess".getBytes()), recorder);
+        decoder.reset();
+        decoder.feed(ByteBuffer.wrap("{\"type\":\"heartbeat\",\"message\":\"{}\"}\n".getBytes()), recorder);
+        assertEquals(Arrays.asList(heartbeat(false, -1, -1, -1)), recorder.decoded);
+        assertEquals(0, decoder.getMalformed());
+    }
+}
@@ -0,0 +1,205 @@
+package com.androidFRC.androidVision.stream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives BitrateController With Simulated Time and a Simulated Throttled Socket - No Threads, Sockets or Sleeps
+ */
+public class BitrateControllerTest
+{
+    private static final long TARGET_BPS = 4000000;
+    private static final int FPS = 30;
+    private static final long FRAME_NANOS = 1000000000L / FPS;
+    //JPEG Size Roughly Goes With Quality and Area - 30 KB at Full Quality and Scale is 7.2 Mbps at 30 fps
+    private static final int BYTES_PER_QUALITY = 300;
+
+    /**
+     * A Socket Whose Send Buffer Drains at a Fixed Link Rate - A Frame That Does Not Fit is a Stall and is Skipped,
+     * the Way MjpgServer Skips a Frame for a Viewer Still Writing the Last One
+     */
+    private static class ThrottledSocket
+    {
+        private final double mLinkBytesPerNano;
+        private final long mBufferBytes;
+        private double mBuffered;
+        private long mLastNanos;
+        long totalBytes;
+        long totalStalls;
+
+        ThrottledSocket(long linkBitsPerSecond, long bufferBytes)
+        {
+            mLinkBytesPerNano = linkBitsPerSecond / 8e9;
+            mBufferBytes = bufferBytes;
+        }
+
+        void write(int bytes, long nowNanos)
+        {
+            mBuffered = Math.max(0, mBuffered - (nowNanos - mLastNanos) * mLinkBytesPerNano);
+            mLastNanos = nowNanos;
+            if (mBuffered + bytes > mBufferBytes)
+            {
+                totalStalls++;
+                return;
+            }
+            mBuffered += bytes;
+            totalBytes += bytes;
+        }
+    }
+
+    private static int frameBytes(BitrateController controller)
+    {
+        double scale = controller.getScaleCap();
+        return (int) (BYTES_PER_QUALITY * controller.getQualityCap() * scale * scale);
+    }
+
+    /**
+     * Runs the Stream Through a Socket for a While, One Frame (And One update) at a Time
+     * @return Simulated Time When it Stopped
+     */
+    private static long run(BitrateController controller, ThrottledSocket socket, long startNanos, long durationNanos)
+    {
+        long now = startNanos;
+        for (; now < startNanos + durationNanos; now += FRAME_NANOS)
+        {
+            socket.write(frameBytes(controller), now);
+            controller.update(socket.totalBytes, socket.totalStalls, now);
+        }
+        return now;
+    }
+
+    @Test
+    public void qualityConvergesUnderTheTarget()
+    {
+        BitrateController controller = new BitrateController(TARGET_BPS, 1.0);
+        //Link Has Room Above the Target, so Once the Controller Settles Nothing Stalls
+        ThrottledSocket socket = new ThrottledSocket(6000000, 128 * 1024);
+        long now = run(controller, socket, 0, 20000000000L);
+
+        int settledQuality = controller.getQualityCap();
+        long settledStalls = socket.totalStalls;
+        long settledBytes = socket.totalBytes;
+        long lastTen = 10000000000L;
+        run(controller, socket, now, lastTen);
+        double bitsPerSecond = (socket.totalBytes - settledBytes) * 8 * 1e9 / lastTen;
+
+        assertTrue(settledQuality < BitrateController.MAX_QUALITY);
+        assertEquals(settledQuality, controller.getQualityCap());
+        assertEquals(settledStalls, socket.totalStalls);
+        assertTrue(bitsPerSecond <= TARGET_BPS * (1 + BitrateController.HIGH_MARGIN));
+        assertTrue(bitsPerSecond >= TARGET_BPS * (1 - BitrateController.LOW_MARGIN));
+        assertEquals(1.0, controller.getScaleCap(), 0);
+    }
+
+    @Test
+    public void stallBacksOffWithoutWaitingForTheWindow()
+    {
+        BitrateController controller = new BitrateController(TARGET_BPS, 0.5);
+        long bytesPerFrame = TARGET_BPS / 8 / FPS;
+        long bytes = 0;
+        long now = 0;
+        controller.update(bytes, 0, now);
+        //Halfway Into a Window, Right at the Target - Nothing Due Yet
+        for (int i = 0; i < FPS / 4; i++)
+        {
+            now += FRAME_NANOS;
+            bytes += bytesPerFrame;
+            controller.update(bytes, 0, now);
+        }
+        assertEquals(BitrateController.MAX_QUALITY, controller.getQualityCap());
+
+        now += FRAME_NANOS;
+        controller.update(bytes, 1, now);
+        int backedOff = (int) Math.min(BitrateController.MAX_QUALITY - BitrateController.QUALITY_STEP,
+                BitrateController.MAX_QUALITY * BitrateController.BACKOFF_FACTOR);
+        assertEquals(backedOff, controller.getQualityCap());
+
+        //Another Stall Inside the Hold Does Not Back Off Twice
+        now += FRAME_NANOS;
+        controller.update(bytes, 2, now);
+        assertEquals(backedOff, controller.getQualityCap());
+
+        now += BitrateController.BACKOFF_HOLD_NANOS;
+        controller.update(bytes, 3, now);
+        assertTrue(controller.getQualityCap() < backedOff);
+    }
+
+    @Test
+    public void capOnlyRisesAfterEnoughCalmWindows()
+    {
+        BitrateController controller = new BitrateController(TARGET_BPS, 1.0);
+        long window = BitrateController.WINDOW_NANOS;
+        long overWindow = (long) (TARGET_BPS * 2 / 8 * (window / 1e9));
+        long calmWindow = (long) (TARGET_BPS / 2 / 8 * (window / 1e9));
+        long bytes = 0;
+        long now = 0;
+        controller.update(bytes, 0, now);
+        now += window;
+        bytes += overWindow;
+        controller.update(bytes, 0, now);
+        int lowered = controller.getQualityCap();
+        assertTrue(lowered < BitrateController.MAX_QUALITY);
+
+        for (int i = 1; i < BitrateController.RAISE_AFTER_WINDOWS; i++)
+        {
+            now += window;
+            bytes += calmWindow;
+            controller.update(bytes, 0, now);
+            assertEquals(lowered, controller.getQualityCap());
+        }
+        //One Window Inside the Hysteresis Band Starts the Count Over
+        now += window;
+        bytes += (long) (TARGET_BPS / 8 * (window / 1e9));
+        controller.update(bytes, 0, now);
+        for (int i = 0; i < BitrateController.RAISE_AFTER_WINDOWS - 1; i++)
+        {
+            now += window;
+            bytes += calmWindow;
+            controller.update(bytes, 0, now);
+            assertEquals(lowered, controller.getQualityCap());
+        }
+        now += window;
+        bytes += calmWindow;
+        controller.update(bytes, 0, now);
+        assertEquals(lowered + BitrateController.QUALITY_STEP, controller.getQualityCap());
+    }
+
+    @Test
+    public void scaleOnlyDropsOnceQualityIsAtItsFloor()
+    {
+        double minScale = 0.5;
+        BitrateController controller = new BitrateController(TARGET_BPS, minScale);
+        //Far Too Slow for Even the Smallest Image - Every Window Overshoots and Every Write Stalls
+        ThrottledSocket socket = new ThrottledSocket(100000, 16 * 1024);
+        long now = 0;
+        boolean scaled = false;
+        for (int i = 0; i < 2000; i++, now += FRAME_NANOS)
+        {
+            socket.write(frameBytes(controller), now);
+            controller.update(socket.totalBytes, socket.totalStalls, now);
+            if (controller.getScaleCap() < 1.0)
+            {
+                assertEquals(BitrateController.MIN_QUALITY, controller.getQualityCap());
+                scaled = true;
+            }
+        }
+        assertTrue(scaled);
+        assertEquals(BitrateController.MIN_QUALITY, controller.getQualityCap());
+        assertEquals(minScale, controller.getScaleCap(), 0);
+
+        //Viewers Gone Quiet (Totals Stop Moving) - Size Comes Back Before Quality
+        for (int i = 0; i < 2000 && controller.getScaleCap() < 1.0; i++, now += FRAME_NANOS)
+        {
+            controller.update(socket.totalBytes, socket.totalStalls, now);
+            assertEquals(BitrateController.MIN_QUALITY, controller.getQualityCap());
+        }
+        assertEquals(1.0, controller.getScaleCap(), 0);
+        for (int i = 0; i < 2000 && controller.getQualityCap() == BitrateController.MIN_QUALITY; i++, now += FRAME_NANOS)
+        {
+            controller.update(socket.totalBytes, socket.totalStalls, now);
+        }
+        assertEquals(BitrateController.MIN_QUALITY + BitrateController.QUALITY_STEP, controller.getQualityCap());
+    }
+}
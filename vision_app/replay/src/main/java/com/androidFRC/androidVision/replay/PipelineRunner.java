@@ -0,0 +1,332 @@
+package com.androidFRC.androidVision.replay;
+
+import com.androidFRC.androidVision.pipeline.FrameLink;
+import com.androidFRC.androidVision.pipeline.FramePipeline;
+import com.androidFRC.androidVision.pipeline.FrameStage;
+import com.androidFRC.androidVision.vision.CandidateList;
+import com.androidFRC.androidVision.vision.ContourExtractor;
+import com.androidFRC.androidVision.vision.Frame;
+import com.androidFRC.androidVision.vision.FrameSource;
+import com.androidFRC.androidVision.vision.ReplayFrameSource;
+import com.androidFRC.androidVision.vision.SyntheticFrameSource;
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+import com.androidFRC.androidVision.vision.TargetPipeline;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the Phone's Per-Frame Work - Threshold and Contours, Target Filtering, Drawing and JPEG Encoding - First on One
+ * Thread, Then Split Into Stages the Same Way as VisionPipeline (See pipeline/FramePipeline), and Prints the Frame Rate of Each
+ *
+ * Usage: PipelineRunner [recording] [--frames N] [--size WxH] [--fps F] [--capacity C] [--quality Q] [--realtime]
+ *   recording - Directory of Frames or Container File (See ReplayFrameSource); Without One, Frames Are Generated
+ *   --frames N - Generated Frames to Run (Default 600)
+ *   --size WxH - Generated Frame Size (Default 640x480)
+ *   --fps F - Rate to Generate Frames At, Like a Camera (Default 0, As Fast As Possible)
+ *   --capacity C - Frames Each Link Holds Before Dropping the Oldest (Default 2)
+ *   --quality Q - JPEG Quality (Default 80)
+ *   --realtime - Play a Recording at the Recorded Frame Rate
+ */
+public class PipelineRunner
+{
+    //Same Defaults as res/values/integers.xml
+    private static final int[] DEFAULT_HSV = {40, 80, 100, 255, 30, 255};
+    private static final Scalar TARGET_COLOR = new Scalar(0, 112, 255);
+
+    private String mRecording;
+    private ReplayFrameSource.Pace mPace = ReplayFrameSource.Pace.AS_FAST_AS_POSSIBLE;
+    private long mFrames = 600;
+    private int mWidth = 640;
+    private int mHeight = 480;
+    private double mFps;
+    private int mCapacity = 2;
+    private int mQuality = 80;
+
+    public static void main(String[] args) throws IOException
+    {
+        PipelineRunner runner = new PipelineRunner();
+        for (int a = 0; a < args.length; a++)
+        {
+            String arg = args[a];
+            if (arg.equals("--frames") && a + 1 < args.length)
+            {
+                runner.mFrames = Long.parseLong(args[++a]);
+            }
+            else if (arg.equals("--size") && a + 1 < args.length)
+            {
+                String[] parts = args[++a].split("x");
+                if (parts.length != 2)
+                {
+                    throw new IllegalArgumentException("--size takes WIDTHxHEIGHT");
+                }
+                runner.mWidth = Integer.parseInt(parts[0].trim());
+                runner.mHeight = Integer.parseInt(parts[1].trim());
+            }
+            else if (arg.equals("--fps") && a + 1 < args.length)
+            {
+                runner.mFps = Double.parseDouble(args[++a]);
+            }
+            else if (arg.equals("--capacity") && a + 1 < args.length)
+            {
+                runner.mCapacity = Integer.parseInt(args[++a]);
+            }
+            else if (arg.equals("--quality") && a + 1 < args.length)
+            {
+                runner.mQuality = Integer.parseInt(args[++a]);
+            }
+            else if (arg.equals("--realtime"))
+            {
+                runner.mPace = ReplayFrameSource.Pace.REAL_TIME;
+            }
+            else if (!arg.startsWith("--") && runner.mRecording == null)
+            {
+                runner.mRecording = arg;
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        nu.pattern.OpenCV.loadShared();
+
+        runner.runSerial();
+        runner.runStaged();
+    }
+
+    private FrameSource openSource() throws IOException
+    {
+        if (mRecording != null)
+        {
+            return new ReplayFrameSource(new File(mRecording), mPace);
+        }
+        return new SyntheticFrameSource(mWidth, mHeight, 120, mFrames, mFps);
+    }
+
+    /**
+     * Every Step of Every Frame on This Thread, Like the Phone Without the Staged Pipeline
+     */
+    private void runSerial() throws IOException
+    {
+        Worker worker = new Worker(mQuality);
+        HostFrame frame = new HostFrame();
+        long frames = 0;
+        long withTarget = 0;
+        long start;
+        try (FrameSource source = openSource())
+        {
+            start = System.nanoTime();
+            while (source.next(frame.image))
+            {
+                worker.process(frame);
+                worker.encode(frame);
+                frames++;
+                if (frame.targets.count > 0)
+                {
+                    withTarget++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.US, "serial: %d frames in %.2fs (%.1f fps), %d with a target",
+                frames, seconds, frames / seconds, withTarget));
+    }
+
+    /**
+     * This Thread Captures; Processing, Encoding and Publishing Each Get a Thread, Always Taking the Newest Frame
+     */
+    private void runStaged() throws IOException
+    {
+        FrameLink.Factory<HostFrame> factory = new FrameLink.Factory<HostFrame>()
+        {
+            @Override
+            public HostFrame create()
+            {
+                return new HostFrame();
+            }
+        };
+        FramePipeline pipeline = new FramePipeline();
+        final FrameLink<HostFrame> captured = pipeline.addLink(new FrameLink<>("captured", mCapacity, factory));
+        final FrameLink<HostFrame> processed = pipeline.addLink(new FrameLink<>("processed", mCapacity, factory));
+        final FrameLink<HostFrame> encoded = pipeline.addLink(new FrameLink<>("encoded", mCapacity, factory));
+        //One Worker per Stage - Each is Only Used by its Own Stage's Thread
+        final Worker processWorker = new Worker(mQuality);
+        final Worker encodeWorker = new Worker(mQuality);
+        final long[] published = new long[1];
+        final long[] outOfOrder = new long[1];
+        pipeline.addStage(new FrameStage<HostFrame, HostFrame>("process", captured, processed)
+        {
+            @Override
+            protected boolean process(HostFrame in, HostFrame out)
+            {
+                processWorker.process(in);
+                in.moveTo(out);
+                return true;
+            }
+        });
+        pipeline.addStage(new FrameStage<HostFrame, HostFrame>("encode", processed, encoded)
+        {
+            @Override
+            protected boolean process(HostFrame in, HostFrame out)
+            {
+                encodeWorker.encode(in);
+                in.moveTo(out);
+                return true;
+            }
+        });
+        pipeline.addStage(new FrameStage<HostFrame, Void>("publish", encoded, null)
+        {
+            private long mLastIndex = -1;
+
+            @Override
+            protected boolean process(HostFrame in, Void out)
+            {
+                //Skipping Frames is Expected, Going Backwards Never Is
+                if (in.image.index <= mLastIndex)
+                {
+                    outOfOrder[0]++;
+                }
+                mLastIndex = in.image.index;
+                published[0]++;
+                return true;
+            }
+        });
+
+        long capturedFrames = 0;
+        long start;
+        long end;
+        pipeline.start();
+        try (FrameSource source = openSource())
+        {
+            start = System.nanoTime();
+            while (true)
+            {
+                HostFrame frame = captured.acquire();
+                if (!source.next(frame.image))
+                {
+                    captured.cancel(frame);
+                    break;
+                }
+                captured.publish(frame);
+                capturedFrames++;
+            }
+            //Lets the Frames Still in the Links Drain Before Stopping
+            while (captured.getDepth() + processed.getDepth() + encoded.getDepth() > 0)
+            {
+                Thread.yield();
+            }
+            end = System.nanoTime();
+        }
+        finally
+        {
+            pipeline.stop();
+        }
+
+        double seconds = (end - start) / 1e9;
+        System.out.println(String.format(Locale.US,
+                "staged: %d frames captured, %d published in %.2fs (%.1f fps), %d out of order",
+                capturedFrames, published[0], seconds, published[0] / seconds, outOfOrder[0]));
+        System.out.print(pipeline.toText());
+    }
+
+    /**
+     * Everything Known About One Frame (Mirrors VisionPipeline.VisionFrame)
+     */
+    private static class HostFrame
+    {
+        Frame image = new Frame();
+        Mat mask = new Mat();
+        CandidateList targets = new CandidateList();
+        MatOfByte jpeg = new MatOfByte();
+
+        /**
+         * Swaps Contents With Another Frame, so Images Are Never Copied
+         * @param dst - Frame Going Downstream
+         */
+        void moveTo(HostFrame dst)
+        {
+            Frame image = dst.image;
+            dst.image = this.image;
+            this.image = image;
+            Mat mask = dst.mask;
+            dst.mask = this.mask;
+            this.mask = mask;
+            CandidateList targets = dst.targets;
+            dst.targets = this.targets;
+            this.targets = targets;
+            MatOfByte jpeg = dst.jpeg;
+            dst.jpeg = this.jpeg;
+            this.jpeg = jpeg;
+        }
+    }
+
+    /**
+     * The Work Itself, With Scratch Space for One Thread
+     */
+    private static class Worker
+    {
+        private final ContourExtractor mExtractor = new ContourExtractor();
+        private final TargetPipeline mPipeline = new TargetFilterSettings().buildPipeline();
+        private final CandidateList mCandidates = new CandidateList();
+        private final Mat mBgr = new Mat();
+        private final List<MatOfPoint> mOutlines = new ArrayList<>();
+        private final MatOfInt mJpegParams;
+
+        Worker(int quality)
+        {
+            mJpegParams = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, quality);
+            mExtractor.setThresholdRanges(DEFAULT_HSV[0], DEFAULT_HSV[1], DEFAULT_HSV[2],
+                    DEFAULT_HSV[3], DEFAULT_HSV[4], DEFAULT_HSV[5]);
+        }
+
+        /**
+         * Threshold, Contours and Target Filtering (The Phone's Process Stage)
+         */
+        void process(HostFrame frame)
+        {
+            mExtractor.thresholdRgba(frame.image.rgba, frame.mask);
+            mExtractor.findCandidates(frame.mask, mCandidates);
+            frame.targets.set(mPipeline.process(mCandidates));
+        }
+
+        /**
+         * Draws the Targets and JPEG Encodes the Frame (The Phone's Encode Stage)
+         */
+        void encode(HostFrame frame)
+        {
+            Imgproc.cvtColor(frame.image.rgba, mBgr, Imgproc.COLOR_RGBA2BGR);
+            CandidateList targets = frame.targets;
+            for (int i = 0; i < targets.count; i++)
+            {
+                if (mOutlines.size() <= i)
+                {
+                    mOutlines.add(new MatOfPoint());
+                }
+                MatOfPoint outline = mOutlines.get(i);
+                int offset = targets.pointOffset[i];
+                Point[] points = new Point[targets.pointCount[i]];
+                for (int p = 0; p < points.length; p++)
+                {
+                    points[p] = new Point(targets.points[(offset + p) * 2], targets.points[(offset + p) * 2 + 1]);
+                }
+                outline.fromArray(points);
+                Imgproc.circle(mBgr, new Point(targets.centroidX[i], targets.centroidY[i]), 5, TARGET_COLOR, 3);
+            }
+            Imgproc.polylines(mBgr, mOutlines.subList(0, targets.count), true, TARGET_COLOR, 3);
+            Imgcodecs.imencode(".jpg", mBgr, frame.jpeg, mJpegParams);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.androidFRC.androidVision.replay;
+
+import com.androidFRC.androidVision.vision.CandidateList;
+import com.androidFRC.androidVision.vision.ContourExtractor;
+import com.androidFRC.androidVision.vision.Frame;
+import com.androidFRC.androidVision.vision.ReplayFrameSource;
+import com.androidFRC.androidVision.vision.StageTimings;
+import com.androidFRC.androidVision.vision.TargetFilterSettings;
+import com.androidFRC.androidVision.vision.TargetPipeline;
+import com.androidFRC.androidVision.vision.YuvThresholdLut;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Feeds a Recording Through the Same Color, Threshold, Contour and Filter Stages as the Phone, and Prints How Long Each Took
+ *
+ * Usage: ReplayRunner <recording> [--realtime] [--hsv hMin,hMax,sMin,sMax,vMin,vMax] [--loops N] [--inrange | --yuv] [--verify-lut] [setting=value ...]
+ *   recording - Directory of Frames or Container File (See ReplayFrameSource)
+ *   --realtime - Play at the Recorded Frame Rate (Default is As Fast As Possible)
+ *   --inrange - Threshold the Old Way (cvtColor Twice, Then inRange) Instead of the One-Pass Lookup Table the Phone Uses
+ *   --yuv - Threshold the Recorded Camera YUV Planes (.nv21/.i420 Frames) Like the Phone's YUV Capture Path
+ *   --verify-lut - Also Threshold With cvtColor and inRange (Untimed) and Fail if the Mask Differs on Any Pixel
+ *   setting=value - Overrides a TargetFilterSettings Field, e.g. minFullness=0.5
+ */
+public class ReplayRunner
+{
+    //Same Defaults as res/values/integers.xml
+    private static final int[] DEFAULT_HSV = {40, 80, 100, 255, 30, 255};
+
+    private static final int STAGE_LOAD = 0;
+    private static final int STAGE_COLOR = 1;
+    private static final int STAGE_THRESHOLD = 2;
+    private static final int STAGE_CONTOURS = 3;
+    private static final int STAGE_FILTER = 4;
+    private static final int STAGE_TOTAL = 5;
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: ReplayRunner <recording> [--realtime] [--hsv hMin,hMax,sMin,sMax,vMin,vMax] [--loops N] "
+                    + "[--inrange | --yuv] [--verify-lut] [setting=value ...]");
+            System.exit(2);
+        }
+
+        ReplayFrameSource.Pace pace = ReplayFrameSource.Pace.AS_FAST_AS_POSSIBLE;
+        int[] hsv = DEFAULT_HSV.clone();
+        int loops = 1;
+        boolean useLut = true;
+        boolean useYuv = false;
+        boolean verifyLut = false;
+        TargetFilterSettings settings = new TargetFilterSettings();
+        for (int a = 1; a < args.length; a++)
+        {
+            String arg = args[a];
+            if (arg.equals("--realtime"))
+            {
+                pace = ReplayFrameSource.Pace.REAL_TIME;
+            }
+            else if (arg.equals("--hsv") && a + 1 < args.length)
+            {
+                String[] parts = args[++a].split(",");
+                if (parts.length != 6)
+                {
+                    throw new IllegalArgumentException("--hsv takes six comma separated values");
+                }
+                for (int i = 0; i < 6; i++)
+                {
+                    hsv[i] = Integer.parseInt(parts[i].trim());
+                }
+            }
+            else if (arg.equals("--inrange"))
+            {
+                useLut = false;
+            }
+            else if (arg.equals("--yuv"))
+            {
+                useYuv = true;
+            }
+            else if (arg.equals("--verify-lut"))
+            {
+                verifyLut = true;
+            }
+            else if (arg.equals("--loops") && a + 1 < args.length)
+            {
+                loops = Integer.parseInt(args[++a]);
+            }
+            else if (arg.indexOf('=') > 0)
+            {
+                int eq = arg.indexOf('=');
+                settings.set(arg.substring(0, eq), Double.parseDouble(arg.substring(eq + 1)));
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        nu.pattern.OpenCV.loadShared();
+
+        ContourExtractor extractor = new ContourExtractor();
+        YuvThresholdLut yuvLut = new YuvThresholdLut();
+        TargetPipeline pipeline = settings.buildPipeline();
+        CandidateList candidates = new CandidateList();
+        //With the Lookup Table, 'color' is the Table Rebuild - Only Recorded on Frames Where the Range Changed
+        StageTimings timings = new StageTimings("load", "color", "threshold", "contours", "filter", "total");
+        Frame frame = new Frame();
+        Mat hsvMat = new Mat();
+        Mat thresh = new Mat();
+        Mat reference = new Mat();
+        long mismatchedPixels = 0;
+        long mismatchedFrames = 0;
+        long frames = 0;
+        long framesWithTarget = 0;
+        long wallStart = System.nanoTime();
+
+        for (int loop = 0; loop < loops; loop++)
+        {
+            try (ReplayFrameSource source = new ReplayFrameSource(new File(args[0]), pace))
+            {
+                while (true)
+                {
+                    long t0 = System.nanoTime();
+                    if (!source.next(frame))
+                    {
+                        break;
+                    }
+                    long t1 = System.nanoTime();
+                    boolean colorRan = true;
+                    if (useYuv && !frame.hasYuv)
+                    {
+                        throw new IllegalArgumentException("--yuv needs .nv21 or .i420 frames");
+                    }
+                    if (useYuv)
+                    {
+                        colorRan = yuvLut.update(hsv[0], hsv[1], hsv[2], hsv[3], hsv[4], hsv[5]);
+                    }
+                    else if (useLut)
+                    {
+                        colorRan = extractor.setThresholdRanges(hsv[0], hsv[1], hsv[2], hsv[3], hsv[4], hsv[5]);
+                    }
+                    else
+                    {
+                        extractor.toHsv(frame.rgba, hsvMat);
+                    }
+                    long t2 = System.nanoTime();
+                    if (useYuv)
+                    {
+                        yuvLut.apply(frame.yuv, thresh);
+                    }
+                    else if (useLut)
+                    {
+                        extractor.thresholdRgba(frame.rgba, thresh);
+                    }
+                    else
+                    {
+                        extractor.threshold(hsvMat, hsv[0], hsv[1], hsv[2], hsv[3], hsv[4], hsv[5], thresh);
+                    }
+                    long t3 = System.nanoTime();
+                    extractor.findCandidates(thresh, candidates);
+                    long t4 = System.nanoTime();
+                    CandidateList targets = pipeline.process(candidates);
+                    long t5 = System.nanoTime();
+
+                    //In Real-Time Mode 'load' Includes the Pacing Sleep, so 'total' Leaves it Out
+                    timings.record(STAGE_LOAD, t1 - t0);
+                    if (colorRan)
+                    {
+                        timings.record(STAGE_COLOR, t2 - t1);
+                    }
+                    timings.record(STAGE_THRESHOLD, t3 - t2);
+                    timings.record(STAGE_CONTOURS, t4 - t3);
+                    timings.record(STAGE_FILTER, t5 - t4);
+                    timings.record(STAGE_TOTAL, t5 - t1);
+                    frames++;
+
+                    if (verifyLut)
+                    {
+                        //YUV Frames' rgba Was Converted With the Same Math the YUV Table Assumes, so it Must Match Too
+                        extractor.toHsv(frame.rgba, hsvMat);
+                        extractor.threshold(hsvMat, hsv[0], hsv[1], hsv[2], hsv[3], hsv[4], hsv[5], reference);
+                        Core.compare(thresh, reference, reference, Core.CMP_NE);
+                        int mismatched = Core.countNonZero(reference);
+                        if (mismatched > 0)
+                        {
+                            mismatchedPixels += mismatched;
+                            mismatchedFrames++;
+                        }
+                    }
+                    if (targets.count > 0)
+                    {
+                        framesWithTarget++;
+                    }
+                }
+            }
+        }
+
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+        System.out.println(String.format(Locale.US, "%d frames in %.2fs (%.1f fps), %d with a target",
+                frames, wallSeconds, frames / wallSeconds, framesWithTarget));
+        System.out.print(timings);
+        for (int s = 0; s < pipeline.getStageCount(); s++)
+        {
+            System.out.println("rejected by " + pipeline.getStageName(s) + ": " + pipeline.getRejectedCount(s));
+        }
+        if (verifyLut)
+        {
+            System.out.println((useYuv ? "YUV" : useLut ? "RGB" : "inRange") + " threshold vs inRange: " + mismatchedPixels + " pixels differ in " + mismatchedFrames + " frames");
+            if (mismatchedPixels > 0)
+            {
+                System.exit(1);
+            }
+        }
+    }
+}
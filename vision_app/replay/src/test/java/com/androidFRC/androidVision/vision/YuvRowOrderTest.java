@@ -0,0 +1,193 @@
+package com.androidFRC.androidVision.vision;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Same Scene as a GL Readback (RGBA, Bottom Row First) and as the Camera's NV21 (Top Row First) Must Give the
+ * Same Candidates - Otherwise centroidY, z and the Stacked-Pair Choice Change When YUV_THRESHOLD is Turned On
+ */
+public class YuvRowOrderTest
+{
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final int[] HSV = {40, 90, 100, 255, 50, 255};
+
+    //Full-Range Y, U, V - Dark Gray Background and a Bright Green That Passes HSV
+    private static final int[] BACKGROUND = {40, 128, 128};
+    private static final int[] GREEN = {150, 80, 60};
+
+    //Upright (Camera) Rows: {x, y, width, height} - A Wide Top Target Over a Narrow Bottom One, Even So Chroma Lines Up
+    private static final int[] TOP = {40, 20, 60, 12};
+    private static final int[] BOTTOM = {60, 70, 20, 30};
+
+    @BeforeClass
+    public static void loadOpenCv()
+    {
+        nu.pattern.OpenCV.loadShared();
+    }
+
+    private static boolean inside(int[] rect, int x, int y)
+    {
+        return x >= rect[0] && x < rect[0] + rect[2] && y >= rect[1] && y < rect[1] + rect[3];
+    }
+
+    private static int[] colorAt(int x, int y)
+    {
+        return inside(TOP, x, y) || inside(BOTTOM, x, y) ? GREEN : BACKGROUND;
+    }
+
+    /**
+     * The Scene the Way the Camera Hands it Over - Top Row First
+     */
+    private static byte[] nv21()
+    {
+        byte[] data = new byte[YuvPlanes.frameSize(WIDTH, HEIGHT)];
+        for (int y = 0, p = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++, p++)
+            {
+                data[p] = (byte) colorAt(x, y)[0];
+            }
+        }
+        for (int y = 0, p = WIDTH * HEIGHT; y < HEIGHT; y += 2)
+        {
+            for (int x = 0; x < WIDTH; x += 2, p += 2)
+            {
+                data[p] = (byte) colorAt(x, y)[2];
+                data[p + 1] = (byte) colorAt(x, y)[1];
+            }
+        }
+        return data;
+    }
+
+    /**
+     * One Full-Range YUV Color as RGB, Through the Same cvtColor the Lookup Tables Are Built With
+     */
+    private static byte[] toRgb(int[] yuv)
+    {
+        Mat ycrcb = new Mat(1, 1, CvType.CV_8UC3);
+        Mat rgb = new Mat();
+        ycrcb.put(0, 0, new byte[]{(byte) yuv[0], (byte) yuv[2], (byte) yuv[1]});
+        Imgproc.cvtColor(ycrcb, rgb, Imgproc.COLOR_YCrCb2RGB);
+        byte[] out = new byte[3];
+        rgb.get(0, 0, out);
+        ycrcb.release();
+        rgb.release();
+        return out;
+    }
+
+    /**
+     * The Same Scene the Way glReadPixels Hands it Over - Bottom Row First
+     */
+    private static Mat readback()
+    {
+        byte[] background = toRgb(BACKGROUND);
+        byte[] green = toRgb(GREEN);
+        byte[] data = new byte[WIDTH * HEIGHT * 4];
+        for (int row = 0, p = 0; row < HEIGHT; row++)
+        {
+            for (int x = 0; x < WIDTH; x++, p += 4)
+            {
+                byte[] rgb = colorAt(x, HEIGHT - 1 - row) == GREEN ? green : background;
+                data[p] = rgb[0];
+                data[p + 1] = rgb[1];
+                data[p + 2] = rgb[2];
+                data[p + 3] = (byte) 255;
+            }
+        }
+        Mat rgba = new Mat(HEIGHT, WIDTH, CvType.CV_8UC4);
+        rgba.put(0, 0, data);
+        return rgba;
+    }
+
+    private static CandidateList fromReadback()
+    {
+        ContourExtractor extractor = new ContourExtractor();
+        extractor.setThresholdRanges(HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+        Mat rgba = readback();
+        Mat thresh = new Mat();
+        CandidateList candidates = new CandidateList();
+        extractor.thresholdRgba(rgba, thresh);
+        extractor.findCandidates(thresh, candidates);
+        rgba.release();
+        thresh.release();
+        return candidates;
+    }
+
+    private static CandidateList fromNv21()
+    {
+        ContourExtractor extractor = new ContourExtractor();
+        YuvThresholdLut lut = new YuvThresholdLut();
+        lut.update(HSV[0], HSV[1], HSV[2], HSV[3], HSV[4], HSV[5]);
+        YuvPlanes planes = new YuvPlanes();
+        planes.wrapNv21(nv21(), WIDTH, HEIGHT);
+        Mat thresh = new Mat();
+        CandidateList candidates = new CandidateList();
+        lut.apply(planes, thresh);
+        extractor.findCandidates(thresh, candidates);
+        thresh.release();
+        return candidates;
+    }
+
+    @Test
+    public void nv21AndReadbackGiveTheSameCandidates()
+    {
+        CandidateList readback = fromReadback();
+        CandidateList yuv = fromNv21();
+
+        assertEquals(2, readback.count);
+        assertEquals(readback.count, yuv.count);
+        for (int i = 0; i < readback.count; i++)
+        {
+            assertEquals(readback.centroidX[i], yuv.centroidX[i], 0);
+            assertEquals(readback.centroidY[i], yuv.centroidY[i], 0);
+            assertEquals(readback.width[i], yuv.width[i], 0);
+            assertEquals(readback.height[i], yuv.height[i], 0);
+            assertEquals(readback.area[i], yuv.area[i], 0);
+            assertEquals(readback.pointOffset[i], yuv.pointOffset[i]);
+            assertEquals(readback.pointCount[i], yuv.pointCount[i]);
+        }
+        assertEquals(readback.numPoints, yuv.numPoints);
+        for (int i = 0; i < readback.numPoints * 2; i++)
+        {
+            assertEquals(readback.points[i], yuv.points[i]);
+        }
+    }
+
+    @Test
+    public void topTargetHasTheLargerCentroidY()
+    {
+        CandidateList yuv = fromNv21();
+        assertEquals(2, yuv.count);
+        int wide = yuv.width[0] > yuv.width[1] ? 0 : 1;
+        assertEquals(TOP[2], yuv.width[wide], 0);
+        //Readback Rows Count Up From the Bottom, so the Upright Top Target Sits Higher
+        assertTrue(yuv.centroidY[wide] > yuv.centroidY[1 - wide]);
+        assertEquals(HEIGHT - TOP[1], yuv.centroidY[wide], 0);
+    }
+
+    @Test
+    public void toRgbaMatchesTheReadback()
+    {
+        YuvPlanes planes = new YuvPlanes();
+        planes.wrapNv21(nv21(), WIDTH, HEIGHT);
+        Mat converted = new Mat();
+        Mat readback = readback();
+        YuvThresholdLut.toRgba(planes, converted);
+        byte[] expected = new byte[WIDTH * HEIGHT * 4];
+        byte[] actual = new byte[WIDTH * HEIGHT * 4];
+        readback.get(0, 0, expected);
+        converted.get(0, 0, actual);
+        converted.release();
+        readback.release();
+        assertArrayEquals(expected, actual);
+    }
+}